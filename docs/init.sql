@@ -184,7 +184,8 @@ CREATE TABLE IF NOT EXISTS price_tick_daily (
     id BIGSERIAL PRIMARY KEY,
     stock_id BIGINT NOT NULL,
     trade_date DATE NOT NULL,
-    prices NUMERIC(10,2)[] NOT NULL,
+    prices NUMERIC(10,2)[],
+    packed_prices BYTEA,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT uk_ptd_stock_date UNIQUE(stock_id, trade_date)
@@ -193,7 +194,12 @@ CREATE TABLE IF NOT EXISTS price_tick_daily (
 COMMENT ON TABLE price_tick_daily IS '分时行情表（按日聚合）';
 COMMENT ON COLUMN price_tick_daily.stock_id IS '股票ID';
 COMMENT ON COLUMN price_tick_daily.trade_date IS '交易日期';
-COMMENT ON COLUMN price_tick_daily.prices IS '价格数组，索引对应时间，共1440个点';
+COMMENT ON COLUMN price_tick_daily.prices IS '价格数组（旧格式），索引对应时间，共1440个点；迁移后为NULL';
+COMMENT ON COLUMN price_tick_daily.packed_prices IS '紧凑格式：版本号+点数+首价+逐点差分，zigzag varint编码，单位分';
+
+-- 旧库升级：新增紧凑列，数组列改为可空；存量数据调用 /api/admin/task/pack-tick-data 迁移，完成后 VACUUM FULL 回收空间
+ALTER TABLE price_tick_daily ADD COLUMN IF NOT EXISTS packed_prices BYTEA;
+ALTER TABLE price_tick_daily ALTER COLUMN prices DROP NOT NULL;
 
 -- ============================================
 -- 7. 新闻表
@@ -770,6 +776,7 @@ CREATE TABLE IF NOT EXISTS quant_forecast_cycle (
     snapshot_json JSONB,
     report_json JSONB,
     debate_json JSONB,
+    node_timings_json JSONB,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
@@ -782,6 +789,7 @@ COMMENT ON COLUMN quant_forecast_cycle.risk_status IS '风控状态：NORMAL/CAU
 COMMENT ON COLUMN quant_forecast_cycle.snapshot_json IS '当时FeatureSnapshot快照';
 COMMENT ON COLUMN quant_forecast_cycle.report_json IS 'LLM生成的报告';
 COMMENT ON COLUMN quant_forecast_cycle.debate_json IS '辩论摘要';
+COMMENT ON COLUMN quant_forecast_cycle.node_timings_json IS '工作流各节点耗时(ms)';
 
 CREATE INDEX idx_qfc_symbol_time ON quant_forecast_cycle(symbol, forecast_time DESC);
 
@@ -941,8 +949,32 @@ COMMENT ON COLUMN quant_reflection_memory.lesson_tags IS '结构化标签，如T
 CREATE INDEX idx_qrm_symbol_regime ON quant_reflection_memory(symbol, regime);
 CREATE INDEX idx_qrm_symbol_time ON quant_reflection_memory(symbol, created_at DESC);
 
+-- ============================================
+-- 量化预测：Agent准确率物化表（按天分桶，写验证时增量累加）
+-- ============================================
+CREATE TABLE IF NOT EXISTS quant_agent_accuracy (
+    id BIGSERIAL PRIMARY KEY,
+    symbol VARCHAR(20) NOT NULL,
+    agent VARCHAR(32) NOT NULL,
+    horizon VARCHAR(8) NOT NULL,
+    regime VARCHAR(20) NOT NULL,
+    bucket_date DATE NOT NULL,
+    total INT NOT NULL DEFAULT 0,
+    correct INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (symbol, agent, horizon, regime, bucket_date)
+);
+
+COMMENT ON TABLE quant_agent_accuracy IS 'Agent方向命中计数（symbol/agent/horizon/regime/天），滚动窗口按天求和';
+COMMENT ON COLUMN quant_agent_accuracy.regime IS '预测时的市场状态';
+COMMENT ON COLUMN quant_agent_accuracy.bucket_date IS '预测日期';
+COMMENT ON COLUMN quant_agent_accuracy.total IS '有方向(LONG/SHORT)的已验证投票数';
+COMMENT ON COLUMN quant_agent_accuracy.correct IS '投票方向与实际涨跌一致的次数';
+
 -- quant_forecast_cycle 增加辩论记录字段
 ALTER TABLE quant_forecast_cycle ADD COLUMN IF NOT EXISTS debate_json JSONB;
+-- quant_forecast_cycle 增加节点耗时字段
+ALTER TABLE quant_forecast_cycle ADD COLUMN IF NOT EXISTS node_timings_json JSONB;
 
 -- 爆仓记录（Binance WS @forceOrder 推送）
 CREATE TABLE IF NOT EXISTS force_order (
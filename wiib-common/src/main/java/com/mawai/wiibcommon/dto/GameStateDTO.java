@@ -33,4 +33,10 @@ public class GameStateDTO {
 
     /** 结算结果列表；未结算阶段为 null。 */
     private List<HandResultDTO> results;
+
+    /** 本局服务端种子的 SHA-256 承诺值（开局即下发）。 */
+    private String seedHash;
+
+    /** 本局服务端种子；结算后才下发，可用于复现牌序。 */
+    private String serverSeed;
 }
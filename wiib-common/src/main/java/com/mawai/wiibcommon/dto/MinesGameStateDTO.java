@@ -18,4 +18,6 @@ public class MinesGameStateDTO {
     private BigDecimal payout;
     private String phase;
     private BigDecimal balance;
+    private String seedHash;
+    private String serverSeed;
 }
@@ -22,4 +22,22 @@ public class OptionChainItemDTO {
 
     @Schema(description = "到期时间")
     private LocalDateTime expireAt;
+
+    @Schema(description = "权利金（与报价接口口径一致）")
+    private BigDecimal premium;
+
+    @Schema(description = "Delta：标的每变动1元权利金的变动")
+    private BigDecimal delta;
+
+    @Schema(description = "Gamma：标的每变动1元Delta的变动")
+    private BigDecimal gamma;
+
+    @Schema(description = "Theta：每过一个自然日权利金的变动")
+    private BigDecimal theta;
+
+    @Schema(description = "Vega：波动率每变动1%权利金的变动")
+    private BigDecimal vega;
+
+    @Schema(description = "定价时使用的标的价格（S）")
+    private BigDecimal spotPrice;
 }
@@ -16,4 +16,6 @@ public class VideoPokerGameStateDTO {
     private BigDecimal payout;
     private String phase;
     private BigDecimal balance;
+    private String seedHash;
+    private String serverSeed;
 }
@@ -0,0 +1,12 @@
+package com.mawai.wiibcommon.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class VideoPokerHoldEvDTO {
+    private List<Integer> held;
+    private BigDecimal ev;
+}
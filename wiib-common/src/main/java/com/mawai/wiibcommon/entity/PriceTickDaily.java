@@ -2,6 +2,8 @@ package com.mawai.wiibcommon.entity;
 
 import com.baomidou.mybatisplus.annotation.*;
 import com.mawai.wiibcommon.handler.BigDecimalArrayTypeHandler;
+import com.mawai.wiibcommon.handler.PackedPricesTypeHandler;
+import com.mawai.wiibcommon.util.TickSeriesCodec;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -20,12 +22,25 @@ public class PriceTickDaily {
 
     private LocalDate tradeDate;
 
+    /** 旧格式 NUMERIC(10,2)[]，迁移后置空 */
     @TableField(typeHandler = BigDecimalArrayTypeHandler.class)
     private List<BigDecimal> prices;
 
+    /** 紧凑格式：差分+zigzag varint 编码的分价格序列（bytea） */
+    @TableField(typeHandler = PackedPricesTypeHandler.class)
+    private int[] packedPrices;
+
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 
     @TableField(fill = FieldFill.INSERT_UPDATE)
     private LocalDateTime updatedAt;
+
+    /**
+     * 分时价格（分），优先紧凑列，未迁移的旧行回退到数组列；都没有返回 null
+     */
+    public int[] priceCents() {
+        if (packedPrices != null) return packedPrices;
+        return prices == null ? null : TickSeriesCodec.toCents(prices);
+    }
 }
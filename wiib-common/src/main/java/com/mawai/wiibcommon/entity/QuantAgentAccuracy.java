@@ -0,0 +1,31 @@
+package com.mawai.wiibcommon.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("quant_agent_accuracy")
+public class QuantAgentAccuracy {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String symbol;
+
+    private String agent;
+
+    private String horizon;
+
+    private String regime;
+
+    private LocalDate bucketDate;
+
+    private Integer total;
+
+    private Integer correct;
+
+    private LocalDateTime updatedAt;
+}
@@ -32,6 +32,10 @@ public class QuantForecastCycle {
     @TableField(typeHandler = JsonbStringTypeHandler.class)
     private String debateJson;
 
+    /** 工作流各节点耗时(ms)，如 {"regime_review":5321,"run_base_factors":6210} */
+    @TableField(typeHandler = JsonbStringTypeHandler.class)
+    private String nodeTimingsJson;
+
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 }
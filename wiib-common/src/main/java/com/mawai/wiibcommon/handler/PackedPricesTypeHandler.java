@@ -0,0 +1,40 @@
+package com.mawai.wiibcommon.handler;
+
+import com.mawai.wiibcommon.util.TickSeriesCodec;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedJdbcTypes;
+import org.apache.ibatis.type.MappedTypes;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * bytea ↔ int[]（分），编码见 {@link TickSeriesCodec}
+ */
+@MappedTypes(int[].class)
+@MappedJdbcTypes(JdbcType.BINARY)
+public class PackedPricesTypeHandler extends BaseTypeHandler<int[]> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, int[] parameter, JdbcType jdbcType) throws SQLException {
+        ps.setBytes(i, TickSeriesCodec.encode(parameter));
+    }
+
+    @Override
+    public int[] getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return TickSeriesCodec.decode(rs.getBytes(columnName));
+    }
+
+    @Override
+    public int[] getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return TickSeriesCodec.decode(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public int[] getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return TickSeriesCodec.decode(cs.getBytes(columnIndex));
+    }
+}
@@ -0,0 +1,112 @@
+package com.mawai.wiibcommon.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分时价格序列的紧凑编码（price_tick_daily.packed_prices）
+ * <p>格式：[版本号 1B][点数 varint][首价 zigzag varint][逐点差分 zigzag varint ...]，价格以“分”为整数单位。</p>
+ * <ul>
+ *   <li>相邻tick价差通常只有几分钱，差分后绝大多数点 1 字节，1440 点一天约 1.5KB（NUMERIC[] 约 12KB+）</li>
+ *   <li>解码只做整数累加，直接得到 int[]，不再为每个点分配 BigDecimal</li>
+ * </ul>
+ */
+public final class TickSeriesCodec {
+
+    public static final byte VERSION = 1;
+
+    private TickSeriesCodec() {
+    }
+
+    public static byte[] encode(int[] cents) {
+        // 最坏情况每点 5 字节
+        byte[] buf = new byte[1 + 5 + cents.length * 5];
+        int pos = 0;
+        buf[pos++] = VERSION;
+        pos = writeVarint(buf, pos, cents.length);
+        int prev = 0;
+        for (int c : cents) {
+            pos = writeVarint(buf, pos, zigzag(c - prev));
+            prev = c;
+        }
+        return Arrays.copyOf(buf, pos);
+    }
+
+    public static int[] decode(byte[] data) {
+        if (data == null) return null;
+        if (data.length == 0 || data[0] != VERSION) {
+            throw new IllegalArgumentException("不支持的分时编码版本: " + (data.length == 0 ? "empty" : data[0]));
+        }
+        int[] pos = {1};
+        int n = readVarint(data, pos);
+        int[] cents = new int[n];
+        int prev = 0;
+        for (int i = 0; i < n; i++) {
+            prev += unzigzag(readVarint(data, pos));
+            cents[i] = prev;
+        }
+        return cents;
+    }
+
+    /** 解码为元（double），供行情计算直接使用 */
+    public static double[] decodeToDouble(byte[] data) {
+        int[] cents = decode(data);
+        if (cents == null) return null;
+        double[] result = new double[cents.length];
+        for (int i = 0; i < cents.length; i++) result[i] = cents[i] / 100.0;
+        return result;
+    }
+
+    /** 元 → 分，与 setScale(2, HALF_UP) 的取整口径一致 */
+    public static int[] toCents(double[] prices) {
+        int[] cents = new int[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            cents[i] = toCents(BigDecimal.valueOf(prices[i]));
+        }
+        return cents;
+    }
+
+    public static int[] toCents(List<BigDecimal> prices) {
+        int[] cents = new int[prices.size()];
+        for (int i = 0; i < cents.length; i++) cents[i] = toCents(prices.get(i));
+        return cents;
+    }
+
+    public static int toCents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+    }
+
+    public static BigDecimal toPrice(int cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int writeVarint(byte[] buf, int pos, int v) {
+        while ((v & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= data.length) throw new IllegalArgumentException("分时编码数据被截断");
+            byte b = data[pos[0]++];
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) return result;
+        }
+        throw new IllegalArgumentException("分时编码varint过长");
+    }
+}
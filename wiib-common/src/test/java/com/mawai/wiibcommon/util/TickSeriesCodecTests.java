@@ -0,0 +1,57 @@
+package com.mawai.wiibcommon.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickSeriesCodecTests {
+
+    @Test
+    void roundTripRandomWalk() {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] cents = new int[TickTimeUtil.TOTAL_TICKS];
+        cents[0] = 12_345;
+        for (int i = 1; i < cents.length; i++) {
+            cents[i] = Math.max(1, cents[i - 1] + random.nextInt(-30, 31));
+        }
+        byte[] packed = TickSeriesCodec.encode(cents);
+        assertArrayEquals(cents, TickSeriesCodec.decode(packed));
+        // 小步长差分基本 1 字节/点
+        assertTrue(packed.length < cents.length * 2, "packed size " + packed.length);
+    }
+
+    @Test
+    void roundTripExtremes() {
+        int[] cents = {0, Integer.MAX_VALUE, 0, 99_999_999, 1, 1, 1, 50_000_000, 0};
+        assertArrayEquals(cents, TickSeriesCodec.decode(TickSeriesCodec.encode(cents)));
+        assertArrayEquals(new int[0], TickSeriesCodec.decode(TickSeriesCodec.encode(new int[0])));
+    }
+
+    @Test
+    void matchesDecimalRounding() {
+        double[] prices = {1.005, 12.344999, 99.995, 0.01, 1234.5};
+        int[] cents = TickSeriesCodec.toCents(prices);
+        for (int i = 0; i < prices.length; i++) {
+            BigDecimal expected = BigDecimal.valueOf(prices[i]).setScale(2, RoundingMode.HALF_UP);
+            assertEquals(expected, TickSeriesCodec.toPrice(cents[i]));
+        }
+        assertArrayEquals(new double[]{12.34, 5.6},
+                TickSeriesCodec.decodeToDouble(TickSeriesCodec.encode(
+                        TickSeriesCodec.toCents(List.of(new BigDecimal("12.34"), new BigDecimal("5.60"))))));
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedData() {
+        assertThrows(IllegalArgumentException.class, () -> TickSeriesCodec.decode(new byte[]{9, 1, 2}));
+        byte[] packed = TickSeriesCodec.encode(new int[]{100_000, 200_000});
+        byte[] truncated = Arrays.copyOf(packed, packed.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> TickSeriesCodec.decode(truncated));
+        assertNull(TickSeriesCodec.decode(null));
+    }
+}
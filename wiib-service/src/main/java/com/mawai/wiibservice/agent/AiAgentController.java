@@ -282,7 +282,9 @@ public class AiAgentController {
                     String debateSummary = (String) state.value("debate_summary").orElse(null);
                     String rawSnapshotJson = (String) state.value("raw_snapshot_json").orElse(null);
                     String rawReportJson = (String) state.value("raw_report_json").orElse(null);
-                    persistService.persist(forecastResult, debateSummary, rawSnapshotJson, rawReportJson);
+                    Object nodeTimings = state.value("node_timings").orElse(null);
+                    persistService.persist(forecastResult, debateSummary, rawSnapshotJson, rawReportJson,
+                            nodeTimings != null ? JSON.toJSONString(nodeTimings) : null);
                 } else {
                     log.warn("[Quant] forecast_result为空或类型异常 type={}", fr != null ? fr.getClass().getName() : "null");
                 }
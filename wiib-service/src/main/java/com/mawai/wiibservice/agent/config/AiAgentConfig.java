@@ -7,7 +7,11 @@ import com.mawai.wiibservice.agent.behavior.BehaviorAnalysisTools;
 import com.mawai.wiibservice.agent.quant.QuantForecastWorkflow;
 import com.mawai.wiibservice.agent.trading.AiTradingTools;
 import com.mawai.wiibservice.agent.quant.domain.LlmCallMode;
+import com.mawai.wiibservice.agent.quant.LlmBatchCoalescer;
+import com.mawai.wiibservice.agent.quant.QuantPartialPublisher;
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
 import com.mawai.wiibservice.agent.quant.memory.MemoryService;
+import com.mawai.wiibservice.service.NewsFeedService;
 import com.mawai.wiibservice.config.BinanceRestClient;
 import com.mawai.wiibservice.config.DeribitClient;
 import com.mawai.wiibservice.mapper.*;
@@ -46,6 +50,10 @@ public class AiAgentConfig {
     private final OrderFlowAggregator orderFlowAggregator;
     private final DepthStreamCache depthStreamCache;
     private final DeribitClient deribitClient;
+    private final LlmResponseCache llmResponseCache;
+    private final NewsFeedService newsFeedService;
+    private final LlmBatchCoalescer llmBatchCoalescer;
+    private final QuantPartialPublisher quantPartialPublisher;
 
     public AiAgentConfig(UserMapper userMapper,
                          UserAssetSnapshotMapper snapshotMapper,
@@ -66,7 +74,11 @@ public class AiAgentConfig {
                          ForceOrderService forceOrderService,
                          OrderFlowAggregator orderFlowAggregator,
                          DepthStreamCache depthStreamCache,
-                         DeribitClient deribitClient) {
+                         DeribitClient deribitClient,
+                         LlmResponseCache llmResponseCache,
+                         NewsFeedService newsFeedService,
+                         LlmBatchCoalescer llmBatchCoalescer,
+                         QuantPartialPublisher quantPartialPublisher) {
         this.userMapper = userMapper;
         this.snapshotMapper = snapshotMapper;
         this.positionMapper = positionMapper;
@@ -87,6 +99,10 @@ public class AiAgentConfig {
         this.orderFlowAggregator = orderFlowAggregator;
         this.depthStreamCache = depthStreamCache;
         this.deribitClient = deribitClient;
+        this.llmResponseCache = llmResponseCache;
+        this.newsFeedService = newsFeedService;
+        this.llmBatchCoalescer = llmBatchCoalescer;
+        this.quantPartialPublisher = quantPartialPublisher;
     }
 
     public ReactAgent createBehaviorAgent(ChatModel chatModel, Consumer<String> onProgress) {
@@ -208,6 +224,7 @@ public class AiAgentConfig {
         ChatClient.Builder shallowClient = ChatClient.builder(chatModel);
         return QuantForecastWorkflow.build(deepClient, shallowClient, binanceRestClient, memoryService,
                 forceOrderService, orderFlowAggregator, depthStreamCache, deribitClient,
-                LlmCallMode.STREAMING, LlmCallMode.STREAMING);
+                LlmCallMode.STREAMING, LlmCallMode.STREAMING, llmResponseCache, newsFeedService, llmBatchCoalescer,
+                quantPartialPublisher);
     }
 }
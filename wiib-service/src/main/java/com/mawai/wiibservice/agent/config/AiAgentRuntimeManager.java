@@ -33,10 +33,18 @@ import java.util.stream.Collectors;
 public class AiAgentRuntimeManager {
 
     private static final List<String> FUNCTIONS = List.of("behavior", "quant", "chat", "trading", "reflection");
+    /** 各功能的网关优先级：用户等待的对话/行为分析最高，反思等后台任务最低 */
+    private static final Map<String, LlmGateway.Priority> PRIORITIES = Map.of(
+            "behavior", LlmGateway.Priority.INTERACTIVE,
+            "chat", LlmGateway.Priority.INTERACTIVE,
+            "trading", LlmGateway.Priority.TRADING,
+            "quant", LlmGateway.Priority.FORECAST,
+            "reflection", LlmGateway.Priority.BATCH);
 
     private final AiAgentConfig aiAgentConfig;
     private final AiRuntimeConfigMapper configMapper;
     private final AiModelAssignmentMapper assignmentMapper;
+    private final LlmGateway llmGateway;
     private final OpenAiChatModel prototypeChatModel;
     private final String ymlApiKey;
     private final String ymlBaseUrl;
@@ -49,6 +57,7 @@ public class AiAgentRuntimeManager {
     public AiAgentRuntimeManager(AiAgentConfig aiAgentConfig,
                                  AiRuntimeConfigMapper configMapper,
                                  AiModelAssignmentMapper assignmentMapper,
+                                 LlmGateway llmGateway,
                                  ChatModel chatModel,
                                  @Value("${spring.ai.openai.api-key:}") String ymlApiKey,
                                  @Value("${spring.ai.openai.base-url:}") String ymlBaseUrl,
@@ -56,6 +65,7 @@ public class AiAgentRuntimeManager {
         this.aiAgentConfig = aiAgentConfig;
         this.configMapper = configMapper;
         this.assignmentMapper = assignmentMapper;
+        this.llmGateway = llmGateway;
         if (!(chatModel instanceof OpenAiChatModel openAiChatModel)) {
             throw new IllegalStateException("AI Agent动态配置当前仅支持OpenAiChatModel");
         }
@@ -91,7 +101,7 @@ public class AiAgentRuntimeManager {
 
             runtimeRef.set(new AiAgentRuntime(
                     buildFromAssignment(assignments, "behavior", configMap),
-                    buildFromAssignment(assignments, "quant", configMap),
+                    withHedge(buildFromAssignment(assignments, "quant", configMap), assignments),
                     buildFromAssignment(assignments, "chat", configMap),
                     buildFromAssignment(assignments, "trading", configMap),
                     buildFromAssignment(assignments, "reflection", configMap)
@@ -134,22 +144,14 @@ public class AiAgentRuntimeManager {
         synchronized (graphLock) {
             graph = fallbackGraph;
             if (graph == null) {
-                AiRuntimeConfig defaultConfig = configMapper.selectDefault();
-                AiModelAssignment quantAssignment = assignmentMapper.selectByFunction("quant");
-                if (defaultConfig == null
-                        || (quantAssignment != null && quantAssignment.getConfigId().equals(defaultConfig.getId()))) {
+                AiRuntimeConfig defaultConfig = fallbackQuantConfig(assignmentMapper.selectByFunction("quant"));
+                if (defaultConfig == null) {
                     throw new IllegalStateException("无可用的fallback量化配置");
                 }
 
-                String model = defaultConfig.getModel();
-                if (model == null || model.isBlank()) {
-                    model = ymlModel;
-                }
-
-                ChatModel fallbackModel = buildChatModel(defaultConfig.getApiKey(), defaultConfig.getBaseUrl(), model);
-                graph = aiAgentConfig.createCryptoAnalysisGraph(fallbackModel);
+                graph = aiAgentConfig.createCryptoAnalysisGraph(buildFallbackQuantModel(defaultConfig));
                 fallbackGraph = graph;
-                log.info("Fallback量化Graph已构建并缓存 configId={} model={}", defaultConfig.getId(), model);
+                log.info("Fallback量化Graph已构建并缓存 configId={}", defaultConfig.getId());
             }
             return graph;
         }
@@ -209,7 +211,50 @@ public class AiAgentRuntimeManager {
             throw new IllegalStateException(functionName + "引用的API Key不存在(id=" + assignment.getConfigId() + ")");
         }
 
-        return buildChatModel(config.getApiKey(), config.getBaseUrl(), assignment.getModel());
+        return llmGateway.wrap(buildChatModel(config.getApiKey(), config.getBaseUrl(), assignment.getModel()),
+                providerOf(config), PRIORITIES.get(functionName));
+    }
+
+    /**
+     * 量化模型挂上首token对冲：备用为default配置（与量化分配同一配置时不对冲）
+     */
+    private ChatModel withHedge(ChatModel quantModel, List<AiModelAssignment> assignments) {
+        AiModelAssignment quantAssignment = assignments.stream()
+                .filter(a -> "quant".equals(a.getFunctionName()))
+                .findFirst().orElse(null);
+        AiRuntimeConfig defaultConfig = fallbackQuantConfig(quantAssignment);
+        if (defaultConfig == null) return quantModel;
+        return new HedgedChatModel(quantModel, buildFallbackQuantModel(defaultConfig));
+    }
+
+    /** 当前量化模型的对冲统计，未配置对冲时为空 */
+    public Map<String, Object> hedgeStats() {
+        AiAgentRuntime runtime = runtimeRef.get();
+        return runtime != null && runtime.quantChatModel() instanceof HedgedChatModel hedged ? hedged.stats() : Map.of();
+    }
+
+    /** default配置可作为量化备用时返回，否则null */
+    private AiRuntimeConfig fallbackQuantConfig(AiModelAssignment quantAssignment) {
+        AiRuntimeConfig defaultConfig = configMapper.selectDefault();
+        if (defaultConfig == null
+                || (quantAssignment != null && quantAssignment.getConfigId().equals(defaultConfig.getId()))) {
+            return null;
+        }
+        return defaultConfig;
+    }
+
+    private ChatModel buildFallbackQuantModel(AiRuntimeConfig defaultConfig) {
+        String model = defaultConfig.getModel();
+        if (model == null || model.isBlank()) {
+            model = ymlModel;
+        }
+        return llmGateway.wrap(buildChatModel(defaultConfig.getApiKey(), defaultConfig.getBaseUrl(), model),
+                providerOf(defaultConfig), LlmGateway.Priority.FORECAST);
+    }
+
+    /** 网关通道名：同一API Key的各功能（含行情生成）共用并发与token预算 */
+    private static String providerOf(AiRuntimeConfig config) {
+        return LlmGateway.providerKey(config.getBaseUrl(), config.getApiKey());
     }
 
     private void ensureApiKeyExists() {
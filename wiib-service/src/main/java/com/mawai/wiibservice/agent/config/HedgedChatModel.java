@@ -0,0 +1,170 @@
+package com.mawai.wiibservice.agent.config;
+
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 首 token 对冲：主模型在阈值内没吐出第一个 token，就向备用提供商发同样的请求，取先完成且通过校验的答案
+ * <p>
+ * 阈值取主模型最近首 token 延迟的 p95（样本不足时用默认值，并限制在上下限内），正常情况下约 5% 的请求会触发对冲。
+ * 主模型在阈值前失败或空返回时同样立即转备用。校验器由 {@link LlmCallBounds} 经 Reactor Context 传入，
+ * 没传时非空即有效。只对流式调用生效；阻塞 call 直接走主模型。
+ */
+@Slf4j
+public class HedgedChatModel implements ChatModel {
+
+    private static final int WINDOW = 200;
+    private static final int MIN_SAMPLES = 20;
+    private static final long DEFAULT_HEDGE_MS = 15_000;
+    private static final long MIN_HEDGE_MS = 3_000;
+    private static final long MAX_HEDGE_MS = 30_000;
+
+    private final AtomicLong direct = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong primaryWins = new AtomicLong();
+    private final AtomicLong secondaryWins = new AtomicLong();
+    private final AtomicLong bothFailed = new AtomicLong();
+    private final AtomicLong hedgeAfterMs = new AtomicLong();
+
+    private final ChatModel primary;
+    private final ChatModel secondary;
+    private final long defaultHedgeMs;
+    private final long minHedgeMs;
+    private final long[] firstTokenMs = new long[WINDOW];
+    private int samples;
+
+    public HedgedChatModel(ChatModel primary, ChatModel secondary) {
+        this(primary, secondary, DEFAULT_HEDGE_MS, MIN_HEDGE_MS);
+    }
+
+    HedgedChatModel(ChatModel primary, ChatModel secondary, long defaultHedgeMs, long minHedgeMs) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.defaultHedgeMs = defaultHedgeMs;
+        this.minHedgeMs = minHedgeMs;
+        this.hedgeAfterMs.set(defaultHedgeMs);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return primary.call(prompt);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.deferContextual(ctx -> {
+            LlmCallBounds bounds = ctx.getOrDefault(LlmCallBounds.CONTEXT_KEY, null);
+            Duration hedgeAfter = Duration.ofMillis(hedgeAfterMs());
+            long startNanos = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean();
+            AtomicReference<Disposable> connection = new AtomicReference<>();
+            // replay：判断首 token 的订阅和后续透传/收集共用同一次主模型请求
+            Flux<ChatResponse> main = primary.stream(prompt)
+                    .doOnNext(r -> {
+                        if (first.compareAndSet(false, true)) recordFirstToken((System.nanoTime() - startNanos) / 1_000_000);
+                    })
+                    .replay()
+                    .autoConnect(1, connection::set);
+
+            return main.next().map(r -> true)
+                    .timeout(hedgeAfter, Mono.just(false))
+                    .onErrorReturn(false)
+                    .defaultIfEmpty(false)
+                    .flatMapMany(inTime -> {
+                        if (inTime) {
+                            direct.incrementAndGet();
+                            return main.doOnCancel(() -> dispose(connection));
+                        }
+                        hedged.incrementAndGet();
+                        log.info("[LLM对冲] 主模型{}ms内无首token，并发请求备用模型", hedgeAfter.toMillis());
+                        return Mono.firstWithValue(
+                                        collectValid(main, bounds).map(text -> new Winner(true, text)),
+                                        collectValid(secondary.stream(prompt), bounds).map(text -> new Winner(false, text)))
+                                .doOnNext(w -> {
+                                    (w.primary() ? primaryWins : secondaryWins).incrementAndGet();
+                                    log.info("[LLM对冲] 采用{}模型结果 耗时{}ms", w.primary() ? "主" : "备用",
+                                            (System.nanoTime() - startNanos) / 1_000_000);
+                                })
+                                .onErrorMap(e -> {
+                                    bothFailed.incrementAndGet();
+                                    return new IllegalStateException("主备模型均未返回有效结果", e);
+                                })
+                                .doFinally(s -> dispose(connection))
+                                .map(w -> new ChatResponse(List.of(new Generation(new AssistantMessage(w.text())))))
+                                .flux();
+                    });
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return primary.getDefaultOptions();
+    }
+
+    private record Winner(boolean primary, String text) {
+    }
+
+    /** 收齐整段输出；未通过校验则为空，让另一路胜出 */
+    private static Mono<String> collectValid(Flux<ChatResponse> flux, LlmCallBounds bounds) {
+        return flux.map(HedgedChatModel::textOf)
+                .reduce(new StringBuilder(), StringBuilder::append)
+                .map(StringBuilder::toString)
+                .filter(text -> bounds != null ? bounds.isValid(text) : !text.isBlank());
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) return "";
+        String text = response.getResult().getOutput().getText();
+        return text != null ? text : "";
+    }
+
+    private static void dispose(AtomicReference<Disposable> connection) {
+        Disposable d = connection.get();
+        if (d != null) d.dispose();
+    }
+
+    private synchronized void recordFirstToken(long ms) {
+        firstTokenMs[samples++ % WINDOW] = ms;
+    }
+
+    private synchronized long hedgeAfterMs() {
+        int n = Math.min(samples, WINDOW);
+        long ms = defaultHedgeMs;
+        if (n >= MIN_SAMPLES) {
+            long[] sorted = Arrays.copyOf(firstTokenMs, n);
+            Arrays.sort(sorted);
+            ms = Math.clamp(sorted[(int) Math.ceil(n * 0.95) - 1], minHedgeMs, MAX_HEDGE_MS);
+        }
+        hedgeAfterMs.set(ms);
+        return ms;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hedgeAfterMs", hedgeAfterMs.get());
+        m.put("direct", direct.get());
+        m.put("hedged", hedged.get());
+        m.put("primaryWins", primaryWins.get());
+        m.put("secondaryWins", secondaryWins.get());
+        m.put("bothFailed", bothFailed.get());
+        return m;
+    }
+}
@@ -0,0 +1,407 @@
+package com.mawai.wiibservice.agent.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * LLM 统一出口：按提供商（见 {@link #providerKey}）限并发与每分钟 token 预算，按优先级排队，过期仍未拿到槽位的请求丢弃
+ */
+@Slf4j
+@Component
+public class LlmGateway {
+
+    /** 调用优先级，声明顺序即出队顺序 */
+    public enum Priority {
+        INTERACTIVE(Duration.ofSeconds(20)),
+        TRADING(Duration.ofSeconds(60)),
+        FORECAST(Duration.ofSeconds(180)),
+        BATCH(Duration.ofSeconds(600));
+
+        /** 默认排队截止时长 */
+        final Duration queueDeadline;
+
+        Priority(Duration queueDeadline) {
+            this.queueDeadline = queueDeadline;
+        }
+    }
+
+    /** 排队超过截止时间被丢弃 */
+    public static class ShedException extends RuntimeException {
+        public ShedException(String message) {
+            super(message);
+        }
+    }
+
+    /** 预估时为输出预留的 token */
+    private static final int COMPLETION_RESERVE = 800;
+    /** 延迟统计窗口（每优先级最近 N 次） */
+    private static final int WINDOW = 256;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final int maxConcurrent;
+    private final int interactiveReserve;
+    private final long tokensPerMinute;
+
+    public LlmGateway(@Value("${ai.gateway.max-concurrent:6}") int maxConcurrent,
+                      @Value("${ai.gateway.interactive-reserve:1}") int interactiveReserve,
+                      @Value("${ai.gateway.tokens-per-minute:400000}") long tokensPerMinute) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.interactiveReserve = Math.clamp(interactiveReserve, 0, this.maxConcurrent - 1);
+        this.tokensPerMinute = tokensPerMinute;
+    }
+
+    /**
+     * 通道名：同一地址 + 同一 API Key 共用一条通道，不论来自运行时配置（Agent）还是 yml 提供商（行情生成）；
+     * Key 只取摘要，监控里不出现明文
+     */
+    public static String providerKey(String baseUrl, String apiKey) {
+        String host = baseUrl;
+        try {
+            if (baseUrl != null && URI.create(baseUrl).getHost() != null) host = URI.create(baseUrl).getHost();
+        } catch (IllegalArgumentException ignored) {
+            // 非法地址直接用原串
+        }
+        String keyHash;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.valueOf(apiKey).getBytes(StandardCharsets.UTF_8));
+            keyHash = HexFormat.of().formatHex(digest, 0, 4);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return host + "#" + keyHash;
+    }
+
+    /**
+     * 包装成受控 ChatModel：call/stream 都先在所属通道排队拿槽位
+     *
+     * @param provider 通道名（同一 API Key 配置共用）
+     */
+    public ChatModel wrap(ChatModel delegate, String provider, Priority priority) {
+        return new GatedChatModel(delegate, lane(provider), priority);
+    }
+
+    /**
+     * 非 ChatModel 的调用（如行情生成的直连 HTTP）走同一套限流
+     */
+    public <T> T execute(String provider, Priority priority, int promptChars, Supplier<T> call) {
+        Lane lane = lane(provider);
+        Lease lease = lane.acquire(priority, estimateTokens(promptChars));
+        try {
+            return call.get();
+        } finally {
+            lease.release(null);
+        }
+    }
+
+    @Scheduled(fixedDelay = 500)
+    public void tick() {
+        // 补充令牌桶并丢弃过期排队；正常出队由 release 驱动，这里兜底
+        lanes.values().forEach(Lane::pump);
+    }
+
+    private Lane lane(String provider) {
+        return lanes.computeIfAbsent(provider, p -> new Lane(p, maxConcurrent, interactiveReserve, tokensPerMinute));
+    }
+
+    private static int estimateTokens(int promptChars) {
+        // 中英混排按 2 字符/token 偏保守估计
+        return promptChars / 2 + COMPLETION_RESERVE;
+    }
+
+    private static int promptChars(Prompt prompt) {
+        String contents = prompt.getContents();
+        return contents == null ? 0 : contents.length();
+    }
+
+    /** 已拿到的槽位；release 时按实际 usage 修正令牌桶 */
+    private static final class Lease {
+        final Lane lane;
+        final Priority priority;
+        final int estimated;
+        final long grantedNanos = System.nanoTime();
+        boolean released;
+
+        Lease(Lane lane, Priority priority, int estimated) {
+            this.lane = lane;
+            this.priority = priority;
+            this.estimated = estimated;
+        }
+
+        void release(Integer actualTokens) {
+            synchronized (lane) {
+                if (released) return;
+                released = true;
+            }
+            lane.release(this, actualTokens);
+        }
+    }
+
+    private static final class Waiter {
+        final Priority priority;
+        final int tokens;
+        final long seq;
+        final long enqueuedNanos = System.nanoTime();
+        final long deadlineNanos;
+        final CompletableFuture<Lease> granted = new CompletableFuture<>();
+
+        Waiter(Priority priority, int tokens, long seq) {
+            this.priority = priority;
+            this.tokens = tokens;
+            this.seq = seq;
+            this.deadlineNanos = enqueuedNanos + priority.queueDeadline.toNanos();
+        }
+    }
+
+    private static final class Lane {
+        final String provider;
+        final int maxConcurrent;
+        final int interactiveReserve;
+        final long tokensPerMinute;
+        final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+                Comparator.comparingInt((Waiter w) -> w.priority.ordinal()).thenComparingLong(w -> w.seq));
+        long seq;
+        int active;
+        double tokens;
+        long refilledNanos = System.nanoTime();
+
+        final AtomicLong granted = new AtomicLong();
+        final AtomicLong shed = new AtomicLong();
+        final AtomicLong tokensUsed = new AtomicLong();
+        final Map<Priority, Window> waitMs = new EnumMap<>(Priority.class);
+        final Map<Priority, Window> callMs = new EnumMap<>(Priority.class);
+
+        Lane(String provider, int maxConcurrent, int interactiveReserve, long tokensPerMinute) {
+            this.provider = provider;
+            this.maxConcurrent = maxConcurrent;
+            this.interactiveReserve = interactiveReserve;
+            this.tokensPerMinute = tokensPerMinute;
+            this.tokens = tokensPerMinute;
+            for (Priority p : Priority.values()) {
+                waitMs.put(p, new Window());
+                callMs.put(p, new Window());
+            }
+        }
+
+        Lease acquire(Priority priority, int estimated) {
+            CompletableFuture<Lease> future = acquireAsync(priority, estimated);
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // 放弃排队；若恰好已拿到槽位则归还
+                if (!future.cancel(false) && !future.isCompletedExceptionally()) future.join().release(null);
+                throw new ShedException("LLM排队被中断");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        CompletableFuture<Lease> acquireAsync(Priority priority, int estimated) {
+            Waiter waiter;
+            synchronized (this) {
+                waiter = new Waiter(priority, estimated, seq++);
+                queue.add(waiter);
+            }
+            pump();
+            return waiter.granted;
+        }
+
+        void release(Lease lease, Integer actualTokens) {
+            long callMillis = (System.nanoTime() - lease.grantedNanos) / 1_000_000;
+            callMs.get(lease.priority).add(callMillis);
+            synchronized (this) {
+                active--;
+                if (actualTokens != null && tokensPerMinute > 0) {
+                    tokens += lease.estimated - actualTokens;
+                }
+            }
+            tokensUsed.addAndGet(actualTokens != null ? actualTokens : lease.estimated);
+            pump();
+        }
+
+        /** 按优先级出队：队头拿不到槽位或预算时停住，保证高优先级不被低优先级插队 */
+        void pump() {
+            List<Waiter> grants = new ArrayList<>();
+            List<Waiter> expired = new ArrayList<>();
+            synchronized (this) {
+                refill();
+                long now = System.nanoTime();
+                Waiter head;
+                while ((head = queue.peek()) != null) {
+                    if (head.granted.isDone()) {
+                        // 调用方已取消（如流式订阅被取消）
+                        queue.poll();
+                        continue;
+                    }
+                    if (now > head.deadlineNanos) {
+                        queue.poll();
+                        expired.add(head);
+                        continue;
+                    }
+                    int limit = head.priority == Priority.INTERACTIVE ? maxConcurrent : maxConcurrent - interactiveReserve;
+                    if (active >= limit || !hasBudget(head.tokens)) break;
+                    queue.poll();
+                    active++;
+                    if (tokensPerMinute > 0) tokens -= head.tokens;
+                    grants.add(head);
+                }
+            }
+            for (Waiter w : expired) {
+                shed.incrementAndGet();
+                log.warn("[LLM网关] 排队超时丢弃 provider={} priority={} 等待{}ms",
+                        provider, w.priority, (System.nanoTime() - w.enqueuedNanos) / 1_000_000);
+                w.granted.completeExceptionally(new ShedException("LLM繁忙，排队超时(" + w.priority + ")"));
+            }
+            for (Waiter w : grants) {
+                Lease lease = new Lease(this, w.priority, w.tokens);
+                if (!w.granted.complete(lease)) {
+                    // 拿到槽位前调用方已放弃，原样归还槽位与预算
+                    synchronized (this) {
+                        active--;
+                        if (tokensPerMinute > 0) tokens += w.tokens;
+                    }
+                    continue;
+                }
+                granted.incrementAndGet();
+                waitMs.get(w.priority).add((System.nanoTime() - w.enqueuedNanos) / 1_000_000);
+            }
+        }
+
+        private boolean hasBudget(int need) {
+            if (tokensPerMinute <= 0) return true;
+            // 单次预估超过整桶容量时，桶满即放行，避免永远拿不到
+            return tokens >= Math.min(need, tokensPerMinute);
+        }
+
+        private void refill() {
+            if (tokensPerMinute <= 0) return;
+            long now = System.nanoTime();
+            tokens = Math.min(tokensPerMinute, tokens + (now - refilledNanos) * tokensPerMinute / 60e9);
+            refilledNanos = now;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            Map<String, Integer> queued = new LinkedHashMap<>();
+            synchronized (this) {
+                m.put("active", active);
+                m.put("maxConcurrent", maxConcurrent);
+                for (Priority p : Priority.values()) queued.put(p.name(), 0);
+                for (Waiter w : queue) queued.merge(w.priority.name(), 1, Integer::sum);
+                if (tokensPerMinute > 0) m.put("tokensAvailable", Math.round(tokens));
+            }
+            m.put("queued", queued);
+            m.put("granted", granted.get());
+            m.put("shed", shed.get());
+            m.put("tokensUsed", tokensUsed.get());
+            Map<String, Object> latency = new LinkedHashMap<>();
+            for (Priority p : Priority.values()) {
+                Map<String, Object> l = new LinkedHashMap<>();
+                l.put("waitMs", waitMs.get(p).percentiles());
+                l.put("callMs", callMs.get(p).percentiles());
+                latency.put(p.name(), l);
+            }
+            m.put("latency", latency);
+            return m;
+        }
+    }
+
+    /** 最近 N 次耗时的环形窗口 */
+    private static final class Window {
+        final long[] samples = new long[WINDOW];
+        int count;
+
+        synchronized void add(long ms) {
+            samples[count++ % WINDOW] = ms;
+        }
+
+        synchronized Map<String, Long> percentiles() {
+            int n = Math.min(count, WINDOW);
+            if (n == 0) return Map.of();
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            Map<String, Long> m = new LinkedHashMap<>();
+            m.put("p50", sorted[(n - 1) / 2]);
+            m.put("p99", sorted[(int) Math.ceil(n * 0.99) - 1]);
+            m.put("max", sorted[n - 1]);
+            return m;
+        }
+    }
+
+    private static final class GatedChatModel implements ChatModel {
+        private final ChatModel delegate;
+        private final Lane lane;
+        private final Priority priority;
+
+        GatedChatModel(ChatModel delegate, Lane lane, Priority priority) {
+            this.delegate = delegate;
+            this.lane = lane;
+            this.priority = priority;
+        }
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            Lease lease = lane.acquire(priority, estimateTokens(promptChars(prompt)));
+            Integer actual = null;
+            try {
+                ChatResponse response = delegate.call(prompt);
+                actual = totalTokens(response);
+                return response;
+            } finally {
+                lease.release(actual);
+            }
+        }
+
+        @Override
+        public Flux<ChatResponse> stream(Prompt prompt) {
+            int estimated = estimateTokens(promptChars(prompt));
+            // 槽位异步获取，不阻塞订阅线程；取消订阅时未拿到的排队自动作废
+            return Mono.fromFuture(() -> lane.acquireAsync(priority, estimated))
+                    .onErrorMap(CancellationException.class, e -> new ShedException("LLM排队已取消"))
+                    .flatMapMany(lease -> delegate.stream(prompt).doFinally(s -> lease.release(null)));
+        }
+
+        @Override
+        public ChatOptions getDefaultOptions() {
+            return delegate.getDefaultOptions();
+        }
+
+        private static Integer totalTokens(ChatResponse response) {
+            if (response == null || response.getMetadata() == null) return null;
+            Usage usage = response.getMetadata().getUsage();
+            if (usage == null || usage.getTotalTokens() == null || usage.getTotalTokens() <= 0) return null;
+            return usage.getTotalTokens();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        lanes.forEach((provider, lane) -> m.put(provider, lane.stats()));
+        return m;
+    }
+}
@@ -0,0 +1,431 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.mawai.wiibservice.agent.quant.domain.FeatureSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Pattern;
+
+/**
+ * FeatureSnapshot 历史列式存储：&lt;dir&gt;/&lt;symbol&gt;/&lt;yyyyMM&gt;/&lt;column&gt;.col，每列一个定长原始类型文件，只追加
+ * 行数以最后写入的 ts 列为准，启动后首次追加修复崩溃留下的半行。
+ */
+@Slf4j
+@Component
+public class FeatureSnapshotStore {
+
+    private static final DateTimeFormatter PARTITION = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final String TS = "ts";
+    /** symbol 直接作目录名，只接受交易对格式，杜绝 ../ 之类的路径 */
+    private static final Pattern SYMBOL = Pattern.compile("^[A-Z0-9]{2,20}$");
+    /** 单次扫描的最大时间跨度 */
+    static final Duration MAX_SCAN_SPAN = Duration.ofDays(93);
+
+    private static final List<String> TIMEFRAMES = List.of("1m", "5m", "15m", "1h", "4h", "1d");
+    private static final List<String> INDICATORS = List.of(
+            "ma7", "ma25", "ma99", "ema12", "ema26", "rsi14", "macd_dif", "macd_dea", "macd_hist",
+            "boll_upper", "boll_mid", "boll_lower", "boll_pb", "boll_bandwidth", "atr14",
+            "kdj_k", "kdj_d", "kdj_j", "adx", "plus_di", "minus_di", "obv", "volume_ratio");
+    private static final List<String> PRICE_CHANGES = List.of("5m", "15m", "30m", "1h", "4h", "24h");
+    private static final List<String> TRANSITIONS = List.of(
+            "NONE", "WEAKENING", "STRENGTHENING", "BREAKING_OUT", "BREAKING_DOWN");
+
+    private final AtomicLong appendedRows = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong scannedRows = new AtomicLong();
+
+    enum Type {
+        F64(8), I32(4), I8(1);
+
+        final int width;
+
+        Type(int width) {
+            this.width = width;
+        }
+    }
+
+    record Column(String name, Type type, ToDoubleFunction<FeatureSnapshot> extractor) {
+    }
+
+    /** 固定 schema；只能在末尾追加新列（旧分区读新列时按缺失值返回） */
+    private static final List<Column> SCHEMA = buildSchema();
+    private static final Map<String, Column> BY_NAME = new LinkedHashMap<>();
+
+    static {
+        for (Column c : SCHEMA) BY_NAME.put(c.name(), c);
+    }
+
+    /** 范围查询结果：按时间升序，每列与 timestamps 等长，缺失值为 NaN */
+    public record FeatureFrame(long[] timestamps, Map<String, double[]> columns) {
+        public int size() {
+            return timestamps.length;
+        }
+    }
+
+    private record TimeIndex(int rows, long[] sortedTs, int[] order) {
+    }
+
+    private final Path root;
+    private final boolean enabled;
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    /** 已做过崩溃修复的分区 */
+    private final Set<Path> repaired = ConcurrentHashMap.newKeySet();
+    private final Map<Path, TimeIndex> indexes = new ConcurrentHashMap<>();
+
+    public FeatureSnapshotStore(@Value("${quant.feature-store.dir:data/feature-store}") String dir,
+                                @Value("${quant.feature-store.enabled:true}") boolean enabled) {
+        this.root = Path.of(dir).toAbsolutePath().normalize();
+        this.enabled = enabled;
+    }
+
+    /**
+     * 追加一行；失败只记日志，不影响预测落库
+     */
+    public void append(FeatureSnapshot s) {
+        if (!enabled || s == null || s.symbol() == null || s.snapshotTime() == null) return;
+        long ts = s.snapshotTime().atZone(ZONE).toInstant().toEpochMilli();
+        Path partition;
+        try {
+            partition = partition(s.symbol(), s.snapshotTime());
+        } catch (IllegalArgumentException e) {
+            writeErrors.incrementAndGet();
+            log.warn("[FeatureStore] 拒绝追加: {}", e.getMessage());
+            return;
+        }
+        synchronized (locks.computeIfAbsent(s.symbol(), k -> new Object())) {
+            try {
+                Files.createDirectories(partition);
+                int rows = rowCount(partition);
+                if (repaired.add(partition)) repair(partition, rows);
+                for (Column c : SCHEMA) {
+                    ByteBuffer buf = ByteBuffer.allocate(c.type().width).order(ByteOrder.LITTLE_ENDIAN);
+                    put(buf, c.type(), c.extractor().applyAsDouble(s));
+                    write(partition, c.name(), buf.flip());
+                }
+                write(partition, TS, ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(ts).flip());
+                appendedRows.incrementAndGet();
+            } catch (Exception e) {
+                writeErrors.incrementAndGet();
+                log.warn("[FeatureStore] 追加失败 symbol={} time={}: {}", s.symbol(), s.snapshotTime(), e.getMessage());
+                // 下次追加重新对齐各列
+                repaired.remove(partition);
+            }
+        }
+    }
+
+    /**
+     * 范围扫描 [from, to)，只读取 columns 指定的列；columns 为空时返回全部列。
+     * symbol 非法、跨度超过 {@link #MAX_SCAN_SPAN} 抛 IllegalArgumentException
+     */
+    public FeatureFrame scan(String symbol, LocalDateTime from, LocalDateTime to, List<String> columns) {
+        if (from == null || to == null || to.isBefore(from)) throw new IllegalArgumentException("时间范围无效");
+        if (Duration.between(from, to).compareTo(MAX_SCAN_SPAN) > 0) {
+            throw new IllegalArgumentException("时间跨度不能超过" + MAX_SCAN_SPAN.toDays() + "天");
+        }
+        partition(symbol, from);
+        List<String> projection = columns == null || columns.isEmpty() ? columns() : columns;
+        for (String name : projection) {
+            if (!BY_NAME.containsKey(name)) throw new IllegalArgumentException("未知特征列: " + name);
+        }
+        long fromMs = from.atZone(ZONE).toInstant().toEpochMilli();
+        long toMs = to.atZone(ZONE).toInstant().toEpochMilli();
+        scans.incrementAndGet();
+
+        List<long[]> tsParts = new ArrayList<>();
+        Map<String, List<double[]>> colParts = new LinkedHashMap<>();
+        projection.forEach(n -> colParts.put(n, new ArrayList<>()));
+        int total = 0;
+        for (YearMonth m = YearMonth.from(from); !m.isAfter(YearMonth.from(to)); m = m.plusMonths(1)) {
+            Path partition = partition(symbol, m);
+            if (!Files.isDirectory(partition)) continue;
+            try {
+                TimeIndex index = timeIndex(partition);
+                int lo = lowerBound(index.sortedTs(), fromMs);
+                int hi = lowerBound(index.sortedTs(), toMs);
+                if (lo >= hi) continue;
+                tsParts.add(Arrays.copyOfRange(index.sortedTs(), lo, hi));
+                for (String name : projection) {
+                    colParts.get(name).add(gather(partition, BY_NAME.get(name), index, lo, hi));
+                }
+                total += hi - lo;
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取特征分区失败: " + partition, e);
+            }
+        }
+        scannedRows.addAndGet(total);
+
+        long[] timestamps = new long[total];
+        int pos = 0;
+        for (long[] part : tsParts) {
+            System.arraycopy(part, 0, timestamps, pos, part.length);
+            pos += part.length;
+        }
+        Map<String, double[]> result = new LinkedHashMap<>();
+        for (var e : colParts.entrySet()) {
+            double[] values = new double[total];
+            pos = 0;
+            for (double[] part : e.getValue()) {
+                System.arraycopy(part, 0, values, pos, part.length);
+                pos += part.length;
+            }
+            result.put(e.getKey(), values);
+        }
+        return new FeatureFrame(timestamps, result);
+    }
+
+    /** 全部特征列名（不含 ts） */
+    public List<String> columns() {
+        return List.copyOf(BY_NAME.keySet());
+    }
+
+    /** 分区目录；校验 symbol 格式，且解析结果必须仍在存储根目录下 */
+    private Path partition(String symbol, TemporalAccessor month) {
+        if (symbol == null || !SYMBOL.matcher(symbol).matches()) {
+            throw new IllegalArgumentException("非法symbol: " + symbol);
+        }
+        Path partition = root.resolve(symbol).resolve(PARTITION.format(month)).normalize();
+        if (!partition.startsWith(root)) throw new IllegalArgumentException("非法symbol: " + symbol);
+        return partition;
+    }
+
+    // ==================== 写 ====================
+
+    private static void put(ByteBuffer buf, Type type, double v) {
+        switch (type) {
+            case F64 -> buf.putDouble(v);
+            case I32 -> buf.putInt(Double.isNaN(v) ? Integer.MIN_VALUE : (int) v);
+            case I8 -> buf.put(Double.isNaN(v) ? Byte.MIN_VALUE : (byte) v);
+        }
+    }
+
+    private static void write(Path partition, String column, ByteBuffer buf) throws IOException {
+        try (FileChannel ch = FileChannel.open(partition.resolve(column + ".col"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buf.hasRemaining()) ch.write(buf);
+        }
+    }
+
+    private static int rowCount(Path partition) throws IOException {
+        Path ts = partition.resolve(TS + ".col");
+        return Files.exists(ts) ? (int) (Files.size(ts) / 8) : 0;
+    }
+
+    /** 各列对齐到 ts 行数：多出的半行截掉，缺的（新增列/崩溃）补缺失值 */
+    private static void repair(Path partition, int rows) throws IOException {
+        Path tsFile = partition.resolve(TS + ".col");
+        if (Files.exists(tsFile) && Files.size(tsFile) != (long) rows * 8) {
+            try (FileChannel ch = FileChannel.open(tsFile, StandardOpenOption.WRITE)) {
+                ch.truncate((long) rows * 8);
+            }
+        }
+        for (Column c : SCHEMA) {
+            Path file = partition.resolve(c.name() + ".col");
+            long expected = (long) rows * c.type().width;
+            long size = Files.exists(file) ? Files.size(file) : 0;
+            // 先截到整行（或 ts 行数），半行不能留着，否则补齐/追加都会错位
+            long target = Math.min(expected, size - size % c.type().width);
+            if (size > target) {
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    ch.truncate(target);
+                }
+                size = target;
+            }
+            if (size < expected) {
+                int missing = (int) ((expected - size) / c.type().width);
+                ByteBuffer buf = ByteBuffer.allocate(missing * c.type().width).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < missing; i++) put(buf, c.type(), Double.NaN);
+                write(partition, c.name(), buf.flip());
+            }
+        }
+    }
+
+    // ==================== 读 ====================
+
+    private TimeIndex timeIndex(Path partition) throws IOException {
+        int rows = rowCount(partition);
+        TimeIndex cached = indexes.get(partition);
+        if (cached != null && cached.rows() == rows) return cached;
+
+        ByteBuffer buf = read(partition.resolve(TS + ".col"), (long) rows * 8);
+        long[] ts = new long[rows];
+        for (int i = 0; i < rows; i++) ts[i] = buf.getLong(i * 8);
+        Integer[] boxed = new Integer[rows];
+        for (int i = 0; i < rows; i++) boxed[i] = i;
+        // 稳定排序：同一时刻按追加顺序
+        Arrays.sort(boxed, Comparator.comparingLong(i -> ts[i]));
+        int[] order = new int[rows];
+        long[] sorted = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            order[i] = boxed[i];
+            sorted[i] = ts[boxed[i]];
+        }
+        TimeIndex index = new TimeIndex(rows, sorted, order);
+        indexes.put(partition, index);
+        return index;
+    }
+
+    private static double[] gather(Path partition, Column c, TimeIndex index, int lo, int hi) throws IOException {
+        double[] out = new double[hi - lo];
+        Path file = partition.resolve(c.name() + ".col");
+        if (!Files.exists(file)) {
+            Arrays.fill(out, Double.NaN);
+            return out;
+        }
+        // 只读覆盖目标行的区间
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = -1;
+        for (int i = lo; i < hi; i++) {
+            minRow = Math.min(minRow, index.order()[i]);
+            maxRow = Math.max(maxRow, index.order()[i]);
+        }
+        int width = c.type().width;
+        ByteBuffer buf = read(file, (long) minRow * width, (long) (maxRow - minRow + 1) * width);
+        int available = buf.limit() / width;
+        for (int i = lo; i < hi; i++) {
+            int rel = index.order()[i] - minRow;
+            out[i - lo] = rel < available ? get(buf, c.type(), rel * width) : Double.NaN;
+        }
+        return out;
+    }
+
+    private static double get(ByteBuffer buf, Type type, int offset) {
+        return switch (type) {
+            case F64 -> buf.getDouble(offset);
+            case I32 -> {
+                int v = buf.getInt(offset);
+                yield v == Integer.MIN_VALUE ? Double.NaN : v;
+            }
+            case I8 -> {
+                byte v = buf.get(offset);
+                yield v == Byte.MIN_VALUE ? Double.NaN : v;
+            }
+        };
+    }
+
+    private static ByteBuffer read(Path file, long length) throws IOException {
+        return read(file, 0, length);
+    }
+
+    private static ByteBuffer read(Path file, long position, long length) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long len = Math.max(0, Math.min(length, ch.size() - position));
+            ByteBuffer buf = ByteBuffer.allocate((int) len).order(ByteOrder.LITTLE_ENDIAN);
+            while (buf.hasRemaining() && ch.read(buf, position + buf.position()) > 0) {
+                // 读满为止
+            }
+            return buf.flip();
+        }
+    }
+
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0;
+        int hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // ==================== schema ====================
+
+    private static List<Column> buildSchema() {
+        List<Column> s = new ArrayList<>();
+        s.add(f64("last_price", f -> num(f.lastPrice())));
+        s.add(f64("spot_last_price", f -> num(f.spotLastPrice())));
+        for (String label : PRICE_CHANGES) {
+            s.add(f64("price_chg_" + label, f -> f.priceChanges() == null ? Double.NaN : num(f.priceChanges().get(label))));
+        }
+        s.add(f64("spot_bid_ask_imbalance", FeatureSnapshot::spotBidAskImbalance));
+        s.add(f64("spot_price_change_5m", f -> num(f.spotPriceChange5m())));
+        s.add(f64("spot_perp_basis_bps", FeatureSnapshot::spotPerpBasisBps));
+        s.add(f64("spot_lead_lag_score", FeatureSnapshot::spotLeadLagScore));
+        s.add(f64("bid_ask_imbalance", FeatureSnapshot::bidAskImbalance));
+        s.add(f64("trade_delta", FeatureSnapshot::tradeDelta));
+        s.add(f64("trade_intensity", FeatureSnapshot::tradeIntensity));
+        s.add(f64("large_trade_bias", FeatureSnapshot::largeTradeBias));
+        s.add(f64("oi_change_rate", FeatureSnapshot::oiChangeRate));
+        s.add(f64("funding_deviation", FeatureSnapshot::fundingDeviation));
+        s.add(f64("funding_rate_trend", FeatureSnapshot::fundingRateTrend));
+        s.add(f64("funding_rate_extreme", FeatureSnapshot::fundingRateExtreme));
+        s.add(f64("lsr_extreme", FeatureSnapshot::lsrExtreme));
+        s.add(f64("liquidation_pressure", FeatureSnapshot::liquidationPressure));
+        s.add(f64("liquidation_volume_usdt", FeatureSnapshot::liquidationVolumeUsdt));
+        s.add(f64("top_trader_bias", FeatureSnapshot::topTraderBias));
+        s.add(f64("taker_buy_sell_pressure", FeatureSnapshot::takerBuySellPressure));
+        s.add(new Column("fear_greed_index", Type.I32, FeatureSnapshot::fearGreedIndex));
+        s.add(f64("atr_1m", f -> num(f.atr1m())));
+        s.add(f64("atr_5m", f -> num(f.atr5m())));
+        s.add(f64("boll_bandwidth", f -> num(f.bollBandwidth())));
+        s.add(new Column("boll_squeeze", Type.I8, f -> f.bollSqueeze() ? 1 : 0));
+        s.add(f64("dvol_index", FeatureSnapshot::dvolIndex));
+        s.add(f64("atm_iv", FeatureSnapshot::atmIv));
+        s.add(f64("iv_skew_25d", FeatureSnapshot::ivSkew25d));
+        s.add(f64("iv_term_slope", FeatureSnapshot::ivTermSlope));
+        s.add(new Column("regime", Type.I8, f -> f.regime() == null ? Double.NaN : f.regime().ordinal()));
+        s.add(f64("regime_confidence", FeatureSnapshot::regimeConfidence));
+        s.add(new Column("regime_transition", Type.I8, f -> {
+            int i = f.regimeTransition() == null ? -1 : TRANSITIONS.indexOf(f.regimeTransition());
+            return i < 0 ? Double.NaN : i;
+        }));
+        s.add(new Column("news_count", Type.I32, f -> f.newsItems() == null ? 0 : f.newsItems().size()));
+        s.add(new Column("quality_flag_count", Type.I32, f -> f.qualityFlags() == null ? 0 : f.qualityFlags().size()));
+        for (String tf : TIMEFRAMES) {
+            for (String name : INDICATORS) {
+                s.add(f64("ind_" + tf + "_" + name, f -> indicator(f, tf, name)));
+            }
+        }
+        return List.copyOf(s);
+    }
+
+    private static Column f64(String name, ToDoubleFunction<FeatureSnapshot> extractor) {
+        return new Column(name, Type.F64, extractor);
+    }
+
+    private static double indicator(FeatureSnapshot f, String tf, String name) {
+        if (f.indicatorsByTimeframe() == null) return Double.NaN;
+        Map<String, Object> m = f.indicatorsByTimeframe().get(tf);
+        return m == null ? Double.NaN : num(m.get(name));
+    }
+
+    private static double num(Object v) {
+        return switch (v) {
+            case BigDecimal b -> b.doubleValue();
+            case Number n -> n.doubleValue();
+            case null, default -> Double.NaN;
+        };
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("columns", SCHEMA.size());
+        m.put("rows", appendedRows.get());
+        m.put("writeErrors", writeErrors.get());
+        m.put("scans", scans.get());
+        m.put("scannedRows", scannedRows.get());
+        return m;
+    }
+}
@@ -0,0 +1,263 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.alibaba.cloud.ai.graph.OverAllState;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.mawai.wiibcommon.util.JsonUtils;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 跨 symbol 的 LLM 批量合并（重周期可选模式）
+ * <p>
+ * 调度器为同一轮重周期的各 symbol 打上同一个批次组；组内同类节点（regime审核、报告叙述）把各自的数据段交到这里，
+ * 凑齐本轮参与数或等待超时后，拼成一个多 symbol 结构化 prompt（角色/说明/输出格式只出现一次）一次调用，再按 symbol 拆回结果。
+ * 某个 symbol 缺失、字段不全或整次调用失败时，该 symbol 回退到单独调用，行为与非批量模式一致。
+ */
+@Slf4j
+@Component
+public class LlmBatchCoalescer {
+
+    /** 批量模式开关，默认关闭；Admin可运行时切换 */
+    public static volatile boolean ENABLED = false;
+
+    public static final String GROUP_KEY = "llm_batch_group";
+    public static final String SIZE_KEY = "llm_batch_size";
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batchedSymbols = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * 节点的批量规格
+     *
+     * @param task           任务名，同组同任务的请求合并
+     * @param role           角色说明（prompt 开头）
+     * @param instructions   分析要求与约束
+     * @param schema         单个 symbol 的输出 JSON 格式
+     * @param requiredFields 单个 symbol 结果必须包含的字段，缺任一即回退单独调用
+     * @param maxWait        首个请求到达后最长凑批等待
+     */
+    public record Spec(String task, String role, String instructions, String schema,
+                       List<String> requiredFields, Duration maxWait) {
+    }
+
+    /** 一轮重周期的批次组：id 相同的请求可合并，size 为参与的 symbol 数 */
+    public record Group(String id, int size) {
+    }
+
+    private static final class Participant {
+        final String symbol;
+        final String section;
+        final CompletableFuture<JSONObject> result = new CompletableFuture<>();
+
+        Participant(String symbol, String section) {
+            this.symbol = symbol;
+            this.section = section;
+        }
+    }
+
+    private static final class Batch {
+        final Spec spec;
+        final List<Participant> participants = new ArrayList<>();
+        Function<String, String> caller;
+        int skipped;
+
+        Batch(Spec spec) {
+            this.spec = spec;
+        }
+    }
+
+    private final Map<String, Batch> open = new HashMap<>();
+
+    /**
+     * 调度器用：批量模式开启且多于1个 symbol 时返回要并入初始状态的批次组字段
+     */
+    public static Map<String, Object> groupState(String groupId, int size) {
+        if (!ENABLED || size < 2) return Map.of();
+        return Map.of(GROUP_KEY, groupId, SIZE_KEY, size);
+    }
+
+    /** 节点用：从状态中取批次组，不在批量模式下返回 null */
+    public static Group group(OverAllState state) {
+        String id = (String) state.value(GROUP_KEY).orElse(null);
+        int size = state.value(SIZE_KEY).map(v -> ((Number) v).intValue()).orElse(0);
+        return id != null && size > 1 ? new Group(id, size) : null;
+    }
+
+    /**
+     * 提交本 symbol 的数据段并等待批量结果。凑批、批量调用与回退共用 bounds 的一个截止时间：
+     * 等批量结果最多到截止时间，回退单独调用只拿剩余时间，用尽则抛 {@link LlmCallBounds.DeadlineExceededException}
+     *
+     * @param bounds 节点单独调用的约束，截止时间即本次提交的总上限
+     * @param caller 执行批量 prompt 的调用（取组内第一个提交者的）
+     * @param single 回退用的单独调用，入参为截止时间换成剩余预算后的 bounds
+     * @return 本 symbol 的结果 JSON（与单独调用的输出格式一致）
+     */
+    public String submit(Spec spec, Group group, String symbol, String section, LlmCallBounds bounds,
+                         Function<String, String> caller, Function<LlmCallBounds, String> single) {
+        long deadlineNanos = System.nanoTime() + bounds.deadline().toNanos();
+        String key = spec.task() + ":" + group.id();
+        Participant participant = new Participant(symbol, section);
+        Batch ready;
+        synchronized (open) {
+            Batch batch = openBatch(key, spec);
+            if (batch.caller == null) batch.caller = caller;
+            batch.participants.add(participant);
+            ready = sealIfFull(key, batch, group);
+        }
+        // 批量调用放到虚拟线程上：凑满批的提交者也只按自己的截止时间等结果
+        if (ready != null) Thread.startVirtualThread(() -> dispatch(ready));
+
+        JSONObject result;
+        try {
+            result = participant.result.get(bounds.deadline().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            result = null;
+        }
+        if (result == null) {
+            fallbacks.incrementAndGet();
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) throw new LlmCallBounds.DeadlineExceededException(bounds.deadline());
+            return single.apply(bounds.withDeadline(Duration.ofNanos(remaining)));
+        }
+        return result.toJSONString();
+    }
+
+    /**
+     * 先查响应缓存，未命中才参与批量；命中时记为不参与。结果按单独调用的 bounds 校验后才入缓存
+     */
+    public String submitCached(Spec spec, Group group, String symbol, String section,
+                               LlmResponseCache cache, LlmResponseCache.Key key, Duration ttl, int promptChars,
+                               LlmCallBounds bounds, Function<String, String> caller, Function<LlmCallBounds, String> single) {
+        if (cache == null || key == null) return submit(spec, group, symbol, section, bounds, caller, single);
+        boolean[] submitted = {false};
+        try {
+            return cache.getOrCall(key, promptChars, ttl, bounds, () -> {
+                submitted[0] = true;
+                return submit(spec, group, symbol, section, bounds, caller, single);
+            });
+        } finally {
+            if (!submitted[0]) skip(spec, group);
+        }
+    }
+
+    /**
+     * 本 symbol 本轮不参与（如命中响应缓存），让其余参与者不必等到超时
+     */
+    public void skip(Spec spec, Group group) {
+        String key = spec.task() + ":" + group.id();
+        skipped.incrementAndGet();
+        Batch ready;
+        synchronized (open) {
+            Batch batch = openBatch(key, spec);
+            batch.skipped++;
+            ready = sealIfFull(key, batch, group);
+        }
+        if (ready != null) Thread.startVirtualThread(() -> dispatch(ready));
+    }
+
+    private Batch openBatch(String key, Spec spec) {
+        Batch batch = open.get(key);
+        if (batch == null) {
+            batch = new Batch(spec);
+            open.put(key, batch);
+            Batch created = batch;
+            CompletableFuture.delayedExecutor(spec.maxWait().toMillis(), TimeUnit.MILLISECONDS)
+                    .execute(() -> {
+                        synchronized (open) {
+                            if (!open.remove(key, created)) return;
+                        }
+                        Thread.startVirtualThread(() -> dispatch(created));
+                    });
+        }
+        return batch;
+    }
+
+    private Batch sealIfFull(String key, Batch batch, Group group) {
+        if (batch.participants.size() + batch.skipped < group.size()) return null;
+        open.remove(key);
+        return batch;
+    }
+
+    private void dispatch(Batch batch) {
+        List<Participant> participants = batch.participants;
+        if (participants.size() < 2) {
+            // 只有一个参与者没有合并价值，直接走单独调用
+            participants.forEach(p -> p.result.complete(null));
+            return;
+        }
+        long startMs = System.currentTimeMillis();
+        try {
+            String response = batch.caller.apply(buildPrompt(batch.spec, participants));
+            Map<String, JSONObject> bySymbol = parse(response, batch.spec);
+            int ok = 0;
+            for (Participant p : participants) {
+                JSONObject r = bySymbol.get(p.symbol);
+                if (r != null) ok++;
+                p.result.complete(r);
+            }
+            batches.incrementAndGet();
+            batchedSymbols.addAndGet(ok);
+            log.info("[LLM批量] task={} symbols={} 成功={} 耗时{}ms", batch.spec.task(),
+                    participants.stream().map(p -> p.symbol).toList(), ok, System.currentTimeMillis() - startMs);
+        } catch (Exception e) {
+            log.warn("[LLM批量] task={} 批量调用失败，逐个回退: {}", batch.spec.task(), e.getMessage());
+            participants.forEach(p -> p.result.complete(null));
+        }
+    }
+
+    private static String buildPrompt(Spec spec, List<Participant> participants) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(spec.role()).append("\n");
+        sb.append("本次同时分析").append(participants.size())
+                .append("个交易对。各交易对数据相互独立，请分别给出结论，不要互相参考或混用数据。\n\n");
+        for (Participant p : participants) {
+            sb.append("=== 交易对 ").append(p.symbol).append(" ===\n").append(p.section.strip()).append("\n\n");
+        }
+        sb.append(spec.instructions().strip()).append("\n\n");
+        sb.append("严格返回JSON（不要markdown包裹），results中每个交易对恰好一项，symbol原样填写：\n");
+        sb.append("{\"results\":[{\"symbol\":\"交易对\", ...单个交易对字段...}]}\n");
+        sb.append("单个交易对字段格式：\n").append(spec.schema().strip()).append("\n");
+        return sb.toString();
+    }
+
+    /** 按 symbol 拆分；字段不全或重复的项丢弃（由调用方回退单独调用） */
+    private static Map<String, JSONObject> parse(String response, Spec spec) {
+        if (response == null || response.isBlank()) return Map.of();
+        JSONArray results = JSON.parseObject(JsonUtils.extractJson(response)).getJSONArray("results");
+        if (results == null) return Map.of();
+        Map<String, JSONObject> bySymbol = new HashMap<>();
+        Set<String> duplicated = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            JSONObject item = results.getJSONObject(i);
+            if (item == null) continue;
+            String symbol = item.getString("symbol");
+            if (symbol == null || !spec.requiredFields().stream().allMatch(item::containsKey)) continue;
+            if (bySymbol.put(symbol, item) != null) duplicated.add(symbol);
+            item.remove("symbol");
+        }
+        duplicated.forEach(bySymbol::remove);
+        return bySymbol;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", ENABLED);
+        m.put("batches", batches.get());
+        m.put("batchedSymbols", batchedSymbols.get());
+        m.put("fallbacks", fallbacks.get());
+        m.put("skipped", skipped.get());
+        return m;
+    }
+}
@@ -0,0 +1,347 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mawai.wiibservice.agent.quant.domain.AgentVote;
+import com.mawai.wiibservice.agent.quant.domain.FeatureSnapshot;
+import com.mawai.wiibservice.agent.quant.domain.HorizonForecast;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import com.mawai.wiibservice.agent.quant.domain.NewsItem;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * LLM响应缓存：按 prompt 的“语义输入”（见 {@link KeyBuilder}）寻址，L1 Caffeine + L2 Redis
+ * 只缓存通过调用方 {@link LlmCallBounds} 校验的回答。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LlmResponseCache {
+
+    private static final String REDIS_PREFIX = "llm:cache:";
+    /** 中英混合文本粗略按 2 字符/token 估算 */
+    private static final int CHARS_PER_TOKEN = 2;
+
+    private final Map<String, NodeStats> nodeStats = new ConcurrentHashMap<>();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private record Entry(String response, int promptChars, long latencyMs, long ttlNanos) {
+    }
+
+    private final Cache<String, Entry> local = Caffeine.newBuilder()
+            .maximumSize(2_000)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry value, long currentTime) {
+                    return value.ttlNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry value, long currentTime, long currentDuration) {
+                    return value.ttlNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+    private final Map<String, CompletableFuture<String>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存键；{@code null} 表示该次调用不走缓存
+     */
+    public record Key(String node, String hash) {
+        String redisKey() {
+            return REDIS_PREFIX + node + ":" + hash;
+        }
+    }
+
+    /**
+     * 语义输入拼接器：字段按调用顺序拼成规范串，数值按步长量化
+     */
+    public static final class KeyBuilder {
+        private final String node;
+        private final StringBuilder canonical = new StringBuilder();
+
+        private KeyBuilder(String node) {
+            this.node = node;
+        }
+
+        public KeyBuilder add(String name, Object value) {
+            canonical.append(name).append('=').append(value).append(';');
+            return this;
+        }
+
+        /** 按 step 量化，如 RSI 取 step=5 时 61.3 与 63.9 落在同一桶 */
+        public KeyBuilder quantize(String name, double value, double step) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) return add(name, "NaN");
+            return add(name, Math.round(value / step));
+        }
+
+        public KeyBuilder quantize(String name, Number value, double step) {
+            return value == null ? add(name, "null") : quantize(name, value.doubleValue(), step);
+        }
+
+        /** 正数按相对步长量化（对数分桶），如价格取 0.002 即 0.2% 一档 */
+        public KeyBuilder quantizeLog(String name, Number value, double relStep) {
+            if (value == null || value.doubleValue() <= 0) return add(name, "null");
+            return add(name, Math.round(Math.log(value.doubleValue()) / relStep));
+        }
+
+        /** 长文本（记忆、辩论摘要等）只取哈希 */
+        public KeyBuilder text(String name, String value) {
+            return add(name, value == null ? "null" : sha256(value).substring(0, 16));
+        }
+
+        /**
+         * 行情快照的公共语义输入：价格 0.2% 一档，微结构/期权IV/情绪按各自量纲量化
+         */
+        public KeyBuilder market(FeatureSnapshot s) {
+            if (s == null) return add("market", "null");
+            add("symbol", s.symbol()).add("regime", s.regime()).add("squeeze", s.bollSqueeze());
+            quantizeLog("price", s.lastPrice(), 0.002);
+            if (s.lastPrice() != null && s.atr5m() != null && s.lastPrice().signum() > 0) {
+                quantize("atr5mBps", s.atr5m().doubleValue() / s.lastPrice().doubleValue() * 10_000, 2);
+            }
+            quantize("bai", s.bidAskImbalance(), 0.1);
+            quantize("spotBai", s.spotBidAskImbalance(), 0.1);
+            quantize("delta", s.tradeDelta(), 0.1);
+            quantize("intensity", s.tradeIntensity(), 0.5);
+            quantize("largeBias", s.largeTradeBias(), 0.1);
+            quantize("oiChg", s.oiChangeRate(), 0.005);
+            quantize("fundDev", s.fundingDeviation(), 0.05);
+            quantize("fundTrend", s.fundingRateTrend(), 0.05);
+            quantize("lsr", s.lsrExtreme(), 0.1);
+            quantize("basis", s.spotPerpBasisBps(), 2);
+            quantize("leadLag", s.spotLeadLagScore(), 0.05);
+            quantize("liq", s.liquidationPressure(), 0.1);
+            quantize("topTrader", s.topTraderBias(), 0.1);
+            quantize("taker", s.takerBuySellPressure(), 0.1);
+            quantize("fearGreed", s.fearGreedIndex(), 5);
+            quantize("dvol", s.dvolIndex(), 2);
+            quantize("atmIv", s.atmIv(), 2);
+            quantize("skew", s.ivSkew25d(), 0.5);
+            quantize("term", s.ivTermSlope(), 0.5);
+            if (s.priceChanges() != null) {
+                new TreeMap<>(s.priceChanges()).forEach((k, v) -> quantize("chg_" + k, v, 0.25));
+            }
+            add("quality", s.qualityFlags() == null ? "[]" : new TreeSet<>(s.qualityFlags()));
+            return this;
+        }
+
+        /** 多周期指标：RSI/ADX/DI 5 一档，MACD柱只取符号，布林带宽 10% 一档 */
+        public KeyBuilder indicators(FeatureSnapshot s) {
+            if (s == null || s.indicatorsByTimeframe() == null) return add("ind", "null");
+            new TreeMap<>(s.indicatorsByTimeframe()).forEach((tf, ind) -> {
+                if (ind == null) return;
+                quantize(tf + ".rsi", asNumber(ind.get("rsi14")), 5);
+                quantize(tf + ".adx", asNumber(ind.get("adx")), 5);
+                quantize(tf + ".pdi", asNumber(ind.get("plus_di")), 5);
+                quantize(tf + ".mdi", asNumber(ind.get("minus_di")), 5);
+                Number hist = asNumber(ind.get("macd_hist"));
+                add(tf + ".macdHist", hist == null ? "null" : Math.signum(hist.doubleValue()));
+                add(tf + ".macdCross", ind.get("macd_cross"));
+                quantizeLog(tf + ".bw", asNumber(ind.get("boll_bandwidth")), 0.1);
+                add(tf + ".ma", ind.get("ma_alignment"));
+            });
+            return this;
+        }
+
+        public KeyBuilder votes(List<AgentVote> votes) {
+            if (votes == null) return add("votes", "null");
+            List<String> parts = new ArrayList<>(votes.size());
+            for (AgentVote v : votes) {
+                parts.add(v.agent() + "|" + v.horizon() + "|" + v.direction()
+                        + "|" + Math.round(v.score() / 0.1) + "|" + Math.round(v.confidence() / 0.1));
+            }
+            Collections.sort(parts);
+            return add("votes", parts);
+        }
+
+        public KeyBuilder forecasts(List<HorizonForecast> forecasts) {
+            if (forecasts == null) return add("forecasts", "null");
+            List<String> parts = new ArrayList<>(forecasts.size());
+            for (HorizonForecast f : forecasts) {
+                parts.add(f.horizon() + "|" + f.direction() + "|" + Math.round(f.confidence() / 0.05)
+                        + "|" + Math.round(f.weightedScore() / 0.05) + "|" + Math.round(f.disagreement() / 0.1));
+            }
+            Collections.sort(parts);
+            return add("forecasts", parts);
+        }
+
+        /** 新闻按 guid（无则标题哈希）去序 */
+        public KeyBuilder news(List<NewsItem> items) {
+            if (items == null) return add("news", "[]");
+            TreeSet<String> ids = new TreeSet<>();
+            for (NewsItem n : items) {
+                ids.add(n.guid() != null && !n.guid().isBlank() ? n.guid() : sha256(String.valueOf(n.title())).substring(0, 12));
+            }
+            return add("news", ids);
+        }
+
+        private static Number asNumber(Object v) {
+            if (v instanceof Number n) return n;
+            if (v instanceof String str) {
+                try {
+                    return new BigDecimal(str);
+                } catch (NumberFormatException ignored) {
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        public Key build() {
+            return new Key(node, sha256(canonical.toString()).substring(0, 32));
+        }
+    }
+
+    public static KeyBuilder key(String node) {
+        return new KeyBuilder(node);
+    }
+
+    /**
+     * 命中返回缓存回答，否则调用 loader；回答通过 bounds 校验才按 ttl 写入 L1/L2
+     */
+    public String getOrCall(Key key, int promptChars, Duration ttl, LlmCallBounds bounds, Supplier<String> loader) {
+        NodeStats stats = nodeStats.computeIfAbsent(key.node(), n -> new NodeStats());
+        stats.requests.incrementAndGet();
+        String id = key.node() + ":" + key.hash();
+
+        Entry hit = local.getIfPresent(id);
+        if (hit != null) {
+            stats.l1Hits.incrementAndGet();
+            stats.recordSaving(hit);
+            return hit.response();
+        }
+        hit = readRedis(key);
+        if (hit != null) {
+            local.put(id, hit);
+            stats.l2Hits.incrementAndGet();
+            stats.recordSaving(hit);
+            return hit.response();
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inflight.putIfAbsent(id, mine);
+        if (existing != null) {
+            stats.coalesced.incrementAndGet();
+            return existing.join();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            String response = loader.get();
+            long latency = System.currentTimeMillis() - start;
+            stats.misses.incrementAndGet();
+            if (bounds.isValid(response)) {
+                Entry entry = new Entry(response, promptChars, latency, ttl.toNanos());
+                local.put(id, entry);
+                writeRedis(key, entry, ttl);
+            } else {
+                stats.rejected.incrementAndGet();
+                log.warn("[LLM缓存] 回答未通过校验，不缓存 node={} len={}", key.node(),
+                        response != null ? response.length() : 0);
+            }
+            mine.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(id, mine);
+        }
+    }
+
+    private Entry readRedis(Key key) {
+        try {
+            String raw = stringRedisTemplate.opsForValue().get(key.redisKey());
+            if (raw == null) return null;
+            JSONObject o = JSON.parseObject(raw);
+            Long ttl = stringRedisTemplate.getExpire(key.redisKey());
+            long ttlNanos = ttl != null && ttl > 0 ? Duration.ofSeconds(ttl).toNanos() : Duration.ofMinutes(1).toNanos();
+            return new Entry(o.getString("r"), o.getIntValue("p"), o.getLongValue("l"), ttlNanos);
+        } catch (Exception e) {
+            log.warn("[LLM缓存] Redis读取失败 key={}: {}", key.redisKey(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(Key key, Entry entry, Duration ttl) {
+        try {
+            JSONObject o = new JSONObject();
+            o.put("r", entry.response());
+            o.put("p", entry.promptChars());
+            o.put("l", entry.latencyMs());
+            stringRedisTemplate.opsForValue().set(key.redisKey(), o.toJSONString(), ttl);
+        } catch (Exception e) {
+            log.warn("[LLM缓存] Redis写入失败 key={}: {}", key.redisKey(), e.getMessage());
+        }
+    }
+
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class NodeStats {
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong l1Hits = new AtomicLong();
+        final AtomicLong l2Hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong coalesced = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicLong savedTokens = new AtomicLong();
+        final AtomicLong savedLatencyMs = new AtomicLong();
+
+        void recordSaving(Entry e) {
+            savedTokens.addAndGet((e.promptChars() + e.response().length()) / CHARS_PER_TOKEN);
+            savedLatencyMs.addAndGet(e.latencyMs());
+        }
+    }
+
+    /**
+     * 按节点的命中统计（监控接口用）
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new TreeMap<>();
+        nodeStats.forEach((node, s) -> {
+            long requests = s.requests.get();
+            long hits = s.l1Hits.get() + s.l2Hits.get() + s.coalesced.get();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("requests", requests);
+            m.put("l1Hits", s.l1Hits.get());
+            m.put("l2Hits", s.l2Hits.get());
+            m.put("coalesced", s.coalesced.get());
+            m.put("misses", s.misses.get());
+            m.put("rejected", s.rejected.get());
+            m.put("hitRatePct", requests > 0 ? Math.round(hits * 1000.0 / requests) / 10.0 : 0);
+            m.put("savedTokensEst", s.savedTokens.get());
+            m.put("savedLatencyMs", s.savedLatencyMs.get());
+            result.put(node, m);
+        });
+        return result;
+    }
+}
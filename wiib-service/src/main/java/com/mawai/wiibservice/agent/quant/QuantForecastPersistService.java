@@ -21,6 +21,7 @@ public class QuantForecastPersistService {
     private final QuantAgentVoteMapper voteMapper;
     private final QuantHorizonForecastMapper horizonMapper;
     private final QuantSignalDecisionMapper decisionMapper;
+    private final FeatureSnapshotStore featureSnapshotStore;
 
     @Transactional
     public void persist(ForecastResult result) {
@@ -35,10 +36,16 @@ public class QuantForecastPersistService {
     @Transactional
     public void persist(ForecastResult result, String debateSummary,
                         String rawSnapshotJson, String rawReportJson) {
+        persist(result, debateSummary, rawSnapshotJson, rawReportJson, null);
+    }
+
+    @Transactional
+    public void persist(ForecastResult result, String debateSummary,
+                        String rawSnapshotJson, String rawReportJson, String nodeTimingsJson) {
         if (result == null || result.cycleId() == null) return;
 
         try {
-            saveCycle(result, debateSummary, rawSnapshotJson, rawReportJson);
+            saveCycle(result, debateSummary, rawSnapshotJson, rawReportJson, nodeTimingsJson);
             saveVotes(result.cycleId(), result.allVotes());
             saveHorizonForecasts(result.cycleId(), result.horizons());
             saveSignalDecisions(result.cycleId(), result.horizons(), result.riskStatus());
@@ -46,10 +53,12 @@ public class QuantForecastPersistService {
         } catch (Exception e) {
             log.error("[Q7] 预测结果落库失败 cycleId={}", result.cycleId(), e);
         }
+        // 完整特征快照进本地列式历史（与DB无关，落库失败也保留）
+        featureSnapshotStore.append(result.snapshot());
     }
 
     private void saveCycle(ForecastResult r, String debateSummary,
-                           String rawSnapshotJson, String rawReportJson) {
+                           String rawSnapshotJson, String rawReportJson, String nodeTimingsJson) {
         QuantForecastCycle cycle = new QuantForecastCycle();
         cycle.setCycleId(r.cycleId());
         cycle.setSymbol(r.symbol());
@@ -69,6 +78,7 @@ public class QuantForecastPersistService {
         if (debateSummary != null) {
             cycle.setDebateJson(debateSummary);
         }
+        cycle.setNodeTimingsJson(nodeTimingsJson);
         cycleMapper.insert(cycle);
     }
 
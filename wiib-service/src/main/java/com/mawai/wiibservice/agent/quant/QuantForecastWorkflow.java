@@ -5,6 +5,9 @@ import com.alibaba.cloud.ai.graph.CompiledGraph;
 import com.alibaba.cloud.ai.graph.KeyStrategy;
 import com.alibaba.cloud.ai.graph.KeyStrategyFactory;
 import com.alibaba.cloud.ai.graph.StateGraph;
+import com.alibaba.cloud.ai.graph.action.AsyncNodeAction;
+import com.alibaba.cloud.ai.graph.action.NodeAction;
+import com.alibaba.cloud.ai.graph.state.strategy.MergeStrategy;
 import com.alibaba.cloud.ai.graph.state.strategy.ReplaceStrategy;
 import com.mawai.wiibservice.agent.quant.domain.LlmCallMode;
 import com.mawai.wiibservice.agent.quant.factor.*;
@@ -14,23 +17,39 @@ import com.mawai.wiibservice.config.BinanceRestClient;
 import com.mawai.wiibservice.config.DeribitClient;
 import com.mawai.wiibservice.service.DepthStreamCache;
 import com.mawai.wiibservice.service.ForceOrderService;
+import com.mawai.wiibservice.service.NewsFeedService;
 import com.mawai.wiibservice.service.OrderFlowAggregator;
 import org.springframework.ai.chat.client.ChatClient;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.alibaba.cloud.ai.graph.StateGraph.END;
 import static com.alibaba.cloud.ai.graph.StateGraph.START;
 import static com.alibaba.cloud.ai.graph.action.AsyncNodeAction.node_async;
 
 /**
- * 量化预测工作流：8节点线性串联。
+ * 量化预测工作流：按数据依赖组织的DAG，互不依赖的分支并行执行后汇合。
  * <pre>
- * START → collect_data → build_features → regime_review → run_factors → run_judges → debate_judge → risk_gate → generate_report → END
- *              ↑                             ↑LLM浅            ↑              ↑          ↑LLM深                         ↑LLM浅
- *        内部并行采集                    Regime审核     内部5Agent并行   内部3Judge并行  辩论裁决                      报告生成
+ *                                        ┌→ regime_review(LLM浅) ─────────┐
+ * START → collect_data → build_features ─┤                                ├→ run_factors → run_judges → debate_judge → risk_gate → generate_report → END
+ *                                        └→ run_base_factors(含新闻LLM) ──┘
  * </pre>
+ * 各节点输入/输出键：
+ * <ul>
+ *   <li>collect_data：target_symbol, fear_greed_data → *_map, news_data, dvol_data, option_book_summary, data_available</li>
+ *   <li>build_features：collect_data 输出 → feature_snapshot, indicator_map, price_change_map</li>
+ *   <li>regime_review：feature_snapshot → feature_snapshot(审核后), regime_confidence, regime_transition*</li>
+ *   <li>run_base_factors：feature_snapshot(审核前) → base_votes, filtered_news。微结构/波动率/新闻不读 regime 与质量标记，可与审核并行</li>
+ *   <li>run_factors：feature_snapshot(审核后), base_votes → agent_votes。动量/Regime Agent 依赖审核后的 regime</li>
+ *   <li>run_judges：agent_votes, feature_snapshot → horizon_forecasts, overall_decision, risk_status, cycle_id</li>
+ *   <li>debate_judge：horizon_forecasts, agent_votes, ... → horizon_forecasts(修正), debate_summary, debate_probs</li>
+ *   <li>risk_gate：horizon_forecasts, risk_status → horizon_forecasts, risk_status</li>
+ *   <li>generate_report：以上全部 → report, hard_report, forecast_result</li>
+ * </ul>
+ * 硬性报告依赖辩论修正后的 forecasts、debate_probs 与风控结果，仍在辩论之后。
+ * 每个节点耗时写入 node_timings（Merge），随周期记录落库。
  */
 public class QuantForecastWorkflow {
 
@@ -41,6 +60,10 @@ public class QuantForecastWorkflow {
      * @param memoryService     记忆查询服务（可为null，无记忆时跳过注入）
      * @param deepCallMode      深模型调用策略
      * @param shallowCallMode   浅模型调用策略
+     * @param llmCache          LLM响应缓存（可为null，不缓存）
+     * @param newsFeed          新闻增量索引（可为null，每轮直接请求新闻接口）
+     * @param batcher           跨symbol LLM批量合并（可为null；仅初始状态带批次组时生效）
+     * @param partialPublisher  辩论/报告字段增量推送（可为null，不推送）
      */
     public static CompiledGraph build(ChatClient.Builder deepChatClient,
                                        ChatClient.Builder shallowChatClient,
@@ -51,31 +74,41 @@ public class QuantForecastWorkflow {
                                        DepthStreamCache depthStreamCache,
                                        DeribitClient deribitClient,
                                        LlmCallMode deepCallMode,
-                                       LlmCallMode shallowCallMode) throws Exception {
+                                       LlmCallMode shallowCallMode,
+                                       LlmResponseCache llmCache,
+                                       NewsFeedService newsFeed,
+                                       LlmBatchCoalescer batcher,
+                                       QuantPartialPublisher partialPublisher) throws Exception {
 
-        // 5个因子Agent（NewsEventAgent用浅模型）
-        List<FactorAgent> agents = List.of(
+        // 5个因子Agent：不依赖regime审核的3个与审核并行（NewsEventAgent用浅模型），其余2个在审核后执行
+        List<FactorAgent> baseAgents = List.of(
                 new MicrostructureAgent(),
-                new MomentumAgent(),
-                new RegimeAgent(),
                 new VolatilityAgent(),
-                new NewsEventAgent(shallowChatClient, shallowCallMode)
+                new NewsEventAgent(shallowChatClient, shallowCallMode, llmCache, newsFeed)
+        );
+        List<FactorAgent> regimeDependentAgents = List.of(
+                new MomentumAgent(),
+                new RegimeAgent()
         );
 
         StateGraph workflow = new StateGraph(createKeyStrategyFactory())
-                .addNode("collect_data",       node_async(new CollectDataNode(binanceRestClient, forceOrderService, depthStreamCache, deribitClient)))
-                .addNode("build_features",     node_async(new BuildFeaturesNode(orderFlowAggregator)))
-                .addNode("regime_review",      node_async(new RegimeReviewNode(shallowChatClient, shallowCallMode, memoryService)))
-                .addNode("run_factors",        node_async(new RunFactorAgentsNode(agents)))
-                .addNode("run_judges",         node_async(new RunHorizonJudgesNode(memoryService)))
-                .addNode("debate_judge",       node_async(new DebateJudgeNode(deepChatClient, deepCallMode, memoryService)))
-                .addNode("risk_gate",          node_async(new RiskGateNode()))
-                .addNode("generate_report",    node_async(new GenerateReportNode(shallowChatClient, shallowCallMode, memoryService)));
+                .addNode("collect_data",       timed("collect_data", new CollectDataNode(binanceRestClient, forceOrderService, depthStreamCache, deribitClient, newsFeed)))
+                .addNode("build_features",     timed("build_features", new BuildFeaturesNode(orderFlowAggregator)))
+                .addNode("regime_review",      timed("regime_review", new RegimeReviewNode(shallowChatClient, shallowCallMode, memoryService, llmCache, batcher)))
+                .addNode("run_base_factors",   timed("run_base_factors", new RunFactorAgentsNode(baseAgents, "base_votes", null)))
+                .addNode("run_factors",        timed("run_factors", new RunFactorAgentsNode(regimeDependentAgents, "agent_votes", "base_votes")))
+                .addNode("run_judges",         timed("run_judges", new RunHorizonJudgesNode(memoryService)))
+                .addNode("debate_judge",       timed("debate_judge", new DebateJudgeNode(deepChatClient, deepCallMode, memoryService, llmCache, partialPublisher)))
+                .addNode("risk_gate",          timed("risk_gate", new RiskGateNode()))
+                .addNode("generate_report",    timed("generate_report", new GenerateReportNode(shallowChatClient, shallowCallMode, memoryService, llmCache, batcher, partialPublisher)));
 
         workflow.addEdge(START, "collect_data");
         workflow.addEdge("collect_data", "build_features");
+        // 并行分支：regime审核 ∥ 不依赖regime的因子，汇合于 run_factors
         workflow.addEdge("build_features", "regime_review");
+        workflow.addEdge("build_features", "run_base_factors");
         workflow.addEdge("regime_review", "run_factors");
+        workflow.addEdge("run_base_factors", "run_factors");
         workflow.addEdge("run_factors", "run_judges");
         workflow.addEdge("run_judges", "debate_judge");
         workflow.addEdge("debate_judge", "risk_gate");
@@ -85,11 +118,24 @@ public class QuantForecastWorkflow {
         return workflow.compile(CompileConfig.builder().build());
     }
 
+    /** 节点耗时记录：输出额外带 node_timings={节点名: ms}，由 MergeStrategy 汇总 */
+    private static AsyncNodeAction timed(String name, NodeAction action) {
+        return node_async(state -> {
+            long startMs = System.currentTimeMillis();
+            Map<String, Object> output = action.apply(state);
+            Map<String, Object> result = new HashMap<>(output);
+            result.put("node_timings", Map.of(name, System.currentTimeMillis() - startMs));
+            return result;
+        });
+    }
+
     private static KeyStrategyFactory createKeyStrategyFactory() {
         return () -> {
             HashMap<String, KeyStrategy> s = new HashMap<>();
             // 输入
             s.put("target_symbol", new ReplaceStrategy());
+            s.put(LlmBatchCoalescer.GROUP_KEY, new ReplaceStrategy());
+            s.put(LlmBatchCoalescer.SIZE_KEY, new ReplaceStrategy());
             // CollectDataNode输出
             s.put("kline_map", new ReplaceStrategy());
             s.put("spot_kline_map", new ReplaceStrategy());
@@ -119,6 +165,7 @@ public class QuantForecastWorkflow {
             s.put("regime_transition", new ReplaceStrategy());
             s.put("regime_transition_detail", new ReplaceStrategy());
             // RunFactorAgentsNode输出
+            s.put("base_votes", new ReplaceStrategy());
             s.put("agent_votes", new ReplaceStrategy());
             s.put("filtered_news", new ReplaceStrategy());
             // RunHorizonJudgesNode输出
@@ -133,6 +180,8 @@ public class QuantForecastWorkflow {
             s.put("report", new ReplaceStrategy());
             s.put("hard_report", new ReplaceStrategy());
             s.put("forecast_result", new ReplaceStrategy());
+            // 各节点耗时
+            s.put("node_timings", new MergeStrategy());
             return s;
         };
     }
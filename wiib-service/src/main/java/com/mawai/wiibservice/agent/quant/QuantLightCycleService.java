@@ -14,6 +14,7 @@ import com.mawai.wiibservice.config.BinanceRestClient;
 import com.mawai.wiibservice.config.DeribitClient;
 import com.mawai.wiibservice.service.DepthStreamCache;
 import com.mawai.wiibservice.service.ForceOrderService;
+import com.mawai.wiibservice.service.NewsFeedService;
 import com.mawai.wiibservice.service.OrderFlowAggregator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
@@ -73,11 +74,12 @@ public class QuantLightCycleService {
                                    QuantForecastPersistService persistService,
                                    DepthStreamCache depthStreamCache,
                                    DeribitClient deribitClient,
+                                   NewsFeedService newsFeedService,
                                    MemoryService memoryService,
                                    ApplicationEventPublisher eventPublisher,
                                    @org.springframework.context.annotation.Lazy PriceVolatilitySentinel volatilitySentinel) {
         this.collectDataNode = new CollectDataNode(
-                binanceRestClient, forceOrderService, depthStreamCache, deribitClient);
+                binanceRestClient, forceOrderService, depthStreamCache, deribitClient, newsFeedService);
         this.buildFeaturesNode = new BuildFeaturesNode(orderFlowAggregator);
         this.pureAgents = List.of(
                 new MicrostructureAgent(),
@@ -166,7 +168,7 @@ public class QuantLightCycleService {
             allVotes.addAll(cache.newsVotes());
 
             // 5. 三个 HorizonJudge 并行裁决
-            Map<String, Map<String, Double>> agentAccuracy = loadAgentAccuracy(symbol);
+            Map<String, Map<String, Double>> agentAccuracy = loadAgentAccuracy(symbol, snapshot.regime());
             List<HorizonForecast> forecasts = runJudges(allVotes, snapshot.lastPrice(),
                     snapshot.qualityFlags(), agentAccuracy, snapshot.regime());
 
@@ -350,9 +352,9 @@ public class QuantLightCycleService {
         return forecasts;
     }
 
-    private Map<String, Map<String, Double>> loadAgentAccuracy(String symbol) {
+    private Map<String, Map<String, Double>> loadAgentAccuracy(String symbol, MarketRegime regime) {
         try {
-            return memoryService.getAgentAccuracy(symbol);
+            return memoryService.getAgentAccuracy(symbol, regime != null ? regime.name() : null);
         } catch (Exception e) {
             log.warn("[LightCycle] agent准确率查询失败: {}", e.getMessage());
             return Map.of();
@@ -0,0 +1,90 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.alibaba.fastjson2.JSON;
+import com.mawai.wiibservice.service.impl.RedisMessageBroadcastService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重周期 LLM 输出的增量推送：辩论裁决、报告叙述的字段一解析完整就推到 /topic/quant/{symbol}/partial，
+ * 前端在完整报告到达前即可展示。片段只作预览，最终以完整报告为准。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuantPartialPublisher {
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    /** stage → [会话数, 首字段耗时累计ms, 最近一次首字段耗时ms] */
+    private final Map<String, AtomicLong[]> firstField = new ConcurrentHashMap<>();
+
+    private final RedisMessageBroadcastService broadcastService;
+
+    /** 一次 LLM 调用对应一个会话，elapsedMs 从会话创建时算起 */
+    public Session session(String symbol, String cycleId, String stage) {
+        return new Session(symbol, cycleId, stage);
+    }
+
+    public final class Session {
+        private final String symbol;
+        private final String cycleId;
+        private final String stage;
+        private final long startNanos = System.nanoTime();
+        private volatile long firstFieldMs = -1;
+
+        private Session(String symbol, String cycleId, String stage) {
+            this.symbol = symbol;
+            this.cycleId = cycleId;
+            this.stage = stage;
+        }
+
+        public void publish(String field, Object value) {
+            long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+            if (firstFieldMs < 0) {
+                firstFieldMs = elapsedMs;
+                AtomicLong[] s = firstField.computeIfAbsent(stage,
+                        ignored -> new AtomicLong[]{new AtomicLong(), new AtomicLong(), new AtomicLong()});
+                s[0].incrementAndGet();
+                s[1].addAndGet(elapsedMs);
+                s[2].set(elapsedMs);
+            }
+            Map<String, Object> msg = new LinkedHashMap<>();
+            msg.put("cycleId", cycleId);
+            msg.put("stage", stage);
+            msg.put("field", field);
+            msg.put("value", value);
+            msg.put("elapsedMs", elapsedMs);
+            try {
+                broadcastService.broadcastQuantPartial(symbol, JSON.toJSONString(msg));
+                published.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.debug("[Partial] 推送失败 symbol={} stage={} field={}: {}", symbol, stage, field, e.getMessage());
+            }
+        }
+
+        /** 首个字段推送耗时，未推送过为 -1 */
+        public long firstFieldMs() {
+            return firstFieldMs;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("published", published.get());
+        m.put("failed", failed.get());
+        firstField.forEach((stage, s) -> {
+            long n = s[0].get();
+            m.put(stage + "FirstFieldAvgMs", n > 0 ? s[1].get() / n : 0);
+            m.put(stage + "FirstFieldLastMs", s[2].get());
+        });
+        return m;
+    }
+}
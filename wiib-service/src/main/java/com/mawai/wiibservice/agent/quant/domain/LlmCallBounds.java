@@ -0,0 +1,57 @@
+package com.mawai.wiibservice.agent.quant.domain;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.mawai.wiibcommon.util.JsonUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 节点级 LLM 调用约束：整次调用的截止时间 + 结果有效性校验。
+ * 校验器经 Reactor Context 传到对冲模型，主备并发时用来挑第一个"完整且有效"的答案。
+ *
+ * @param deadline  整次调用（含排队、对冲）的上限，超时抛 {@link DeadlineExceededException}
+ * @param validator 结果是否可用
+ */
+public record LlmCallBounds(Duration deadline, Predicate<String> validator) {
+
+    /** Reactor Context 中的 key */
+    public static final String CONTEXT_KEY = "llm.callBounds";
+
+    /** 纯文本结果：非空即有效 */
+    public static LlmCallBounds text(Duration deadline) {
+        return new LlmCallBounds(deadline, s -> s != null && !s.isBlank());
+    }
+
+    /** JSON 结果：能解析出对象且包含全部必需字段 */
+    public static LlmCallBounds json(Duration deadline, String... requiredFields) {
+        List<String> required = List.of(requiredFields);
+        return new LlmCallBounds(deadline, s -> {
+            if (s == null || s.isBlank()) return false;
+            try {
+                JSONObject root = JSON.parseObject(JsonUtils.extractJson(s));
+                return root != null && required.stream().allMatch(root::containsKey);
+            } catch (Exception e) {
+                return false;
+            }
+        });
+    }
+
+    /** 同一校验器、换一个截止时间（如批量回退时只剩部分预算） */
+    public LlmCallBounds withDeadline(Duration deadline) {
+        return new LlmCallBounds(deadline, validator);
+    }
+
+    public boolean isValid(String response) {
+        return validator.test(response);
+    }
+
+    /** 超过节点截止时间仍未拿到结果 */
+    public static class DeadlineExceededException extends RuntimeException {
+        public DeadlineExceededException(Duration deadline) {
+            super("LLM调用超过截止时间 " + deadline.toSeconds() + "s");
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.mawai.wiibservice.agent.quant.domain;
 
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
+import com.mawai.wiibservice.agent.quant.util.IncrementalJsonParser;
 import org.springframework.ai.chat.client.ChatClient;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -23,6 +30,33 @@ public enum LlmCallMode {
                 chunkConsumer.accept(content);
             }
         }
+
+        @Override
+        public String call(ChatClient chatClient, String prompt, LlmCallBounds bounds) {
+            // FutureTask 的 cancel(true) 会中断虚拟线程：阻塞中的 HTTP 读随之中止，网关槽位在调用线程的 finally 里归还
+            FutureTask<String> task = new FutureTask<>(() -> call(chatClient, prompt));
+            Thread.startVirtualThread(task);
+            try {
+                return task.get(bounds.deadline().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                task.cancel(true);
+                throw new LlmCallBounds.DeadlineExceededException(bounds.deadline());
+            } catch (InterruptedException e) {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        public String call(ChatClient chatClient, String prompt, LlmCallBounds bounds, IncrementalJsonParser parser) {
+            String content = call(chatClient, prompt, bounds);
+            parser.feed(content);
+            return content;
+        }
     },
 
     STREAMING {
@@ -45,9 +79,76 @@ public enum LlmCallMode {
                     })
                     .blockLast();
         }
+
+        @Override
+        public String call(ChatClient chatClient, String prompt, LlmCallBounds bounds) {
+            // 整次调用一个超时；bounds 经 Context 传给对冲模型做结果校验
+            return chatClient.prompt().user(prompt)
+                    .stream()
+                    .content()
+                    .filter(chunk -> chunk != null && !chunk.isEmpty())
+                    .reduce(new StringBuilder(), StringBuilder::append)
+                    .map(StringBuilder::toString)
+                    .defaultIfEmpty("")
+                    .contextWrite(ctx -> ctx.put(LlmCallBounds.CONTEXT_KEY, bounds))
+                    .timeout(bounds.deadline())
+                    .onErrorMap(TimeoutException.class, e -> new LlmCallBounds.DeadlineExceededException(bounds.deadline()))
+                    .block();
+        }
+
+        @Override
+        public String call(ChatClient chatClient, String prompt, LlmCallBounds bounds, IncrementalJsonParser parser) {
+            // 边收边解析；根对象闭合且通过 bounds 校验才取消订阅，不等模型吐完JSON后的围栏/说明文字。
+            // 不校验的话，说明文字里的 '{...}' 会让流提前截断，残缺结果还会进缓存
+            parser.requireRoot(bounds::isValid);
+            return chatClient.prompt().user(prompt)
+                    .stream()
+                    .content()
+                    .filter(chunk -> chunk != null && !chunk.isEmpty())
+                    .doOnNext(parser::feed)
+                    .takeUntil(chunk -> parser.isComplete())
+                    .reduce(new StringBuilder(), StringBuilder::append)
+                    .map(StringBuilder::toString)
+                    .defaultIfEmpty("")
+                    .contextWrite(ctx -> ctx.put(LlmCallBounds.CONTEXT_KEY, bounds))
+                    .timeout(bounds.deadline())
+                    .onErrorMap(TimeoutException.class, e -> new LlmCallBounds.DeadlineExceededException(bounds.deadline()))
+                    .block();
+        }
     };
 
     public abstract String call(ChatClient chatClient, String prompt);
 
     public abstract void stream(ChatClient chatClient, String prompt, Consumer<String> chunkConsumer);
+
+    /**
+     * 带截止时间的调用：超时抛 {@link LlmCallBounds.DeadlineExceededException}，由节点走降级逻辑
+     */
+    public abstract String call(ChatClient chatClient, String prompt, LlmCallBounds bounds);
+
+    /**
+     * 带截止时间的增量调用：输出边到边喂给 parser，字段一完整即回调，节点可提前推送/处理；返回值同完整调用。
+     * BLOCKING 下拿到整段后一次性喂入。超时前已回调的字段不会撤回，节点需把它们当作预览。
+     */
+    public abstract String call(ChatClient chatClient, String prompt, LlmCallBounds bounds, IncrementalJsonParser parser);
+
+    /**
+     * 带响应缓存与截止时间的调用；超时/失败/未通过 bounds 校验的结果不入缓存
+     */
+    public String call(ChatClient chatClient, String prompt,
+                       LlmResponseCache cache, LlmResponseCache.Key key, Duration ttl, LlmCallBounds bounds) {
+        if (cache == null || key == null) return call(chatClient, prompt, bounds);
+        return cache.getOrCall(key, prompt.length(), ttl, bounds, () -> call(chatClient, prompt, bounds));
+    }
+
+    /**
+     * 带响应缓存的增量调用；命中缓存（或与同键调用合并）时把结果整段回放给 parser
+     */
+    public String call(ChatClient chatClient, String prompt, LlmResponseCache cache, LlmResponseCache.Key key,
+                       Duration ttl, LlmCallBounds bounds, IncrementalJsonParser parser) {
+        if (cache == null || key == null) return call(chatClient, prompt, bounds, parser);
+        String result = cache.getOrCall(key, prompt.length(), ttl, bounds, () -> call(chatClient, prompt, bounds, parser));
+        if (!parser.hasInput()) parser.feed(result);
+        return result;
+    }
 }
@@ -1,26 +1,45 @@
 package com.mawai.wiibservice.agent.quant.factor;
 
 import com.mawai.wiibcommon.util.JsonUtils;
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
 import com.mawai.wiibservice.agent.quant.domain.*;
 import com.mawai.wiibservice.agent.quant.util.NewsRelevance;
+import com.mawai.wiibservice.service.NewsFeedService;
 
 import com.alibaba.fastjson2.JSON;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
 
 @Slf4j
 public class NewsEventAgent implements FactorAgent {
 
+    /** 新闻集合不变时结论不变，30分钟内复用 */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(30);
+    /** 标题包含匹配的最短长度（归一化后） */
+    private static final int MIN_TITLE_MATCH = 8;
+    private static final LlmCallBounds BOUNDS = LlmCallBounds.json(Duration.ofSeconds(45), "filteredNews", "votes");
+
     private final ChatClient chatClient;
     private final LlmCallMode callMode;
+    private final LlmResponseCache llmCache;
+    private final NewsFeedService newsFeed;
 
     public NewsEventAgent(ChatClient.Builder builder, LlmCallMode callMode) {
+        this(builder, callMode, null, null);
+    }
+
+    /**
+     * @param newsFeed 非空时复用新闻索引的相关性打分与单条判定，只把未判定过的新闻送给LLM
+     */
+    public NewsEventAgent(ChatClient.Builder builder, LlmCallMode callMode, LlmResponseCache llmCache,
+                          NewsFeedService newsFeed) {
         this.chatClient = builder.build();
         this.callMode = callMode;
+        this.llmCache = llmCache;
+        this.newsFeed = newsFeed;
     }
 
     @Override
@@ -30,7 +49,9 @@ public class NewsEventAgent implements FactorAgent {
 
     public EvaluateResult evaluateWithNews(FeatureSnapshot snapshot) {
         List<NewsItem> allNewsItems = snapshot.newsItems();
-        List<NewsItem> preFiltered = NewsRelevance.filterRelevant(snapshot.symbol(), allNewsItems);
+        List<NewsItem> preFiltered = newsFeed != null
+                ? newsFeed.filterRelevant(snapshot.symbol(), allNewsItems)
+                : NewsRelevance.filterRelevant(snapshot.symbol(), allNewsItems);
         log.info("[Q3.news] symbol={} 总新闻={}条 关键词预过滤后={}条", snapshot.symbol(),
                 allNewsItems != null ? allNewsItems.size() : 0, preFiltered.size());
         if (preFiltered.isEmpty()) {
@@ -41,12 +62,34 @@ public class NewsEventAgent implements FactorAgent {
                     List.of());
         }
 
+        // 已判定过的新闻只带结论，未判定的才送全文
+        List<NewsItem> fresh = new ArrayList<>();
+        List<FilteredNewsItem> known = new ArrayList<>();
+        for (NewsItem item : preFiltered) {
+            NewsFeedService.Verdict v = newsFeed != null ? newsFeed.verdict(snapshot.symbol(), item) : null;
+            if (v == null) {
+                fresh.add(item);
+            } else if (v.selected()) {
+                known.add(new FilteredNewsItem(item.title(), v.sentiment(), v.impact(), v.reason()));
+            }
+        }
+        if (fresh.isEmpty() && known.isEmpty()) {
+            log.info("[Q3.news] symbol={} 新闻均已判定为无影响，跳过LLM", snapshot.symbol());
+            return new EvaluateResult(defaultVotes("NO_IMPACTFUL_NEWS"), List.of());
+        }
+        log.info("[Q3.news] symbol={} 待判定={}条 复用判定={}条", snapshot.symbol(), fresh.size(), known.size());
+
         int baseVolBps = estimateVolBps(snapshot);
         try {
-            String prompt = buildPrompt(snapshot.symbol(), preFiltered);
-            String response = callMode.call(chatClient, prompt);
+            String prompt = buildPrompt(snapshot.symbol(), fresh, known);
+            List<String> knownKey = known.stream()
+                    .map(k -> k.title() + "|" + k.sentiment() + "|" + k.impact()).sorted().toList();
+            LlmResponseCache.Key cacheKey = LlmResponseCache.key(name())
+                    .add("symbol", snapshot.symbol()).news(fresh).text("known", String.join("\n", knownKey))
+                    .build();
+            String response = callMode.call(chatClient, prompt, llmCache, cacheKey, CACHE_TTL, BOUNDS);
             log.info("[Q3.news] LLM返回 {}chars", response != null ? response.length() : 0);
-            return parseResponse(response, baseVolBps);
+            return parseResponse(response, baseVolBps, snapshot.symbol(), fresh, known);
         } catch (Exception e) {
             log.warn("[Q3.news] LLM调用失败: {}", e.getMessage());
             return new EvaluateResult(
@@ -62,8 +105,9 @@ public class NewsEventAgent implements FactorAgent {
         return evaluateWithNews(snapshot).votes();
     }
 
-    private String buildPrompt(String symbol, List<NewsItem> newsItems) {
+    private String buildPrompt(String symbol, List<NewsItem> newsItems, List<FilteredNewsItem> known) {
         StringBuilder newsText = new StringBuilder();
+        if (newsItems.isEmpty()) newsText.append("（无新增新闻）\n");
         for (int i = 0; i < newsItems.size(); i++) {
             NewsItem item = newsItems.get(i);
             newsText.append(i + 1).append(". ").append(item.title());
@@ -75,15 +119,15 @@ public class NewsEventAgent implements FactorAgent {
             newsText.append("\n");
         }
         return """
-                你是加密货币新闻分析师。以下是与%s可能相关的新闻列表（已做初步关键词过滤）。
+                你是加密货币新闻分析师。以下是与%s可能相关的新增新闻列表（已做初步关键词过滤）。
 
                 【新闻列表】
                 %s
-
+                %s
                 你需要完成两件事：
 
                 【第一步：筛选】
-                从上面的新闻中，挑出真正会对%s短期价格产生影响的新闻（最多5条）。
+                从【新闻列表】中，挑出真正会对%s短期价格产生影响的新闻（最多5条）。
                 排除标准：
                 - 与%s无直接关系的其他币种新闻
                 - 纯技术分析/预测类文章（不是事件）
@@ -91,7 +135,7 @@ public class NewsEventAgent implements FactorAgent {
                 - 广告、软文、项目推广
 
                 【第二步：分析】
-                对筛选出的新闻，综合判断整体情绪和对三个时间区间的影响。
+                对筛选出的新闻（连同【已分析新闻】），综合判断整体情绪和对三个时间区间的影响。
                 - 新闻对超短线(0-10min)影响最小，对短线(10-30min)影响较大
                 - 重大事件（监管、黑客、ETF、宏观政策）影响更大
                 - 普通行情新闻影响很小，score接近0
@@ -113,12 +157,24 @@ public class NewsEventAgent implements FactorAgent {
                 - confidence: [0,1]，新闻质量和相关性越高越大
                 - reasonCodes: 如 NEWS_BULLISH_ETF, NEWS_BEARISH_REGULATION, NEWS_NEUTRAL
                 - riskFlags: 如 BLACK_SWAN_RISK, REGULATORY_UNCERTAINTY
-                - 如果筛选后没有一条有影响力的新闻，filteredNews为空数组，votes的score全部填0
-                """.formatted(symbol, newsText.toString(), symbol, symbol);
+                - filteredNews只放【新闻列表】中入选的新闻，index为其序号；【已分析新闻】不要重复放入
+                - 如果筛选后没有一条有影响力的新闻（且没有已分析新闻），filteredNews为空数组，votes的score全部填0
+                """.formatted(symbol, newsText.toString(), knownBlock(known), symbol, symbol);
+    }
+
+    private static String knownBlock(List<FilteredNewsItem> known) {
+        if (known.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("\n【已分析新闻】（前几轮已筛选并判定，仅作综合判断依据）\n");
+        for (FilteredNewsItem k : known) {
+            sb.append("- ").append(k.title()).append("（").append(k.sentiment()).append("/").append(k.impact())
+                    .append("）：").append(k.reason()).append("\n");
+        }
+        return sb.toString();
     }
 
     @SuppressWarnings("unchecked")
-    private EvaluateResult parseResponse(String response, int baseVolBps) {
+    private EvaluateResult parseResponse(String response, int baseVolBps, String symbol,
+                                         List<NewsItem> fresh, List<FilteredNewsItem> known) {
         if (response == null || response.isBlank()) {
             return new EvaluateResult(defaultVotes("PARSE_ERROR"), List.of());
         }
@@ -129,20 +185,44 @@ public class NewsEventAgent implements FactorAgent {
 
             List<FilteredNewsItem> filteredNews = List.of();
             List<Map<String, Object>> filtered = (List<Map<String, Object>>) root.get("filteredNews");
+            Set<Integer> selected = new HashSet<>();
+            boolean unresolved = false;
             if (filtered != null && !filtered.isEmpty()) {
                 List<FilteredNewsItem> items = new ArrayList<>(filtered.size());
                 for (Map<String, Object> item : filtered) {
-                    items.add(new FilteredNewsItem(
+                    FilteredNewsItem news = new FilteredNewsItem(
                             String.valueOf(item.getOrDefault("title", "")),
                             String.valueOf(item.getOrDefault("sentiment", "neutral")),
                             String.valueOf(item.getOrDefault("impact", "low")),
                             String.valueOf(item.getOrDefault("reason", ""))
-                    ));
+                    );
+                    items.add(news);
+                    if (newsFeed == null || fresh.isEmpty()) continue;
+                    int idx = resolveIndex(item.get("index"), item.get("title") != null ? news.title() : "", fresh);
+                    if (idx < 0) {
+                        // 序号/标题都对不上（或是【已分析新闻】被重复列出）：不记判定，下轮重新送审
+                        unresolved = true;
+                        log.debug("[Q3.news] 筛选结果无法对应到新增新闻 index={} title={}", item.get("index"), news.title());
+                    } else if (selected.add(idx)) {
+                        newsFeed.recordVerdict(symbol, fresh.get(idx), new NewsFeedService.Verdict(
+                                true, news.sentiment(), news.impact(), news.reason()));
+                    }
                 }
                 filteredNews = List.copyOf(items);
                 log.info("[Q3.news] LLM筛选出{}条有效新闻: {}", items.size(),
                         items.stream().map(i -> i.sentiment() + ":" + i.title()).toList());
             }
+            if (newsFeed != null && !unresolved) {
+                // 未入选的新增新闻记为无影响，下轮不再送审；有对不上的入选项时不确定它指哪条，全部留待下轮
+                for (int i = 0; i < fresh.size(); i++) {
+                    if (!selected.contains(i)) newsFeed.recordVerdict(symbol, fresh.get(i), NewsFeedService.Verdict.rejected());
+                }
+            }
+            if (!known.isEmpty()) {
+                List<FilteredNewsItem> merged = new ArrayList<>(filteredNews);
+                merged.addAll(known);
+                filteredNews = List.copyOf(merged);
+            }
 
             List<Map<String, Object>> votes = (List<Map<String, Object>>) root.get("votes");
             if (votes == null || votes.size() < 3) {
@@ -198,6 +278,49 @@ public class NewsEventAgent implements FactorAgent {
         return 30;
     }
 
+    /**
+     * 把LLM返回的入选项对应到新增新闻：序号有效且标题一致（或未给标题）直接用序号；
+     * 否则按标题匹配（先全等，再唯一的包含关系）。对不上返回 -1
+     */
+    static int resolveIndex(Object index, String title, List<NewsItem> fresh) {
+        String want = normalizeTitle(title);
+        int idx = (int) toDouble(index) - 1;
+        if (idx >= 0 && idx < fresh.size() && (want.isEmpty() || titleMatches(fresh.get(idx).title(), want))) {
+            return idx;
+        }
+        if (want.isEmpty()) return -1;
+        for (int i = 0; i < fresh.size(); i++) {
+            if (normalizeTitle(fresh.get(i).title()).equals(want)) return i;
+        }
+        int match = -1;
+        for (int i = 0; i < fresh.size(); i++) {
+            if (!titleMatches(fresh.get(i).title(), want)) continue;
+            if (match >= 0) return -1;
+            match = i;
+        }
+        return match;
+    }
+
+    /** 标题全等，或较短一方（≥ {@value #MIN_TITLE_MATCH} 字）被另一方包含（LLM常截断/改写标点） */
+    private static boolean titleMatches(String candidate, String normalizedWant) {
+        String have = normalizeTitle(candidate);
+        if (have.isEmpty()) return false;
+        if (have.equals(normalizedWant)) return true;
+        String shorter = have.length() <= normalizedWant.length() ? have : normalizedWant;
+        String longer = shorter == have ? normalizedWant : have;
+        return shorter.length() >= MIN_TITLE_MATCH && longer.contains(shorter);
+    }
+
+    private static String normalizeTitle(String title) {
+        if (title == null) return "";
+        StringBuilder sb = new StringBuilder(title.length());
+        title.codePoints()
+                .filter(Character::isLetterOrDigit)
+                .map(Character::toLowerCase)
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
     private static double toDouble(Object v) {
         if (v instanceof Number n) return n.doubleValue();
         return 0;
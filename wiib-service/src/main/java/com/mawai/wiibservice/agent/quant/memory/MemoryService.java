@@ -1,7 +1,14 @@
 package com.mawai.wiibservice.agent.quant.memory;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mawai.wiibcommon.entity.QuantAgentAccuracy;
+import com.mawai.wiibcommon.entity.QuantAgentVote;
+import com.mawai.wiibcommon.entity.QuantForecastCycle;
 import com.mawai.wiibcommon.entity.QuantForecastVerification;
 import com.mawai.wiibcommon.entity.QuantReflectionMemory;
+import com.mawai.wiibservice.mapper.QuantAgentAccuracyMapper;
+import com.mawai.wiibservice.mapper.QuantAgentVoteMapper;
 import com.mawai.wiibservice.mapper.QuantForecastVerificationMapper;
 import com.mawai.wiibservice.mapper.QuantReflectionMemoryMapper;
 import com.alibaba.fastjson2.JSON;
@@ -9,23 +16,84 @@ import com.alibaba.fastjson2.JSONObject;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/**
+ * 量化记忆：反思教训、命中率、agent准确率。
+ * <p>
+ * 一个重周期里多个节点会读同一份记忆，这里按 symbol 缓存（Caffeine，文本上下文与 agent准确率快照），
+ * 写入验证或反思时按 symbol 失效；其他节点写入的验证本节点收不到失效，靠 CONTEXT_TTL 兜底。agent准确率来自 quant_agent_accuracy 物化表（写验证时增量累加，按天分桶），
+ * 样本不足的 agent×区间 回落到最近一次 LLM 反思给出的评估。
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MemoryService {
 
+    private static final String AGENT_ACCURACY_MARKER = "[AGENT_ACCURACY]";
+    /** 准确率滚动窗口（天） */
+    private static final int ACCURACY_WINDOW_DAYS = 7;
+    /** 单个 agent×区间 的实测样本少于此数时不采用实测命中率 */
+    private static final int MIN_SAMPLES = 12;
+    /** 兜底过期：即使没有写入事件，上下文也不会旧于一个重周期 */
+    private static final Duration CONTEXT_TTL = Duration.ofMinutes(10);
+
+    private final AtomicLong contextReads = new AtomicLong();
+    private final AtomicLong contextLoads = new AtomicLong();
+    private final AtomicLong accuracyReads = new AtomicLong();
+    private final AtomicLong accuracyLoads = new AtomicLong();
+    private final AtomicLong recordedVotes = new AtomicLong();
+
     private final QuantForecastVerificationMapper verificationMapper;
     private final QuantReflectionMemoryMapper reflectionMapper;
+    private final QuantAgentAccuracyMapper accuracyMapper;
+    private final QuantAgentVoteMapper voteMapper;
+
+    /** key = symbol|类型|regime */
+    private final Cache<String, String> contextCache = Caffeine.newBuilder()
+            .maximumSize(256)
+            .expireAfterWrite(CONTEXT_TTL)
+            .build();
+    private final Cache<String, AccuracyBook> accuracyBooks = Caffeine.newBuilder()
+            .maximumSize(64)
+            .expireAfterWrite(CONTEXT_TTL)
+            .build();
+
+    /**
+     * 某 symbol 的准确率快照。overall 不分 regime；byRegime 中样本不足的项已用 overall 补齐。
+     * day 变化或超过 CONTEXT_TTL 时整体重载，让滚动窗口前移、并拿到其他节点累加的样本。
+     */
+    private record AccuracyBook(LocalDate day,
+                                Map<String, Map<String, Double>> overall,
+                                Map<String, Map<String, Map<String, Double>>> byRegime) {
+
+        Map<String, Map<String, Double>> forRegime(String regime) {
+            return regime != null ? byRegime.getOrDefault(regime, overall) : overall;
+        }
+    }
 
     /**
-     * 组装完整的记忆上下文，供LLM prompt注入
+     * 组装完整的记忆上下文，供LLM prompt注入（同一周期内多节点共享一次查询）
      */
     public String buildMemoryContext(String symbol, String regime) {
+        return cached(symbol + "|context|" + regime, () -> loadMemoryContext(symbol, regime));
+    }
+
+    private String loadMemoryContext(String symbol, String regime) {
         StringBuilder sb = new StringBuilder();
 
         // 1. 同regime下的反思教训
@@ -44,7 +112,7 @@ public class MemoryService {
             // 最近一条的反思结论
             String lesson = regimeMemories.getFirst().getReflectionText();
             if (lesson != null && !lesson.isBlank()) {
-                int markerIdx = lesson.indexOf("[AGENT_ACCURACY]");
+                int markerIdx = lesson.indexOf(AGENT_ACCURACY_MARKER);
                 if (markerIdx > 0) lesson = lesson.substring(0, markerIdx);
                 else if (markerIdx == 0) lesson = null;
             }
@@ -80,22 +148,170 @@ public class MemoryService {
      * 查询准确率统计（供报告用）
      */
     public String buildAccuracySummary(String symbol) {
+        return cached(symbol + "|accuracy", () -> loadAccuracySummary(symbol));
+    }
+
+    private String loadAccuracySummary(String symbol) {
         Double acc24h = verificationMapper.selectAccuracyRate(symbol, 24);
         if (acc24h == null) return "";
         return String.format("最近24h预测命中率: %.0f%%", acc24h * 100);
     }
 
     /**
-     * 从最近的反思记忆中提取agent准确率评估。
-     * 返回 agent → horizon → accuracy(0-1)，无数据时返回空Map。
+     * agent准确率，返回 agent → horizon → accuracy(0-1)，无数据时返回空Map。
      */
     public Map<String, Map<String, Double>> getAgentAccuracy(String symbol) {
+        return getAgentAccuracy(symbol, null);
+    }
+
+    /**
+     * 指定 regime 下的agent准确率；该 regime 样本不足的项用不分 regime 的值。regime 为 null 时不区分。
+     */
+    public Map<String, Map<String, Double>> getAgentAccuracy(String symbol, String regime) {
+        accuracyReads.incrementAndGet();
+        LocalDate today = LocalDate.now();
+        AccuracyBook book = accuracyBooks.asMap().compute(symbol,
+                (k, old) -> old != null && old.day().equals(today) ? old : loadAccuracyBook(symbol, today));
+        return book.forRegime(regime);
+    }
+
+    /**
+     * 写入验证行并把 agent 命中累加进物化表，两者同一事务，任一失败整体回滚（下轮重新验证）；
+     * 提交后让涉及 symbol 的缓存失效
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void saveVerifications(List<QuantForecastCycle> cycles, List<QuantForecastVerification> verifications) {
+        if (verifications == null || verifications.isEmpty()) return;
+        verificationMapper.insertBatch(verifications);
+        recordAccuracy(cycles, verifications);
+
+        Set<String> symbols = verifications.stream().map(QuantForecastVerification::getSymbol).collect(Collectors.toSet());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    symbols.forEach(MemoryService.this::invalidate);
+                }
+            });
+        } else {
+            symbols.forEach(this::invalidate);
+        }
+    }
+
+    /**
+     * 新写入的验证结果按 agent 投票记命中（规则同验证行，见 {@link VerificationService#isVoteCorrect}），累加进物化表。
+     * 只统计 LONG/SHORT 投票；按周期预测时间分天、按预测时的 regime 分组。
+     */
+    private void recordAccuracy(List<QuantForecastCycle> cycles, List<QuantForecastVerification> verifications) {
+
+        Map<String, QuantForecastCycle> cycleById = cycles.stream()
+                .collect(Collectors.toMap(QuantForecastCycle::getCycleId, c -> c, (a, b) -> a));
+        Map<String, QuantForecastVerification> byCycleHorizon = new HashMap<>();
+        for (QuantForecastVerification v : verifications) {
+            byCycleHorizon.put(v.getCycleId() + "|" + v.getHorizon(), v);
+        }
+        List<String> cycleIds = verifications.stream().map(QuantForecastVerification::getCycleId).distinct().toList();
+
+        Map<String, QuantAgentAccuracy> increments = new LinkedHashMap<>();
+        Map<String, String> regimes = new HashMap<>();
+        for (QuantAgentVote vote : voteMapper.selectByCycleIds(cycleIds)) {
+            QuantForecastVerification v = byCycleHorizon.get(vote.getCycleId() + "|" + vote.getHorizon());
+            QuantForecastCycle cycle = cycleById.get(vote.getCycleId());
+            if (v == null || cycle == null || v.getActualChangeBps() == null) continue;
+            boolean isLong = "LONG".equals(vote.getDirection());
+            if (!isLong && !"SHORT".equals(vote.getDirection())) continue;
+
+            String regime = regimes.computeIfAbsent(cycle.getCycleId(), ignored -> regimeOf(cycle));
+            LocalDate day = cycle.getForecastTime().toLocalDate();
+            QuantAgentAccuracy acc = increments.computeIfAbsent(
+                    String.join("|", cycle.getSymbol(), vote.getAgent(), vote.getHorizon(), regime, day.toString()),
+                    ignored -> {
+                        QuantAgentAccuracy a = new QuantAgentAccuracy();
+                        a.setSymbol(cycle.getSymbol());
+                        a.setAgent(vote.getAgent());
+                        a.setHorizon(vote.getHorizon());
+                        a.setRegime(regime);
+                        a.setBucketDate(day);
+                        a.setTotal(0);
+                        a.setCorrect(0);
+                        return a;
+                    });
+            acc.setTotal(acc.getTotal() + 1);
+            if (VerificationService.isVoteCorrect(vote.getDirection(), v)) acc.setCorrect(acc.getCorrect() + 1);
+        }
+
+        if (!increments.isEmpty()) {
+            accuracyMapper.upsertBatch(new ArrayList<>(increments.values()));
+            recordedVotes.addAndGet(increments.values().stream().mapToLong(QuantAgentAccuracy::getTotal).sum());
+        }
+        log.info("[Memory] agent准确率累加 verifications={} buckets={}", verifications.size(), increments.size());
+    }
+
+    /**
+     * 丢弃某 symbol 的记忆缓存，下次读取时重新查询（写入验证/反思后调用）
+     */
+    public void invalidate(String symbol) {
+        String prefix = symbol + "|";
+        contextCache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+        accuracyBooks.invalidate(symbol);
+    }
+
+    private String cached(String key, Supplier<String> loader) {
+        contextReads.incrementAndGet();
+        return contextCache.get(key, k -> {
+            contextLoads.incrementAndGet();
+            return loader.get();
+        });
+    }
+
+    private AccuracyBook loadAccuracyBook(String symbol, LocalDate today) {
+        accuracyLoads.incrementAndGet();
+        List<QuantAgentAccuracy> rows = accuracyMapper.selectSince(symbol, today.minusDays(ACCURACY_WINDOW_DAYS - 1));
+
+        // agent → horizon → [total, correct]
+        Map<String, Map<String, int[]>> overallCounts = new HashMap<>();
+        Map<String, Map<String, Map<String, int[]>>> regimeCounts = new HashMap<>();
+        for (QuantAgentAccuracy row : rows) {
+            addCount(overallCounts, row);
+            addCount(regimeCounts.computeIfAbsent(row.getRegime(), ignored -> new HashMap<>()), row);
+        }
+
+        Map<String, Map<String, Double>> overall = mergeMeasured(overallCounts, parseReflectedAccuracy(symbol));
+        Map<String, Map<String, Map<String, Double>>> byRegime = new HashMap<>();
+        regimeCounts.forEach((regime, counts) -> byRegime.put(regime, mergeMeasured(counts, overall)));
+        return new AccuracyBook(today, overall, byRegime);
+    }
+
+    private static void addCount(Map<String, Map<String, int[]>> counts, QuantAgentAccuracy row) {
+        int[] c = counts.computeIfAbsent(row.getAgent(), ignored -> new HashMap<>())
+                .computeIfAbsent(row.getHorizon(), ignored -> new int[2]);
+        c[0] += row.getTotal();
+        c[1] += row.getCorrect();
+    }
+
+    /** 以 fallback 为底，样本充足的项覆盖为实测命中率 */
+    private static Map<String, Map<String, Double>> mergeMeasured(Map<String, Map<String, int[]>> counts,
+                                                                  Map<String, Map<String, Double>> fallback) {
+        Map<String, Map<String, Double>> result = new HashMap<>();
+        fallback.forEach((agent, horizons) -> result.put(agent, new HashMap<>(horizons)));
+        counts.forEach((agent, horizons) -> horizons.forEach((horizon, c) -> {
+            if (c[0] >= MIN_SAMPLES) {
+                result.computeIfAbsent(agent, ignored -> new HashMap<>()).put(horizon, (double) c[1] / c[0]);
+            }
+        }));
+        return result;
+    }
+
+    /**
+     * 从最近的反思记忆中提取LLM给出的agent准确率评估，作为实测样本不足时的兜底
+     */
+    private Map<String, Map<String, Double>> parseReflectedAccuracy(String symbol) {
         List<QuantReflectionMemory> recent = reflectionMapper.selectRecent(symbol, 5);
         for (QuantReflectionMemory m : recent) {
             String text = m.getReflectionText();
-            if (text == null || !text.contains("[AGENT_ACCURACY]")) continue;
-            int idx = text.indexOf("[AGENT_ACCURACY]");
-            String jsonPart = text.substring(idx + "[AGENT_ACCURACY]".length()).trim();
+            if (text == null || !text.contains(AGENT_ACCURACY_MARKER)) continue;
+            int idx = text.indexOf(AGENT_ACCURACY_MARKER);
+            String jsonPart = text.substring(idx + AGENT_ACCURACY_MARKER.length()).trim();
             try {
                 JSONObject obj = JSON.parseObject(jsonPart);
                 Map<String, Map<String, Double>> result = new HashMap<>();
@@ -116,8 +332,28 @@ public class MemoryService {
         return Map.of();
     }
 
+    private static String regimeOf(QuantForecastCycle cycle) {
+        if (cycle.getSnapshotJson() == null) return "UNKNOWN";
+        try {
+            String regime = JSON.parseObject(cycle.getSnapshotJson()).getString("regime");
+            return regime != null ? regime : "UNKNOWN";
+        } catch (Exception e) {
+            return "UNKNOWN";
+        }
+    }
+
     private String truncate(String text, int maxLen) {
         if (text == null) return "";
         return text.length() > maxLen ? text.substring(0, maxLen) + "..." : text;
     }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("contextReads", contextReads.get());
+        m.put("contextLoads", contextLoads.get());
+        m.put("accuracyReads", accuracyReads.get());
+        m.put("accuracyLoads", accuracyLoads.get());
+        m.put("recordedVotes", recordedVotes.get());
+        return m;
+    }
 }
@@ -19,11 +19,14 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 @Slf4j
 @Service
@@ -34,10 +37,14 @@ public class VerificationService {
     private final QuantForecastCycleMapper cycleMapper;
     private final QuantForecastVerificationMapper verificationMapper;
     private final QuantHorizonForecastMapper horizonMapper;
+    private final MemoryService memoryService;
 
     private static final int NO_TRADE_THRESHOLD_BPS = 10;
     private static final BigDecimal HIGH_REVERSAL_SEVERITY = new BigDecimal("0.40");
     private static final ZoneId SYSTEM_ZONE = ZoneId.systemDefault();
+    private static final long MINUTE_MS = 60_000;
+    private static final int MAX_HORIZON_MINUTES = 30;
+    private static final int KLINE_PAGE_LIMIT = 1500;
 
     public record VerificationCycleResult(
             String cycleId,
@@ -63,16 +70,7 @@ public class VerificationService {
             return 0;
         }
 
-        int verifiedCycles = 0;
-        for (QuantForecastCycle cycle : unverified) {
-            List<QuantHorizonForecast> forecasts = horizonMapper.selectByCycleId(cycle.getCycleId());
-            if (forecasts.isEmpty()) {
-                continue;
-            }
-            if (verifyCycle(cycle, forecasts) > 0) {
-                verifiedCycles++;
-            }
-        }
+        int verifiedCycles = verifyCycles(unverified);
         log.info("[Verify] 手动验证完成 symbol={} verified={}/{}", symbol, verifiedCycles, unverified.size());
         return verifiedCycles;
     }
@@ -131,34 +129,72 @@ public class VerificationService {
     }
 
     /**
-     * 验证一个预测周期的所有区间裁决。
-     * 按分段区间(0-10/10-20/20-30)各自拉取对应时段K线做路径分析。
-     *
-     * 验证策略：
-     * - 0_10: 完整验证（方向+BPS+TP/SL触达判定）
-     * - 10_20/20_30: 降级验证（仅方向+BPS），因TP/SL基于T+0价格生成，对后段无效
+     * 批量验证一批预测周期，返回新增了验证记录的周期数。
+     * 预测明细和已验证区间各查一次；每个币种把相邻周期合并成时间簇，每簇整段拉一次1m K线，
+     * 所有周期×区间都在内存序列上评估，最后在同一事务里批量写入验证行并累加agent准确率物化表。补验一天积压只需几次REST调用。
      */
-    public int verifyCycle(QuantForecastCycle cycle, List<QuantHorizonForecast> forecasts) {
-        if (cycle == null || forecasts == null) return 0;
+    public int verifyCycles(List<QuantForecastCycle> cycles) {
+        if (cycles == null || cycles.isEmpty()) return 0;
 
-        Set<String> verifiedHorizons = new HashSet<>();
+        List<String> cycleIds = cycles.stream().map(QuantForecastCycle::getCycleId).toList();
+        Map<String, List<QuantHorizonForecast>> forecastsByCycle = new HashMap<>();
+        for (QuantHorizonForecast f : horizonMapper.selectByCycleIds(cycleIds)) {
+            forecastsByCycle.computeIfAbsent(f.getCycleId(), ignored -> new ArrayList<>()).add(f);
+        }
+        Map<String, Set<String>> verifiedHorizons = new HashMap<>();
         List<QuantForecastVerification> existing = verificationMapper.selectList(
                 new LambdaQueryWrapper<QuantForecastVerification>()
-                        .select(QuantForecastVerification::getHorizon)
-                        .eq(QuantForecastVerification::getCycleId, cycle.getCycleId()));
+                        .select(QuantForecastVerification::getCycleId, QuantForecastVerification::getHorizon)
+                        .in(QuantForecastVerification::getCycleId, cycleIds));
         for (QuantForecastVerification v : existing) {
-            verifiedHorizons.add(v.getHorizon());
+            verifiedHorizons.computeIfAbsent(v.getCycleId(), ignored -> new HashSet<>()).add(v.getHorizon());
+        }
+
+        Map<String, List<QuantForecastCycle>> bySymbol = new LinkedHashMap<>();
+        for (QuantForecastCycle cycle : cycles) {
+            if (forecastsByCycle.containsKey(cycle.getCycleId())) {
+                bySymbol.computeIfAbsent(cycle.getSymbol(), ignored -> new ArrayList<>()).add(cycle);
+            }
         }
 
+        List<QuantForecastVerification> batch = new ArrayList<>();
+        int verifiedCycles = 0;
+        for (Map.Entry<String, List<QuantForecastCycle>> entry : bySymbol.entrySet()) {
+            KlineSeries series = loadKlineSeries(entry.getKey(), entry.getValue());
+            for (QuantForecastCycle cycle : entry.getValue()) {
+                List<QuantForecastVerification> items = evaluateCycle(cycle, forecastsByCycle.get(cycle.getCycleId()),
+                        verifiedHorizons.getOrDefault(cycle.getCycleId(), Set.of()), series);
+                if (!items.isEmpty()) {
+                    batch.addAll(items);
+                    verifiedCycles++;
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            memoryService.saveVerifications(cycles, batch);
+        }
+        return verifiedCycles;
+    }
+
+    /**
+     * 验证一个预测周期的所有区间裁决，价格与路径都取自预先加载的1m K线序列。
+     * 按分段区间(0-10/10-20/20-30)各自截取对应时段K线做路径分析。
+     *
+     * 验证策略：
+     * - 0_10: 完整验证（方向+BPS+TP/SL触达判定）
+     * - 10_20/20_30: 降级验证（仅方向+BPS），因TP/SL基于T+0价格生成，对后段无效
+     */
+    private List<QuantForecastVerification> evaluateCycle(QuantForecastCycle cycle, List<QuantHorizonForecast> forecasts,
+                                                          Set<String> verifiedHorizons, KlineSeries series) {
         LocalDateTime forecastTime = cycle.getForecastTime();
-        BigDecimal priceAtForecast = getHistoricalPrice(cycle.getSymbol(), forecastTime);
+        BigDecimal priceAtForecast = series.closeAt(forecastTime);
         if (priceAtForecast == null) {
             log.warn("[Verify] 无法获取预测时价格 cycle={} time={}", cycle.getCycleId(), forecastTime);
-            return 0;
+            return List.of();
         }
 
         LocalDateTime now = LocalDateTime.now(SYSTEM_ZONE);
-        int verified = 0;
+        List<QuantForecastVerification> result = new ArrayList<>(forecasts.size());
         for (QuantHorizonForecast f : forecasts) {
             if (verifiedHorizons.contains(f.getHorizon())) continue;
 
@@ -177,20 +213,20 @@ public class VerificationService {
             if (startMin == 0) {
                 entryPrice = priceAtForecast;
             } else {
-                entryPrice = getHistoricalPrice(cycle.getSymbol(), forecastTime.plusMinutes(startMin));
+                entryPrice = series.closeAt(forecastTime.plusMinutes(startMin));
                 if (entryPrice == null) continue;
             }
 
-            // 只拉分段区间内的1m K线
+            // 只取分段区间内的1m K线
             int segmentDuration = endMin - startMin;
             LocalDateTime segmentStart = forecastTime.plusMinutes(startMin);
-            List<BigDecimal[]> klines = getKlineRange(cycle.getSymbol(), segmentStart, segmentDuration);
+            List<BigDecimal[]> klines = series.range(segmentStart, segmentDuration);
             BigDecimal priceAfter = null;
-            if (klines != null && !klines.isEmpty()) {
+            if (!klines.isEmpty()) {
                 priceAfter = klines.getLast()[2];
             }
             if (priceAfter == null) {
-                priceAfter = getHistoricalPrice(cycle.getSymbol(), segmentEnd);
+                priceAfter = series.closeAt(segmentEnd);
             }
             if (priceAfter == null) continue;
 
@@ -249,16 +285,15 @@ public class VerificationService {
             v.setTradeQuality(tradeQuality);
             v.setResultSummary(buildResultSummary(f.getDirection(), changeBps, tradeQuality, path, reversalSeverity));
             v.setVerifiedAt(LocalDateTime.now(SYSTEM_ZONE));
-            verificationMapper.insert(v);
-            verified++;
+            result.add(v);
 
             log.info("[Verify] {} {} predicted={} conf={} entry={} actual={}bps maxFav={}bps maxAdv={}bps tp1First={} quality={}",
                     cycle.getCycleId(), f.getHorizon(), f.getDirection(),
                     f.getConfidence(), entryPrice, changeBps, path.maxFavorableBps, path.maxAdverseBps,
                     path.tp1HitFirst, tradeQuality);
         }
-        log.info("[Verify] cycle={} 验证完成 {}/{}", cycle.getCycleId(), verified, forecasts.size());
-        return verified;
+        log.info("[Verify] cycle={} 验证完成 {}/{}", cycle.getCycleId(), result.size(), forecasts.size());
+        return result;
     }
 
     // ==================== 路径分析 ====================
@@ -321,6 +356,25 @@ public class VerificationService {
         return new PathResult(maxFavBps, maxAdvBps, tp1First);
     }
 
+    /**
+     * agent 方向票（LONG/SHORT）的命中规则，与验证行的 predictionCorrect 一致：
+     * 与该区间最终裁决同方向的票直接沿用 predictionCorrect（LUCKY 不算对）；
+     * 其他票没有自己的 TP/SL，按 {@link #judgeQuality} 无TP/SL评级，GOOD/MARGINAL 算对；
+     * 与裁决反向时有利/不利偏移互换沿用，裁决为 NO_TRADE 时没有路径，按 0 处理
+     */
+    static boolean isVoteCorrect(String direction, QuantForecastVerification v) {
+        String predicted = v.getPredictedDirection();
+        if (direction.equals(predicted) && v.getPredictionCorrect() != null) {
+            return v.getPredictionCorrect();
+        }
+        PathResult path = ("LONG".equals(predicted) || "SHORT".equals(predicted))
+                && v.getMaxFavorableBps() != null && v.getMaxAdverseBps() != null
+                ? new PathResult(v.getMaxAdverseBps(), v.getMaxFavorableBps(), null)
+                : new PathResult(0, 0, null);
+        String quality = judgeQuality(direction, v.getActualChangeBps(), path);
+        return "GOOD".equals(quality) || "MARGINAL".equals(quality);
+    }
+
     /**
      * 综合评级：
      * GOOD — 方向正确 + 路径健康（TP1先触或有利偏移充足）
@@ -329,7 +383,7 @@ public class VerificationService {
      * BAD — 方向错误
      * FLAT — NO_TRADE且波动在阈值内
      */
-    private String judgeQuality(String direction, int changeBps, PathResult path) {
+    private static String judgeQuality(String direction, int changeBps, PathResult path) {
         if ("NO_TRADE".equals(direction)) {
             return Math.abs(changeBps) < NO_TRADE_THRESHOLD_BPS ? "GOOD" : "BAD";
         }
@@ -352,49 +406,97 @@ public class VerificationService {
     // ==================== 数据获取 ====================
 
     /**
-     * 拉取从startTime开始的count根1m K线。
-     * 返回 [[high, low, close], ...] 序列。
+     * 按开盘时间索引的1m K线序列，元素为 [high, low, close]。
+     * 取价语义与逐条REST查询一致：某时刻价格取开盘时间不晚于该时刻+1分钟的最后一根K线收盘价。
      */
-    private List<BigDecimal[]> getKlineRange(String symbol, LocalDateTime startTime, int count) {
-        try {
-            long startMs = startTime.atZone(SYSTEM_ZONE).toInstant().toEpochMilli();
-            String json = binanceRestClient.getFuturesKlines(symbol, "1m", count, startMs + (long) count * 60_000 + 1000);
-            if (json == null || json.isBlank()) return null;
-            JSONArray root = JSON.parseArray(json);
-            if (root == null || root.isEmpty()) return null;
-            List<BigDecimal[]> result = new ArrayList<>(root.size());
-            for (int i = 0; i < root.size(); i++) {
-                JSONArray k = root.getJSONArray(i);
-                result.add(new BigDecimal[]{
-                        new BigDecimal(k.getString(2)),  // high
-                        new BigDecimal(k.getString(3)),  // low
-                        new BigDecimal(k.getString(4))   // close
-                });
-            }
-            return result;
-        } catch (Exception e) {
-            log.warn("[Verify] K线序列获取失败 symbol={} time={}: {}", symbol, startTime, e.getMessage());
-            return null;
+    static final class KlineSeries {
+
+        private final NavigableMap<Long, BigDecimal[]> bars = new TreeMap<>();
+
+        void put(long openTimeMs, BigDecimal[] bar) {
+            bars.put(openTimeMs, bar);
+        }
+
+        int size() {
+            return bars.size();
+        }
+
+        BigDecimal closeAt(LocalDateTime time) {
+            long ms = toEpochMilli(time);
+            Map.Entry<Long, BigDecimal[]> e = bars.floorEntry(ms + MINUTE_MS);
+            // 序列未覆盖该时刻（拉取失败或有缺口）时不拿更早的K线凑数
+            if (e == null || e.getKey() <= ms - MINUTE_MS) return null;
+            return e.getValue()[2];
+        }
+
+        /** 从startTime开始的count根1m K线 */
+        List<BigDecimal[]> range(LocalDateTime startTime, int count) {
+            long endMs = toEpochMilli(startTime) + count * MINUTE_MS + 1000;
+            return new ArrayList<>(bars.subMap(endMs - count * MINUTE_MS, false, endMs, true).values());
         }
     }
 
     /**
-     * 从Binance获取指定时刻的1m K线收盘价。
-     * forecastTime是本地时区的LocalDateTime，需转成UTC毫秒给Binance API。
+     * 为同一币种的一批周期加载1m K线。每个周期需要 [预测时刻-1m, 预测时刻+31m] 的K线；
+     * 按时间排序后把间隔不足一页的窗口合并成簇，每簇从末端往前分页拉取，窗口间的大段空白不拉。
      */
-    BigDecimal getHistoricalPrice(String symbol, LocalDateTime time) {
+    private KlineSeries loadKlineSeries(String symbol, List<QuantForecastCycle> cycles) {
+        List<long[]> windows = cycles.stream()
+                .map(c -> toEpochMilli(c.getForecastTime()))
+                .sorted()
+                .map(ms -> new long[]{ms - MINUTE_MS, ms + (MAX_HORIZON_MINUTES + 1) * MINUTE_MS + 1000})
+                .toList();
+        List<long[]> clusters = new ArrayList<>();
+        for (long[] w : windows) {
+            long[] last = clusters.isEmpty() ? null : clusters.getLast();
+            if (last != null && w[0] - last[1] < KLINE_PAGE_LIMIT * MINUTE_MS) {
+                last[1] = Math.max(last[1], w[1]);
+            } else {
+                clusters.add(new long[]{w[0], w[1]});
+            }
+        }
+
+        KlineSeries series = new KlineSeries();
+        int requests = 0;
+        for (long[] cluster : clusters) {
+            requests += fetchKlines(symbol, cluster[0], cluster[1], series);
+        }
+        log.info("[Verify] K线加载 symbol={} cycles={} clusters={} requests={} bars={}",
+                symbol, cycles.size(), clusters.size(), requests, series.size());
+        return series;
+    }
+
+    /** 从endMs往前分页拉取，直到覆盖startMs；返回REST调用次数 */
+    private int fetchKlines(String symbol, long startMs, long endMs, KlineSeries series) {
+        int requests = 0;
+        long endTime = endMs;
         try {
-            long endTimeMs = time.atZone(SYSTEM_ZONE).toInstant().toEpochMilli() + 60_000;
-            String json = binanceRestClient.getFuturesKlines(symbol, "1m", 1, endTimeMs);
-            if (json == null || json.isBlank()) return null;
-            JSONArray root = JSON.parseArray(json);
-            if (root.isEmpty()) return null;
-            JSONArray kline = root.getJSONArray(0);
-            return new BigDecimal(kline.getString(4));
+            while (true) {
+                requests++;
+                String json = binanceRestClient.getFuturesKlines(symbol, "1m", KLINE_PAGE_LIMIT, endTime);
+                if (json == null || json.isBlank()) break;
+                JSONArray root = JSON.parseArray(json);
+                if (root == null || root.isEmpty()) break;
+                for (int i = 0; i < root.size(); i++) {
+                    JSONArray k = root.getJSONArray(i);
+                    series.put(k.getLongValue(0), new BigDecimal[]{
+                            new BigDecimal(k.getString(2)),  // high
+                            new BigDecimal(k.getString(3)),  // low
+                            new BigDecimal(k.getString(4))   // close
+                    });
+                }
+                long earliest = root.getJSONArray(0).getLongValue(0);
+                if (root.size() < KLINE_PAGE_LIMIT || earliest <= startMs) break;
+                endTime = earliest - 1;
+            }
         } catch (Exception e) {
-            log.warn("[Verify] 获取历史价格失败 symbol={} time={}: {}", symbol, time, e.getMessage());
-            return null;
+            log.warn("[Verify] K线序列获取失败 symbol={} range=[{}, {}]: {}", symbol, startMs, endMs, e.getMessage());
         }
+        return requests;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(SYSTEM_ZONE).toInstant().toEpochMilli();
     }
 
     private static int calcChangeBps(BigDecimal from, BigDecimal to) {
@@ -8,6 +8,7 @@ import com.mawai.wiibservice.config.BinanceRestClient;
 import com.mawai.wiibservice.config.DeribitClient;
 import com.mawai.wiibservice.service.DepthStreamCache;
 import com.mawai.wiibservice.service.ForceOrderService;
+import com.mawai.wiibservice.service.NewsFeedService;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
@@ -26,6 +27,7 @@ public class CollectDataNode implements NodeAction {
     private final ForceOrderService forceOrderService;
     private final DepthStreamCache depthStreamCache;
     private final DeribitClient deribitClient;
+    private final NewsFeedService newsFeed;
 
     public CollectDataNode(BinanceRestClient binanceRestClient, ForceOrderService forceOrderService) {
         this(binanceRestClient, forceOrderService, null, null);
@@ -38,10 +40,18 @@ public class CollectDataNode implements NodeAction {
 
     public CollectDataNode(BinanceRestClient binanceRestClient, ForceOrderService forceOrderService,
                            DepthStreamCache depthStreamCache, DeribitClient deribitClient) {
+        this(binanceRestClient, forceOrderService, depthStreamCache, deribitClient, null);
+    }
+
+    /** newsFeed 非空时新闻从后台增量索引读取，不再每轮请求新闻接口 */
+    public CollectDataNode(BinanceRestClient binanceRestClient, ForceOrderService forceOrderService,
+                           DepthStreamCache depthStreamCache, DeribitClient deribitClient,
+                           NewsFeedService newsFeed) {
         this.binanceRestClient = binanceRestClient;
         this.forceOrderService = forceOrderService;
         this.depthStreamCache = depthStreamCache;
         this.deribitClient = deribitClient;
+        this.newsFeed = newsFeed;
     }
 
     @Override
@@ -123,7 +133,9 @@ public class CollectDataNode implements NodeAction {
             var fearGreedF = skipFearGreed ? null
                     : executor.submit(() -> binanceRestClient.getFearGreedIndex(2));
             String coin = sym.replace("USDT", "").replace("USDC", "");
-            var newsF = executor.submit(() -> binanceRestClient.getCryptoNews(coin, 30, "EN"));
+            var newsF = executor.submit(() -> newsFeed != null
+                    ? newsFeed.recentFeedJson(sym)
+                    : binanceRestClient.getCryptoNews(coin, 30, "EN"));
 
             // Deribit 期权 IV 数据（并行采集，失败不影响主流程）
             Future<String> dvolF = deribitClient != null
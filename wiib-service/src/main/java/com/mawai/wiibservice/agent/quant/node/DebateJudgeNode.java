@@ -6,16 +6,19 @@ import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.mawai.wiibcommon.util.JsonUtils;
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
+import com.mawai.wiibservice.agent.quant.QuantPartialPublisher;
 import com.mawai.wiibservice.agent.quant.domain.*;
 import com.mawai.wiibservice.agent.quant.judge.HorizonJudge;
 import com.mawai.wiibservice.agent.quant.memory.MemoryService;
+import com.mawai.wiibservice.agent.quant.util.IncrementalJsonParser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Bull vs Bear辩论裁决节点（3-call架构）。
@@ -27,6 +30,8 @@ import java.util.concurrent.TimeUnit;
  * - confidence只能下调不能上调
  * - 方向翻转时cap到原始50%
  * - LLM失败fallback到原始裁决
+ * <p>
+ * 辩手论据、裁判推理和各区间裁决在各自生成完成时即增量推送给前端（预览，最终以完整报告为准）。
  */
 @Slf4j
 public class DebateJudgeNode implements NodeAction {
@@ -40,11 +45,31 @@ public class DebateJudgeNode implements NodeAction {
     private final ChatClient chatClient;
     private final LlmCallMode callMode;
     private final MemoryService memoryService;
+    private final LlmResponseCache llmCache;
+    private final QuantPartialPublisher partialPublisher;
+
+    /** 辩论对盘口敏感，只在5分钟内复用同一量化输入的结果 */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+    /** 辩手超时用占位论据，裁决超时保留原始裁决 */
+    private static final LlmCallBounds DEBATER_BOUNDS = LlmCallBounds.text(Duration.ofSeconds(60));
+    private static final LlmCallBounds JUDGE_BOUNDS = LlmCallBounds.json(Duration.ofSeconds(60), "horizons");
 
     public DebateJudgeNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService) {
+        this(builder, callMode, memoryService, null);
+    }
+
+    public DebateJudgeNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                           LlmResponseCache llmCache) {
+        this(builder, callMode, memoryService, llmCache, null);
+    }
+
+    public DebateJudgeNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                           LlmResponseCache llmCache, QuantPartialPublisher partialPublisher) {
         this.chatClient = builder.build();
         this.callMode = callMode;
         this.memoryService = memoryService;
+        this.llmCache = llmCache;
+        this.partialPublisher = partialPublisher;
     }
 
     @Override
@@ -77,6 +102,9 @@ public class DebateJudgeNode implements NodeAction {
 
         if (forecasts.isEmpty()) return Map.of();
 
+        QuantPartialPublisher.Session partial = partialPublisher == null ? null : partialPublisher.session(
+                snapshot != null ? snapshot.symbol() : (String) state.value("target_symbol").orElse("BTCUSDT"),
+                (String) state.value("cycle_id").orElse("unknown"), "debate");
         try {
             String dataContext = buildDataContext(forecasts, votes, snapshot,
                     overallDecision, riskStatus, regimeTransition);
@@ -97,15 +125,19 @@ public class DebateJudgeNode implements NodeAction {
             String bearArg;
             try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
                 CompletableFuture<String> bullCf = CompletableFuture
-                        .supplyAsync(() -> callMode.call(chatClient, buildBullPrompt(dataContext)), executor)
-                        .orTimeout(60, TimeUnit.SECONDS)
+                        .supplyAsync(() -> callMode.call(chatClient, buildBullPrompt(dataContext), llmCache,
+                                cacheKey("debate_bull", forecasts, votes, snapshot, overallDecision, riskStatus,
+                                        regimeTransition).build(), CACHE_TTL, DEBATER_BOUNDS), executor)
+                        .thenApply(arg -> publish(partial, "bullArgument", arg))
                         .exceptionally(ex -> {
                             log.warn("[Q4.5] Bull辩手调用失败: {}", ex.getMessage());
                             return "Bull辩手未能提供论据";
                         });
                 CompletableFuture<String> bearCf = CompletableFuture
-                        .supplyAsync(() -> callMode.call(chatClient, buildBearPrompt(dataContext)), executor)
-                        .orTimeout(60, TimeUnit.SECONDS)
+                        .supplyAsync(() -> callMode.call(chatClient, buildBearPrompt(dataContext), llmCache,
+                                cacheKey("debate_bear", forecasts, votes, snapshot, overallDecision, riskStatus,
+                                        regimeTransition).build(), CACHE_TTL, DEBATER_BOUNDS), executor)
+                        .thenApply(arg -> publish(partial, "bearArgument", arg))
                         .exceptionally(ex -> {
                             log.warn("[Q4.5] Bear辩手调用失败: {}", ex.getMessage());
                             return "Bear辩手未能提供论据";
@@ -119,8 +151,14 @@ public class DebateJudgeNode implements NodeAction {
                     bullArg.length(), bearArg.length(), System.currentTimeMillis() - startMs);
 
             // Phase 2: Judge 裁决（综合数据 + 双方论据 + 历史记忆）
+            LlmResponseCache.Key judgeKey = cacheKey("debate_judge", forecasts, votes, snapshot,
+                    overallDecision, riskStatus, regimeTransition)
+                    .text("memory", memoryContext).text("bull", bullArg).text("bear", bearArg).build();
+            IncrementalJsonParser parser = new IncrementalJsonParser(2,
+                    (path, value) -> onJudgeField(partial, path, value, startMs));
             String judgeResponse = callMode.call(chatClient,
-                    buildJudgePrompt(dataContext, memoryContext, bullArg, bearArg));
+                    buildJudgePrompt(dataContext, memoryContext, bullArg, bearArg), llmCache, judgeKey, CACHE_TTL,
+                    JUDGE_BOUNDS, parser);
             log.info("[Q4.5.2] Judge裁决 {}chars 总耗时{}ms",
                     judgeResponse != null ? judgeResponse.length() : 0,
                     System.currentTimeMillis() - startMs);
@@ -132,8 +170,42 @@ public class DebateJudgeNode implements NodeAction {
         }
     }
 
+    // ==================== 增量推送 ====================
+
+    private static String publish(QuantPartialPublisher.Session partial, String field, String value) {
+        if (partial != null && value != null && !value.isBlank()) partial.publish(field, value);
+        return value;
+    }
+
+    /** 裁判输出流式到达：推理先到，随后逐个区间裁决；只推叙述性字段，置信度/概率经安全约束后随完整报告下发 */
+    private void onJudgeField(QuantPartialPublisher.Session partial, String path, Object value, long startMs) {
+        if ("judgeReasoning".equals(path) && value instanceof String reasoning) {
+            publish(partial, "judgeReasoning", reasoning);
+        } else if (path.startsWith("horizons[") && value instanceof JSONObject h) {
+            log.info("[Q4.5.stream] {} 裁决到达 approved={} dir={} +{}ms", h.getString("horizon"),
+                    h.getBoolean("approved"), h.getString("newDirection"), System.currentTimeMillis() - startMs);
+            if (partial == null) return;
+            Map<String, Object> verdict = new LinkedHashMap<>();
+            verdict.put("horizon", normalizeHorizon(h.getString("horizon")));
+            verdict.put("approved", h.getBoolean("approved"));
+            verdict.put("reason", h.getString("reason"));
+            partial.publish("verdict", verdict);
+        }
+    }
+
     // ==================== Prompt构建 ====================
 
+    /** 与 buildDataContext 同源的语义输入：预测/投票量化 + 裁决 + 行情快照 */
+    private static LlmResponseCache.KeyBuilder cacheKey(String node, List<HorizonForecast> forecasts,
+                                                        List<AgentVote> votes, FeatureSnapshot snapshot,
+                                                        String overallDecision, String riskStatus,
+                                                        String regimeTransition) {
+        return LlmResponseCache.key(node)
+                .forecasts(forecasts).votes(votes)
+                .add("decision", overallDecision).add("risk", riskStatus).add("transition", regimeTransition)
+                .market(snapshot);
+    }
+
     private String buildDataContext(List<HorizonForecast> forecasts,
                                      List<AgentVote> votes,
                                      FeatureSnapshot snapshot,
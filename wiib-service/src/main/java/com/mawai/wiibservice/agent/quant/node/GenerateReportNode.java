@@ -7,9 +7,13 @@ import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.mawai.wiibcommon.util.JsonUtils;
 import com.mawai.wiibservice.agent.quant.CryptoAnalysisReport;
+import com.mawai.wiibservice.agent.quant.LlmBatchCoalescer;
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
+import com.mawai.wiibservice.agent.quant.QuantPartialPublisher;
 import com.mawai.wiibservice.agent.quant.domain.*;
 import com.mawai.wiibservice.agent.quant.factor.NewsEventAgent;
 import com.mawai.wiibservice.agent.quant.memory.MemoryService;
+import com.mawai.wiibservice.agent.quant.util.IncrementalJsonParser;
 import com.mawai.wiibservice.agent.quant.util.NewsRelevance;
 
 import lombok.extern.slf4j.Slf4j;
@@ -17,16 +21,20 @@ import org.springframework.ai.chat.client.ChatClient;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * 报告生成节点（LLM）。
  * 输入：结构化的ForecastResult数据（区间裁决、Agent投票、风控结果）。
  * 输出：CryptoAnalysisReport（前端兼容格式）。
+ * 硬性报告算完即推送，LLM叙述字段边生成边推送，前端不必等到最后一个token。
  */
 @Slf4j
 public class GenerateReportNode implements NodeAction {
@@ -34,15 +42,82 @@ public class GenerateReportNode implements NodeAction {
     private final ChatClient chatClient;
     private final LlmCallMode callMode;
     private final MemoryService memoryService;
+    private final LlmResponseCache llmCache;
+    private final LlmBatchCoalescer batcher;
+    private final QuantPartialPublisher partialPublisher;
+
+    /** 报告叙述与裁决输入同源，5分钟内输入量化不变则复用 */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+
+    private static final String ROLE = "你是加密货币量化分析师。系统已完成全部结构化计算，请基于以下数据进行综合推理并撰写分析。";
+
+    private static final String TASK = """
+            你的任务：
+            1. reasoning: 综合推理——分析各维度信号（动量/微结构/波动率/市场状态/新闻）的一致性与矛盾，解释裁决的合理性或局限性
+            2. summary: 一句话总结当前市场状态和建议（用📈📉↔️标注方向）
+            3. analysisBasis: 核心预测依据（2-3句话，说明为什么得出这个结论）
+            4. indicators: 用通俗语言解读关键指标状态，关键术语首次出现时加简短注释如RSI=35（偏超卖）
+            5. riskWarnings: 风险提示列表
+
+            约束：
+            - 方向判断、价位、入场建议已由量化系统确定，你只能解释不能修改
+            - 如果裁决是观望/NO_TRADE，必须写观望
+            - longTerm只能写"观望"
+            - 不能新增系统未给出的概率、胜率或极端判断
+            """;
+
+    private static final String SCHEMA = """
+            {
+              "reasoning": "综合推理分析",
+              "summary": "一句话总结",
+              "analysisBasis": "预测依据",
+              "indicators": "指标解读",
+              "riskWarnings": ["风险1", "风险2"]
+            }
+            """;
+
+    /** 批量模式：各symbol辩论耗时不一，凑批等待放宽 */
+    private static final LlmBatchCoalescer.Spec BATCH_SPEC = new LlmBatchCoalescer.Spec(
+            "generate_report", ROLE, TASK, SCHEMA,
+            List.of("summary", "analysisBasis", "indicators", "riskWarnings"), Duration.ofSeconds(30));
+
+    /** 超时/无效直接用硬性报告 */
+    private static final LlmCallBounds BOUNDS =
+            LlmCallBounds.json(Duration.ofSeconds(90), "summary", "analysisBasis", "indicators", "riskWarnings");
+    /** 批量调用在凑批等待之后开始，两者合计不超过单独调用的截止时间 */
+    private static final LlmCallBounds BATCH_BOUNDS =
+            LlmCallBounds.json(BOUNDS.deadline().minus(BATCH_SPEC.maxWait()), "results");
+    /** 增量推送的LLM叙述字段 */
+    private static final Set<String> STREAMED_FIELDS =
+            Set.of("reasoning", "summary", "analysisBasis", "indicators", "riskWarnings");
 
     public GenerateReportNode(ChatClient.Builder builder, LlmCallMode callMode) {
         this(builder, callMode, null);
     }
 
     public GenerateReportNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService) {
+        this(builder, callMode, memoryService, null);
+    }
+
+    public GenerateReportNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                              LlmResponseCache llmCache) {
+        this(builder, callMode, memoryService, llmCache, null);
+    }
+
+    public GenerateReportNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                              LlmResponseCache llmCache, LlmBatchCoalescer batcher) {
+        this(builder, callMode, memoryService, llmCache, batcher, null);
+    }
+
+    public GenerateReportNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                              LlmResponseCache llmCache, LlmBatchCoalescer batcher,
+                              QuantPartialPublisher partialPublisher) {
         this.chatClient = builder.build();
         this.callMode = callMode;
         this.memoryService = memoryService;
+        this.llmCache = llmCache;
+        this.batcher = batcher;
+        this.partialPublisher = partialPublisher;
     }
 
     @Override
@@ -80,6 +155,9 @@ public class GenerateReportNode implements NodeAction {
                 hardReport.getDirection().getMid(), hardReport.getConfidence(),
                 hardReport.getPositionAdvice().size(), hardReport.getImportantNews().size(),
                 hardReport.getRiskWarnings().size());
+        QuantPartialPublisher.Session partial = partialPublisher == null ? null
+                : partialPublisher.session(symbol, (String) state.value("cycle_id").orElse("unknown"), "report");
+        if (partial != null) partial.publish("hardReport", hardReport);
 
         // ===== Step2: LLM综合推理 =====
         CryptoAnalysisReport finalReport;
@@ -87,9 +165,34 @@ public class GenerateReportNode implements NodeAction {
         try {
             String voteSummary = buildVoteSummary(votes);
             String memorySummary = buildMemorySummary(snapshot);
-            String prompt = buildLlmPrompt(hardReport, voteSummary, indicators, priceChanges,
+            String section = buildDataSection(hardReport, voteSummary, indicators, priceChanges,
                     filteredNews, riskStatus, snapshot, debateSummaryRaw, memorySummary);
-            String response = callMode.call(chatClient, prompt);
+            String prompt = ROLE + "\n\n" + section + "\n" + TASK
+                    + "\n严格返回JSON（不要markdown包裹）：\n" + SCHEMA;
+            List<String> newsKey = new ArrayList<>();
+            for (NewsEventAgent.FilteredNewsItem item : filteredNews) {
+                newsKey.add(item.title() + "|" + item.sentiment() + "|" + item.impact());
+            }
+            LlmResponseCache.Key cacheKey = LlmResponseCache.key("generate_report")
+                    .add("symbol", symbol).add("decision", overallDecision).add("risk", riskStatus)
+                    .forecasts(forecasts).votes(votes).market(snapshot).indicators(snapshot)
+                    .text("news", String.join("\n", newsKey))
+                    .add("debateProbs", JSON.toJSONString(new TreeMap<>(debateProbs)))
+                    .text("debate", debateSummaryRaw).text("memory", memorySummary)
+                    .build();
+            IncrementalJsonParser parser = new IncrementalJsonParser(1, (field, value) -> {
+                if (partial != null && STREAMED_FIELDS.contains(field) && value != null && !value.toString().isBlank()) {
+                    partial.publish(field, value);
+                }
+            });
+            LlmBatchCoalescer.Group group = batcher != null ? LlmBatchCoalescer.group(state) : null;
+            String response = group == null
+                    ? callMode.call(chatClient, prompt, llmCache, cacheKey, CACHE_TTL, BOUNDS, parser)
+                    : batcher.submitCached(BATCH_SPEC, group, symbol, section,
+                            llmCache, cacheKey, CACHE_TTL, prompt.length(), BOUNDS,
+                            p -> callMode.call(chatClient, p, BATCH_BOUNDS), b -> callMode.call(chatClient, prompt, b, parser));
+            // 批量合并的结果按symbol拆回后才拿到，整段回放
+            if (!parser.hasInput()) parser.feed(response);
             log.info("[Q6.2] LLM推理返回 {}chars 耗时{}ms",
                     response != null ? response.length() : 0, System.currentTimeMillis() - startMs);
 
@@ -165,7 +268,7 @@ public class GenerateReportNode implements NodeAction {
         return report;
     }
 
-    private String buildLlmPrompt(CryptoAnalysisReport hardReport,
+    private String buildDataSection(CryptoAnalysisReport hardReport,
                                    String voteSummary,
                                    String indicators,
                                    String priceChanges,
@@ -206,8 +309,6 @@ public class GenerateReportNode implements NodeAction {
                 ? String.join(", ", snapshot.qualityFlags()) : "正常";
 
         return """
-                你是加密货币量化分析师。系统已完成全部结构化计算，请基于以下数据进行综合推理并撰写分析。
-
                 【方向裁决（不可修改）】
                 %s
 
@@ -235,28 +336,6 @@ public class GenerateReportNode implements NodeAction {
 
                 【历史表现参考】
                 %s
-
-                你的任务：
-                1. reasoning: 综合推理——分析各维度信号（动量/微结构/波动率/市场状态/新闻）的一致性与矛盾，解释裁决的合理性或局限性
-                2. summary: 一句话总结当前市场状态和建议（用📈📉↔️标注方向）
-                3. analysisBasis: 核心预测依据（2-3句话，说明为什么得出这个结论）
-                4. indicators: 用通俗语言解读关键指标状态，关键术语首次出现时加简短注释如RSI=35（偏超卖）
-                5. riskWarnings: 风险提示列表
-
-                约束：
-                - 方向判断、价位、入场建议已由量化系统确定，你只能解释不能修改
-                - 如果裁决是观望/NO_TRADE，必须写观望
-                - longTerm只能写"观望"
-                - 不能新增系统未给出的概率、胜率或极端判断
-
-                严格返回JSON（不要markdown包裹）：
-                {
-                  "reasoning": "综合推理分析",
-                  "summary": "一句话总结",
-                  "analysisBasis": "预测依据",
-                  "indicators": "指标解读",
-                  "riskWarnings": ["风险1", "风险2"]
-                }
                 """.formatted(
                 directionBlock, posBlock.toString(),
                 hardReport.getKeyLevels().getSupport(), hardReport.getKeyLevels().getResistance(),
@@ -5,7 +5,10 @@ import com.alibaba.cloud.ai.graph.action.NodeAction;
 import com.alibaba.fastjson2.JSON;
 import com.alibaba.fastjson2.JSONObject;
 import com.mawai.wiibcommon.util.JsonUtils;
+import com.mawai.wiibservice.agent.quant.LlmBatchCoalescer;
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
 import com.mawai.wiibservice.agent.quant.domain.FeatureSnapshot;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
 import com.mawai.wiibservice.agent.quant.domain.LlmCallMode;
 import com.mawai.wiibservice.agent.quant.domain.MarketRegime;
 import com.mawai.wiibservice.agent.quant.memory.MemoryService;
@@ -14,6 +17,7 @@ import org.springframework.ai.chat.client.ChatClient;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -23,18 +27,85 @@ import java.util.*;
 @Slf4j
 public class RegimeReviewNode implements NodeAction {
 
+    /** regime 判断随15m级别结构变化，10分钟内同一量化输入复用 */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+
+    private static final String ROLE =
+            "你是加密货币市场状态分析师。系统通过规则（ADX/DI/ATR/Boll）检测到当前市场状态，请结合多周期指标审核其准确性。";
+
+    private static final String GUIDE = """
+            市场状态定义：
+            - TREND_UP: ADX>25 + DI多头，价格沿趋势上行，回调是买入机会
+            - TREND_DOWN: ADX>25 + DI空头，价格沿趋势下行，反弹是卖出机会
+            - RANGE: ADX<20，价格在区间内震荡，适合均值回归
+            - SQUEEZE: 布林带收缩+ADX<15，波动率压缩，等待方向选择
+            - SHOCK: ATR突增>2倍历史均值，极端波动，优先降风险
+
+            审核要点：
+            1. 规则只看15m/5m的ADX/DI，但1h/4h可能讲不同的故事——多周期是否一致？
+            2. ADX在20-25之间是灰色地带，结合涨跌幅和均线排列判断更像趋势还是震荡
+            3. 当前状态是否处于转换临界点？（如趋势即将衰竭、挤压即将突破）
+            4. 微结构信号（资金费率、OI、多空比）是否支持当前regime判断？
+            5. 期权IV：价格平静但DVOL/ATM IV抬升→聪明钱布局；skew极端→方向性押注集中
+            """;
+
+    private static final String SCHEMA = """
+            {
+              "confirmedRegime": "TREND_UP/TREND_DOWN/RANGE/SQUEEZE/SHOCK",
+              "confidence": 0.75,
+              "reasoning": "一段话解释判断依据",
+              "transitionSignal": "NONE/WEAKENING/STRENGTHENING/BREAKING_OUT/BREAKING_DOWN",
+              "transitionDetail": "转换信号的具体说明（如果有）"
+            }
+            """;
+
+    private static final String CONSTRAINTS = """
+            约束：
+            - confirmedRegime必须是上述5种之一
+            - confidence范围[0,1]，表示对regime判断的把握程度
+            - 如果规则检测结果合理，直接确认即可，不要为了改而改
+            - transitionSignal表示regime是否即将转换，NONE=稳定
+            - 参考历史记忆中的教训，避免重复犯同样的错误
+            """;
+
+    /** 批量模式：多个symbol的数据段合并一次调用，说明与格式只出现一次 */
+    private static final LlmBatchCoalescer.Spec BATCH_SPEC = new LlmBatchCoalescer.Spec(
+            "regime_review", ROLE, GUIDE + "\n" + CONSTRAINTS, SCHEMA,
+            List.of("confirmedRegime", "confidence", "transitionSignal"), Duration.ofSeconds(15));
+
+    /** 超时/无效走规则检测结果 */
+    private static final LlmCallBounds BOUNDS =
+            LlmCallBounds.json(Duration.ofSeconds(45), "confirmedRegime", "confidence", "transitionSignal");
+    /** 批量调用在凑批等待之后开始，两者合计不超过单独调用的截止时间 */
+    private static final LlmCallBounds BATCH_BOUNDS =
+            LlmCallBounds.json(BOUNDS.deadline().minus(BATCH_SPEC.maxWait()), "results");
+
     private final ChatClient chatClient;
     private final LlmCallMode callMode;
     private final MemoryService memoryService;
+    private final LlmResponseCache llmCache;
+    private final LlmBatchCoalescer batcher;
 
     public RegimeReviewNode(ChatClient.Builder builder, LlmCallMode callMode) {
         this(builder, callMode, null);
     }
 
     public RegimeReviewNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService) {
+        this(builder, callMode, memoryService, null);
+    }
+
+    public RegimeReviewNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                            LlmResponseCache llmCache) {
+        this(builder, callMode, memoryService, llmCache, null);
+    }
+
+    public RegimeReviewNode(ChatClient.Builder builder, LlmCallMode callMode, MemoryService memoryService,
+                            LlmResponseCache llmCache, LlmBatchCoalescer batcher) {
         this.chatClient = builder.build();
         this.callMode = callMode;
         this.memoryService = memoryService;
+        this.llmCache = llmCache;
+        this.batcher = batcher;
     }
 
     @Override
@@ -43,11 +114,11 @@ public class RegimeReviewNode implements NodeAction {
         long startMs = System.currentTimeMillis();
         FeatureSnapshot snapshot =
                 (FeatureSnapshot) state.value("feature_snapshot").orElse(null);
-        var indicatorMap = state.value("indicator_map").orElse(null);
-        var priceChangeMap = state.value("price_change_map").orElse(null);
 
         if (snapshot == null) {
             log.warn("[Q2.5] feature_snapshot为空，跳过regime审核");
+            LlmBatchCoalescer.Group group = batcher != null ? LlmBatchCoalescer.group(state) : null;
+            if (group != null) batcher.skip(BATCH_SPEC, group);
             return Map.of();
         }
 
@@ -55,8 +126,19 @@ public class RegimeReviewNode implements NodeAction {
         log.info("[Q2.5.0] regime_review开始 ruleRegime={} symbol={}", ruleRegime, snapshot.symbol());
 
         try {
-            String prompt = buildPrompt(snapshot, indicatorMap, priceChangeMap);
-            String response = callMode.call(chatClient, prompt);
+            String memoryBlock = buildMemoryBlock(snapshot);
+            String section = buildDataSection(snapshot, memoryBlock);
+            String prompt = ROLE + "\n\n" + section + "\n" + GUIDE
+                    + "\n严格返回JSON（不要markdown包裹）：\n" + SCHEMA + "\n" + CONSTRAINTS;
+            // 指标/微结构量化后未变则复用上次审核结论
+            LlmResponseCache.Key cacheKey = LlmResponseCache.key("regime_review")
+                    .market(snapshot).indicators(snapshot).text("memory", memoryBlock).build();
+            LlmBatchCoalescer.Group group = batcher != null ? LlmBatchCoalescer.group(state) : null;
+            String response = group == null
+                    ? callMode.call(chatClient, prompt, llmCache, cacheKey, CACHE_TTL, BOUNDS)
+                    : batcher.submitCached(BATCH_SPEC, group, snapshot.symbol(), section,
+                            llmCache, cacheKey, CACHE_TTL, prompt.length(), BOUNDS,
+                            p -> callMode.call(chatClient, p, BATCH_BOUNDS), b -> callMode.call(chatClient, prompt, b));
             log.info("[Q2.5.1] LLM返回 {}chars 耗时{}ms",
                     response != null ? response.length() : 0, System.currentTimeMillis() - startMs);
 
@@ -67,7 +149,7 @@ public class RegimeReviewNode implements NodeAction {
         }
     }
 
-    private String buildPrompt(FeatureSnapshot snapshot, Object indicatorMap, Object priceChangeMap) {
+    private String buildDataSection(FeatureSnapshot snapshot, String memoryBlock) {
         // 多周期指标摘要
         StringBuilder indicatorBlock = new StringBuilder();
         for (String tf : List.of("1m", "5m", "15m", "1h", "4h", "1d")) {
@@ -115,8 +197,6 @@ public class RegimeReviewNode implements NodeAction {
                 ? String.join(", ", snapshot.qualityFlags()) : "正常";
 
         return """
-                你是加密货币市场状态分析师。系统通过规则（ADX/DI/ATR/Boll）检测到当前市场状态，请结合多周期指标审核其准确性。
-
                 【规则检测结果】%s
                 【当前价格】%s
 
@@ -130,36 +210,6 @@ public class RegimeReviewNode implements NodeAction {
 
                 【历史记忆】
                 %s
-
-                市场状态定义：
-                - TREND_UP: ADX>25 + DI多头，价格沿趋势上行，回调是买入机会
-                - TREND_DOWN: ADX>25 + DI空头，价格沿趋势下行，反弹是卖出机会
-                - RANGE: ADX<20，价格在区间内震荡，适合均值回归
-                - SQUEEZE: 布林带收缩+ADX<15，波动率压缩，等待方向选择
-                - SHOCK: ATR突增>2倍历史均值，极端波动，优先降风险
-
-                审核要点：
-                1. 规则只看15m/5m的ADX/DI，但1h/4h可能讲不同的故事——多周期是否一致？
-                2. ADX在20-25之间是灰色地带，结合涨跌幅和均线排列判断更像趋势还是震荡
-                3. 当前状态是否处于转换临界点？（如趋势即将衰竭、挤压即将突破）
-                4. 微结构信号（资金费率、OI、多空比）是否支持当前regime判断？
-                5. 期权IV：价格平静但DVOL/ATM IV抬升→聪明钱布局；skew极端→方向性押注集中
-
-                严格返回JSON（不要markdown包裹）：
-                {
-                  "confirmedRegime": "TREND_UP/TREND_DOWN/RANGE/SQUEEZE/SHOCK",
-                  "confidence": 0.75,
-                  "reasoning": "一段话解释判断依据",
-                  "transitionSignal": "NONE/WEAKENING/STRENGTHENING/BREAKING_OUT/BREAKING_DOWN",
-                  "transitionDetail": "转换信号的具体说明（如果有）"
-                }
-
-                约束：
-                - confirmedRegime必须是上述5种之一
-                - confidence范围[0,1]，表示对regime判断的把握程度
-                - 如果规则检测结果合理，直接确认即可，不要为了改而改
-                - transitionSignal表示regime是否即将转换，NONE=稳定
-                - 参考历史记忆中的教训，避免重复犯同样的错误
                 """.formatted(
                 snapshot.regime().name(),
                 snapshot.lastPrice() != null ? snapshot.lastPrice().toPlainString() : "未知",
@@ -167,7 +217,7 @@ public class RegimeReviewNode implements NodeAction {
                 snapshot.bollSqueeze() ? "是" : "否",
                 snapshot.atr5m() != null ? snapshot.atr5m().toPlainString() : "无",
                 qualityText,
-                buildMemoryBlock(snapshot));
+                memoryBlock);
     }
 
     private Map<String, Object> applyReview(FeatureSnapshot snapshot, MarketRegime ruleRegime,
@@ -17,16 +17,29 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
- * 6个因子Agent并行执行节点。
+ * 因子Agent并行执行节点。
  * 内部使用虚拟线程并行，纯Java Agent超时30s，LLM Agent超时60-200s。
+ * 工作流中拆成两段：不依赖regime审核的一段与审核并行，其结果经 upstreamVotesKey 并入后一段的输出。
  */
 @Slf4j
 public class RunFactorAgentsNode implements NodeAction {
 
     private final List<FactorAgent> agents;
+    private final String outputKey;
+    private final String upstreamVotesKey;
 
     public RunFactorAgentsNode(List<FactorAgent> agents) {
+        this(agents, "agent_votes", null);
+    }
+
+    /**
+     * @param outputKey        投票输出键
+     * @param upstreamVotesKey 上游已产出的投票键（可为null），其投票并入本节点输出
+     */
+    public RunFactorAgentsNode(List<FactorAgent> agents, String outputKey, String upstreamVotesKey) {
         this.agents = agents;
+        this.outputKey = outputKey;
+        this.upstreamVotesKey = upstreamVotesKey;
     }
 
     @Override
@@ -35,12 +48,18 @@ public class RunFactorAgentsNode implements NodeAction {
         FeatureSnapshot snapshot = (FeatureSnapshot) state.value("feature_snapshot").orElse(null);
         if (snapshot == null) {
             log.error("[Q3] feature_snapshot为空");
-            return Map.of("agent_votes", List.of());
+            return Map.of(outputKey, List.of());
         }
 
-        log.info("[Q3.0] run_factors开始 agents={} symbol={}", agents.size(), snapshot.symbol());
+        log.info("[Q3.0] {}开始 agents={} symbol={}", outputKey, agents.size(), snapshot.symbol());
         List<AgentVote> allVotes = new ArrayList<>();
+        if (upstreamVotesKey != null) {
+            @SuppressWarnings("unchecked")
+            List<AgentVote> upstream = (List<AgentVote>) state.value(upstreamVotesKey).orElse(List.of());
+            allVotes.addAll(upstream);
+        }
         List<NewsEventAgent.FilteredNewsItem> filteredNews = List.of();
+        boolean hasNewsAgent = agents.stream().anyMatch(a -> a instanceof NewsEventAgent);
 
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
             List<Future<List<AgentVote>>> normalFutures = new ArrayList<>();
@@ -96,12 +115,15 @@ public class RunFactorAgentsNode implements NodeAction {
             }
         }
 
-        log.info("[Q3.end] run_factors完成 共{}票 LLM筛选新闻={}条 耗时{}ms",
+        log.info("[Q3.end] {}完成 共{}票 LLM筛选新闻={}条 耗时{}ms", outputKey,
                 allVotes.size(), filteredNews.size(), System.currentTimeMillis() - startMs);
 
         Map<String, Object> result = new HashMap<>();
-        result.put("agent_votes", allVotes);
-        result.put("filtered_news", filteredNews);
+        result.put(outputKey, allVotes);
+        // 只有含新闻Agent的一段输出 filtered_news，避免汇合后被空列表覆盖
+        if (hasNewsAgent) {
+            result.put("filtered_news", filteredNews);
+        }
         return result;
     }
 }
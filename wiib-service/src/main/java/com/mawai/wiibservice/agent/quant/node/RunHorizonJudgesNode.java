@@ -45,7 +45,7 @@ public class RunHorizonJudgesNode implements NodeAction {
         Map<String, Map<String, Double>> agentAccuracy = Map.of();
         if (memoryService != null) {
             try {
-                agentAccuracy = memoryService.getAgentAccuracy(symbol);
+                agentAccuracy = memoryService.getAgentAccuracy(symbol, regime != null ? regime.name() : null);
                 if (!agentAccuracy.isEmpty()) {
                     log.info("[Q4.0] 加载agent准确率 agents={}", agentAccuracy.keySet());
                 }
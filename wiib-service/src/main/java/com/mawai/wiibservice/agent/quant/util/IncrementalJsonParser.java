@@ -0,0 +1,216 @@
+package com.mawai.wiibservice.agent.quant.util;
+
+import com.alibaba.fastjson2.JSON;
+import com.mawai.wiibcommon.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * LLM 流式输出的增量 JSON 解析器：逐块喂入，某个字段的值一完整就回调，不等整段输出结束。
+ * <p>
+ * 从第一个 '{' 开始解析（跳过前置说明、```json 围栏），根对象闭合后忽略其余内容。
+ * 根对象之外的 {@code <think>...</think>} 整段跳过，规则同 {@link JsonUtils#extractJson}（未闭合的思考块不会开始解析）。
+ * 设置了 {@link #requireRoot} 时，闭合的根对象须通过校验才算完成，否则丢弃并继续找下一个 '{'。
+ * 只回调深度不超过 emitDepth 的值：深度1是根对象字段（路径 "summary"），深度2是其子项（路径 "horizons[0]"、"a.b"）。
+ * 标量回调 String/Number/Boolean/null，对象和数组回调 fastjson2 的 JSONObject/JSONArray。
+ * 非线程安全，同一次调用的分块按顺序喂入即可。
+ */
+@Slf4j
+public final class IncrementalJsonParser {
+
+    private static final String THINK_OPEN = "<think>";
+    private static final String THINK_CLOSE = "</think>";
+
+    private static final class Frame {
+        final boolean array;
+        final String path;
+        final int start;
+        String key;
+        int index;
+        boolean expectingKey;
+
+        Frame(boolean array, String path, int start) {
+            this.array = array;
+            this.path = path;
+            this.start = start;
+            this.expectingKey = !array;
+        }
+
+        String childPath() {
+            if (array) return path + "[" + index + "]";
+            return path.isEmpty() ? key : path + "." + key;
+        }
+    }
+
+    private final int emitDepth;
+    private final BiConsumer<String, Object> listener;
+    private final StringBuilder buffer = new StringBuilder();
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final StringBuilder tagTail = new StringBuilder();
+    private Predicate<String> rootValidator;
+
+    private boolean complete;
+    private boolean inString;
+    private boolean stringIsKey;
+    private boolean escaped;
+    private int tokenStart = -1;
+    private boolean inScalar;
+    private int fed;
+    private boolean inThink;
+
+    /**
+     * @param emitDepth 回调的最大深度（≥1）
+     * @param listener  (路径, 值) 回调；抛出的异常只记日志，不影响后续解析
+     */
+    public IncrementalJsonParser(int emitDepth, BiConsumer<String, Object> listener) {
+        this.emitDepth = emitDepth;
+        this.listener = listener;
+    }
+
+    /**
+     * 根对象闭合后须通过校验（如 {@link com.mawai.wiibservice.agent.quant.domain.LlmCallBounds#isValid}）才算完成；
+     * 不通过的根对象丢弃，继续在后续输出里找。已回调的字段不撤回
+     */
+    public IncrementalJsonParser requireRoot(Predicate<String> validator) {
+        this.rootValidator = validator;
+        return this;
+    }
+
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) return;
+        fed += chunk.length();
+        for (int i = 0; i < chunk.length() && !complete; i++) {
+            char c = chunk.charAt(i);
+            if (stack.isEmpty()) {
+                if (skipThink(c) || c != '{') continue;
+                buffer.setLength(0);
+            }
+            buffer.append(c);
+            step(c, buffer.length() - 1);
+        }
+    }
+
+    /** 根对象已闭合（且通过 {@link #requireRoot} 校验） */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /** 是否喂入过内容（缓存命中时据此决定是否整段回放） */
+    public boolean hasInput() {
+        return fed > 0;
+    }
+
+    /** 根对象之外：当前字符属于 think 块（含标签本身）则返回 true */
+    private boolean skipThink(char c) {
+        tagTail.append(c);
+        if (tagTail.length() > THINK_CLOSE.length()) tagTail.deleteCharAt(0);
+        String tag = inThink ? THINK_CLOSE : THINK_OPEN;
+        int from = tagTail.length() - tag.length();
+        if (from >= 0 && tagTail.indexOf(tag, from) == from) {
+            inThink = !inThink;
+            tagTail.setLength(0);
+            return true;
+        }
+        return inThink;
+    }
+
+    private void step(char c, int pos) {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+                if (stringIsKey) {
+                    stack.peek().key = (String) JSON.parse(buffer.substring(tokenStart, pos + 1));
+                } else {
+                    completeValue(tokenStart, pos + 1);
+                }
+            }
+            return;
+        }
+        if (inScalar) {
+            if (c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) return;
+            inScalar = false;
+            completeValue(tokenStart, pos);
+        }
+
+        Frame top = stack.peek();
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                stringIsKey = top != null && !top.array && top.expectingKey;
+                tokenStart = pos;
+            }
+            case ':' -> {
+                if (top != null) top.expectingKey = false;
+            }
+            case ',' -> {
+                if (top == null) return;
+                if (top.array) top.index++;
+                else top.expectingKey = true;
+            }
+            case '{', '[' -> stack.push(new Frame(c == '[', top == null ? "" : top.childPath(), pos));
+            case '}', ']' -> {
+                Frame closed = stack.pop();
+                if (stack.isEmpty()) {
+                    closeRoot(pos + 1);
+                } else {
+                    emit(closed.path, stack.size(), closed.start, pos + 1);
+                }
+            }
+            default -> {
+                if (!Character.isWhitespace(c) && top != null) {
+                    inScalar = true;
+                    tokenStart = pos;
+                }
+            }
+        }
+    }
+
+    private void closeRoot(int end) {
+        if (rootValidator == null) {
+            complete = true;
+            return;
+        }
+        String root = buffer.substring(0, end);
+        boolean valid;
+        try {
+            valid = rootValidator.test(root);
+        } catch (Exception e) {
+            valid = false;
+        }
+        if (valid) {
+            complete = true;
+        } else {
+            log.debug("[JSON增量] 根对象未通过校验，继续查找 len={}", root.length());
+        }
+    }
+
+    private void completeValue(int start, int end) {
+        Frame parent = stack.peek();
+        if (parent == null) return;
+        emit(parent.childPath(), stack.size(), start, end);
+    }
+
+    private void emit(String path, int depth, int start, int end) {
+        if (depth > emitDepth) return;
+        Object value;
+        try {
+            value = JSON.parse(buffer.substring(start, end));
+        } catch (Exception e) {
+            log.debug("[JSON增量] 字段解析失败 path={}: {}", path, e.getMessage());
+            return;
+        }
+        try {
+            listener.accept(path, value);
+        } catch (Exception e) {
+            log.warn("[JSON增量] 字段回调异常 path={}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mawai.wiibservice.config;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.mawai.wiibcommon.entity.*;
+import com.mawai.wiibservice.service.PortfolioProjection;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 资产相关表的写SQL拦截：把受影响的用户/行ID记到当前事务，事务结束（提交或回滚）后失效资产投影
+ * <p>
+ * 从参数里收集所有 Long（userId、positionId、orderId、实体的 userId/id、批量入账的 key、条件构造器里的值），
+ * 同时当作用户ID和行ID处理——多失效无害，漏失效才有问题；一个 Long 都收集不到时整体失效。
+ * <p>
+ * 以 @Select 声明的写语句（如 UPDATE ... RETURNING）走 Executor.query，按SQL首个关键字识别，
+ * 参数之外再从返回结果里收集ID。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class PortfolioWriteInterceptor implements Interceptor {
+
+    private static final String MAPPER_PACKAGE = "com.mawai.wiibservice.mapper.";
+    private static final Set<String> WATCHED_MAPPERS = Set.of(
+            "UserMapper", "PositionMapper", "CryptoPositionMapper", "FuturesPositionMapper",
+            "OptionPositionMapper", "SettlementMapper", "CryptoOrderMapper");
+
+    private final ObjectProvider<PortfolioProjection> projectionProvider;
+    /** 查询语句ID → 是否实为写语句 */
+    private final Map<String, Boolean> queryWrites = new ConcurrentHashMap<>();
+
+    /** 同一事务内累积的待失效ID */
+    private static final class PendingInvalidation implements TransactionSynchronization {
+        private final PortfolioProjection projection;
+        private final Set<Long> ids = new HashSet<>();
+        private boolean all;
+
+        PendingInvalidation(PortfolioProjection projection) {
+            this.projection = projection;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PendingInvalidation.class);
+            projection.invalidate(ids, all);
+        }
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        if (!isWatched(ms.getId())) return result;
+
+        Set<Long> ids = new HashSet<>();
+        if (ms.getSqlCommandType() == SqlCommandType.SELECT) {
+            if (!isWriteQuery(ms, args)) return result;
+            collect(result, ids, 0);
+        }
+        collect(args[1], ids, 0);
+        PortfolioProjection projection = projectionProvider.getIfAvailable();
+        if (projection == null) return result;
+
+        // 本事务后续读取不走缓存；这里先失效一次，防止事务外的旧值在提交前被其他读刷新回来
+        projection.invalidateLocal(ids, ids.isEmpty());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingInvalidation pending = (PendingInvalidation) TransactionSynchronizationManager.getResource(PendingInvalidation.class);
+            if (pending == null) {
+                pending = new PendingInvalidation(projection);
+                TransactionSynchronizationManager.bindResource(PendingInvalidation.class, pending);
+                TransactionSynchronizationManager.registerSynchronization(pending);
+            }
+            pending.ids.addAll(ids);
+            pending.all |= ids.isEmpty();
+        } else {
+            projection.invalidate(ids, ids.isEmpty());
+        }
+        return result;
+    }
+
+    private static boolean isWatched(String statementId) {
+        if (!statementId.startsWith(MAPPER_PACKAGE)) return false;
+        int dot = statementId.indexOf('.', MAPPER_PACKAGE.length());
+        return dot > 0 && WATCHED_MAPPERS.contains(statementId.substring(MAPPER_PACKAGE.length(), dot));
+    }
+
+    private boolean isWriteQuery(MappedStatement ms, Object[] args) {
+        return queryWrites.computeIfAbsent(ms.getId(), id -> {
+            BoundSql boundSql = args.length > 5 ? (BoundSql) args[5] : ms.getBoundSql(args[1]);
+            String sql = boundSql.getSql().stripLeading();
+            int end = 0;
+            while (end < sql.length() && Character.isLetter(sql.charAt(end))) end++;
+            String keyword = sql.substring(0, end).toUpperCase(Locale.ROOT);
+            return keyword.equals("UPDATE") || keyword.equals("INSERT") || keyword.equals("DELETE");
+        });
+    }
+
+    private static void collect(Object param, Set<Long> ids, int depth) {
+        if (param == null || depth > 3) return;
+        switch (param) {
+            case Long id -> ids.add(id);
+            case User u -> add(ids, u.getId());
+            case Position p -> add(ids, p.getUserId(), p.getId());
+            case CryptoPosition p -> add(ids, p.getUserId(), p.getId());
+            case FuturesPosition p -> add(ids, p.getUserId(), p.getId());
+            case OptionPosition p -> add(ids, p.getUserId(), p.getId());
+            case Settlement s -> add(ids, s.getUserId(), s.getId());
+            case CryptoOrder o -> add(ids, o.getUserId(), o.getId());
+            case AbstractWrapper<?, ?, ?> w -> {
+                collect(w.getEntity(), ids, depth + 1);
+                for (Object v : w.getParamNameValuePairs().values()) collect(v, ids, depth + 1);
+            }
+            case Map<?, ?> m -> {
+                for (Map.Entry<?, ?> e : m.entrySet()) {
+                    // 批量入账 credits: userId -> amount
+                    if (e.getKey() instanceof Long id) ids.add(id);
+                    collect(e.getValue(), ids, depth + 1);
+                }
+            }
+            case Collection<?> c -> {
+                for (Object o : c) collect(o, ids, depth + 1);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static void add(Set<Long> ids, Long... values) {
+        for (Long v : values) {
+            if (v != null) ids.add(v);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mawai.wiibservice.config.serializer.BinaryRedisSerializer;
+import com.mawai.wiibservice.config.serializer.RedisCodecs;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -30,7 +32,9 @@ public class RedisConfig {
             JsonTypeInfo.As.PROPERTY
         );
 
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+        // 热点Session/DTO走二进制，其余类型及存量JSON值由Jackson兜底
+        BinaryRedisSerializer serializer = RedisCodecs.register(
+                new BinaryRedisSerializer(new GenericJackson2JsonRedisSerializer(objectMapper)));
         template.setValueSerializer(serializer);
         template.setHashKeySerializer(new StringRedisSerializer());
         template.setHashValueSerializer(serializer);
@@ -0,0 +1,26 @@
+package com.mawai.wiibservice.config.serializer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * 单个类型的二进制编解码
+ * <p>
+ * typeId 写入值头部用于反序列化定位编解码器，一经上线不可复用；
+ * version 为该类型的schema版本，字段变更时递增，read 需要兼容所有历史版本。
+ */
+public interface BinaryCodec<T> {
+
+    /** 类型ID（1~127） */
+    int typeId();
+
+    /** 当前写入的schema版本 */
+    int version();
+
+    Class<T> type();
+
+    void write(DataOutputStream out, T value) throws IOException;
+
+    T read(DataInputStream in, int version) throws IOException;
+}
@@ -0,0 +1,126 @@
+package com.mawai.wiibservice.config.serializer;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RedisTemplate 值序列化：已注册类型走紧凑二进制，其余回退JSON
+ * <p>
+ * 二进制格式：MAGIC(1) + typeId(1) + version(1) + body；typeId 最高位置1表示同类型元素的List，
+ * body 前先写元素个数。MAGIC 取 0xB1（UTF-8续字节），不可能是JSON的首字节，
+ * 因此反序列化按首字节分流即可同时读取新旧两种格式：存量JSON值随TTL过期或下次写入时自然迁移为二进制。
+ */
+public class BinaryRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xB1;
+    private static final int LIST_FLAG = 0x80;
+
+    private final RedisSerializer<Object> fallback;
+    private final Map<Class<?>, BinaryCodec<?>> codecsByType = new HashMap<>();
+    private final BinaryCodec<?>[] codecsById = new BinaryCodec<?>[LIST_FLAG];
+
+    public BinaryRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    public BinaryRedisSerializer register(BinaryCodec<?> codec) {
+        int id = codec.typeId();
+        if (id <= 0 || id >= LIST_FLAG) {
+            throw new IllegalArgumentException("typeId必须在1~127之间: " + id);
+        }
+        if (codecsById[id] != null) {
+            throw new IllegalArgumentException("typeId重复: " + id);
+        }
+        codecsById[id] = codec;
+        codecsByType.put(codec.type(), codec);
+        return this;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) return fallback.serialize(null);
+
+        BinaryCodec<?> codec = codecsByType.get(value.getClass());
+        boolean list = false;
+        if (codec == null && value instanceof List<?> l) {
+            codec = elementCodec(l);
+            list = codec != null;
+        }
+        if (codec == null) return fallback.serialize(value);
+
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeByte(MAGIC);
+            out.writeByte(list ? codec.typeId() | LIST_FLAG : codec.typeId());
+            out.writeByte(codec.version());
+            if (list) {
+                List<?> l = (List<?>) value;
+                out.writeInt(l.size());
+                for (Object e : l) {
+                    writeOne(codec, out, e);
+                }
+            } else {
+                writeOne(codec, out, value);
+            }
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("二进制序列化失败: " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) return null;
+        if (bytes[0] != MAGIC) return fallback.deserialize(bytes);
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+            int typeId = in.readUnsignedByte();
+            int version = in.readUnsignedByte();
+            BinaryCodec<?> codec = codecsById[typeId & ~LIST_FLAG];
+            if (codec == null) {
+                throw new SerializationException("未知的二进制typeId: " + typeId);
+            }
+            if ((typeId & LIST_FLAG) == 0) {
+                return codec.read(in, version);
+            }
+            int size = in.readInt();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(codec.read(in, version));
+            }
+            return list;
+        } catch (IOException e) {
+            throw new SerializationException("二进制反序列化失败", e);
+        }
+    }
+
+    /** 非空且元素类型一致、已注册时返回元素编解码器 */
+    private BinaryCodec<?> elementCodec(List<?> list) {
+        if (list.isEmpty() || list.getFirst() == null) return null;
+        Class<?> type = list.getFirst().getClass();
+        BinaryCodec<?> codec = codecsByType.get(type);
+        if (codec == null) return null;
+        for (Object e : list) {
+            if (e == null || e.getClass() != type) return null;
+        }
+        return codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void writeOne(BinaryCodec<T> codec, DataOutputStream out, Object value) throws IOException {
+        codec.write(out, (T) value);
+    }
+}
@@ -0,0 +1,305 @@
+package com.mawai.wiibservice.config.serializer;
+
+import com.alibaba.fastjson2.JSONB;
+import com.mawai.wiibcommon.dto.BuffStatusDTO;
+import com.mawai.wiibcommon.dto.RankingDTO;
+import com.mawai.wiibcommon.dto.StockDTO;
+import com.mawai.wiibservice.service.impl.BlackjackServiceImpl.BlackjackSession;
+import com.mawai.wiibservice.service.impl.BlackjackServiceImpl.SessionHand;
+import com.mawai.wiibservice.service.impl.MinesServiceImpl.MinesSession;
+import com.mawai.wiibservice.service.impl.VideoPokerServiceImpl.VPSession;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热点类型的二进制编解码注册表
+ * <p>
+ * typeId 分配（上线后不可改动/复用）：
+ * <ul>
+ *   <li>1 BlackjackSession、2 MinesSession、3 VPSession：手写字段编码，扑克牌压成1字节</li>
+ *   <li>Session v2：追加 serverSeed / seedHash（可证明公平）</li>
+ *   <li>10 RankingDTO、11 StockDTO、12 BuffStatusDTO：fastjson2 JSONB（按字段名编码，增删字段天然兼容）</li>
+ * </ul>
+ */
+public final class RedisCodecs {
+
+    private RedisCodecs() {
+    }
+
+    public static BinaryRedisSerializer register(BinaryRedisSerializer serializer) {
+        return serializer
+                .register(new BlackjackSessionCodec())
+                .register(new MinesSessionCodec())
+                .register(new VPSessionCodec())
+                .register(new JsonbCodec<>(10, RankingDTO.class))
+                .register(new JsonbCodec<>(11, StockDTO.class))
+                .register(new JsonbCodec<>(12, BuffStatusDTO.class));
+    }
+
+    // ==================== 游戏Session ====================
+
+    static final class BlackjackSessionCodec implements BinaryCodec<BlackjackSession> {
+        @Override public int typeId() { return 1; }
+        @Override public int version() { return 2; }
+        @Override public Class<BlackjackSession> type() { return BlackjackSession.class; }
+
+        @Override
+        public void write(DataOutputStream out, BlackjackSession s) throws IOException {
+            writeCards(out, s.getShoe());
+            out.writeInt(s.getShoeIndex());
+            List<SessionHand> hands = s.getPlayerHands();
+            out.writeInt(hands == null ? -1 : hands.size());
+            if (hands != null) {
+                for (SessionHand h : hands) {
+                    writeCards(out, h.getCards());
+                    out.writeLong(h.getBet());
+                    out.writeByte((h.isStood() ? 1 : 0) | (h.isBusted() ? 2 : 0) | (h.isDoubled() ? 4 : 0));
+                }
+            }
+            out.writeInt(s.getActiveHandIndex());
+            writeCards(out, s.getDealerCards());
+            out.writeLong(s.getBetPerHand());
+            out.writeLong(s.getInsuranceBet());
+            writeString(out, s.getPhase());
+            out.writeByte((s.isInsuranceTaken() ? 1 : 0) | (s.isFirstDecisionRound() ? 2 : 0)
+                    | (s.isDealerHasNaturalBlackjack() ? 4 : 0) | (s.isPlayerHasNaturalBlackjack() ? 8 : 0));
+            writeString(out, s.getServerSeed());
+            writeString(out, s.getSeedHash());
+        }
+
+        @Override
+        public BlackjackSession read(DataInputStream in, int version) throws IOException {
+            BlackjackSession s = new BlackjackSession();
+            s.setShoe(readCards(in));
+            s.setShoeIndex(in.readInt());
+            int handCount = in.readInt();
+            if (handCount >= 0) {
+                List<SessionHand> hands = new ArrayList<>(handCount);
+                for (int i = 0; i < handCount; i++) {
+                    SessionHand h = new SessionHand();
+                    h.setCards(readCards(in));
+                    h.setBet(in.readLong());
+                    int flags = in.readUnsignedByte();
+                    h.setStood((flags & 1) != 0);
+                    h.setBusted((flags & 2) != 0);
+                    h.setDoubled((flags & 4) != 0);
+                    hands.add(h);
+                }
+                s.setPlayerHands(hands);
+            }
+            s.setActiveHandIndex(in.readInt());
+            s.setDealerCards(readCards(in));
+            s.setBetPerHand(in.readLong());
+            s.setInsuranceBet(in.readLong());
+            s.setPhase(readString(in));
+            int flags = in.readUnsignedByte();
+            s.setInsuranceTaken((flags & 1) != 0);
+            s.setFirstDecisionRound((flags & 2) != 0);
+            s.setDealerHasNaturalBlackjack((flags & 4) != 0);
+            s.setPlayerHasNaturalBlackjack((flags & 8) != 0);
+            if (version >= 2) {
+                s.setServerSeed(readString(in));
+                s.setSeedHash(readString(in));
+            }
+            return s;
+        }
+    }
+
+    static final class MinesSessionCodec implements BinaryCodec<MinesSession> {
+        @Override public int typeId() { return 2; }
+        @Override public int version() { return 2; }
+        @Override public Class<MinesSession> type() { return MinesSession.class; }
+
+        @Override
+        public void write(DataOutputStream out, MinesSession s) throws IOException {
+            out.writeLong(s.getGameId());
+            writeDecimal(out, s.getBetAmount());
+            writeSmallInts(out, s.getMinePositions());
+            writeSmallInts(out, s.getRevealed());
+            writeString(out, s.getPhase());
+            writeString(out, s.getServerSeed());
+            writeString(out, s.getSeedHash());
+        }
+
+        @Override
+        public MinesSession read(DataInputStream in, int version) throws IOException {
+            MinesSession s = new MinesSession();
+            s.setGameId(in.readLong());
+            s.setBetAmount(readDecimal(in));
+            s.setMinePositions(toSet(readSmallInts(in)));
+            s.setRevealed(readSmallInts(in));
+            s.setPhase(readString(in));
+            if (version >= 2) {
+                s.setServerSeed(readString(in));
+                s.setSeedHash(readString(in));
+            }
+            return s;
+        }
+    }
+
+    static final class VPSessionCodec implements BinaryCodec<VPSession> {
+        @Override public int typeId() { return 3; }
+        @Override public int version() { return 2; }
+        @Override public Class<VPSession> type() { return VPSession.class; }
+
+        @Override
+        public void write(DataOutputStream out, VPSession s) throws IOException {
+            out.writeLong(s.getGameId());
+            writeDecimal(out, s.getBetAmount());
+            writeCards(out, s.getDeck());
+            writeCards(out, s.getCards());
+            writeString(out, s.getPhase());
+            writeString(out, s.getServerSeed());
+            writeString(out, s.getSeedHash());
+        }
+
+        @Override
+        public VPSession read(DataInputStream in, int version) throws IOException {
+            VPSession s = new VPSession();
+            s.setGameId(in.readLong());
+            s.setBetAmount(readDecimal(in));
+            s.setDeck(readCards(in));
+            s.setCards(readCards(in));
+            s.setPhase(readString(in));
+            if (version >= 2) {
+                s.setServerSeed(readString(in));
+                s.setSeedHash(readString(in));
+            }
+            return s;
+        }
+    }
+
+    // ==================== DTO ====================
+
+    static final class JsonbCodec<T> implements BinaryCodec<T> {
+        private final int typeId;
+        private final Class<T> type;
+
+        JsonbCodec(int typeId, Class<T> type) {
+            this.typeId = typeId;
+            this.type = type;
+        }
+
+        @Override public int typeId() { return typeId; }
+        @Override public int version() { return 1; }
+        @Override public Class<T> type() { return type; }
+
+        @Override
+        public void write(DataOutputStream out, T value) throws IOException {
+            byte[] bytes = JSONB.toBytes(value);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public T read(DataInputStream in, int version) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return JSONB.parseObject(bytes, type);
+        }
+    }
+
+    // ==================== 基础字段编码 ====================
+
+    /** 牌面 rank+suit（如 "TH"）压成1字节：rank*4+suit；不识别的牌面写 0xFF + UTF 兜底 */
+    private static final String CARD_RANKS = "A23456789TJQK";
+    private static final String CARD_SUITS = "HDCS";
+    private static final int CARD_ESCAPE = 0xFF;
+
+    static void writeCards(DataOutputStream out, List<String> cards) throws IOException {
+        out.writeShort(cards == null ? -1 : cards.size());
+        if (cards == null) return;
+        for (String c : cards) {
+            int code = -1;
+            if (c != null && c.length() == 2) {
+                int r = CARD_RANKS.indexOf(c.charAt(0));
+                int s = CARD_SUITS.indexOf(c.charAt(1));
+                if (r >= 0 && s >= 0) code = r * 4 + s;
+            }
+            if (code >= 0) {
+                out.writeByte(code);
+            } else {
+                out.writeByte(CARD_ESCAPE);
+                writeString(out, c);
+            }
+        }
+    }
+
+    static List<String> readCards(DataInputStream in) throws IOException {
+        int n = in.readShort();
+        if (n < 0) return null;
+        List<String> cards = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int code = in.readUnsignedByte();
+            if (code == CARD_ESCAPE) {
+                cards.add(readString(in));
+            } else {
+                cards.add(String.valueOf(CARD_RANKS.charAt(code / 4)) + CARD_SUITS.charAt(code % 4));
+            }
+        }
+        return cards;
+    }
+
+    static void writeSmallInts(DataOutputStream out, Iterable<Integer> values) throws IOException {
+        if (values == null) {
+            out.writeShort(-1);
+            return;
+        }
+        List<Integer> list = new ArrayList<>();
+        values.forEach(list::add);
+        out.writeShort(list.size());
+        for (Integer v : list) {
+            out.writeShort(v);
+        }
+    }
+
+    static List<Integer> readSmallInts(DataInputStream in) throws IOException {
+        int n = in.readShort();
+        if (n < 0) return null;
+        List<Integer> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add((int) in.readShort());
+        }
+        return list;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static void writeDecimal(DataOutputStream out, BigDecimal d) throws IOException {
+        if (d == null) {
+            out.writeByte(-1);
+            return;
+        }
+        byte[] unscaled = d.unscaledValue().toByteArray();
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+        out.writeByte(d.scale());
+    }
+
+    static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int len = in.readByte();
+        if (len < 0) return null;
+        byte[] unscaled = new byte[len];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readByte());
+    }
+
+    static Set<Integer> toSet(List<Integer> list) {
+        return list == null ? null : new LinkedHashSet<>(list);
+    }
+}
@@ -6,6 +6,7 @@ import com.mawai.wiibcommon.entity.AiRuntimeConfig;
 import com.mawai.wiibcommon.constant.QuantConstants;
 import com.mawai.wiibcommon.util.Result;
 import com.mawai.wiibservice.agent.config.AiAgentRuntimeManager;
+import com.mawai.wiibservice.agent.quant.LlmBatchCoalescer;
 import com.mawai.wiibservice.agent.quant.memory.VerificationService;
 import com.mawai.wiibservice.agent.quant.node.DebateJudgeNode;
 import com.mawai.wiibservice.agent.trading.DeterministicTradingExecutor;
@@ -289,12 +290,17 @@ public class AiAgentAdminController {
             DebateJudgeNode.ENABLED = req.getDebateJudgeEnabled();
             log.info("[Admin] 辩论裁决开关更新为: {}", req.getDebateJudgeEnabled());
         }
+        if (req.getLlmBatchEnabled() != null) {
+            LlmBatchCoalescer.ENABLED = req.getLlmBatchEnabled();
+            log.info("[Admin] 跨symbol LLM批量开关更新为: {}", req.getLlmBatchEnabled());
+        }
         return Result.ok(buildQuantConfigResponse());
     }
 
     private QuantConfigResponse buildQuantConfigResponse() {
         QuantConfigResponse resp = new QuantConfigResponse();
         resp.setDebateJudgeEnabled(DebateJudgeNode.ENABLED);
+        resp.setLlmBatchEnabled(LlmBatchCoalescer.ENABLED);
         return resp;
     }
 
@@ -341,11 +347,13 @@ public class AiAgentAdminController {
     @Data
     public static class QuantConfigRequest {
         private Boolean debateJudgeEnabled;
+        private Boolean llmBatchEnabled;
     }
 
     @Data
     public static class QuantConfigResponse {
         private Boolean debateJudgeEnabled;
+        private Boolean llmBatchEnabled;
     }
 
 }
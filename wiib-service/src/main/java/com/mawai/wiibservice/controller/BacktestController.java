@@ -1,6 +1,7 @@
 package com.mawai.wiibservice.controller;
 
 import com.mawai.wiibcommon.util.Result;
+import com.mawai.wiibservice.agent.quant.FeatureSnapshotStore;
 import com.mawai.wiibservice.agent.trading.BacktestResult;
 import com.mawai.wiibservice.agent.trading.BacktestRunner;
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,7 @@ import java.util.Map;
 public class BacktestController {
 
     private final BacktestRunner backtestRunner;
+    private final FeatureSnapshotStore featureSnapshotStore;
 
     @Operation(summary = "运行回测")
     @PostMapping("/run")
@@ -94,6 +97,33 @@ public class BacktestController {
         }
     }
 
+    @Operation(summary = "特征快照历史 — 本地列式存储按时间范围+列投影读取")
+    @GetMapping("/features")
+    public Result<Map<String, Object>> featureHistory(
+            @RequestParam(defaultValue = "BTCUSDT") String symbol,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) List<String> columns) {
+        try {
+            FeatureSnapshotStore.FeatureFrame frame = featureSnapshotStore.scan(
+                    symbol, parseDateTime(from), parseDateTime(to), columns);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("rows", frame.size());
+            map.put("ts", frame.timestamps());
+            Map<String, Object> cols = new LinkedHashMap<>();
+            // NaN 不是合法 JSON，转成 null
+            frame.columns().forEach((name, values) -> cols.put(name,
+                    Arrays.stream(values).mapToObj(v -> Double.isNaN(v) ? null : v).toList()));
+            map.put("columns", cols);
+            return Result.ok(map);
+        } catch (IllegalArgumentException e) {
+            return Result.fail(e.getMessage());
+        } catch (Exception e) {
+            log.error("[Backtest API] 特征历史读取失败", e);
+            return Result.fail("特征历史读取失败: " + e.getMessage());
+        }
+    }
+
     /** 接受 "2026-04-01" 或 "2026-04-01T10:00:00" 两种格式 */
     private LocalDateTime parseDateTime(String s) {
         if (s.contains("T")) return LocalDateTime.parse(s);
@@ -0,0 +1,51 @@
+package com.mawai.wiibservice.controller;
+
+import com.mawai.wiibcommon.enums.ErrorCode;
+import com.mawai.wiibcommon.exception.BizException;
+import com.mawai.wiibcommon.util.Result;
+import com.mawai.wiibservice.service.GameRngService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Tag(name = "游戏公平性验证接口")
+@RestController
+@RequestMapping("/api/fair")
+public class FairnessController {
+
+    @GetMapping("/replay")
+    @Operation(summary = "用公开的serverSeed复现牌序/雷位并校验承诺值")
+    public Result<Map<String, Object>> replay(@RequestParam String kind,
+                                              @RequestParam String serverSeed,
+                                              @RequestParam(required = false) String seedHash) {
+        GameRngService.Kind k;
+        byte[] outcome;
+        try {
+            k = GameRngService.Kind.valueOf(kind.toUpperCase());
+            outcome = GameRngService.replay(k, serverSeed);
+        } catch (IllegalArgumentException e) {
+            throw new BizException(ErrorCode.PARAM_ERROR);
+        }
+
+        List<Object> sequence = new ArrayList<>(outcome.length);
+        for (byte b : outcome) {
+            sequence.add(k == GameRngService.Kind.MINES ? (Object) (int) b : GameRngService.cardName(b));
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("kind", k.name());
+        data.put("sequence", sequence);
+        if (seedHash != null && !seedHash.isBlank()) {
+            data.put("verified", GameRngService.verify(serverSeed, seedHash));
+        }
+        return Result.ok(data);
+    }
+}
@@ -1,8 +1,21 @@
 package com.mawai.wiibservice.controller;
 
 import com.mawai.wiibcommon.util.Result;
+import com.mawai.wiibservice.agent.config.AiAgentRuntimeManager;
+import com.mawai.wiibservice.agent.config.LlmGateway;
+import com.mawai.wiibservice.agent.quant.FeatureSnapshotStore;
+import com.mawai.wiibservice.agent.quant.LlmBatchCoalescer;
+import com.mawai.wiibservice.agent.quant.LlmResponseCache;
+import com.mawai.wiibservice.agent.quant.QuantPartialPublisher;
+import com.mawai.wiibservice.agent.quant.memory.MemoryService;
+import com.mawai.wiibservice.service.ForceOrderService;
+import com.mawai.wiibservice.service.NewsFeedService;
+import com.mawai.wiibservice.service.PortfolioProjection;
+import com.mawai.wiibservice.util.GameLockExecutor;
+import com.mawai.wiibservice.util.ZSetIndexRebuilder;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -17,9 +30,22 @@ import java.util.*;
 @RequestMapping("/monitor")
 @EnableScheduling
 @Tag(name = "监控")
+@RequiredArgsConstructor
 public class MonitorController {
 
     private final SimpMessagingTemplate ws;
+    private final ForceOrderService forceOrderService;
+    private final ZSetIndexRebuilder zSetIndexRebuilder;
+    private final GameLockExecutor gameLockExecutor;
+    private final PortfolioProjection portfolioProjection;
+    private final LlmGateway llmGateway;
+    private final AiAgentRuntimeManager aiAgentRuntimeManager;
+    private final LlmResponseCache llmResponseCache;
+    private final LlmBatchCoalescer llmBatchCoalescer;
+    private final NewsFeedService newsFeedService;
+    private final FeatureSnapshotStore featureSnapshotStore;
+    private final MemoryService memoryService;
+    private final QuantPartialPublisher quantPartialPublisher;
 
     private static final MemoryMXBean MEM_MX = ManagementFactory.getMemoryMXBean();
     private static final ThreadMXBean THREAD_MX = ManagementFactory.getThreadMXBean();
@@ -28,10 +54,6 @@ public class MonitorController {
     private static final RuntimeMXBean RUNTIME_MX = ManagementFactory.getRuntimeMXBean();
     private static final ClassLoadingMXBean CLASS_MX = ManagementFactory.getClassLoadingMXBean();
 
-    public MonitorController(SimpMessagingTemplate ws) {
-        this.ws = ws;
-    }
-
     @Scheduled(fixedRate = 5000)
     public void pushMonitor() {
         ws.convertAndSend("/topic/monitor", collectLite());
@@ -71,7 +93,7 @@ public class MonitorController {
         return data;
     }
 
-    public static Map<String, Object> collect() {
+    public Map<String, Object> collect() {
         Map<String, Object> data = collectLite();
         List<Map<String, Object>> pools = new ArrayList<>();
         for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
@@ -88,6 +110,18 @@ public class MonitorController {
         classLoading.put("totalLoaded", CLASS_MX.getTotalLoadedClassCount());
         classLoading.put("unloaded", CLASS_MX.getUnloadedClassCount());
         data.put("classLoading", classLoading);
+        data.put("writeBehind", List.of(forceOrderService.bufferStats()));
+        data.put("indexRebuild", zSetIndexRebuilder.lastResults());
+        data.put("gameSessions", gameLockExecutor.stats());
+        data.put("portfolioProjection", portfolioProjection.stats());
+        data.put("llmGateway", llmGateway.stats());
+        data.put("llmHedge", aiAgentRuntimeManager.hedgeStats());
+        data.put("llmCache", llmResponseCache.stats());
+        data.put("llmBatch", llmBatchCoalescer.stats());
+        data.put("newsFeed", newsFeedService.stats());
+        data.put("featureStore", featureSnapshotStore.stats());
+        data.put("quantMemory", memoryService.stats());
+        data.put("quantPartial", quantPartialPublisher.stats());
 
         return data;
     }
@@ -3,7 +3,6 @@ package com.mawai.wiibservice.controller;
 import cn.dev33.satoken.stp.StpUtil;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.mawai.wiibcommon.dto.*;
-import com.mawai.wiibcommon.entity.OptionContract;
 import com.mawai.wiibcommon.enums.ErrorCode;
 import com.mawai.wiibcommon.exception.BizException;
 import com.mawai.wiibcommon.util.Result;
@@ -23,32 +22,20 @@ import java.util.List;
 @RequiredArgsConstructor
 public class OptionController {
 
-    private final OptionContractService contractService;
     private final OptionOrderService orderService;
     private final OptionPositionService positionService;
     private final OptionPricingService pricingService;
+    private final OptionChainPricer chainPricer;
     private final TradingConfig tradingConfig;
 
     @GetMapping("/chain/{stockId}")
-    @Operation(summary = "获取期权链")
+    @Operation(summary = "获取期权链（含权利金与Greeks）")
     public Result<List<OptionChainItemDTO>> getOptionChain(@PathVariable Long stockId) {
         if (tradingConfig.isNotInTradingHours()) {
             throw new BizException(ErrorCode.NOT_IN_TRADING_HOURS);
         }
 
-        List<OptionContract> contracts = contractService.getActiveContracts(stockId);
-
-        List<OptionChainItemDTO> result = contracts.stream().map(c -> {
-            OptionChainItemDTO dto = new OptionChainItemDTO();
-            dto.setContractId(c.getId());
-            dto.setStockId(c.getStockId());
-            dto.setOptionType(c.getOptionType());
-            dto.setStrike(c.getStrike());
-            dto.setExpireAt(c.getExpireAt());
-            return dto;
-        }).toList();
-
-        return Result.ok(result);
+        return Result.ok(chainPricer.getChain(stockId));
     }
 
     @GetMapping("/quote/{contractId}")
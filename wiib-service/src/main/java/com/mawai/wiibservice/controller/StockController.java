@@ -2,8 +2,11 @@ package com.mawai.wiibservice.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.mawai.wiibcommon.dto.DayTickDTO;
+import com.mawai.wiibcommon.dto.IntradayKlineDTO;
 import com.mawai.wiibcommon.dto.KlineDTO;
 import com.mawai.wiibcommon.dto.StockDTO;
+import com.mawai.wiibcommon.enums.ErrorCode;
+import com.mawai.wiibcommon.exception.BizException;
 import com.mawai.wiibcommon.util.Result;
 import com.mawai.wiibservice.service.MarketDataService;
 import com.mawai.wiibservice.service.StockService;
@@ -90,6 +93,17 @@ public class StockController {
         return Result.ok(ticks);
     }
 
+    @GetMapping("/{stockId}/candles")
+    @Operation(summary = "获取当日分钟K线")
+    public Result<List<IntradayKlineDTO>> getIntradayCandles(
+            @PathVariable Long stockId,
+            @RequestParam(defaultValue = "5") int interval) {
+        if (interval < 1 || interval > 60) {
+            throw new BizException(ErrorCode.PARAM_ERROR.getCode(), "K线周期需在1~60分钟之间");
+        }
+        return Result.ok(marketDataService.getIntradayCandles(stockId, interval));
+    }
+
     @GetMapping("/{stockId}/history-ticks")
     @Operation(summary = "获取历史某天分时数据")
     public Result<List<DayTickDTO>> getHistoryDayTicks(
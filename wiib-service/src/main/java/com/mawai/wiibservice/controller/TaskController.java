@@ -1,12 +1,16 @@
 package com.mawai.wiibservice.controller;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.mawai.wiibcommon.enums.ErrorCode;
+import com.mawai.wiibcommon.exception.BizException;
 import com.mawai.wiibcommon.util.Result;
 import com.mawai.wiibservice.config.TradingConfig;
 import com.mawai.wiibservice.service.BankruptcyService;
 import com.mawai.wiibservice.service.MarginAccountService;
 import com.mawai.wiibservice.service.MarketDataService;
 import com.mawai.wiibservice.service.AssetSnapshotService;
+import com.mawai.wiibservice.service.model.GameSimulator;
+import com.mawai.wiibservice.service.model.MinesRules;
 import com.mawai.wiibservice.task.MarketDataTask;
 import com.mawai.wiibservice.task.ScheduledTasks;
 import io.swagger.v3.oas.annotations.Operation;
@@ -35,6 +39,9 @@ public class TaskController {
     private final MarginAccountService marginAccountService;
     private final AssetSnapshotService assetSnapshotService;
 
+    /** 模拟在请求线程上同步执行，总局数（扫雷为 局数×档位数）超过该值直接拒绝，单次请求控制在数秒内 */
+    private static final long MAX_SIMULATION_ROUNDS = 20_000_000L;
+
     private void checkAdmin() {
         long userId = StpUtil.getLoginIdAsLong();
         if (userId != 1L) {
@@ -105,6 +112,14 @@ public class TaskController {
         return Result.ok();
     }
 
+    @PostMapping("/pack-tick-data")
+    @Operation(summary = "迁移分时数据为紧凑格式（后台执行，可重复调用）")
+    public Result<Void> packTickData() {
+        checkAdmin();
+        marketDataTask.packLegacyTickData();
+        return Result.ok();
+    }
+
     @PostMapping("/refresh-stock-cache")
     @Operation(summary = "重建当日Stock汇总缓存（按ticks，截止当前时间）")
     public Result<Map<String, Object>> refreshStockCache(
@@ -169,6 +184,34 @@ public class TaskController {
         return Result.ok();
     }
 
+    @PostMapping("/simulate/blackjack")
+    @Operation(summary = "蒙特卡洛模拟21点基本策略RTP")
+    public Result<Map<String, Object>> simulateBlackjack(@RequestParam(defaultValue = "1000000") long rounds,
+                                                         @RequestParam(required = false) Long seed) {
+        checkAdmin();
+        validateSimulationRounds(rounds, 1);
+        return Result.ok(GameSimulator.simulateBlackjack(rounds, 0, seed != null ? seed : System.nanoTime()));
+    }
+
+    @PostMapping("/simulate/mines")
+    @Operation(summary = "蒙特卡洛模拟扫雷RTP（reveals不传则扫全部档位）")
+    public Result<Map<String, Object>> simulateMines(@RequestParam(defaultValue = "1000000") long rounds,
+                                                     @RequestParam(defaultValue = "0") int reveals,
+                                                     @RequestParam(required = false) Long seed) {
+        checkAdmin();
+        if (reveals > MinesRules.SAFE_COUNT) {
+            throw new BizException(ErrorCode.PARAM_ERROR);
+        }
+        validateSimulationRounds(rounds, reveals > 0 ? 1 : MinesRules.SAFE_COUNT);
+        return Result.ok(GameSimulator.simulateMines(rounds, reveals, 0, seed != null ? seed : System.nanoTime()));
+    }
+
+    private void validateSimulationRounds(long rounds, int levels) {
+        if (rounds <= 0 || rounds > MAX_SIMULATION_ROUNDS / levels) {
+            throw new BizException(ErrorCode.PARAM_ERROR);
+        }
+    }
+
     @Data
     public static class DailyInterestRateRequest {
         private BigDecimal dailyInterestRate;
@@ -4,6 +4,7 @@ import cn.dev33.satoken.stp.StpUtil;
 import com.mawai.wiibcommon.dto.VideoPokerBetRequest;
 import com.mawai.wiibcommon.dto.VideoPokerDrawRequest;
 import com.mawai.wiibcommon.dto.VideoPokerGameStateDTO;
+import com.mawai.wiibcommon.dto.VideoPokerHoldEvDTO;
 import com.mawai.wiibcommon.dto.VideoPokerStatusDTO;
 import com.mawai.wiibcommon.util.Result;
 import com.mawai.wiibservice.service.VideoPokerService;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.List;
 
 @Tag(name = "视频扑克接口")
 @RestController
@@ -45,4 +47,11 @@ public class VideoPokerController {
         var held = request != null && request.getHeld() != null ? request.getHeld() : Collections.<Integer>emptyList();
         return Result.ok(videoPokerService.draw(userId, held));
     }
+
+    @GetMapping("/advice")
+    @Operation(summary = "当前手牌各HOLD方式的期望回报")
+    public Result<List<VideoPokerHoldEvDTO>> advice() {
+        Long userId = StpUtil.getLoginIdAsLong();
+        return Result.ok(videoPokerService.holdAdvice(userId));
+    }
 }
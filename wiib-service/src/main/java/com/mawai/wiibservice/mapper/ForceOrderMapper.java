@@ -2,8 +2,23 @@ package com.mawai.wiibservice.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.ForceOrder;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface ForceOrderMapper extends BaseMapper<ForceOrder> {
+
+    /**
+     * 多行INSERT批量写入强平单
+     */
+    @Insert("<script>" +
+            "INSERT INTO force_order (symbol, side, price, avg_price, quantity, amount, status, trade_time, created_at) VALUES " +
+            "<foreach collection='list' item='o' separator=','>" +
+            "(#{o.symbol}, #{o.side}, #{o.price}, #{o.avgPrice}, #{o.quantity}, #{o.amount}, #{o.status}, #{o.tradeTime}, NOW())" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<ForceOrder> list);
 }
@@ -2,10 +2,14 @@ package com.mawai.wiibservice.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.FuturesOrder;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -13,6 +17,15 @@ import java.util.List;
 @Mapper
 public interface FuturesOrderMapper extends BaseMapper<FuturesOrder> {
 
+    /**
+     * 流式遍历PENDING限价单（重建索引用）
+     * PG驱动只有在非自动提交的连接上才按fetchSize走游标，须在事务（可只读）内调用
+     */
+    @Select("SELECT id, symbol, order_side, limit_price FROM futures_order " +
+            "WHERE status = 'PENDING' AND order_type = 'LIMIT'")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    void streamPendingLimitOrders(ResultHandler<FuturesOrder> handler);
+
     /** CAS状态转换 */
     @Update("UPDATE futures_order SET status = #{newStatus}, updated_at = NOW() " +
             "WHERE id = #{orderId} AND status = #{oldStatus}")
@@ -42,6 +55,19 @@ public interface FuturesOrderMapper extends BaseMapper<FuturesOrder> {
             "WHERE id = #{orderId} AND status = 'PENDING'")
     int casUpdateToTriggered(@Param("orderId") Long orderId, @Param("triggerPrice") BigDecimal triggerPrice);
 
+    /** 多行插入平仓类订单（强平等批量场景，不含限价/止盈止损字段） */
+    @Insert({
+            "<script>",
+            "INSERT INTO futures_order (user_id, position_id, symbol, order_side, order_type, quantity, leverage,",
+            "  filled_price, filled_amount, commission, realized_pnl, status, created_at, updated_at) VALUES",
+            "<foreach collection='list' item='o' separator=','>",
+            "(#{o.userId}, #{o.positionId}, #{o.symbol}, #{o.orderSide}, #{o.orderType}, #{o.quantity}, #{o.leverage},",
+            " #{o.filledPrice}, #{o.filledAmount}, #{o.commission}, #{o.realizedPnl}, #{o.status}, NOW(), NOW())",
+            "</foreach>",
+            "</script>"
+    })
+    int insertCloseBatch(@Param("list") List<FuturesOrder> list);
+
     /** 用户所有已平仓单的已实现盈亏（已扣手续费） */
     @Select("SELECT COALESCE(SUM(realized_pnl - COALESCE(commission, 0)), 0) FROM futures_order " +
             "WHERE user_id = #{userId} AND realized_pnl IS NOT NULL")
@@ -5,9 +5,13 @@ import com.mawai.wiibcommon.entity.FuturesPosition;
 import com.mawai.wiibcommon.entity.FuturesStopLoss;
 import com.mawai.wiibcommon.entity.FuturesTakeProfit;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultMap;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -45,6 +49,38 @@ public interface FuturesPositionMapper extends BaseMapper<FuturesPosition> {
                          @Param("closedPrice") BigDecimal closedPrice,
                          @Param("closedPnl") BigDecimal closedPnl);
 
+    /**
+     * 批量CAS关闭仓位（每行带各自closedPnl），返回实际关闭的仓位ID
+     * 只有仍为OPEN的行会被更新，已被其他路径平掉的仓位不在返回结果中
+     */
+    @Select({
+            "<script>",
+            "UPDATE futures_position p SET status = #{newStatus}, closed_price = #{closedPrice},",
+            "  closed_pnl = v.pnl, updated_at = NOW()",
+            "FROM (VALUES",
+            "<foreach collection='positions' item='pos' separator=','>",
+            "(#{pos.id}::bigint, #{pos.closedPnl}::numeric)",
+            "</foreach>",
+            ") AS v(id, pnl)",
+            "WHERE p.id = v.id AND p.status = 'OPEN'",
+            "RETURNING p.id",
+            "</script>"
+    })
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<Long> casCloseBatch(@Param("positions") List<FuturesPosition> positions,
+                             @Param("newStatus") String newStatus,
+                             @Param("closedPrice") BigDecimal closedPrice);
+
+    /**
+     * 流式遍历OPEN仓位（重建索引用，只取建索引需要的列）
+     * PG驱动只有在非自动提交的连接上才按fetchSize走游标，须在事务（可只读）内调用
+     */
+    @Select("SELECT id, symbol, side, entry_price, margin, quantity, stop_losses, take_profits " +
+            "FROM futures_position WHERE status = 'OPEN'")
+    @ResultMap("mybatis-plus_FuturesPosition")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    void streamOpenForIndex(ResultHandler<FuturesPosition> handler);
+
     /** 查询用户所有OPEN仓位的保证金总和 */
     @Select("SELECT COALESCE(SUM(margin), 0) FROM futures_position WHERE user_id = #{userId} AND status = 'OPEN'")
     BigDecimal sumOpenMargin(@Param("userId") Long userId);
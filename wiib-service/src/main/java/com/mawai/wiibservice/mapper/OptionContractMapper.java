@@ -3,7 +3,21 @@ package com.mawai.wiibservice.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.OptionContract;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Collection;
 
 @Mapper
 public interface OptionContractMapper extends BaseMapper<OptionContract> {
+
+    /** 批量CAS标记结算（仅ACTIVE生效），返回实际标记的合约数 */
+    @Update({
+            "<script>",
+            "UPDATE option_contract SET status = 'SETTLED'",
+            "WHERE status = 'ACTIVE' AND id IN",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int casSettleBatch(@Param("ids") Collection<Long> ids);
 }
@@ -4,9 +4,12 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.OptionPosition;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface OptionPositionMapper extends BaseMapper<OptionPosition> {
@@ -26,4 +29,24 @@ public interface OptionPositionMapper extends BaseMapper<OptionPosition> {
             "frozen_quantity = frozen_quantity - #{delta}, updated_at = NOW() " +
             "WHERE id = #{positionId} AND frozen_quantity >= #{delta}")
     int atomicUnfreezeAndReduce(@Param("positionId") Long positionId, @Param("delta") int delta);
+
+    /** 批量清空持仓（到期结算） */
+    @Update({
+            "<script>",
+            "UPDATE option_position SET quantity = 0, frozen_quantity = 0, updated_at = NOW()",
+            "WHERE id IN",
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    int clearBatch(@Param("ids") Collection<Long> ids);
+
+    /** 给定合约中仍有持仓（quantity > 0）的合约ID */
+    @Select({
+            "<script>",
+            "SELECT DISTINCT contract_id FROM option_position",
+            "WHERE quantity > 0 AND contract_id IN",
+            "<foreach collection='contractIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+            "</script>"
+    })
+    List<Long> selectContractIdsWithOpenInterest(@Param("contractIds") Collection<Long> contractIds);
 }
@@ -2,11 +2,13 @@ package com.mawai.wiibservice.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.OptionSettlement;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Mapper
 public interface OptionSettlementMapper extends BaseMapper<OptionSettlement> {
@@ -14,4 +16,17 @@ public interface OptionSettlementMapper extends BaseMapper<OptionSettlement> {
     @Select("SELECT COALESCE(SUM(settlement_amount), 0) FROM option_settlement " +
             "WHERE user_id = #{userId}")
     BigDecimal sumSettlementAmount(@Param("userId") Long userId);
+
+    /** 多行插入结算记录 */
+    @Insert({
+            "<script>",
+            "INSERT INTO option_settlement (user_id, contract_id, position_id, quantity, strike,",
+            "  settlement_price, intrinsic_value, settlement_amount, settled_at) VALUES",
+            "<foreach collection='list' item='s' separator=','>",
+            "(#{s.userId}, #{s.contractId}, #{s.positionId}, #{s.quantity}, #{s.strike},",
+            " #{s.settlementPrice}, #{s.intrinsicValue}, #{s.settlementAmount}, NOW())",
+            "</foreach>",
+            "</script>"
+    })
+    int insertBatch(@Param("list") List<OptionSettlement> list);
 }
@@ -2,11 +2,11 @@ package com.mawai.wiibservice.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.PriceTickDaily;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
-
-import com.mawai.wiibcommon.dto.KlineDTO;
+import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -14,13 +14,32 @@ import java.util.List;
 @Mapper
 public interface PriceTickDailyMapper extends BaseMapper<PriceTickDaily> {
 
-    @Select("SELECT trade_date as date, " +
-            "prices[1] as open, " +
-            "prices[array_length(prices,1)] as close, " +
-            "(SELECT max(v) FROM unnest(prices) v) as high, " +
-            "(SELECT min(v) FROM unnest(prices) v) as low " +
-            "FROM price_tick_daily " +
-            "WHERE stock_id = #{stockId} AND trade_date < #{today} " +
-            "ORDER BY trade_date DESC LIMIT #{limit}")
-    List<KlineDTO> selectKline(@Param("stockId") Long stockId, @Param("today") LocalDate today, @Param("limit") int limit);
+    /**
+     * 多行INSERT批量写入分时数据，已存在的(stock_id, trade_date)跳过（断点续跑幂等）
+     */
+    @Insert("<script>" +
+            "INSERT INTO price_tick_daily (stock_id, trade_date, packed_prices, created_at, updated_at) VALUES " +
+            "<foreach collection='list' item='d' separator=','>" +
+            "(#{d.stockId}, #{d.tradeDate}, " +
+            "#{d.packedPrices, typeHandler=com.mawai.wiibcommon.handler.PackedPricesTypeHandler}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON CONFLICT (stock_id, trade_date) DO NOTHING" +
+            "</script>")
+    int insertBatch(@Param("list") List<PriceTickDaily> list);
+
+    @Select("SELECT stock_id FROM price_tick_daily WHERE trade_date = #{date}")
+    List<Long> selectStockIdsByDate(@Param("date") LocalDate date);
+
+    /**
+     * 迁移：一条语句把一批旧行写成紧凑格式并清空数组列
+     */
+    @Update("<script>" +
+            "UPDATE price_tick_daily AS t SET packed_prices = v.packed, prices = NULL, updated_at = NOW() FROM (VALUES " +
+            "<foreach collection='list' item='d' separator=','>" +
+            "(#{d.id}::bigint, " +
+            "#{d.packedPrices, typeHandler=com.mawai.wiibcommon.handler.PackedPricesTypeHandler}::bytea)" +
+            "</foreach>" +
+            ") AS v(id, packed) WHERE t.id = v.id" +
+            "</script>")
+    int packBatch(@Param("list") List<PriceTickDaily> list);
 }
@@ -0,0 +1,32 @@
+package com.mawai.wiibservice.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.mawai.wiibcommon.entity.QuantAgentAccuracy;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface QuantAgentAccuracyMapper extends BaseMapper<QuantAgentAccuracy> {
+
+    /**
+     * 按(symbol, agent, horizon, regime, 天)累加命中计数，同一批内的键需已合并
+     */
+    @Insert("<script>" +
+            "INSERT INTO quant_agent_accuracy (symbol, agent, horizon, regime, bucket_date, total, correct, updated_at) VALUES " +
+            "<foreach collection='list' item='a' separator=','>" +
+            "(#{a.symbol}, #{a.agent}, #{a.horizon}, #{a.regime}, #{a.bucketDate}, #{a.total}, #{a.correct}, NOW())" +
+            "</foreach>" +
+            " ON CONFLICT (symbol, agent, horizon, regime, bucket_date) DO UPDATE SET " +
+            "total = quant_agent_accuracy.total + EXCLUDED.total, " +
+            "correct = quant_agent_accuracy.correct + EXCLUDED.correct, updated_at = NOW()" +
+            "</script>")
+    int upsertBatch(@Param("list") List<QuantAgentAccuracy> list);
+
+    @Select("SELECT * FROM quant_agent_accuracy WHERE symbol = #{symbol} AND bucket_date >= #{from}")
+    List<QuantAgentAccuracy> selectSince(@Param("symbol") String symbol, @Param("from") LocalDate from);
+}
@@ -13,4 +13,10 @@ public interface QuantAgentVoteMapper extends BaseMapper<QuantAgentVote> {
 
     @Select("SELECT * FROM quant_agent_vote WHERE cycle_id = #{cycleId}")
     List<QuantAgentVote> selectByCycleId(@Param("cycleId") String cycleId);
+
+    @Select("<script>" +
+            "SELECT * FROM quant_agent_vote WHERE cycle_id IN " +
+            "<foreach collection='cycleIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<QuantAgentVote> selectByCycleIds(@Param("cycleIds") List<String> cycleIds);
 }
@@ -2,6 +2,7 @@ package com.mawai.wiibservice.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.mawai.wiibcommon.entity.QuantForecastVerification;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -12,6 +13,21 @@ import java.util.Map;
 @Mapper
 public interface QuantForecastVerificationMapper extends BaseMapper<QuantForecastVerification> {
 
+    /**
+     * 多行INSERT批量写入验证结果（补验积压周期时一次落库）
+     */
+    @Insert("<script>" +
+            "INSERT INTO quant_forecast_verification (cycle_id, symbol, horizon, predicted_direction, predicted_confidence, " +
+            "actual_price_at_forecast, actual_price_after, actual_change_bps, max_favorable_bps, max_adverse_bps, " +
+            "tp1_hit_first, prediction_correct, trade_quality, result_summary, reversal_severity, verified_at, created_at) VALUES " +
+            "<foreach collection='list' item='v' separator=','>" +
+            "(#{v.cycleId}, #{v.symbol}, #{v.horizon}, #{v.predictedDirection}, #{v.predictedConfidence}, " +
+            "#{v.actualPriceAtForecast}, #{v.actualPriceAfter}, #{v.actualChangeBps}, #{v.maxFavorableBps}, #{v.maxAdverseBps}, " +
+            "#{v.tp1HitFirst}, #{v.predictionCorrect}, #{v.tradeQuality}, #{v.resultSummary}, #{v.reversalSeverity}, #{v.verifiedAt}, NOW())" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("list") List<QuantForecastVerification> list);
+
     @Select("SELECT * FROM quant_forecast_verification WHERE symbol = #{symbol} ORDER BY verified_at DESC LIMIT #{limit}")
     List<QuantForecastVerification> selectRecent(@Param("symbol") String symbol, @Param("limit") int limit);
 
@@ -13,4 +13,10 @@ public interface QuantHorizonForecastMapper extends BaseMapper<QuantHorizonForec
 
     @Select("SELECT * FROM quant_horizon_forecast WHERE cycle_id = #{cycleId}")
     List<QuantHorizonForecast> selectByCycleId(@Param("cycleId") String cycleId);
+
+    @Select("<script>" +
+            "SELECT * FROM quant_horizon_forecast WHERE cycle_id IN " +
+            "<foreach collection='cycleIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<QuantHorizonForecast> selectByCycleIds(@Param("cycleIds") List<String> cycleIds);
 }
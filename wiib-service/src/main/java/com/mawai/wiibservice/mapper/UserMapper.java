@@ -9,6 +9,7 @@ import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Map;
 
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
@@ -18,6 +19,20 @@ public interface UserMapper extends BaseMapper<User> {
             "WHERE id = #{userId} AND balance + #{amount} >= 0")
     int atomicUpdateBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
 
+    /** 批量增加可用余额（userId -> amount，仅用于入账，amount须为正） */
+    @Update({
+            "<script>",
+            "UPDATE \"user\" u SET balance = u.balance + v.amount, updated_at = NOW()",
+            "FROM (VALUES",
+            "<foreach collection='credits' index='userId' item='amount' separator=','>",
+            "(#{userId}::bigint, #{amount}::numeric)",
+            "</foreach>",
+            ") AS v(id, amount)",
+            "WHERE u.id = v.id",
+            "</script>"
+    })
+    int batchAddBalance(@Param("credits") Map<Long, BigDecimal> credits);
+
     /** 原子冻结余额：可用减少，冻结增加 */
     @Update("UPDATE \"user\" SET balance = balance - #{amount}, frozen_balance = frozen_balance + #{amount}, updated_at = NOW() " +
             "WHERE id = #{userId} AND balance >= #{amount}")
@@ -26,6 +26,7 @@ public class CacheService {
 
     private final RedisTemplate<String, Object> redisTemplate;
     private final StringRedisTemplate stringRedisTemplate;
+    private final StockTickTape stockTickTape;
 
     // L1: 股票日内行情（getCurrentPrice + getDailyQuote 共用）
     private final Cache<Long, Map<String, String>> stockDailyCache = Caffeine.newBuilder().maximumSize(500).build();
@@ -39,6 +40,10 @@ public class CacheService {
      * @return 当前价格，无数据返回null
      */
     public BigDecimal getCurrentPrice(Long stockId) {
+        // 盘中优先读进程内分时磁带
+        int index = StockTickTape.currentIndex();
+        StockTickTape.DayTape tape = index >= 0 ? stockTickTape.today(stockId) : null;
+        if (tape != null) return tape.price(index);
         Map<String, String> daily = getStockDaily(stockId);
         if (daily == null) return null;
         String last = daily.get("last");
@@ -64,6 +69,17 @@ public class CacheService {
      * @return {open, high, low, last, prevClose}
      */
     public Map<String, BigDecimal> getDailyQuote(Long stockId) {
+        int index = StockTickTape.currentIndex();
+        StockTickTape.DayTape tape = index >= 0 ? stockTickTape.today(stockId) : null;
+        if (tape != null && tape.prevClose() != null) {
+            Map<String, BigDecimal> result = new HashMap<>();
+            result.put("open", tape.open());
+            result.put("high", tape.highUpTo(index));
+            result.put("low", tape.lowUpTo(index));
+            result.put("last", tape.price(index));
+            result.put("prevClose", tape.prevClose());
+            return result;
+        }
         Map<String, String> daily = getStockDaily(stockId);
         if (daily == null) return null;
 
@@ -6,6 +6,9 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.mawai.wiibcommon.entity.ForceOrder;
 import com.mawai.wiibservice.mapper.ForceOrderMapper;
 import lombok.RequiredArgsConstructor;
+import com.mawai.wiibservice.util.WriteBehindBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -15,14 +18,36 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ForceOrderService {
 
+    /** 写后缓冲参数：攒满500条或200ms刷一次，队列上限2万条 */
+    private static final int BUFFER_CAPACITY = 20_000;
+    private static final int FLUSH_BATCH_SIZE = 500;
+    private static final long FLUSH_INTERVAL_MS = 200;
+
     private final ForceOrderMapper forceOrderMapper;
 
+    private WriteBehindBuffer<ForceOrder> buffer;
+
+    @PostConstruct
+    public void init() {
+        buffer = new WriteBehindBuffer<>("force-order", BUFFER_CAPACITY, FLUSH_BATCH_SIZE, FLUSH_INTERVAL_MS,
+                forceOrderMapper::insertBatch);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buffer.close();
+    }
+
+    /**
+     * 由WS回调线程调用：只入队不落库，队列满时丢弃（见 {@link WriteBehindBuffer}）
+     */
     public void handleForceOrder(String symbol, String side, BigDecimal price,
                                   BigDecimal avgPrice, BigDecimal qty, String status, long tradeTimeMs) {
         ForceOrder order = new ForceOrder();
@@ -34,11 +59,16 @@ public class ForceOrderService {
         order.setAmount(avgPrice.multiply(qty).setScale(2, RoundingMode.HALF_UP));
         order.setStatus(status);
         order.setTradeTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(tradeTimeMs), ZoneId.systemDefault()));
-        forceOrderMapper.insert(order);
+        buffer.offer(order);
 
         log.info("[ForceOrder] {} {} qty={} avgPrice={} amount={}", symbol, side, qty, avgPrice, order.getAmount());
     }
 
+    /** 写后缓冲统计，供监控接口展示 */
+    public Map<String, Object> bufferStats() {
+        return buffer.stats();
+    }
+
     public List<ForceOrder> getRecent(String symbol, int minutes) {
         LocalDateTime cutoff = LocalDateTime.now().minusMinutes(minutes);
         return forceOrderMapper.selectList(new LambdaQueryWrapper<ForceOrder>()
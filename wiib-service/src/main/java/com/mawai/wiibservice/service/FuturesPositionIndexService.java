@@ -5,6 +5,7 @@ import com.mawai.wiibcommon.entity.FuturesStopLoss;
 import com.mawai.wiibcommon.entity.FuturesTakeProfit;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface FuturesPositionIndexService {
@@ -14,6 +15,9 @@ public interface FuturesPositionIndexService {
 
     void unregisterAll(FuturesPosition position);
 
+    /** 一次Pipeline移除多个仓位的全部索引（批量强平用） */
+    void unregisterAll(Collection<FuturesPosition> positions);
+
     void updateLiquidationPrice(Long positionId, String symbol, String side, BigDecimal liqPrice);
 
     void registerStopLosses(Long positionId, String symbol, String side, List<FuturesStopLoss> stopLosses);
@@ -2,6 +2,7 @@ package com.mawai.wiibservice.service;
 
 import java.math.BigDecimal;
 import java.util.Collection;
+import java.util.List;
 
 import com.mawai.wiibcommon.dto.FuturesStopLossRequest;
 import com.mawai.wiibcommon.dto.FuturesTakeProfitRequest;
@@ -14,6 +15,14 @@ public interface FuturesRiskService {
 
     void forceClose(Long positionId, BigDecimal price);
 
+    /**
+     * 连环爆仓批量强平：同一symbol同一价格下被击穿的仓位，分块用多行语句平仓、
+     * 一条多行INSERT写强平单、按用户聚合返还余额；整块失败时逐个退回forceClose重试
+     *
+     * @return 重试后仍失败的仓位ID（调用方据此恢复索引）
+     */
+    List<Long> batchForceClose(String symbol, Collection<Long> positionIds, BigDecimal price);
+
     void batchTriggerStopLoss(Long positionId, Collection<String> slIds, BigDecimal price);
 
     void batchTriggerTakeProfit(Long positionId, Collection<String> tpIds, BigDecimal price);
@@ -0,0 +1,211 @@
+package com.mawai.wiibservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 游戏随机数服务（可证明公平）：牌序/雷位由 HMAC-SHA256(serverSeed, kind:counter) 洗牌得到，结算后公开 serverSeed 即可 {@link #replay} 复现
+ * 牌编码：0~51 为 rank*4+suit（rank 顺序 A23456789TJQK，suit 顺序 HDCS），52 为小丑牌 JK1。
+ */
+@Slf4j
+@Service
+public class GameRngService {
+
+    public enum Kind {
+        /** 21点牌靴（1副牌） */
+        BLACKJACK_SHOE(52, 1),
+        /** 视频扑克：52张+1张小丑 */
+        VIDEO_POKER_DECK(53, 1),
+        /** 扫雷：25格洗牌，前 MINE_COUNT 个为雷 */
+        MINES(25, 1);
+
+        private final int cardsPerDeck;
+        private final int decks;
+
+        Kind(int cardsPerDeck, int decks) {
+            this.cardsPerDeck = cardsPerDeck;
+            this.decks = decks;
+        }
+
+        public int size() {
+            return cardsPerDeck * decks;
+        }
+    }
+
+    /** 一局的随机结果：serverSeed 在结算前不能下发给玩家 */
+    public record Round(String serverSeed, String seedHash, byte[] outcome) {
+    }
+
+    private static final int POOL_CAPACITY = 64;
+    private static final int SEED_BYTES = 32;
+    private static final String RANKS = "A23456789TJQK";
+    private static final String SUITS = "HDCS";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final ThreadLocal<SecureRandom> DRBG = ThreadLocal.withInitial(GameRngService::newDrbg);
+
+    private final Map<Kind, BlockingQueue<Round>> pools = new EnumMap<>(Kind.class);
+    private volatile boolean running = true;
+    private Thread refiller;
+
+    @PostConstruct
+    public void init() {
+        for (Kind kind : Kind.values()) {
+            pools.put(kind, new ArrayBlockingQueue<>(POOL_CAPACITY));
+        }
+        refiller = Thread.ofVirtual().name("game-rng-refill").start(this::refillLoop);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (refiller != null) refiller.interrupt();
+    }
+
+    /**
+     * 取一局预生成的随机结果，池空时现场生成
+     */
+    public Round nextRound(Kind kind) {
+        Round round = pools.get(kind).poll();
+        return round != null ? round : newRound(kind);
+    }
+
+    /**
+     * 由公开的 serverSeed 复现结果（玩家验证 / 对账）
+     */
+    public static byte[] replay(Kind kind, String serverSeed) {
+        return shuffle(kind, HEX.parseHex(serverSeed));
+    }
+
+    /** 校验 serverSeed 与开局公布的 seedHash 是否一致 */
+    public static boolean verify(String serverSeed, String seedHash) {
+        return sha256Hex(HEX.parseHex(serverSeed)).equalsIgnoreCase(seedHash);
+    }
+
+    public static String cardName(int code) {
+        if (code == 52) return "JK1";
+        return String.valueOf(RANKS.charAt(code / 4)) + SUITS.charAt(code % 4);
+    }
+
+    public static int cardCode(String card) {
+        if (card.startsWith("JK")) return 52;
+        return RANKS.indexOf(card.charAt(0)) * 4 + SUITS.indexOf(card.charAt(1));
+    }
+
+    // ==================== 内部实现 ====================
+
+    private void refillLoop() {
+        while (running) {
+            try {
+                for (Kind kind : Kind.values()) {
+                    BlockingQueue<Round> pool = pools.get(kind);
+                    while (running && pool.remainingCapacity() > 0) {
+                        pool.offer(newRound(kind));
+                    }
+                }
+                // 池满后低频巡检，消费快时下一轮补齐
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("预生成游戏随机结果失败", e);
+            }
+        }
+    }
+
+    private static Round newRound(Kind kind) {
+        byte[] seed = new byte[SEED_BYTES];
+        DRBG.get().nextBytes(seed);
+        return new Round(HEX.formatHex(seed), sha256Hex(seed), shuffle(kind, seed));
+    }
+
+    /**
+     * 确定性洗牌：初始序列为每副牌 0..cardsPerDeck-1 依次排列，按HMAC字节流做 Fisher-Yates
+     */
+    static byte[] shuffle(Kind kind, byte[] seed) {
+        byte[] cards = new byte[kind.size()];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = (byte) (i % kind.cardsPerDeck);
+        }
+        HmacStream stream = new HmacStream(seed, kind.name());
+        for (int i = cards.length - 1; i > 0; i--) {
+            int j = stream.nextInt(i + 1);
+            byte t = cards[i];
+            cards[i] = cards[j];
+            cards[j] = t;
+        }
+        return cards;
+    }
+
+    private static String sha256Hex(byte[] data) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * HMAC-SHA256(seed, kind:counter) 串联出的字节流，无偏取 [0, bound)
+     */
+    private static final class HmacStream {
+        private final Mac mac;
+        private final String label;
+        private long counter;
+        private byte[] block = new byte[0];
+        private int pos;
+
+        HmacStream(byte[] seed, String label) {
+            try {
+                this.mac = Mac.getInstance("HmacSHA256");
+                this.mac.init(new SecretKeySpec(seed, "HmacSHA256"));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            this.label = label;
+        }
+
+        int nextInt(int bound) {
+            // 拒绝采样：丢弃落在不能整除区间的值，保证均匀
+            long limit = (1L << 32) - ((1L << 32) % bound);
+            while (true) {
+                long v = nextUnsignedInt();
+                if (v < limit) return (int) (v % bound);
+            }
+        }
+
+        private long nextUnsignedInt() {
+            if (pos + 4 > block.length) {
+                block = mac.doFinal((label + ":" + counter++).getBytes(StandardCharsets.UTF_8));
+                pos = 0;
+            }
+            long v = ((block[pos] & 0xFFL) << 24) | ((block[pos + 1] & 0xFFL) << 16)
+                    | ((block[pos + 2] & 0xFFL) << 8) | (block[pos + 3] & 0xFFL);
+            pos += 4;
+            return v;
+        }
+    }
+}
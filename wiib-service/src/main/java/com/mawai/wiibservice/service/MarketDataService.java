@@ -1,6 +1,7 @@
 package com.mawai.wiibservice.service;
 
 import com.mawai.wiibcommon.dto.DayTickDTO;
+import com.mawai.wiibcommon.dto.IntradayKlineDTO;
 import com.mawai.wiibcommon.dto.KlineDTO;
 
 import java.time.LocalDate;
@@ -31,6 +32,12 @@ public interface MarketDataService {
      */
     List<DayTickDTO> getDayTicks(Long stockId);
 
+    /**
+     * 获取当日分钟K线（到当前时间为止，最后一根可能未走完），由进程内分时磁带聚合
+     * @param intervalMinutes K线周期（分钟）
+     */
+    List<IntradayKlineDTO> getIntradayCandles(Long stockId, int intervalMinutes);
+
     /**
      * 获取实时行情（用于WebSocket推送）
      * 包含：price, time, open, high, low, prevClose
@@ -62,4 +69,10 @@ public interface MarketDataService {
      * 获取日K线数据（带Redis缓存）
      */
     List<KlineDTO> getKlineData(Long stockId, int days);
+
+    /**
+     * 迁移：将 price_tick_daily 中 NUMERIC[] 格式的旧行转为紧凑 bytea 格式（可重复执行）
+     * @return 本次迁移行数
+     */
+    int packLegacyTickData();
 }
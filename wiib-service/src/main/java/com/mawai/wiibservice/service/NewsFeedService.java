@@ -0,0 +1,237 @@
+package com.mawai.wiibservice.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mawai.wiibcommon.constant.QuantConstants;
+import com.mawai.wiibservice.agent.quant.domain.NewsItem;
+import com.mawai.wiibservice.agent.quant.util.NewsRelevance;
+import com.mawai.wiibservice.config.BinanceRestClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 新闻增量采集：后台按周期为所有关注币种拉一次新闻，按归一化标题去重入有界索引
+ * <p>
+ * 每条新闻到达时对各 symbol 打一次相关性分，LLM 对单条新闻的判定（是否入选、情绪、影响）也只做一次并缓存；
+ * 量化周期只读索引，不再各自请求新闻接口，NewsEventAgent 只把未判定过的新闻送给 LLM。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NewsFeedService {
+
+    private static final int FETCH_LIMIT = 30;
+    private static final int MAX_INDEX_SIZE = 2_000;
+    /** 超过该时长未拉取的币种，读取时同步补拉一次（冷启动/非关注币种） */
+    private static final long STALE_MS = 10 * 60_000L;
+
+    private final BinanceRestClient binanceRestClient;
+
+    /**
+     * LLM对单条新闻的判定；selected=false 表示已判定为无影响，后续不再送审
+     */
+    public record Verdict(boolean selected, String sentiment, String impact, String reason) {
+        public static Verdict rejected() {
+            return new Verdict(false, "neutral", "none", "");
+        }
+    }
+
+    private static final class IndexedNews {
+        final NewsItem item;
+        /** symbol → 是否相关，到达时为关注币种预计算，其余按需计算一次 */
+        final Map<String, Boolean> relevance = new ConcurrentHashMap<>();
+
+        IndexedNews(NewsItem item) {
+            this.item = item;
+        }
+    }
+
+    private final Map<String, IndexedNews> index = new LinkedHashMap<>(256, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IndexedNews> eldest) {
+            return size() > MAX_INDEX_SIZE;
+        }
+    };
+    /** coin → 最近一次拉取的新闻key（接口原顺序） */
+    private final Map<String, List<String>> latestByCoin = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastPollMs = new ConcurrentHashMap<>();
+    private final Cache<String, Verdict> verdicts = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterWrite(Duration.ofHours(24))
+            .build();
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong newItems = new AtomicLong();
+    private final AtomicLong verdictHits = new AtomicLong();
+    private final AtomicLong verdictMisses = new AtomicLong();
+
+    @Scheduled(fixedDelay = 120_000, initialDelay = 10_000)
+    public void poll() {
+        for (String symbol : QuantConstants.WATCH_SYMBOLS) {
+            fetch(coinOf(symbol));
+        }
+    }
+
+    /**
+     * 某币种最近的新闻，按 CoinDesk 原始结构（Data[].TITLE/BODY/SOURCE_DATA_SOURCE_KEY/GUID）返回，
+     * 供 BuildFeaturesNode 原样解析；无数据返回 null
+     */
+    public String recentFeedJson(String symbol) {
+        List<NewsItem> items = recentNews(symbol);
+        if (items.isEmpty()) return null;
+        JSONArray data = new JSONArray(items.size());
+        for (NewsItem item : items) {
+            JSONObject o = new JSONObject();
+            o.put("TITLE", item.title());
+            o.put("BODY", item.summary());
+            o.put("SOURCE_DATA_SOURCE_KEY", item.sourceKey());
+            o.put("GUID", item.guid());
+            data.add(o);
+        }
+        JSONObject root = new JSONObject();
+        root.put("Data", data);
+        return root.toJSONString();
+    }
+
+    public List<NewsItem> recentNews(String symbol) {
+        String coin = coinOf(symbol);
+        Long last = lastPollMs.get(coin);
+        if (last == null || System.currentTimeMillis() - last > STALE_MS) {
+            fetch(coin);
+        }
+        List<String> keys = latestByCoin.getOrDefault(coin, List.of());
+        List<NewsItem> result = new ArrayList<>(keys.size());
+        synchronized (index) {
+            for (String key : keys) {
+                IndexedNews n = index.get(key);
+                if (n != null) result.add(n.item);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 与 {@link NewsRelevance#filterRelevant} 语义一致，但每条新闻对每个 symbol 只打分一次
+     */
+    public List<NewsItem> filterRelevant(String symbol, List<NewsItem> newsItems) {
+        if (newsItems == null || newsItems.isEmpty()) return List.of();
+        List<NewsItem> filtered = new ArrayList<>();
+        for (NewsItem item : newsItems) {
+            if (item == null) continue;
+            IndexedNews n;
+            synchronized (index) {
+                n = index.get(newsKey(item));
+            }
+            boolean relevant = n != null
+                    ? n.relevance.computeIfAbsent(symbol, s -> NewsRelevance.isRelevant(s, item.title(), item.summary()))
+                    : NewsRelevance.isRelevant(symbol, item.title(), item.summary());
+            if (relevant) filtered.add(item);
+        }
+        if (!filtered.isEmpty()) return filtered;
+        return newsItems.stream().limit(Math.min(5, newsItems.size())).toList();
+    }
+
+    public Verdict verdict(String symbol, NewsItem item) {
+        Verdict v = verdicts.getIfPresent(symbol + ":" + newsKey(item));
+        (v != null ? verdictHits : verdictMisses).incrementAndGet();
+        return v;
+    }
+
+    public void recordVerdict(String symbol, NewsItem item, Verdict verdict) {
+        verdicts.put(symbol + ":" + newsKey(item), verdict);
+    }
+
+    /**
+     * 去重键：归一化标题（小写、去标点空白）的哈希；标题为空时退化为 guid。
+     * 同一事件被转载（guid 不同）视为同一条；标题被修改视为新内容
+     */
+    public static String newsKey(NewsItem item) {
+        String title = item.title() == null ? "" : item.title().toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        String basis = title.isEmpty() ? "guid:" + item.guid() : title;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(basis.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void fetch(String coin) {
+        lastPollMs.put(coin, System.currentTimeMillis());
+        polls.incrementAndGet();
+        String raw = binanceRestClient.getCryptoNews(coin, FETCH_LIMIT, "EN");
+        List<NewsItem> items = parse(raw);
+        if (items.isEmpty()) return;
+        fetched.addAndGet(items.size());
+
+        List<String> keys = new ArrayList<>(items.size());
+        int fresh = 0;
+        synchronized (index) {
+            for (NewsItem item : items) {
+                String key = newsKey(item);
+                if (keys.contains(key)) continue;
+                keys.add(key);
+                if (index.containsKey(key)) continue;
+                IndexedNews n = new IndexedNews(item);
+                for (String symbol : QuantConstants.WATCH_SYMBOLS) {
+                    n.relevance.put(symbol, NewsRelevance.isRelevant(symbol, item.title(), item.summary()));
+                }
+                index.put(key, n);
+                fresh++;
+            }
+        }
+        latestByCoin.put(coin, List.copyOf(keys));
+        newItems.addAndGet(fresh);
+        log.info("[NewsFeed] coin={} 拉取{}条 新增{}条 索引{}条", coin, items.size(), fresh, index.size());
+    }
+
+    private static List<NewsItem> parse(String raw) {
+        if (raw == null || raw.isBlank()) return List.of();
+        try {
+            // byte模式解析，绕开fastjson2 char buffer扩容bug
+            JSONObject root = JSON.parseObject(raw.getBytes(StandardCharsets.UTF_8));
+            JSONArray data = root.getJSONArray("Data");
+            if (data == null || data.isEmpty()) return List.of();
+            List<NewsItem> items = new ArrayList<>(data.size());
+            for (int i = 0; i < data.size(); i++) {
+                JSONObject o = data.getJSONObject(i);
+                if (o == null) continue;
+                items.add(new NewsItem(o.getString("TITLE"), o.getString("BODY"),
+                        o.getString("SOURCE_DATA_SOURCE_KEY"), o.getString("GUID")));
+            }
+            return items;
+        } catch (Exception e) {
+            log.warn("[NewsFeed] 新闻解析失败: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static String coinOf(String symbol) {
+        return symbol.replace("USDT", "").replace("USDC", "");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("polls", polls.get());
+        m.put("fetched", fetched.get());
+        m.put("newItems", newItems.get());
+        m.put("verdictHits", verdictHits.get());
+        m.put("verdictMisses", verdictMisses.get());
+        return m;
+    }
+}
@@ -0,0 +1,121 @@
+package com.mawai.wiibservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mawai.wiibcommon.dto.OptionChainItemDTO;
+import com.mawai.wiibcommon.entity.OptionContract;
+import com.mawai.wiibservice.service.model.OptionChainGrid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 期权链批量定价：按股票整条链一次定价并按 (stockId, spot分, 分钟) 缓存，不在活跃链中的合约回退到单合约定价
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OptionChainPricer {
+
+    private final OptionContractService contractService;
+    private final OptionPricingService pricingService;
+    private final CacheService cacheService;
+    private final StockCacheService stockCacheService;
+
+    private final Cache<Long, List<OptionContract>> activeContractCache = Caffeine.newBuilder()
+            .maximumSize(500).expireAfterWrite(1, TimeUnit.MINUTES).build();
+
+    /** key = stockId:spot分:定价分钟 */
+    private final Cache<String, OptionChainGrid> gridCache = Caffeine.newBuilder()
+            .maximumSize(2000).expireAfterWrite(2, TimeUnit.MINUTES).build();
+
+    /**
+     * 用当前行情价获取期权链网格
+     */
+    public OptionChainGrid getGrid(Long stockId) {
+        return getGrid(stockId, resolveSpot(stockId));
+    }
+
+    /**
+     * 获取指定标的价格下的期权链网格
+     * @param spotPrice 标的价格（同一分钟内相同价格命中同一网格）
+     */
+    public OptionChainGrid getGrid(Long stockId, BigDecimal spotPrice) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        long spotCents = spotPrice.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        String key = stockId + ":" + spotCents + ":" + now;
+        return gridCache.get(key, k -> {
+            List<OptionContract> contracts = activeContractCache.get(stockId, contractService::getActiveContracts);
+            return OptionChainGrid.build(stockId, contracts, spotCents / 100.0, now);
+        });
+    }
+
+    /**
+     * 查表获取权利金，合约不在活跃链中时回退单合约定价
+     */
+    public BigDecimal premium(OptionContract contract, BigDecimal spotPrice) {
+        OptionChainGrid grid = getGrid(contract.getStockId(), spotPrice);
+        int idx = grid.indexOf(contract.getId());
+        if (idx >= 0) {
+            return grid.premium(idx);
+        }
+        return pricingService.calculatePremium(contract.getOptionType(), spotPrice, contract.getStrike(),
+                contract.getExpireAt(), contract.getSigma());
+    }
+
+    /**
+     * 带价格和Greeks的期权链
+     */
+    public List<OptionChainItemDTO> getChain(Long stockId) {
+        List<OptionContract> contracts = activeContractCache.get(stockId, contractService::getActiveContracts);
+        if (contracts.isEmpty()) return List.of();
+
+        OptionChainGrid grid = getGrid(stockId);
+        BigDecimal spot = BigDecimal.valueOf(grid.getSpot()).setScale(2, RoundingMode.HALF_UP);
+        List<OptionChainItemDTO> result = new ArrayList<>(contracts.size());
+        for (OptionContract c : contracts) {
+            OptionChainItemDTO dto = new OptionChainItemDTO();
+            dto.setContractId(c.getId());
+            dto.setStockId(c.getStockId());
+            dto.setOptionType(c.getOptionType());
+            dto.setStrike(c.getStrike());
+            dto.setExpireAt(c.getExpireAt());
+            dto.setSpotPrice(spot);
+            int idx = grid.indexOf(c.getId());
+            if (idx >= 0) {
+                dto.setPremium(grid.premium(idx));
+                dto.setDelta(scale(grid.delta(idx), 4));
+                dto.setGamma(scale(grid.gamma(idx), 6));
+                dto.setTheta(scale(grid.theta(idx), 4));
+                dto.setVega(scale(grid.vega(idx), 4));
+            }
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private BigDecimal resolveSpot(Long stockId) {
+        BigDecimal price = cacheService.getCurrentPrice(stockId);
+        if (price == null) {
+            Map<String, String> stockStatic = stockCacheService.getStockStatic(stockId);
+            if (stockStatic != null) {
+                price = new BigDecimal(stockStatic.getOrDefault("prevClose", "0"));
+            }
+        }
+        return price != null ? price : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal scale(double v, int scale) {
+        if (!Double.isFinite(v)) return BigDecimal.ZERO;
+        return BigDecimal.valueOf(v).setScale(scale, RoundingMode.HALF_UP);
+    }
+}
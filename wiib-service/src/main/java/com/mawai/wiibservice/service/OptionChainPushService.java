@@ -0,0 +1,98 @@
+package com.mawai.wiibservice.service;
+
+import com.alibaba.fastjson2.JSON;
+import com.mawai.wiibcommon.dto.OptionChainItemDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 期权链推送（/topic/option/chain/{stockId}）
+ * <p>
+ * 与股票行情不同，链推送只针对有订阅的股票：每个节点记录本地STOMP订阅，
+ * 每轮只给本地订阅者定价并直接推送，不走Redis广播。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OptionChainPushService {
+
+    private static final String CHAIN_TOPIC_PREFIX = "/topic/option/chain/";
+
+    private final OptionChainPricer chainPricer;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    /** sessionId -> (subscriptionId -> stockId) */
+    private final Map<String, Map<String, Long>> sessionSubs = new ConcurrentHashMap<>();
+    /** stockId -> 本地订阅数 */
+    private final Map<Long, Integer> subscriberCount = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String dest = accessor.getDestination();
+        if (dest == null || !dest.startsWith(CHAIN_TOPIC_PREFIX)) return;
+
+        Long stockId;
+        try {
+            stockId = Long.valueOf(dest.substring(CHAIN_TOPIC_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        Long prev = sessionSubs.computeIfAbsent(accessor.getSessionId(), k -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), stockId);
+        if (prev == null) {
+            subscriberCount.merge(stockId, 1, Integer::sum);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, Long> subs = sessionSubs.get(accessor.getSessionId());
+        if (subs == null) return;
+        Long stockId = subs.remove(accessor.getSubscriptionId());
+        if (stockId != null) {
+            decrement(stockId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Long> subs = sessionSubs.remove(event.getSessionId());
+        if (subs != null) {
+            subs.values().forEach(this::decrement);
+        }
+    }
+
+    /**
+     * 给本节点有订阅的股票推送期权链（由行情推送任务每轮调用）
+     */
+    public void pushSubscribedChains() {
+        if (subscriberCount.isEmpty()) return;
+        for (Long stockId : subscriberCount.keySet()) {
+            try {
+                List<OptionChainItemDTO> chain = chainPricer.getChain(stockId);
+                if (chain.isEmpty()) continue;
+                messagingTemplate.convertAndSend(CHAIN_TOPIC_PREFIX + stockId, JSON.toJSONString(chain));
+            } catch (Exception e) {
+                log.error("推送期权链失败: {}", stockId, e);
+            }
+        }
+        log.debug("推送期权链完成，共{}支股票", subscriberCount.size());
+    }
+
+    private void decrement(Long stockId) {
+        subscriberCount.computeIfPresent(stockId, (k, v) -> v > 1 ? v - 1 : null);
+    }
+}
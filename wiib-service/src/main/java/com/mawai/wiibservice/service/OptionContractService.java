@@ -5,6 +5,7 @@ import com.mawai.wiibcommon.entity.OptionContract;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OptionContractService extends IService<OptionContract> {
@@ -42,6 +43,13 @@ public interface OptionContractService extends IService<OptionContract> {
      */
     void settleContract(Long contractId);
 
+    /**
+     * 批量标记合约已结算（CAS：仅ACTIVE生效）
+     * @param contractIds 合约ID
+     * @return 本次实际标记的合约数
+     */
+    int settleContracts(Collection<Long> contractIds);
+
     /**
      * 获取所有到期待结算的合约
      * @return 合约列表
@@ -5,6 +5,7 @@ import com.mawai.wiibcommon.dto.OptionPositionDTO;
 import com.mawai.wiibcommon.entity.OptionPosition;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface OptionPositionService extends IService<OptionPosition> {
@@ -50,4 +51,17 @@ public interface OptionPositionService extends IService<OptionPosition> {
      * @param positionId 持仓ID
      */
     void clearPosition(Long positionId);
+
+    /**
+     * 批量清空持仓（到期结算，分块执行）
+     * @param positionIds 持仓ID
+     */
+    void clearPositions(List<Long> positionIds);
+
+    /**
+     * 筛出仍有持仓的合约
+     * @param contractIds 合约ID
+     * @return 存在 quantity > 0 持仓的合约ID
+     */
+    List<Long> getContractIdsWithOpenInterest(Collection<Long> contractIds);
 }
@@ -0,0 +1,393 @@
+package com.mawai.wiibservice.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mawai.wiibcommon.entity.*;
+import com.mawai.wiibcommon.enums.ErrorCode;
+import com.mawai.wiibcommon.exception.BizException;
+import com.mawai.wiibservice.mapper.*;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 用户资产读模型：按用户缓存持仓“数量/成本”投影，估值时只读进程内行情（分时磁带/币价本地缓存）
+ * 由 {@code PortfolioWriteInterceptor} 拦截写SQL驱动失效，{@link #reconcile()} 每分钟抽查比对并统计漂移。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PortfolioProjection implements MessageListener {
+
+    private static final String INVALIDATE_CHANNEL = "portfolio:invalidate";
+    private static final String ALL = "*";
+    private static final long ENTRY_TTL_MINUTES = 10;
+    /** 单次对账最多比对的用户数（每人约7条查询） */
+    private static final int RECONCILE_BATCH = 500;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong fullInvalidations = new AtomicLong();
+    private final AtomicLong drifts = new AtomicLong();
+
+    private final UserMapper userMapper;
+    private final PositionMapper positionMapper;
+    private final StockMapper stockMapper;
+    private final CryptoPositionMapper cryptoPositionMapper;
+    private final SettlementMapper settlementMapper;
+    private final CryptoOrderMapper cryptoOrderMapper;
+    private final FuturesPositionMapper futuresPositionMapper;
+    private final OptionPositionMapper optionPositionMapper;
+    private final OptionContractMapper optionContractMapper;
+    private final CacheService cacheService;
+    private final StockCacheService stockCacheService;
+    private final OptionChainPricer chainPricer;
+    private final CryptoPositionService cryptoPositionService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final Cache<Long, Entry> cache = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterWrite(ENTRY_TTL_MINUTES, TimeUnit.MINUTES)
+            .build();
+    /** 行ID → 用户ID，供只带主键的写SQL反查归属（不同表ID可能重叠，多失效无害）；须比投影条目活得久 */
+    private final Cache<Long, Long> rowOwners = Caffeine.newBuilder()
+            .maximumSize(200_000)
+            .expireAfterWrite(ENTRY_TTL_MINUTES + 5, TimeUnit.MINUTES)
+            .build();
+    private final AtomicLong generation = new AtomicLong();
+
+    public record StockHolding(Long stockId, int quantity, BigDecimal avgCost, BigDecimal fallbackPrice) {
+    }
+
+    public record CryptoHolding(String symbol, BigDecimal quantity) {
+    }
+
+    public record FuturesHolding(Long positionId, String symbol, String side,
+                                 BigDecimal entryPrice, BigDecimal quantity, BigDecimal margin) {
+    }
+
+    public record OptionHolding(Long positionId, OptionContract contract, int quantity) {
+    }
+
+    /**
+     * 用户持仓投影（只含数量/成本/金额，不含行情）
+     */
+    public record Holdings(User user,
+                           List<StockHolding> stocks,
+                           List<CryptoHolding> cryptos,
+                           List<Long> pendingSettlementIds,
+                           BigDecimal pendingSettlement,
+                           BigDecimal cryptoSettling,
+                           List<FuturesHolding> futures,
+                           List<OptionHolding> options) {
+    }
+
+    /**
+     * 估值结果
+     */
+    public record Valuation(User user,
+                            BigDecimal frozenBalance,
+                            BigDecimal marketValue,
+                            BigDecimal pendingSettlement,
+                            BigDecimal futuresValue,
+                            BigDecimal optionValue,
+                            BigDecimal marginLoanPrincipal,
+                            BigDecimal marginInterestAccrued,
+                            BigDecimal totalAssets) {
+    }
+
+    private record Entry(Holdings holdings, long generation) {
+    }
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 按当前行情给用户持仓估值；用户不存在抛 USER_NOT_FOUND
+     */
+    public Valuation valuate(Long userId) {
+        return valuate(holdings(userId));
+    }
+
+    public Holdings holdings(Long userId) {
+        // 事务内可能读到本事务未提交的写，不进投影
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return load(userId);
+        }
+        long gen = generation.get();
+        Entry entry = cache.getIfPresent(userId);
+        if (entry != null && entry.generation() == gen) {
+            hits.incrementAndGet();
+            return entry.holdings();
+        }
+        if (entry != null) cache.invalidate(userId);
+        entry = cache.get(userId, id -> new Entry(load(id), gen));
+        return entry.holdings();
+    }
+
+    public Valuation valuate(Holdings h) {
+        User user = h.user();
+
+        // 股票：分时磁带现价，无行情时用加载时的开盘价/昨收
+        BigDecimal marketValue = BigDecimal.ZERO;
+        for (StockHolding s : h.stocks()) {
+            BigDecimal price = cacheService.getCurrentPrice(s.stockId());
+            if (price == null) price = s.fallbackPrice();
+            if (price == null) continue;
+            marketValue = marketValue.add(price.multiply(BigDecimal.valueOf(s.quantity())));
+        }
+
+        if (!h.cryptos().isEmpty()) {
+            Map<String, BigDecimal> priceMap = cryptoPositionService.fetchCryptoPriceMap();
+            BigDecimal cryptoValue = BigDecimal.ZERO;
+            for (CryptoHolding c : h.cryptos()) {
+                BigDecimal price = priceMap.get(c.symbol());
+                if (price != null) cryptoValue = cryptoValue.add(price.multiply(c.quantity()));
+            }
+            marketValue = marketValue.add(cryptoValue.setScale(2, RoundingMode.HALF_UP));
+        }
+
+        BigDecimal pendingSettlement = h.pendingSettlement().add(h.cryptoSettling());
+
+        // 合约：保证金 + 未实现盈亏（标记价）
+        BigDecimal futuresValue = BigDecimal.ZERO;
+        for (FuturesHolding f : h.futures()) {
+            BigDecimal markPrice = cacheService.getMarkPrice(f.symbol());
+            if (markPrice == null) markPrice = cacheService.getCryptoPrice(f.symbol());
+            BigDecimal unrealizedPnl = "LONG".equals(f.side())
+                    ? markPrice.subtract(f.entryPrice()).multiply(f.quantity())
+                    : f.entryPrice().subtract(markPrice).multiply(f.quantity());
+            futuresValue = futuresValue.add(f.margin()).add(unrealizedPnl);
+        }
+
+        BigDecimal optionValue = BigDecimal.ZERO;
+        for (OptionHolding o : h.options()) {
+            OptionContract contract = o.contract();
+            BigDecimal spotPrice = cacheService.getCurrentPrice(contract.getStockId());
+            if (spotPrice == null) {
+                Map<String, String> stockStatic = stockCacheService.getStockStatic(contract.getStockId());
+                if (stockStatic != null) spotPrice = new BigDecimal(stockStatic.getOrDefault("prevClose", "0"));
+            }
+            BigDecimal premium = chainPricer.premium(contract, spotPrice != null ? spotPrice : BigDecimal.ZERO);
+            optionValue = optionValue.add(premium.multiply(BigDecimal.valueOf(o.quantity())));
+        }
+
+        BigDecimal frozenBalance = user.getFrozenBalance() != null ? user.getFrozenBalance() : BigDecimal.ZERO;
+        BigDecimal marginLoanPrincipal = user.getMarginLoanPrincipal() != null ? user.getMarginLoanPrincipal() : BigDecimal.ZERO;
+        BigDecimal marginInterestAccrued = user.getMarginInterestAccrued() != null ? user.getMarginInterestAccrued() : BigDecimal.ZERO;
+
+        BigDecimal totalAssets = user.getBalance()
+                .add(frozenBalance)
+                .add(marketValue)
+                .add(pendingSettlement)
+                .add(futuresValue)
+                .add(optionValue)
+                .subtract(marginLoanPrincipal)
+                .subtract(marginInterestAccrued);
+        return new Valuation(user, frozenBalance, marketValue, pendingSettlement, futuresValue, optionValue,
+                marginLoanPrincipal, marginInterestAccrued, totalAssets);
+    }
+
+    // ==================== 失效 ====================
+
+    /**
+     * 本地失效：ids 同时按用户ID和行ID（反查归属）处理；all=true 时整体失效
+     */
+    public void invalidateLocal(Collection<Long> ids, boolean all) {
+        if (all) {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+            fullInvalidations.incrementAndGet();
+            return;
+        }
+        for (Long id : ids) {
+            cache.invalidate(id);
+            Long owner = rowOwners.getIfPresent(id);
+            if (owner != null) cache.invalidate(owner);
+        }
+        invalidations.addAndGet(ids.size());
+    }
+
+    /**
+     * 本地失效并通知其他节点（写事务结束后调用）
+     */
+    public void invalidate(Collection<Long> ids, boolean all) {
+        invalidateLocal(ids, all);
+        String payload = all ? ALL : ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        if (payload.isEmpty()) return;
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, payload);
+        } catch (Exception e) {
+            log.warn("资产投影失效广播失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String payload = new String(message.getBody(), StandardCharsets.UTF_8).replace("\"", "");
+        if (ALL.equals(payload)) {
+            invalidateLocal(List.of(), true);
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        for (String s : payload.split(",")) {
+            if (!s.isBlank()) ids.add(Long.parseLong(s.trim()));
+        }
+        invalidateLocal(ids, false);
+    }
+
+    // ==================== 对账 ====================
+
+    /**
+     * 取缓存中写入最早的 {@value #RECONCILE_BATCH} 个投影，用库里的最新状态逐一比对，不一致则替换并计入漂移数
+     * @return 本次发现的漂移数
+     */
+    public int reconcile() {
+        int checked = 0;
+        int drifted = 0;
+        Map<Long, Entry> oldest = cache.policy().expireAfterWrite()
+                .map(p -> p.oldest(RECONCILE_BATCH))
+                .orElseGet(Map::of);
+        for (Map.Entry<Long, Entry> e : oldest.entrySet()) {
+            Long userId = e.getKey();
+            Entry cached = e.getValue();
+            Holdings fresh;
+            try {
+                fresh = load(userId);
+            } catch (BizException ex) {
+                cache.invalidate(userId);
+                continue;
+            }
+            checked++;
+            if (!fresh.equals(cached.holdings())
+                    && cache.asMap().replace(userId, cached, new Entry(fresh, cached.generation()))) {
+                drifted++;
+                log.warn("资产投影漂移已修正 userId={}", userId);
+            }
+        }
+        drifts.addAndGet(drifted);
+        log.info("资产投影对账完成 checked={} drifted={}", checked, drifted);
+        return drifted;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("cachedUsers", cache.estimatedSize());
+        m.put("hits", hits.get());
+        m.put("loads", loads.get());
+        m.put("invalidations", invalidations.get());
+        m.put("fullInvalidations", fullInvalidations.get());
+        m.put("drifts", drifts.get());
+        return m;
+    }
+
+    // ==================== 加载 ====================
+
+    private Holdings load(Long userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            throw new BizException(ErrorCode.USER_NOT_FOUND);
+        }
+        loads.incrementAndGet();
+
+        // 总持仓(quantity+frozenQuantity)
+        List<Position> positions = positionMapper.selectList(new LambdaQueryWrapper<Position>()
+                .eq(Position::getUserId, userId)
+                .and(w -> w.gt(Position::getQuantity, 0).or().gt(Position::getFrozenQuantity, 0)));
+        List<StockHolding> stocks = new ArrayList<>(positions.size());
+        if (!positions.isEmpty()) {
+            Set<Long> stockIds = positions.stream().map(Position::getStockId).collect(Collectors.toSet());
+            Map<Long, Stock> stockById = stockMapper.selectList(new LambdaQueryWrapper<Stock>().in(Stock::getId, stockIds))
+                    .stream().collect(Collectors.toMap(Stock::getId, s -> s));
+            for (Position p : positions) {
+                Stock stock = stockById.get(p.getStockId());
+                if (stock == null) continue;
+                int total = p.getQuantity() + (p.getFrozenQuantity() != null ? p.getFrozenQuantity() : 0);
+                // 非交易时段用开盘价（AI预生成）
+                BigDecimal fallback = stock.getOpen() != null ? stock.getOpen() : stock.getPrevClose();
+                stocks.add(new StockHolding(stock.getId(), total, p.getAvgCost(), fallback));
+                rowOwners.put(p.getId(), userId);
+            }
+        }
+
+        List<CryptoHolding> cryptos = new ArrayList<>();
+        for (CryptoPosition cp : cryptoPositionMapper.selectList(new LambdaQueryWrapper<CryptoPosition>()
+                .eq(CryptoPosition::getUserId, userId)
+                .and(w -> w.gt(CryptoPosition::getQuantity, 0).or().gt(CryptoPosition::getFrozenQuantity, 0)))) {
+            cryptos.add(new CryptoHolding(cp.getSymbol(), cp.getTotalQuantity()));
+            rowOwners.put(cp.getId(), userId);
+        }
+
+        List<Long> settlementIds = new ArrayList<>();
+        BigDecimal pendingSettlement = BigDecimal.ZERO;
+        for (Settlement s : settlementMapper.selectList(new LambdaQueryWrapper<Settlement>()
+                .eq(Settlement::getUserId, userId)
+                .eq(Settlement::getStatus, "PENDING")
+                .orderByAsc(Settlement::getSettleTime))) {
+            settlementIds.add(s.getId());
+            pendingSettlement = pendingSettlement.add(s.getAmount());
+            rowOwners.put(s.getId(), userId);
+        }
+        // 待结算币单逐行取出：SETTLING→FILLED 的CAS只带订单ID，需登记归属
+        BigDecimal cryptoSettling = BigDecimal.ZERO;
+        for (CryptoOrder o : cryptoOrderMapper.selectList(new LambdaQueryWrapper<CryptoOrder>()
+                .select(CryptoOrder::getId, CryptoOrder::getFilledAmount, CryptoOrder::getCommission)
+                .eq(CryptoOrder::getUserId, userId)
+                .eq(CryptoOrder::getStatus, "SETTLING"))) {
+            rowOwners.put(o.getId(), userId);
+            // 与 SUM(filled_amount - commission) 一致：任一为空的行不计
+            if (o.getFilledAmount() != null && o.getCommission() != null) {
+                cryptoSettling = cryptoSettling.add(o.getFilledAmount().subtract(o.getCommission()));
+            }
+        }
+
+        List<FuturesHolding> futures = new ArrayList<>();
+        for (FuturesPosition fp : futuresPositionMapper.selectList(new LambdaQueryWrapper<FuturesPosition>()
+                .eq(FuturesPosition::getUserId, userId)
+                .eq(FuturesPosition::getStatus, "OPEN"))) {
+            futures.add(new FuturesHolding(fp.getId(), fp.getSymbol(), fp.getSide(),
+                    fp.getEntryPrice(), fp.getQuantity(), fp.getMargin()));
+            rowOwners.put(fp.getId(), userId);
+        }
+
+        List<OptionHolding> options = new ArrayList<>();
+        List<OptionPosition> optionPositions = optionPositionMapper.selectList(new LambdaQueryWrapper<OptionPosition>()
+                .eq(OptionPosition::getUserId, userId)
+                .gt(OptionPosition::getQuantity, 0));
+        if (!optionPositions.isEmpty()) {
+            Map<Long, OptionContract> contracts = optionContractMapper.selectByIds(
+                            optionPositions.stream().map(OptionPosition::getContractId).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(OptionContract::getId, c -> c));
+            for (OptionPosition op : optionPositions) {
+                OptionContract contract = contracts.get(op.getContractId());
+                if (contract == null) continue;
+                options.add(new OptionHolding(op.getId(), contract, op.getQuantity()));
+                rowOwners.put(op.getId(), userId);
+            }
+        }
+
+        return new Holdings(user, List.copyOf(stocks), List.copyOf(cryptos), List.copyOf(settlementIds),
+                pendingSettlement, cryptoSettling, List.copyOf(futures), List.copyOf(options));
+    }
+}
@@ -37,7 +37,7 @@ public class RankingService {
     private final FuturesPositionMapper futuresPositionMapper;
     private final OptionPositionService optionPositionService;
     private final OptionContractMapper optionContractMapper;
-    private final OptionPricingService optionPricingService;
+    private final OptionChainPricer optionChainPricer;
 
     private static final String RANKING_KEY = "ranking:top";
     private static final int TOP_N = 50;
@@ -180,9 +180,7 @@ public class RankingService {
                     OptionContract contract = optionContractMap.get(op.getContractId());
                     if (contract == null) continue;
                     BigDecimal spotPrice = priceMap.getOrDefault(contract.getStockId(), BigDecimal.ZERO);
-                    BigDecimal premium = optionPricingService.calculatePremium(
-                            contract.getOptionType(), spotPrice, contract.getStrike(),
-                            contract.getExpireAt(), contract.getSigma());
+                    BigDecimal premium = optionChainPricer.premium(contract, spotPrice);
                     optionValue = optionValue.add(premium.multiply(BigDecimal.valueOf(op.getQuantity())));
                 }
             }
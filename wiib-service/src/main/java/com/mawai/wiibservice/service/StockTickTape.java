@@ -0,0 +1,200 @@
+package com.mawai.wiibservice.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.mawai.wiibcommon.entity.PriceTickDaily;
+import com.mawai.wiibcommon.util.TickSeriesCodec;
+import com.mawai.wiibcommon.util.TickTimeUtil;
+import com.mawai.wiibservice.mapper.PriceTickDailyMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * 进程内分时磁带：每个节点持有当日每只股票的 float[1440] 价格路径及按分钟聚合的高低价，只读不可变
+ * 只在开盘后提供数据，开盘前仍走原来的缓存；路径里没有成交量，K线只含OHLC。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StockTickTape {
+
+    private static final int TICKS_PER_MINUTE = 6;
+    private static final int MINUTES = TickTimeUtil.TOTAL_TICKS / TICKS_PER_MINUTE;
+    private static final long RETRY_MILLIS = 60_000;
+
+    private final PriceTickDailyMapper priceTickDailyMapper;
+
+    private volatile LocalDate tapeDate;
+    private volatile Map<Long, DayTape> tapes = Map.of();
+    private volatile long lastLoadAttempt;
+
+    /**
+     * 单只股票一天的不可变磁带
+     */
+    public static final class DayTape {
+        private final float[] prices;
+        private final float[] minuteHigh = new float[MINUTES];
+        private final float[] minuteLow = new float[MINUTES];
+        /** 截至第 m 分钟（含）的最高/最低 */
+        private final float[] prefixHigh = new float[MINUTES];
+        private final float[] prefixLow = new float[MINUTES];
+        private final BigDecimal prevClose;
+
+        DayTape(float[] prices, BigDecimal prevClose) {
+            this.prices = prices;
+            this.prevClose = prevClose;
+            for (int m = 0; m < MINUTES; m++) {
+                float hi = prices[m * TICKS_PER_MINUTE];
+                float lo = hi;
+                for (int i = m * TICKS_PER_MINUTE + 1; i < (m + 1) * TICKS_PER_MINUTE; i++) {
+                    hi = Math.max(hi, prices[i]);
+                    lo = Math.min(lo, prices[i]);
+                }
+                minuteHigh[m] = hi;
+                minuteLow[m] = lo;
+                prefixHigh[m] = m == 0 ? hi : Math.max(prefixHigh[m - 1], hi);
+                prefixLow[m] = m == 0 ? lo : Math.min(prefixLow[m - 1], lo);
+            }
+        }
+
+        public BigDecimal price(int index) {
+            return toDecimal(prices[index]);
+        }
+
+        public BigDecimal open() {
+            return toDecimal(prices[0]);
+        }
+
+        public BigDecimal prevClose() {
+            return prevClose;
+        }
+
+        /** [0, index] 的最高价 */
+        public BigDecimal highUpTo(int index) {
+            int m = index / TICKS_PER_MINUTE;
+            float hi = m > 0 ? prefixHigh[m - 1] : prices[0];
+            for (int i = m * TICKS_PER_MINUTE; i <= index; i++) hi = Math.max(hi, prices[i]);
+            return toDecimal(hi);
+        }
+
+        /** [0, index] 的最低价 */
+        public BigDecimal lowUpTo(int index) {
+            int m = index / TICKS_PER_MINUTE;
+            float lo = m > 0 ? prefixLow[m - 1] : prices[0];
+            for (int i = m * TICKS_PER_MINUTE; i <= index; i++) lo = Math.min(lo, prices[i]);
+            return toDecimal(lo);
+        }
+
+        /**
+         * 截至 endIndex 的K线，按 intervalMinutes 分钟一根，最后一根可能未走完
+         * @return 每根 {起始tick下标, open, high, low, close}
+         */
+        public List<float[]> candles(int intervalMinutes, int endIndex) {
+            int ticksPer = intervalMinutes * TICKS_PER_MINUTE;
+            List<float[]> result = new ArrayList<>(endIndex / ticksPer + 1);
+            for (int from = 0; from <= endIndex; from += ticksPer) {
+                int to = Math.min(from + ticksPer - 1, endIndex);
+                float hi = prices[from];
+                float lo = prices[from];
+                int i = from;
+                while (i <= to) {
+                    // 整分钟直接用分钟聚合，零头逐tick
+                    if (i % TICKS_PER_MINUTE == 0 && i + TICKS_PER_MINUTE - 1 <= to) {
+                        int m = i / TICKS_PER_MINUTE;
+                        hi = Math.max(hi, minuteHigh[m]);
+                        lo = Math.min(lo, minuteLow[m]);
+                        i += TICKS_PER_MINUTE;
+                    } else {
+                        hi = Math.max(hi, prices[i]);
+                        lo = Math.min(lo, prices[i]);
+                        i++;
+                    }
+                }
+                result.add(new float[]{from, prices[from], hi, lo, prices[to]});
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 用已查出的当日分时装载磁带（整体替换）；昨收取上一个交易日分时的最后一个价，
+     * 不读 stock 行（收盘处理前后它会被改写，装载时机不同读到的值不同）
+     */
+    public void load(LocalDate date, Collection<PriceTickDaily> dailies) {
+        Map<Long, BigDecimal> prevCloses = prevCloses(date);
+        Map<Long, DayTape> next = new HashMap<>(dailies.size() * 4 / 3 + 1);
+        for (PriceTickDaily daily : dailies) {
+            int[] cents = daily.priceCents();
+            if (cents == null || cents.length != TickTimeUtil.TOTAL_TICKS) continue;
+            float[] path = new float[cents.length];
+            for (int i = 0; i < path.length; i++) path[i] = cents[i] / 100f;
+            next.put(daily.getStockId(), new DayTape(path, prevCloses.get(daily.getStockId())));
+        }
+        tapes = Map.copyOf(next);
+        tapeDate = date;
+        log.info("分时磁带装载完成: {} 共{}只股票", date, next.size());
+    }
+
+    /**
+     * 今日磁带，未生成/未装载返回 null（调用方走原缓存）；调用方需先确认 {@link #currentIndex()} &gt;= 0
+     */
+    public DayTape today(Long stockId) {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(tapeDate)) {
+            loadFromDb(today);
+            if (!today.equals(tapeDate)) return null;
+        }
+        return tapes.get(stockId);
+    }
+
+    /** 当前时刻对应的有效tick下标，开盘前为 -1 */
+    public static int currentIndex() {
+        return TickTimeUtil.effectiveEndIndex(LocalTime.now());
+    }
+
+    public static String indexTime(int index) {
+        return TickTimeUtil.indexToTime(index).toString();
+    }
+
+    private synchronized void loadFromDb(LocalDate date) {
+        if (date.equals(tapeDate) || System.currentTimeMillis() - lastLoadAttempt < RETRY_MILLIS) return;
+        lastLoadAttempt = System.currentTimeMillis();
+        try {
+            List<PriceTickDaily> dailies = priceTickDailyMapper.selectList(
+                    new LambdaQueryWrapper<PriceTickDaily>().eq(PriceTickDaily::getTradeDate, date));
+            if (dailies.isEmpty()) return;
+            load(date, dailies);
+        } catch (Exception e) {
+            log.warn("懒加载分时磁带失败: {}", date, e);
+        }
+    }
+
+    /** 上一个有分时数据的交易日，每只股票的最后一个价；没有则为空（调用方走原缓存） */
+    private Map<Long, BigDecimal> prevCloses(LocalDate date) {
+        PriceTickDaily latest = priceTickDailyMapper.selectOne(new LambdaQueryWrapper<PriceTickDaily>()
+                .select(PriceTickDaily::getTradeDate)
+                .lt(PriceTickDaily::getTradeDate, date)
+                .orderByDesc(PriceTickDaily::getTradeDate)
+                .last("LIMIT 1"));
+        if (latest == null) return Map.of();
+        Map<Long, BigDecimal> prevCloses = new HashMap<>();
+        for (PriceTickDaily prev : priceTickDailyMapper.selectList(
+                new LambdaQueryWrapper<PriceTickDaily>().eq(PriceTickDaily::getTradeDate, latest.getTradeDate()))) {
+            int[] cents = prev.priceCents();
+            if (cents != null && cents.length > 0) {
+                prevCloses.put(prev.getStockId(), TickSeriesCodec.toPrice(cents[cents.length - 1]));
+            }
+        }
+        return prevCloses;
+    }
+
+    private static BigDecimal toDecimal(float v) {
+        return new BigDecimal(Float.toString(v)).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -5,6 +5,7 @@ import com.mawai.wiibcommon.dto.UserDTO;
 import com.mawai.wiibcommon.entity.User;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 /**
  * 用户服务接口
@@ -30,6 +31,14 @@ public interface UserService extends IService<User> {
      */
     void updateBalance(Long userId, BigDecimal amount);
 
+    /**
+     * 批量入账（结算等批处理场景，按用户聚合后分块执行）
+     *
+     * @param credits userId -> 入账金额（正数）
+     * @return 实际更新的用户数
+     */
+    int batchAddBalance(Map<Long, BigDecimal> credits);
+
     /**
      * 冻结余额（限价买单时调用）
      * 从可用余额转移到冻结余额
@@ -1,6 +1,7 @@
 package com.mawai.wiibservice.service;
 
 import com.mawai.wiibcommon.dto.VideoPokerGameStateDTO;
+import com.mawai.wiibcommon.dto.VideoPokerHoldEvDTO;
 import com.mawai.wiibcommon.dto.VideoPokerStatusDTO;
 
 import java.math.BigDecimal;
@@ -13,4 +14,7 @@ public interface VideoPokerService {
     VideoPokerGameStateDTO bet(Long userId, BigDecimal amount);
 
     VideoPokerGameStateDTO draw(Long userId, List<Integer> held);
+
+    /** 当前手牌32种HOLD方式的精确期望（按期望降序） */
+    List<VideoPokerHoldEvDTO> holdAdvice(Long userId);
 }
@@ -3,6 +3,7 @@ package com.mawai.wiibservice.service.impl;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.mawai.wiibservice.agent.config.LlmGateway;
 import com.mawai.wiibservice.config.AiModelConfig;
 import com.mawai.wiibservice.service.AiService;
 import lombok.RequiredArgsConstructor;
@@ -27,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class AiServiceImpl implements AiService {
 
     private final AiModelConfig aiModelConfig;
+    private final LlmGateway llmGateway;
     private final ConcurrentHashMap<String, WebClient> webClientCache = new ConcurrentHashMap<>();
 
     @Override
@@ -74,7 +76,11 @@ public class AiServiceImpl implements AiService {
 
         for (int i = 0; i <= maxRetries; i++) {
             try {
-                return callAi(provider, prompt);
+                // 行情生成属后台批处理：与用同一API Key的Agent共用通道，计入该Key的并发与token预算，BATCH优先级最后出队
+                return llmGateway.execute(LlmGateway.providerKey(provider.getBaseUrl(), provider.getApiKey()),
+                        LlmGateway.Priority.BATCH, prompt.length(), () -> callAi(provider, prompt));
+            } catch (LlmGateway.ShedException e) {
+                throw e;
             } catch (Exception e) {
                 lastException = e;
                 if (i < maxRetries) {
@@ -10,7 +10,9 @@ import com.mawai.wiibservice.mapper.BlackjackAccountMapper;
 import com.mawai.wiibservice.mapper.BlackjackConvertLogMapper;
 import com.mawai.wiibservice.service.BlackjackService;
 import com.mawai.wiibservice.service.CacheService;
+import com.mawai.wiibservice.service.GameRngService;
 import com.mawai.wiibservice.service.UserService;
+import com.mawai.wiibservice.service.model.BlackjackRules;
 import com.mawai.wiibservice.util.GameLockExecutor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -19,7 +21,6 @@ import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.security.SecureRandom;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -43,6 +44,7 @@ public class BlackjackServiceImpl implements BlackjackService {
     private final CacheService cacheService;
     private final UserService userService;
     private final GameLockExecutor gameLock;
+    private final GameRngService gameRngService;
 
     /** 用户初始积分，同时也是每日保底重置目标值。 */
     private static final long INITIAL_CHIPS = 20_000L;
@@ -52,9 +54,6 @@ public class BlackjackServiceImpl implements BlackjackService {
     private static final long MIN_BET = 100L;
     /** 单次下注最大积分。 */
     private static final long MAX_BET = 10_000L;
-    /** 一局牌靴使用的副数（当前为单副牌）。 */
-    private static final int SHOE_DECKS = 1;
-    private static final Random RANDOM = new SecureRandom();
 
     /** 每日积分池总额度。 */
     private static final long DAILY_POOL = 400_000L;
@@ -65,10 +64,6 @@ public class BlackjackServiceImpl implements BlackjackService {
     private static final String LK = "blackjack:user:";
     private static final long SESSION_TTL_HOURS = 4;
 
-    /** 牌面点数字符集合（T 表示 10）。 */
-    private static final String[] RANKS = {"A", "2", "3", "4", "5", "6", "7", "8", "9", "T", "J", "Q", "K"};
-    /** 花色字符集合：红桃/方块/梅花/黑桃。 */
-    private static final String[] SUITS = {"H", "D", "C", "S"};
     /** 庄家暗牌在前端可见态中的占位符。 */
     private static final String HIDDEN_CARD = "??";
 
@@ -118,6 +113,10 @@ public class BlackjackServiceImpl implements BlackjackService {
         private long insuranceBet;
         /** 当前牌局阶段（PLAYER_TURN / SETTLED）。 */
         private String phase;
+        /** 本局服务端种子（结算后才下发）。 */
+        private String serverSeed;
+        /** 服务端种子的 SHA-256 承诺值（开局即下发）。 */
+        private String seedHash;
 
         /** 是否仍处于首决策窗口（用于约束保险购买时机）。 */
         private boolean firstDecisionRound;
@@ -147,7 +146,8 @@ public class BlackjackServiceImpl implements BlackjackService {
 
     @Override
     public BlackjackStatusDTO getStatus(Long userId) {
-        return gameLock.executeInLock(LK, userId, () -> {
+        // 可能建账户、做每日重置（写库），按写动作走租约 + 事务
+        return gameLock.executeInLockTx(LK, userId, () -> {
             BlackjackAccount account = getOrCreateAccount(userId);
 
             // 仅在无活动牌局时执行每日重置，避免跨天中途套利。
@@ -198,8 +198,11 @@ public class BlackjackServiceImpl implements BlackjackService {
             account.setUpdatedAt(LocalDateTime.now());
             accountMapper.updateById(account);
 
+            GameRngService.Round round = gameRngService.nextRound(GameRngService.Kind.BLACKJACK_SHOE);
             BlackjackSession session = new BlackjackSession();
-            session.setShoe(createShoe());
+            session.setShoe(toCards(round.outcome()));
+            session.setServerSeed(round.serverSeed());
+            session.setSeedHash(round.seedHash());
             session.setShoeIndex(0);
             session.setBetPerHand(amount);
             session.setPhase(PHASE_PLAYER_TURN);
@@ -600,7 +603,6 @@ public class BlackjackServiceImpl implements BlackjackService {
         session.setPhase(PHASE_SETTLED);
 
         int dealerScore = bestScore(session.getDealerCards());
-        boolean dealerBust = dealerScore > 21;
         boolean dealerBJ = isBlackjack(session.getDealerCards());
 
         BlackjackAccount account = getAccount(userId);
@@ -614,41 +616,11 @@ public class BlackjackServiceImpl implements BlackjackService {
             int playerScore = bestScore(hand.getCards());
             boolean playerBJ = isBlackjack(hand.getCards());
 
-            String resultType;
-            long payout;
-            long net;
-
-            if (hand.isBusted()) {
-                resultType = "LOSE";
-                payout = 0;
-                net = -hand.getBet();
-            } else if (playerBJ) {
-                if (dealerBJ) {
-                    resultType = "PUSH";
-                    payout = hand.getBet();
-                    net = 0;
-                } else {
-                    resultType = "BLACKJACK";
-                    payout = hand.getBet() + hand.getBet() * 3 / 2;
-                    net = hand.getBet() * 3 / 2;
-                }
-            } else if (dealerBust) {
-                resultType = "WIN";
-                payout = hand.getBet() * 2;
-                net = hand.getBet();
-            } else if (playerScore > dealerScore) {
-                resultType = "WIN";
-                payout = hand.getBet() * 2;
-                net = hand.getBet();
-            } else if (playerScore == dealerScore) {
-                resultType = "PUSH";
-                payout = hand.getBet();
-                net = 0;
-            } else {
-                resultType = "LOSE";
-                payout = 0;
-                net = -hand.getBet();
-            }
+            BlackjackRules.Outcome outcome = BlackjackRules.settle(
+                    hand.isBusted(), playerScore, playerBJ, dealerScore, dealerBJ);
+            String resultType = outcome.name();
+            long net = outcome.net(hand.getBet());
+            long payout = hand.getBet() + net;
 
             totalPayout += payout;
             totalNet += net;
@@ -657,13 +629,9 @@ public class BlackjackServiceImpl implements BlackjackService {
 
         // 保险结算：庄家BJ赔3倍，否则没收
         if (session.isInsuranceTaken()) {
-            if (dealerBJ) {
-                long insurancePayout = session.getInsuranceBet() * 3;
-                totalPayout += insurancePayout;
-                totalNet += session.getInsuranceBet() * 2;
-            } else {
-                totalNet -= session.getInsuranceBet();
-            }
+            long insuranceNet = BlackjackRules.insuranceNet(session.getInsuranceBet(), dealerBJ);
+            totalPayout += session.getInsuranceBet() + insuranceNet;
+            totalNet += insuranceNet;
         }
 
         // 积分池封顶：用户赢时只赔池子剩余的部分
@@ -696,24 +664,19 @@ public class BlackjackServiceImpl implements BlackjackService {
 
     /** 庄家硬规则：&lt;17 HIT，&gt;=17 STAND。 */
     private void runDealerTurn(BlackjackSession session) {
-        while (bestScore(session.getDealerCards()) < 17) {
+        while (BlackjackRules.dealerShouldHit(bestScore(session.getDealerCards()))) {
             dealCard(session, session.getDealerCards());
         }
     }
 
     // ==================== 牌组操作 ====================
 
-    private List<String> createShoe() {
-        List<String> shoe = new ArrayList<>(SHOE_DECKS * 52);
-        for (int deck = 0; deck < SHOE_DECKS; deck++) {
-            for (String rank : RANKS) {
-                for (String suit : SUITS) {
-                    shoe.add(rank + suit);
-                }
-            }
+    private static List<String> toCards(byte[] shoe) {
+        List<String> cards = new ArrayList<>(shoe.length);
+        for (byte b : shoe) {
+            cards.add(GameRngService.cardName(b));
         }
-        Collections.shuffle(shoe, RANDOM);
-        return shoe;
+        return cards;
     }
 
     private void dealCard(BlackjackSession session, List<String> target) {
@@ -723,46 +686,32 @@ public class BlackjackServiceImpl implements BlackjackService {
 
     // ==================== 点数计算 ====================
 
-    private static int cardValue(String card) {
-        String rank = cardRank(card);
-        return switch (rank) {
-            case "A" -> 11;
-            case "T", "J", "Q", "K" -> 10;
-            default -> Integer.parseInt(rank);
-        };
-    }
-
     private static String cardRank(String card) {
         return card.substring(0, 1);
     }
 
-    // A先按11算，爆了再逐张降为1
+    // 规则本体在 BlackjackRules，这里只做牌名到编码的转换
     static int bestScore(List<String> cards) {
-        int total = 0;
-        int aces = 0;
-        for (String card : cards) {
-            int value = cardValue(card);
-            total += value;
-            if (value == 11) {
-                aces++;
-            }
-        }
-        while (total > 21 && aces > 0) {
-            total -= 10;
-            aces--;
-        }
-        return total;
+        return BlackjackRules.bestScore(toCodes(cards), cards.size());
     }
 
     private static boolean isBlackjack(List<String> cards) {
-        return cards.size() == 2 && bestScore(cards) == 21;
+        return BlackjackRules.isBlackjack(toCodes(cards), cards.size());
     }
 
     private static boolean canSplit(List<String> cards) {
         if (cards.size() != 2) {
             return false;
         }
-        return cardValue(cards.get(0)) == cardValue(cards.get(1));
+        return BlackjackRules.canSplit(GameRngService.cardCode(cards.get(0)), GameRngService.cardCode(cards.get(1)));
+    }
+
+    private static int[] toCodes(List<String> cards) {
+        int[] codes = new int[cards.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = GameRngService.cardCode(cards.get(i));
+        }
+        return codes;
     }
 
     // ==================== 会话管理（委托 GameLockExecutor） ====================
@@ -889,6 +838,10 @@ public class BlackjackServiceImpl implements BlackjackService {
 
         dto.setActions(computeActions(session));
         dto.setResults(null);
+        dto.setSeedHash(session.getSeedHash());
+        if (PHASE_SETTLED.equals(session.getPhase())) {
+            dto.setServerSeed(session.getServerSeed());
+        }
         return dto;
     }
 
@@ -914,6 +867,8 @@ public class BlackjackServiceImpl implements BlackjackService {
         dto.setDealerScore(bestScore(session.getDealerCards()));
         dto.setActions(List.of(ACTION_BET));
         dto.setResults(results);
+        dto.setSeedHash(session.getSeedHash());
+        dto.setServerSeed(session.getServerSeed());
         return dto;
     }
 
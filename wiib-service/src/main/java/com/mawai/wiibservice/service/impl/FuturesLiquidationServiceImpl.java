@@ -52,29 +52,52 @@ public class FuturesLiquidationServiceImpl implements FuturesLiquidationService
         collectTp(TP_LONG_PREFIX + symbol, 0, cp, groups);
         collectTp(TP_SHORT_PREFIX + symbol, cp, Double.MAX_VALUE, groups);
 
+        // 强平：整批交给批量执行器，单线程分块落库，避免连环爆仓时每仓一个事务抢连接池
+        Map<Long, PositionHitGroup> liqGroups = new LinkedHashMap<>();
         for (var entry : groups.entrySet()) {
             String posId = entry.getKey();
             PositionHitGroup group = entry.getValue();
+            if (group.liq) {
+                liqGroups.put(Long.parseLong(posId), group);
+                continue;
+            }
             Thread.startVirtualThread(() -> {
                 try {
                     Long pid = Long.parseLong(posId);
-                    if (group.liq) {
-                        futuresRiskService.forceClose(pid, markPrice);
-                    } else if (!group.slIds.isEmpty()) {
+                    if (!group.slIds.isEmpty()) {
                         futuresRiskService.batchTriggerStopLoss(pid, group.slIds, markPrice);
                     } else if (!group.tpIds.isEmpty()) {
                         futuresRiskService.batchTriggerTakeProfit(pid, group.tpIds, currentPrice);
                     }
                 } catch (Exception e) {
                     log.error("futures仓位处理失败 posId={}, 恢复索引", posId, e);
-                    for (RecoveryEntry re : group.recovery) {
-                        cacheService.zAdd(re.key(), re.member(), re.score());
-                    }
+                    recover(group);
+                }
+            });
+        }
+
+        if (!liqGroups.isEmpty()) {
+            Thread.startVirtualThread(() -> {
+                Collection<Long> failed;
+                try {
+                    failed = futuresRiskService.batchForceClose(symbol, liqGroups.keySet(), markPrice);
+                } catch (Exception e) {
+                    log.error("futures批量强平异常 symbol={} size={}, 恢复索引", symbol, liqGroups.size(), e);
+                    failed = liqGroups.keySet();
+                }
+                for (Long pid : failed) {
+                    recover(liqGroups.get(pid));
                 }
             });
         }
     }
 
+    private void recover(PositionHitGroup group) {
+        for (RecoveryEntry re : group.recovery) {
+            cacheService.zAdd(re.key(), re.member(), re.score());
+        }
+    }
+
     private void collectLiq(String key, double min, double max, Map<String, PositionHitGroup> groups) {
         Map<String, Double> hits = cacheService.zRangeByScoreAndRemove(key, min, max);
         if (hits.isEmpty()) return;
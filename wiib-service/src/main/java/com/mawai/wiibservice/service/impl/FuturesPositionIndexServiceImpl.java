@@ -8,6 +8,7 @@ import com.mawai.wiibservice.config.TradingConfig;
 import com.mawai.wiibservice.mapper.FuturesPositionMapper;
 import com.mawai.wiibservice.service.CacheService;
 import com.mawai.wiibservice.service.FuturesPositionIndexService;
+import com.mawai.wiibservice.util.ZSetIndexRebuilder;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,10 +16,12 @@ import org.springframework.data.redis.connection.StringRedisConnection;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.List;
+import java.util.*;
 
 @Slf4j
 @Service
@@ -29,6 +32,8 @@ public class FuturesPositionIndexServiceImpl implements FuturesPositionIndexServ
     private final CacheService cacheService;
     private final TradingConfig tradingConfig;
     private final StringRedisTemplate stringRedisTemplate;
+    private final ZSetIndexRebuilder zSetIndexRebuilder;
+    private final PlatformTransactionManager txManager;
 
     private static final String LIQ_LONG_PREFIX = "futures:liq:long:";
     private static final String LIQ_SHORT_PREFIX = "futures:liq:short:";
@@ -37,16 +42,88 @@ public class FuturesPositionIndexServiceImpl implements FuturesPositionIndexServ
     private static final String TP_LONG_PREFIX = "futures:tp:long:";
     private static final String TP_SHORT_PREFIX = "futures:tp:short:";
 
+    /**
+     * 启动时批量重建LIQ/SL/TP索引：在只读事务内按fetchSize游标读取OPEN仓位汇总成各key的成员，
+     * 再由 {@link ZSetIndexRebuilder} 按key并行diff写入并清理漂移成员
+     */
     @PostConstruct
     void init() {
-        List<FuturesPosition> positions = positionMapper.selectList(new LambdaQueryWrapper<FuturesPosition>()
-                .eq(FuturesPosition::getStatus, "OPEN"));
+        Map<String, Map<String, Double>> desired = new HashMap<>();
+        int[] count = {0};
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> positionMapper.streamOpenForIndex(ctx -> {
+            collectIndexMembers(ctx.getResultObject(), desired);
+            count[0]++;
+        }));
+
+        Set<String> existingKeys = new HashSet<>();
+        for (String pattern : List.of("futures:liq:*", "futures:sl:*", "futures:tp:*")) {
+            existingKeys.addAll(cacheService.scanKeys(pattern, 1000));
+        }
+
+        zSetIndexRebuilder.rebuild("futures-position", desired, existingKeys, this::liveMembers);
+        log.info("重建futures ZSet索引 共{}个仓位", count[0]);
+    }
+
+    private void collectIndexMembers(FuturesPosition position, Map<String, Map<String, Double>> desired) {
+        String id = position.getId().toString();
+        String symbol = position.getSymbol();
+        boolean isLong = "LONG".equals(position.getSide());
+
+        BigDecimal liqPrice = calcStaticLiqPrice(position.getSide(), position.getEntryPrice(), position.getMargin(), position.getQuantity());
+        desired.computeIfAbsent((isLong ? LIQ_LONG_PREFIX : LIQ_SHORT_PREFIX) + symbol, k -> new HashMap<>())
+                .put(id, liqPrice.doubleValue());
+
+        List<FuturesStopLoss> sls = position.getStopLosses();
+        if (sls != null && !sls.isEmpty()) {
+            Map<String, Double> m = desired.computeIfAbsent((isLong ? SL_LONG_PREFIX : SL_SHORT_PREFIX) + symbol, k -> new HashMap<>());
+            for (FuturesStopLoss sl : sls) {
+                m.put(id + ":" + sl.getId(), sl.getPrice().doubleValue());
+            }
+        }
+        List<FuturesTakeProfit> tps = position.getTakeProfits();
+        if (tps != null && !tps.isEmpty()) {
+            Map<String, Double> m = desired.computeIfAbsent((isLong ? TP_LONG_PREFIX : TP_SHORT_PREFIX) + symbol, k -> new HashMap<>());
+            for (FuturesTakeProfit tp : tps) {
+                m.put(id + ":" + tp.getId(), tp.getPrice().doubleValue());
+            }
+        }
+    }
 
-        for (FuturesPosition pos : positions) {
-            registerPositionIndex(pos);
+    /**
+     * 待删成员回查（重建期间新开仓/新挂的SL、TP）：按仓位当前数据重新算出该key应有的成员，
+     * 仍在其中的保留并返回当前价格；仓位已平、SL/TP已撤或改价换了ID的成员都会被删
+     */
+    private Map<String, Double> liveMembers(String key, Collection<String> members) {
+        Map<Long, List<String>> byPosition = new HashMap<>();
+        for (String member : members) {
+            int sep = member.indexOf(':');
+            try {
+                Long positionId = Long.valueOf(sep < 0 ? member : member.substring(0, sep));
+                byPosition.computeIfAbsent(positionId, k -> new ArrayList<>()).add(member);
+            } catch (NumberFormatException ignored) {
+                // 非法成员直接按漂移删除
+            }
         }
+        if (byPosition.isEmpty()) return Map.of();
 
-        log.info("重建futures ZSet索引 共{}个仓位", positions.size());
+        Map<String, Map<String, Double>> fresh = new HashMap<>();
+        positionMapper.selectList(new LambdaQueryWrapper<FuturesPosition>()
+                        .select(FuturesPosition::getId, FuturesPosition::getSymbol, FuturesPosition::getSide,
+                                FuturesPosition::getEntryPrice, FuturesPosition::getMargin, FuturesPosition::getQuantity,
+                                FuturesPosition::getStopLosses, FuturesPosition::getTakeProfits)
+                        .in(FuturesPosition::getId, byPosition.keySet())
+                        .eq(FuturesPosition::getStatus, "OPEN"))
+                .forEach(p -> collectIndexMembers(p, fresh));
+
+        Map<String, Double> expected = fresh.getOrDefault(key, Map.of());
+        Map<String, Double> live = new HashMap<>();
+        for (String member : members) {
+            Double score = expected.get(member);
+            if (score != null) live.put(member, score);
+        }
+        return live;
     }
 
     @Override
@@ -83,28 +160,34 @@ public class FuturesPositionIndexServiceImpl implements FuturesPositionIndexServ
 
     @Override
     public void unregisterAll(FuturesPosition position) {
-        String id = position.getId().toString();
-        String symbol = position.getSymbol();
-        String side = position.getSide();
-
-        List<FuturesStopLoss> sls = position.getStopLosses();
-        List<FuturesTakeProfit> tps = position.getTakeProfits();
+        unregisterAll(List.of(position));
+    }
 
+    @Override
+    public void unregisterAll(Collection<FuturesPosition> positions) {
+        if (positions.isEmpty()) return;
         stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
             StringRedisConnection conn = (StringRedisConnection) connection;
-            conn.zRem("LONG".equals(side) ? LIQ_LONG_PREFIX + symbol : LIQ_SHORT_PREFIX + symbol, id);
+            for (FuturesPosition position : positions) {
+                String id = position.getId().toString();
+                String symbol = position.getSymbol();
+                String side = position.getSide();
+                conn.zRem("LONG".equals(side) ? LIQ_LONG_PREFIX + symbol : LIQ_SHORT_PREFIX + symbol, id);
 
-            if (sls != null) {
-                String slKey = "LONG".equals(side) ? SL_LONG_PREFIX + symbol : SL_SHORT_PREFIX + symbol;
-                for (FuturesStopLoss sl : sls) {
-                    conn.zRem(slKey, id + ":" + sl.getId());
+                List<FuturesStopLoss> sls = position.getStopLosses();
+                if (sls != null) {
+                    String slKey = "LONG".equals(side) ? SL_LONG_PREFIX + symbol : SL_SHORT_PREFIX + symbol;
+                    for (FuturesStopLoss sl : sls) {
+                        conn.zRem(slKey, id + ":" + sl.getId());
+                    }
                 }
-            }
 
-            if (tps != null) {
-                String tpKey = "LONG".equals(side) ? TP_LONG_PREFIX + symbol : TP_SHORT_PREFIX + symbol;
-                for (FuturesTakeProfit tp : tps) {
-                    conn.zRem(tpKey, id + ":" + tp.getId());
+                List<FuturesTakeProfit> tps = position.getTakeProfits();
+                if (tps != null) {
+                    String tpKey = "LONG".equals(side) ? TP_LONG_PREFIX + symbol : TP_SHORT_PREFIX + symbol;
+                    for (FuturesTakeProfit tp : tps) {
+                        conn.zRem(tpKey, id + ":" + tp.getId());
+                    }
                 }
             }
             return null;
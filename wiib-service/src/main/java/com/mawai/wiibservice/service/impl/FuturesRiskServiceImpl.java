@@ -41,6 +41,9 @@ public class FuturesRiskServiceImpl implements FuturesRiskService {
     private final CacheService cacheService;
     private final FuturesPositionIndexService positionIndexService;
 
+    /** 批量强平每块仓位数：一块 = 1次SELECT + 1次UPDATE + 1次INSERT + 1次余额UPDATE */
+    private static final int LIQ_CHUNK_SIZE = 200;
+
     // ==================== 设置止损 ====================
 
     @Override
@@ -182,6 +185,88 @@ public class FuturesRiskServiceImpl implements FuturesRiskService {
         log.warn("futures强制平仓 posId={} userId={} price={} pnl={}", positionId, position.getUserId(), price, pnl);
     }
 
+    // ==================== 批量强平（连环爆仓） ====================
+
+    @Override
+    public List<Long> batchForceClose(String symbol, Collection<Long> positionIds, BigDecimal price) {
+        List<Long> ids = new ArrayList<>(positionIds);
+        List<Long> failed = new ArrayList<>();
+        int closed = 0;
+        for (int from = 0; from < ids.size(); from += LIQ_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + LIQ_CHUNK_SIZE, ids.size()));
+            try {
+                closed += SpringUtils.getAopProxy(this).doBatchForceClose(chunk, price);
+            } catch (Exception e) {
+                log.error("futures批量强平失败，逐个重试 symbol={} size={}", symbol, chunk.size(), e);
+                for (Long positionId : chunk) {
+                    try {
+                        SpringUtils.getAopProxy(this).forceClose(positionId, price);
+                    } catch (Exception ex) {
+                        log.error("futures强平重试失败 posId={}", positionId, ex);
+                        failed.add(positionId);
+                    }
+                }
+            }
+        }
+        log.warn("futures批量强平 symbol={} price={} total={} batchClosed={} failed={}",
+                symbol, price, ids.size(), closed, failed.size());
+        return failed;
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    protected int doBatchForceClose(List<Long> positionIds, BigDecimal price) {
+        List<FuturesPosition> positions = positionMapper.selectByIds(positionIds).stream()
+                .filter(p -> "OPEN".equals(p.getStatus()))
+                .toList();
+        if (positions.isEmpty()) return 0;
+
+        for (FuturesPosition p : positions) {
+            p.setClosedPnl(calculatePnl(p.getSide(), p.getEntryPrice(), price, p.getQuantity()));
+        }
+        Set<Long> closedIds = new HashSet<>(positionMapper.casCloseBatch(positions, "LIQUIDATED", price));
+        if (closedIds.isEmpty()) return 0;
+
+        List<FuturesPosition> closed = new ArrayList<>(closedIds.size());
+        List<FuturesOrder> orders = new ArrayList<>(closedIds.size());
+        Map<Long, BigDecimal> credits = new HashMap<>();
+        for (FuturesPosition position : positions) {
+            if (!closedIds.contains(position.getId())) continue;
+            closed.add(position);
+
+            BigDecimal pnl = position.getClosedPnl();
+            BigDecimal closeValue = price.multiply(position.getQuantity()).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal commission = tradingConfig.calculateCryptoCommission(closeValue);
+            BigDecimal returnAmount = position.getMargin().add(pnl).subtract(commission).max(BigDecimal.ZERO);
+            if (returnAmount.compareTo(BigDecimal.ZERO) > 0) {
+                credits.merge(position.getUserId(), returnAmount, BigDecimal::add);
+            }
+
+            FuturesOrder order = new FuturesOrder();
+            order.setUserId(position.getUserId());
+            order.setPositionId(position.getId());
+            order.setSymbol(position.getSymbol());
+            order.setOrderSide("LONG".equals(position.getSide()) ? "CLOSE_LONG" : "CLOSE_SHORT");
+            order.setOrderType("MARKET");
+            order.setQuantity(position.getQuantity());
+            order.setLeverage(position.getLeverage());
+            order.setFilledPrice(price);
+            order.setFilledAmount(closeValue);
+            order.setCommission(commission);
+            order.setRealizedPnl(pnl);
+            order.setStatus("LIQUIDATED");
+            orders.add(order);
+        }
+
+        if (!credits.isEmpty()) {
+            userMapper.batchAddBalance(credits);
+        }
+        orderMapper.insertCloseBatch(orders);
+        positionIndexService.unregisterAll(closed);
+
+        log.warn("futures批量强平块 closed={} users={} price={}", closed.size(), credits.size(), price);
+        return closed.size();
+    }
+
     // ==================== 检查并强平 ====================
 
     @Override
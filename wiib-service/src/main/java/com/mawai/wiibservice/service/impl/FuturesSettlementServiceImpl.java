@@ -16,12 +16,16 @@ import com.mawai.wiibservice.service.FuturesPositionIndexService;
 import com.mawai.wiibservice.service.FuturesRiskService;
 import com.mawai.wiibservice.service.FuturesSettlementService;
 import com.mawai.wiibservice.service.UserService;
+import com.mawai.wiibservice.util.ZSetIndexRebuilder;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -47,6 +51,9 @@ public class FuturesSettlementServiceImpl implements FuturesSettlementService {
     private final CacheService cacheService;
     private final FuturesPositionIndexService positionIndexService;
     private final FuturesRiskService riskService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ZSetIndexRebuilder zSetIndexRebuilder;
+    private final PlatformTransactionManager txManager;
 
     @PostConstruct
     void init() {
@@ -409,16 +416,53 @@ public class FuturesSettlementServiceImpl implements FuturesSettlementService {
 
     // ==================== ZSet索引重建 ====================
 
+    /**
+     * 启动时批量重建限价单ZSet：流式读取PENDING限价单，按key并行diff写入并清理漂移成员
+     */
     private void rebuildLimitOrderZSets() {
-        List<FuturesOrder> pendingOrders = orderMapper.selectList(new LambdaQueryWrapper<FuturesOrder>()
-                .eq(FuturesOrder::getStatus, "PENDING")
-                .eq(FuturesOrder::getOrderType, "LIMIT"));
-        if (pendingOrders.isEmpty()) return;
+        Map<String, Map<String, Double>> desired = new HashMap<>();
+        int[] count = {0};
+        // 只读事务内读：PG驱动在非自动提交连接上才按fetchSize走游标
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> orderMapper.streamPendingLimitOrders(ctx -> {
+            FuturesOrder order = ctx.getResultObject();
+            desired.computeIfAbsent(getLimitZSetKey(order.getOrderSide(), order.getSymbol()), k -> new HashMap<>())
+                    .put(order.getId().toString(), order.getLimitPrice().doubleValue());
+            count[0]++;
+        }));
+
+        Set<String> existingKeys = cacheService.scanKeys("futures:limit:*", 1000);
+        zSetIndexRebuilder.rebuild("futures-limit-order", desired, existingKeys, this::livePendingOrders);
+        log.info("重建futures限价单ZSet索引 共{}个订单", count[0]);
+    }
 
-        for (FuturesOrder order : pendingOrders) {
-            addToLimitZSet(order, cacheService);
+    /**
+     * 待删成员回查：仍为PENDING且归属该key的限价单保留（重建期间新挂的单），返回其当前限价
+     */
+    private Map<String, Double> livePendingOrders(String key, Collection<String> members) {
+        List<Long> ids = new ArrayList<>(members.size());
+        for (String member : members) {
+            try {
+                ids.add(Long.valueOf(member));
+            } catch (NumberFormatException ignored) {
+                // 非法成员直接按漂移删除
+            }
         }
-        log.info("重建futures限价单ZSet索引 共{}个订单", pendingOrders.size());
+        if (ids.isEmpty()) return Map.of();
+
+        Map<String, Double> live = new HashMap<>();
+        orderMapper.selectList(new LambdaQueryWrapper<FuturesOrder>()
+                        .select(FuturesOrder::getId, FuturesOrder::getSymbol, FuturesOrder::getOrderSide, FuturesOrder::getLimitPrice)
+                        .in(FuturesOrder::getId, ids)
+                        .eq(FuturesOrder::getStatus, "PENDING")
+                        .eq(FuturesOrder::getOrderType, "LIMIT"))
+                .forEach(o -> {
+                    if (key.equals(getLimitZSetKey(o.getOrderSide(), o.getSymbol()))) {
+                        live.put(o.getId().toString(), o.getLimitPrice().doubleValue());
+                    }
+                });
+        return live;
     }
 
     // ==================== 内部工具 ====================
@@ -5,28 +5,36 @@ import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.mawai.wiibcommon.dto.DayTickDTO;
+import com.mawai.wiibcommon.dto.IntradayKlineDTO;
 import com.mawai.wiibcommon.dto.KlineDTO;
 import com.mawai.wiibcommon.entity.Company;
 import com.mawai.wiibcommon.entity.News;
 import com.mawai.wiibcommon.entity.PriceTickDaily;
 import com.mawai.wiibcommon.entity.Stock;
+import com.mawai.wiibcommon.util.TickSeriesCodec;
 import com.mawai.wiibcommon.util.TickTimeUtil;
 import com.mawai.wiibservice.mapper.NewsMapper;
 import com.mawai.wiibservice.mapper.PriceTickDailyMapper;
 import com.mawai.wiibservice.service.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.security.SecureRandom;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
@@ -41,84 +49,277 @@ public class MarketDataServiceImpl implements MarketDataService {
     private final AiService aiService;
     private final StockCacheService stockCacheService;
     private final OptionContractService optionContractService;
-
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StockTickTape stockTickTape;
+
+    /** 每只股票的生成含2次LLM调用，并发度受LLM限流约束 */
+    private static final int GENERATE_CONCURRENCY = 16;
+    private static final int BATCH_CHUNK_SIZE = 50;
+    private static final int STEPS = 1440;
+    private static final int PACK_BATCH_SIZE = 500;
+    private static final long STREAM_GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * 生成次日行情（可断点续跑）
+     * <ol>
+     *   <li>当日种子存 Redis（market:seed:日期），重跑沿用同一种子：市场情绪与每只股票的随机流可复现</li>
+     *   <li>已落库分时的股票跳过；其余股票并行生成（LLM参数 + double[] 路径），每只股票独立 SplittableRandom 流</li>
+     *   <li>按完成顺序攒满一块就在一个事务里批量更新 stock 并多行 INSERT 分时（ON CONFLICT DO NOTHING），
+     *       中途失败/重启最多丢一块未落库的结果</li>
+     *   <li>块落库后立即提交该块的期权链/新闻，完成的股票记入 market:gen:日期:post；
+     *       期权链另记 market:gen:日期:options，新闻失败重跑时不会重复生成期权链</li>
+     * </ol>
+     */
     @Override
     public void generateNextDayMarketData(LocalDate targetDate) {
         long start = System.currentTimeMillis();
         log.info("开始生成次日行情: {}", targetDate);
 
+        long daySeed = daySeed(targetDate);
         // 当日市场情绪（25-74），所有股票共用
-        int marketSentiment = 25 + ThreadLocalRandom.current().nextInt(50);
+        int marketSentiment = 25 + new SplittableRandom(daySeed).nextInt(50);
         log.info("今日市场情绪: {}", marketSentiment);
 
         List<Stock> stocks = stockService.list();
+        Set<Long> done = new HashSet<>(priceTickDailyMapper.selectStockIdsByDate(targetDate));
+        List<Stock> pending = stocks.stream().filter(s -> !done.contains(s.getId())).toList();
+        if (!done.isEmpty()) {
+            log.info("断点续跑：{}只股票分时已存在，待生成{}只", done.size(), pending.size());
+        }
 
-        for (Stock stock : stocks) {
-            List<BigDecimal> prices = generateStockPrices(stock, targetDate, marketSentiment);
-            PriceTickDaily daily = new PriceTickDaily();
-            daily.setStockId(stock.getId());
-            daily.setTradeDate(targetDate);
-            daily.setPrices(prices);
-            priceTickDailyMapper.insert(daily);
-            log.info("生成股票{}走势完成，共{}个点", stock.getCode(), prices.size());
-
-            // 预缓存K线OHLC
-            BigDecimal kOpen = prices.getFirst();
-            BigDecimal kClose = prices.getLast();
-            BigDecimal kHigh = prices.stream().max(Comparator.naturalOrder()).orElseThrow();
-            BigDecimal kLow = prices.stream().min(Comparator.naturalOrder()).orElseThrow();
-            cacheService.hSet("kline:" + stock.getId(), targetDate.toString(),
-                    kOpen + "," + kHigh + "," + kLow + "," + kClose);
+        String postKey = postKey(targetDate);
+        Set<String> postDone = cacheService.sMembers(postKey);
+        // 分时生成与后置步骤共用LLM并发额度
+        Semaphore permits = new Semaphore(GENERATE_CONCURRENCY);
+        int generated;
+        try (ExecutorService post = Executors.newVirtualThreadPerTaskExecutor()) {
+            Consumer<Stock> submitPost = stock -> {
+                if (postDone.contains(String.valueOf(stock.getId()))) return;
+                post.submit(() -> runStockExtras(stock, targetDate, marketSentiment, permits));
+            };
+            // 上次分时已落库但后置步骤未完成的股票
+            stocks.stream().filter(s -> done.contains(s.getId())).forEach(submitPost);
+            generated = generateAndPersist(pending, targetDate, marketSentiment, daySeed, permits,
+                    chunk -> chunk.forEach(day -> submitPost.accept(day.stock())));
         }
+        cacheService.expire(postKey, 3, TimeUnit.DAYS);
+        cacheService.expire(optionsKey(targetDate), 3, TimeUnit.DAYS);
 
         // 刷新缓存
         stockCacheService.loadAllStocksToRedis();
 
         long elapsed = System.currentTimeMillis() - start;
-        log.info("次日行情生成完成，共{}只股票，耗时{}ms", stocks.size(), elapsed);
+        log.info("次日行情生成完成，共{}只股票（本次生成{}只），耗时{}ms", stocks.size(), generated, elapsed);
     }
 
-    @Override
-    public void loadDayDataToRedis(LocalDate date) {
-        log.info("加载{}行情到Redis", date);
+    /** 当日种子：首次生成时随机产生并存 Redis，重跑/续跑沿用 */
+    private long daySeed(LocalDate date) {
+        String key = "market:seed:" + date;
+        cacheService.setIfAbsent(key, String.valueOf(new SecureRandom().nextLong()), 3, TimeUnit.DAYS);
+        return Long.parseLong(cacheService.get(key));
+    }
 
-        List<Stock> stocks = stockService.list();
+    private static String sigmaKey(LocalDate date) {
+        return "market:gen:" + date + ":sigma";
+    }
 
-        for (Stock stock : stocks) {
-            PriceTickDaily daily = priceTickDailyMapper.selectOne(
-                new LambdaQueryWrapper<PriceTickDaily>()
-                    .eq(PriceTickDaily::getStockId, stock.getId())
-                    .eq(PriceTickDaily::getTradeDate, date)
-            );
+    private static String postKey(LocalDate date) {
+        return "market:gen:" + date + ":post";
+    }
 
-            if (daily == null || daily.getPrices() == null || daily.getPrices().isEmpty()) continue;
+    private static String optionsKey(LocalDate date) {
+        return "market:gen:" + date + ":options";
+    }
 
-            // 分时数据写入Hash，field=index, value=price, 单点查O(1)
-            String tickKey = String.format("tick:%s:%d", date, stock.getId());
-            cacheService.delete(tickKey);
-            Map<String, String> tickMap = new HashMap<>();
-            List<BigDecimal> prices = daily.getPrices();
-            for (int i = 0; i < prices.size(); i++) {
-                tickMap.put(String.valueOf(i), prices.get(i).toPlainString());
+    private static SplittableRandom stockStream(long daySeed, long stockId) {
+        return new SplittableRandom(daySeed ^ (stockId * STREAM_GOLDEN));
+    }
+
+    /**
+     * 虚拟线程 + 信号量并发生成分时，按完成顺序每攒满 BATCH_CHUNK_SIZE 只落库一次并回调 afterPersist；
+     * 单只股票失败只记录日志。落库失败则取消剩余任务并抛出，已落库的块在重跑时跳过
+     * @return 本次落库的股票数
+     */
+    private int generateAndPersist(List<Stock> pending, LocalDate targetDate, int marketSentiment, long daySeed,
+                                   Semaphore permits, Consumer<List<StockDay>> afterPersist) {
+        int persisted = 0;
+        List<StockDay> buffer = new ArrayList<>(BATCH_CHUNK_SIZE);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletionService<StockDay> completion = new ExecutorCompletionService<>(executor);
+            Map<Future<StockDay>, Stock> owners = new HashMap<>(pending.size() * 2);
+            for (Stock stock : pending) {
+                owners.put(completion.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return generateStockDay(stock, targetDate, marketSentiment, stockStream(daySeed, stock.getId()));
+                    } finally {
+                        permits.release();
+                    }
+                }), stock);
             }
-            cacheService.hSetAll(tickKey, tickMap);
+            try {
+                for (int i = 0; i < pending.size(); i++) {
+                    Future<StockDay> future = completion.take();
+                    try {
+                        StockDay day = future.get();
+                        if (day != null) buffer.add(day);
+                    } catch (ExecutionException e) {
+                        log.error("生成股票{}行情失败", owners.get(future).getCode(), e.getCause());
+                    }
+                    if (buffer.size() >= BATCH_CHUNK_SIZE || (i == pending.size() - 1 && !buffer.isEmpty())) {
+                        persistChunk(buffer, targetDate);
+                        persisted += buffer.size();
+                        afterPersist.accept(List.copyOf(buffer));
+                        buffer.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            } catch (RuntimeException e) {
+                executor.shutdownNow();
+                throw e;
+            }
+        }
+        return persisted;
+    }
 
-            // 当日汇总：只预热open和prevClose，high/low由实时行情动态更新
-            BigDecimal open = daily.getPrices().getFirst();
+    /** 单只股票的期权链与新闻，失败只记录日志，未记 post 标记的下次重跑补上 */
+    private Void runStockExtras(Stock stock, LocalDate date, int marketSentiment, Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            generateStockExtras(stock, date, marketSentiment);
+            cacheService.sAdd(postKey(date), String.valueOf(stock.getId()));
+        } catch (Exception e) {
+            log.error("生成股票{}期权链/新闻失败", stock.getCode(), e);
+        } finally {
+            permits.release();
+        }
+        return null;
+    }
 
-            String dailyKey = String.format("stock:daily:%s:%d", date, stock.getId());
-            cacheService.hSet(dailyKey, "open", open.toString());
-            cacheService.hSet(dailyKey, "high", open.toString()); // 初始化为开盘价
-            cacheService.hSet(dailyKey, "low", open.toString());  // 初始化为开盘价
-            cacheService.hSet(dailyKey, "last", open.toString()); // 初始化为开盘价
-            cacheService.hSet(dailyKey, "prevClose", stock.getPrevClose().toString());
+    /** 一块股票：stock 更新与分时写入同一事务，分时存在即视为该股票已完成 */
+    private void persistChunk(List<StockDay> chunk, LocalDate targetDate) {
+        List<PriceTickDaily> rows = new ArrayList<>(chunk.size());
+        List<Stock> stocks = new ArrayList<>(chunk.size());
+        for (StockDay day : chunk) {
+            PriceTickDaily daily = new PriceTickDaily();
+            daily.setStockId(day.stock().getId());
+            daily.setTradeDate(targetDate);
+            daily.setPackedPrices(TickSeriesCodec.toCents(day.prices()));
+            rows.add(daily);
+            stocks.add(day.stock());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            stockService.updateBatchById(stocks);
+            priceTickDailyMapper.insertBatch(rows);
+        });
+
+        // 记下GBM sigma，期权链生成（含续跑）使用
+        Map<String, String> sigmas = new HashMap<>();
+        for (StockDay day : chunk) {
+            sigmas.put(String.valueOf(day.stock().getId()), String.valueOf(day.sigma()));
+        }
+        cacheService.hSetAll(sigmaKey(targetDate), sigmas);
+        cacheService.expire(sigmaKey(targetDate), 3, TimeUnit.DAYS);
+
+        // 预缓存K线OHLC
+        for (StockDay day : chunk) {
+            double[] p = day.prices();
+            double high = p[0];
+            double low = p[0];
+            for (double v : p) {
+                if (v > high) high = v;
+                if (v < low) low = v;
+            }
+            cacheService.hSet("kline:" + day.stock().getId(), targetDate.toString(),
+                    scale2(p[0]) + "," + scale2(high) + "," + scale2(low) + "," + scale2(p[p.length - 1]));
+        }
+        log.info("写入{}只股票分时完成", chunk.size());
+    }
 
-            // 设置7天过期
-            cacheService.expire(tickKey, 7, TimeUnit.DAYS);
-            cacheService.expire(dailyKey, 7, TimeUnit.DAYS);
+    private record StockDay(Stock stock, double sigma, double[] prices) {
+    }
+
+    private static BigDecimal scale2(double v) {
+        return BigDecimal.valueOf(v).setScale(2, RoundingMode.HALF_UP);
+    }
 
-            log.info("加载股票{}行情到Redis，共{}个点", stock.getCode(), daily.getPrices().size());
+    /**
+     * 加载某日行情到Redis：一次查出当日全部分时，内存中拼好 tick/daily Hash，
+     * 按 BATCH_CHUNK_SIZE 只股票一批 pipeline 写入（DEL + 多字段HSET + PEXPIRE），每批一次往返
+     */
+    @Override
+    public void loadDayDataToRedis(LocalDate date) {
+        log.info("加载{}行情到Redis", date);
+        long start = System.currentTimeMillis();
+
+        Map<Long, Stock> stocks = new HashMap<>();
+        for (Stock stock : stockService.list()) stocks.put(stock.getId(), stock);
+
+        List<PriceTickDaily> dailies = priceTickDailyMapper.selectList(
+            new LambdaQueryWrapper<PriceTickDaily>().eq(PriceTickDaily::getTradeDate, date)
+        );
+
+        int loaded = 0;
+        for (int i = 0; i < dailies.size(); i += BATCH_CHUNK_SIZE) {
+            List<PriceTickDaily> chunk = dailies.subList(i, Math.min(i + BATCH_CHUNK_SIZE, dailies.size()));
+            loaded += loadChunkToRedis(chunk, stocks, date);
+        }
+        if (date.equals(LocalDate.now())) {
+            stockTickTape.load(date, dailies);
         }
+        log.info("加载{}行情到Redis完成，共{}只股票，耗时{}ms", date, loaded, System.currentTimeMillis() - start);
+    }
+
+    private int loadChunkToRedis(List<PriceTickDaily> chunk, Map<Long, Stock> stocks, LocalDate date) {
+        Map<String, Map<String, String>> tickHashes = new LinkedHashMap<>();
+        Map<String, Map<String, String>> dailyHashes = new LinkedHashMap<>();
+        for (PriceTickDaily daily : chunk) {
+            Stock stock = stocks.get(daily.getStockId());
+            int[] cents = daily.priceCents();
+            if (stock == null || cents == null || cents.length == 0) continue;
+
+            // 分时数据写入Hash，field=index, value=price, 单点查O(1)
+            Map<String, String> tickMap = new HashMap<>(cents.length * 4 / 3 + 1);
+            for (int i = 0; i < cents.length; i++) {
+                tickMap.put(String.valueOf(i), TickSeriesCodec.toPrice(cents[i]).toPlainString());
+            }
+            tickHashes.put(String.format("tick:%s:%d", date, stock.getId()), tickMap);
+
+            // 当日汇总：只预热open和prevClose，high/low/last初始化为开盘价，由实时行情动态更新
+            String open = TickSeriesCodec.toPrice(cents[0]).toString();
+            Map<String, String> dailyMap = new HashMap<>();
+            dailyMap.put("open", open);
+            dailyMap.put("high", open);
+            dailyMap.put("low", open);
+            dailyMap.put("last", open);
+            dailyMap.put("prevClose", stock.getPrevClose().toString());
+            dailyHashes.put(String.format("stock:daily:%s:%d", date, stock.getId()), dailyMap);
+        }
+        if (tickHashes.isEmpty()) return 0;
+
+        long ttlSeconds = TimeUnit.DAYS.toSeconds(7);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            tickHashes.forEach((key, hash) -> {
+                conn.del(key);
+                conn.hMSet(key, hash);
+                conn.expire(key, ttlSeconds);
+            });
+            dailyHashes.forEach((key, hash) -> {
+                conn.hMSet(key, hash);
+                conn.expire(key, ttlSeconds);
+            });
+            return null;
+        });
+        return tickHashes.size();
     }
 
     @Override
@@ -129,6 +330,15 @@ public class MarketDataServiceImpl implements MarketDataService {
         int endIndex = TickTimeUtil.effectiveEndIndex(LocalTime.now());
         if (endIndex < 0) return Collections.emptyList();
 
+        StockTickTape.DayTape tape = stockTickTape.today(stockId);
+        if (tape != null) {
+            List<DayTickDTO> result = new ArrayList<>(endIndex + 1);
+            for (int i = 0; i <= endIndex; i++) {
+                result.add(new DayTickDTO(StockTickTape.indexTime(i), tape.price(i)));
+            }
+            return result;
+        }
+
         Map<String, String> tickMap = cacheService.hGetAll(key);
         if (tickMap.isEmpty()) return Collections.emptyList();
 
@@ -142,38 +352,43 @@ public class MarketDataServiceImpl implements MarketDataService {
         return result;
     }
 
+    @Override
+    public List<IntradayKlineDTO> getIntradayCandles(Long stockId, int intervalMinutes) {
+        int endIndex = StockTickTape.currentIndex();
+        if (endIndex < 0) return Collections.emptyList();
+        StockTickTape.DayTape tape = stockTickTape.today(stockId);
+        if (tape == null) return Collections.emptyList();
+
+        List<IntradayKlineDTO> result = new ArrayList<>();
+        for (float[] c : tape.candles(intervalMinutes, endIndex)) {
+            result.add(new IntradayKlineDTO(StockTickTape.indexTime((int) c[0]),
+                    scale2(c[1]), scale2(c[2]), scale2(c[3]), scale2(c[4])));
+        }
+        return result;
+    }
+
+    /**
+     * 实时行情：一次 Lua 调用完成 取当前tick + 读当日汇总 + 更新high/low/last，
+     * 原先 hGet + hGetAll + 多次 hSet 的往返合并为一次，且并发推送时高低价更新不再互相覆盖
+     */
     @Override
     public Map<String, Object> getRealtimeQuote(Long stockId, LocalDate date, LocalTime time) {
-        // 获取当前tick
-        String tickKey = String.format("tick:%s:%d", date, stockId);
         int index = TickTimeUtil.timeToIndex(time);
         if (index < 0) return null;
-        String tickValue = cacheService.hGet(tickKey, String.valueOf(index));
-        if (tickValue == null) return null;
-
-        BigDecimal price = new BigDecimal(tickValue);
-
-        // 获取当日汇总
+        String tickKey = String.format("tick:%s:%d", date, stockId);
         String dailyKey = String.format("stock:daily:%s:%d", date, stockId);
-        Map<String, String> daily = cacheService.hGetAll(dailyKey);
 
-        BigDecimal open = new BigDecimal(daily.getOrDefault("open", price.toString()));
-        BigDecimal high = new BigDecimal(daily.getOrDefault("high", price.toString()));
-        BigDecimal low = new BigDecimal(daily.getOrDefault("low", price.toString()));
-        BigDecimal prevClose = new BigDecimal(daily.getOrDefault("prevClose", price.toString()));
+        List<String> r = stringRedisTemplate.execute(QUOTE_SCRIPT, List.of(tickKey, dailyKey), String.valueOf(index));
+        if (r == null || r.size() < 5) return null;
 
-        // 更新最高最低价
-        if (price.compareTo(high) > 0) {
-            cacheService.hSet(dailyKey, "high", price.toString());
-            high = price;
-        }
-        if (price.compareTo(low) < 0) {
-            cacheService.hSet(dailyKey, "low", price.toString());
-            low = price;
-        }
-        cacheService.hSet(dailyKey, "last", price.toString());
+        BigDecimal price = new BigDecimal(r.get(0));
+        BigDecimal open = new BigDecimal(r.get(1));
+        BigDecimal high = new BigDecimal(r.get(2));
+        BigDecimal low = new BigDecimal(r.get(3));
+        BigDecimal prevClose = new BigDecimal(r.get(4));
 
         // 写入L1 Caffeine
+        Map<String, String> daily = new HashMap<>();
         daily.put("open", open.toPlainString());
         daily.put("high", high.toPlainString());
         daily.put("low", low.toPlainString());
@@ -192,6 +407,25 @@ public class MarketDataServiceImpl implements MarketDataService {
         return result;
     }
 
+    /**
+     * KEYS[1]=tick Hash KEYS[2]=当日汇总 Hash，ARGV[1]=tick下标
+     * 返回 [price, open, high, low, prevClose]，缺失字段以当前价兜底；tick不存在返回空
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final DefaultRedisScript<List<String>> QUOTE_SCRIPT = new DefaultRedisScript<>(
+            "local p = redis.call('hget', KEYS[1], ARGV[1]) " +
+            "if not p then return {} end " +
+            "local d = redis.call('hmget', KEYS[2], 'open', 'high', 'low', 'prevClose') " +
+            "local open = d[1] or p " +
+            "local high = d[2] or p " +
+            "local low = d[3] or p " +
+            "local prevClose = d[4] or p " +
+            "local price = tonumber(p) " +
+            "if price > tonumber(high) then high = p; redis.call('hset', KEYS[2], 'high', p) end " +
+            "if price < tonumber(low) then low = p; redis.call('hset', KEYS[2], 'low', p) end " +
+            "redis.call('hset', KEYS[2], 'last', p) " +
+            "return {p, open, high, low, prevClose}", (Class) List.class);
+
     @Override
     public Map<String, Object> refreshDailyCacheFromTicks(LocalDate date, LocalTime time) {
         LocalDate targetDate = date != null ? date : LocalDate.now();
@@ -266,7 +500,10 @@ public class MarketDataServiceImpl implements MarketDataService {
         return result;
     }
 
-    private List<BigDecimal> generateStockPrices(Stock stock, LocalDate date, int marketSentiment) {
+    /**
+     * 单只股票：更新昨收/趋势 → LLM生成开盘价与GBM参数 → 生成1440点路径（只改内存中的 stock，落库在 persistChunk）
+     */
+    private StockDay generateStockDay(Stock stock, LocalDate date, int marketSentiment, SplittableRandom random) {
         // 查询昨日收盘价（优先Redis，不命中则查库）
         LocalDate prevDate = date.minusDays(1);
         String prevDailyKey = String.format("stock:daily:%s:%d", prevDate, stock.getId());
@@ -281,11 +518,12 @@ public class MarketDataServiceImpl implements MarketDataService {
                     .eq(PriceTickDaily::getStockId, stock.getId())
                     .eq(PriceTickDaily::getTradeDate, prevDate)
             );
-            if (prevDaily != null && prevDaily.getPrices() != null && !prevDaily.getPrices().isEmpty()) {
-                stock.setPrevClose(prevDaily.getPrices().getLast());
+            int[] prevCents = prevDaily == null ? null : prevDaily.priceCents();
+            if (prevCents != null && prevCents.length > 0) {
+                stock.setPrevClose(TickSeriesCodec.toPrice(prevCents[prevCents.length - 1]));
             }
         }
-        
+
         // 更新 trendList (基于 oldPrevClose 和 stock.getPrevClose() 的比较)
         // stock.getPrevClose() 现在是昨天收盘价
         // oldPrevClose 是前天收盘价
@@ -296,99 +534,77 @@ public class MarketDataServiceImpl implements MarketDataService {
 
         // AI生成开盘价+GBM参数
         Company company = companyService.getById(stock.getCompanyId());
-        GbmParams params = generateGbmParams(stock, company, marketSentiment);
+        GbmParams params = generateGbmParams(stock, company, marketSentiment, random);
 
-        // 把开盘价存到Stock表
-        BigDecimal openPrice = BigDecimal.valueOf(params.openPrice).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal openPrice = scale2(params.openPrice);
         stock.setOpen(openPrice);
-        stockService.updateById(stock);
-        log.info("更新股票{} - 开盘价: {}", stock.getCode(), openPrice);
+        log.info("生成股票{} - 开盘价: {}, sigma: {}", stock.getCode(), openPrice, params.sigma);
 
+        return new StockDay(stock, params.sigma, generatePath(params, random));
+    }
+
+    /** 期权链 + 新闻；sigma 取落库时记下的当日GBM参数，缺失时按行业取区间中值 */
+    private void generateStockExtras(Stock stock, LocalDate date, int marketSentiment) {
+        Company company = companyService.getById(stock.getCompanyId());
         // 生成期权链
-        BigDecimal annualSigma = BigDecimal.valueOf(params.sigma).multiply(BigDecimal.valueOf(Math.sqrt(252)));
+        String sigmaStr = cacheService.hGet(sigmaKey(date), String.valueOf(stock.getId()));
+        double sigma = sigmaStr != null ? Double.parseDouble(sigmaStr)
+                : (isStableIndustry(company.getIndustry()) ? 0.0175 : 0.0425);
+        BigDecimal annualSigma = BigDecimal.valueOf(sigma).multiply(BigDecimal.valueOf(Math.sqrt(252)));
         LocalDateTime expireAt = date.atTime(15, 0);
-        optionContractService.generateOptionChain(stock.getId(), stock.getPrevClose(), annualSigma, expireAt, 5);
-        log.info("生成股票{}期权链完成", stock.getCode());
+        String stockId = String.valueOf(stock.getId());
+        if (!Boolean.TRUE.equals(cacheService.sIsMember(optionsKey(date), stockId))) {
+            optionContractService.generateOptionChain(stock.getId(), stock.getPrevClose(), annualSigma, expireAt, 5);
+            cacheService.sAdd(optionsKey(date), stockId);
+            log.info("生成股票{}期权链完成", stock.getCode());
+        }
 
         // 生成股票新闻
         generateStockNews(stock, company, date, marketSentiment);
+    }
 
-        // 固定参数
-        int steps = 1440;
-        double dt = 1.0 / steps;
+    /** GBM + 预分配跳跃，全程 double[]，随机数全部来自该股票的独立流 */
+    static double[] generatePath(GbmParams params, SplittableRandom random) {
+        double dt = 1.0 / STEPS;
 
-        // GBM生成价格序列
-        double[] prices = new double[steps];
+        double[] prices = new double[STEPS];
         prices[0] = params.openPrice;
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        // 预分配跳跃位置 (Pre-allocate Jumps)
-        int[] jumpMap = new int[steps];
-        // 用于防止同一个时间点既涨又跌，或者重复添加
-        Set<Integer> usedIndices = new HashSet<>();
-        // 分配向上跳跃的位置
-        for (int k = 0; k < params.positiveLambda; k++) {
-            int idx;
-            do {
-                idx = 10 + random.nextInt(1421); // 随机选一个时间点 (10到1430)
-            } while (usedIndices.contains(idx)); // 如果这个点已经被占用了，就重选
-
-            usedIndices.add(idx);
-            jumpMap[idx] = 1; // 标记为向上跳
-        }
 
-        // 分配向下跳跃的位置
-        for (int k = 0; k < params.negativeLambda; k++) {
+        // 预分配跳跃位置 (Pre-allocate Jumps)，0=无 1=向上 -1=向下
+        byte[] jumpMap = new byte[STEPS];
+        for (int k = 0; k < params.positiveLambda + params.negativeLambda; k++) {
             int idx;
             do {
                 idx = 10 + random.nextInt(1421); // 随机选一个时间点 (10到1430)
-            } while (usedIndices.contains(idx));
-
-            usedIndices.add(idx);
-            jumpMap[idx] = -1; // 标记为向下跳
+            } while (jumpMap[idx] != 0); // 防止同一个时间点既涨又跌，或者重复添加
+            jumpMap[idx] = (byte) (k < params.positiveLambda ? 1 : -1);
         }
 
         // 设定跳跃时的随机波动 (让每次暴涨/暴跌的幅度稍微不一样)
         double jumpSigma = 0.01;
+        double drift = (params.mu - 0.5 * params.sigma * params.sigma) * dt;
+        double vol = params.sigma * Math.sqrt(dt);
 
-        for (int i = 1; i < steps; i++) {
+        for (int i = 1; i < STEPS; i++) {
             // --- A. 基础 GBM 波动 ---
-            double z = random.nextGaussian();
-            z = Math.clamp(z, -4.0, 4.0); // 防极值
-
-            double gbmPrice = prices[i - 1] * Math.exp(
-                    (params.mu - 0.5 * params.sigma * params.sigma) * dt
-                            + params.sigma * Math.sqrt(dt) * z
-            );
+            double z = Math.clamp(random.nextGaussian(), -4.0, 4.0); // 防极值
+            double gbmPrice = prices[i - 1] * Math.exp(drift + vol * z);
 
             // --- B. 检查当前时间点是否有预设的跳跃 ---
             double jumpMultiplier = 1.0;
-
             if (jumpMap[i] == 1) {
-                // 触发向上跳跃
+                // 触发向上跳跃，钳制上限 5%
                 double rawJump = params.pJumpMu + jumpSigma * random.nextGaussian();
-                // 钳制上限 5%
-                double clampedJump = Math.clamp(rawJump, 0.01, 0.05);
-                jumpMultiplier = Math.exp(clampedJump);
+                jumpMultiplier = Math.exp(Math.clamp(rawJump, 0.01, 0.05));
             } else if (jumpMap[i] == -1) {
-                // 触发向下跳跃
+                // 触发向下跳跃，钳制下限 -5%
                 double rawJump = params.nJumpMu + jumpSigma * random.nextGaussian();
-                // 钳制下限 -5%
-                double clampedJump = Math.clamp(rawJump, -0.05, -0.01);
-                jumpMultiplier = Math.exp(clampedJump);
+                jumpMultiplier = Math.exp(Math.clamp(rawJump, -0.05, -0.01));
             }
-            // --- C. 合成最终价格 ---
-            prices[i] = gbmPrice * jumpMultiplier;
-            // 兜底防止价格过低
-            if (prices[i] < 0.01) prices[i] = 0.01;
-        }
-
-        List<BigDecimal> result = new ArrayList<>(steps);
-        for (int i = 0; i < steps; i++) {
-            result.add(BigDecimal.valueOf(prices[i]).setScale(2, RoundingMode.HALF_UP));
+            // --- C. 合成最终价格，兜底防止价格过低 ---
+            prices[i] = Math.max(gbmPrice * jumpMultiplier, 0.01);
         }
-
-        return result;
+        return prices;
     }
 
     private static List<String> getTrends(Stock stock, BigDecimal oldPrevClose) {
@@ -411,8 +627,7 @@ public class MarketDataServiceImpl implements MarketDataService {
         return trends;
     }
 
-    private GbmParams generateGbmParams(Stock stock, Company company, int marketSentiment) {
-        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    private GbmParams generateGbmParams(Stock stock, Company company, int marketSentiment, SplittableRandom rnd) {
         int stockSentiment = 5 + rnd.nextInt(90); // 股票情绪5-94
         boolean stable = isStableIndustry(company.getIndustry());
         String sigmaRange = stable ? "0.01-0.025" : "0.025-0.06";
@@ -503,14 +718,14 @@ public class MarketDataServiceImpl implements MarketDataService {
                 .eq(PriceTickDaily::getStockId, stockId)
                 .eq(PriceTickDaily::getTradeDate, date)
         );
-        if (daily == null || daily.getPrices() == null) {
+        int[] cents = daily == null ? null : daily.priceCents();
+        if (cents == null) {
             return Collections.emptyList();
         }
 
-        List<BigDecimal> prices = daily.getPrices();
-        List<DayTickDTO> result = new ArrayList<>(prices.size());
-        for (int i = 0; i < prices.size(); i++) {
-            result.add(new DayTickDTO(TickTimeUtil.indexToTime(i).toString(), prices.get(i)));
+        List<DayTickDTO> result = new ArrayList<>(cents.length);
+        for (int i = 0; i < cents.length; i++) {
+            result.add(new DayTickDTO(TickTimeUtil.indexToTime(i).toString(), TickSeriesCodec.toPrice(cents[i])));
         }
         cacheService.set(cacheKey, JSON.toJSONString(result), Duration.ofHours(1));
         return result;
@@ -535,8 +750,28 @@ public class MarketDataServiceImpl implements MarketDataService {
             if (!result.isEmpty()) return result;
         }
 
-        // 冷启动：查PG并回填缓存
-        List<KlineDTO> fromDb = priceTickDailyMapper.selectKline(stockId, cutoff, days);
+        // 冷启动：查PG并回填缓存（紧凑列无法在SQL里取高低价，解码后在内存聚合）
+        List<PriceTickDaily> dailies = priceTickDailyMapper.selectList(
+            new LambdaQueryWrapper<PriceTickDaily>()
+                .eq(PriceTickDaily::getStockId, stockId)
+                .lt(PriceTickDaily::getTradeDate, cutoff)
+                .orderByDesc(PriceTickDaily::getTradeDate)
+                .last("LIMIT " + days)
+        );
+        List<KlineDTO> fromDb = new ArrayList<>(dailies.size());
+        for (PriceTickDaily daily : dailies) {
+            int[] cents = daily.priceCents();
+            if (cents == null || cents.length == 0) continue;
+            int high = cents[0];
+            int low = cents[0];
+            for (int c : cents) {
+                if (c > high) high = c;
+                if (c < low) low = c;
+            }
+            fromDb.add(new KlineDTO(daily.getTradeDate(), TickSeriesCodec.toPrice(cents[0]),
+                    TickSeriesCodec.toPrice(high), TickSeriesCodec.toPrice(low),
+                    TickSeriesCodec.toPrice(cents[cents.length - 1])));
+        }
         Map<String, String> toCache = new HashMap<>();
         for (KlineDTO k : fromDb) {
             toCache.put(k.getDate().toString(),
@@ -546,6 +781,34 @@ public class MarketDataServiceImpl implements MarketDataService {
         return fromDb;
     }
 
+    /**
+     * 把 NUMERIC[] 旧行分批转成紧凑格式，每批一条 UPDATE ... FROM (VALUES ...)；
+     * 只处理 packed_prices 为空的行，中断后重跑即可续上
+     */
+    @Override
+    public int packLegacyTickData() {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        while (true) {
+            List<PriceTickDaily> batch = priceTickDailyMapper.selectList(
+                new LambdaQueryWrapper<PriceTickDaily>()
+                    .select(PriceTickDaily::getId, PriceTickDaily::getPrices)
+                    .isNull(PriceTickDaily::getPackedPrices)
+                    .isNotNull(PriceTickDaily::getPrices)
+                    .orderByAsc(PriceTickDaily::getId)
+                    .last("LIMIT " + PACK_BATCH_SIZE)
+            );
+            if (batch.isEmpty()) break;
+            for (PriceTickDaily daily : batch) {
+                daily.setPackedPrices(TickSeriesCodec.toCents(daily.getPrices()));
+            }
+            total += priceTickDailyMapper.packBatch(batch);
+            log.info("分时紧凑格式迁移进度: 已完成{}行", total);
+        }
+        log.info("分时紧凑格式迁移完成: 共{}行，耗时{}ms", total, System.currentTimeMillis() - start);
+        return total;
+    }
+
     private KlineDTO parseKline(String dateStr, String csv) {
         String[] p = csv.split(",");
         return new KlineDTO(LocalDate.parse(dateStr),
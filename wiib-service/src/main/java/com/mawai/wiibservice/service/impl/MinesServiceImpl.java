@@ -6,8 +6,10 @@ import com.mawai.wiibcommon.entity.MinesGame;
 import com.mawai.wiibcommon.enums.ErrorCode;
 import com.mawai.wiibcommon.exception.BizException;
 import com.mawai.wiibservice.mapper.MinesGameMapper;
+import com.mawai.wiibservice.service.GameRngService;
 import com.mawai.wiibservice.service.MinesService;
 import com.mawai.wiibservice.service.UserService;
+import com.mawai.wiibservice.service.model.MinesRules;
 import com.mawai.wiibservice.util.GameLockExecutor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +18,6 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,14 +30,13 @@ public class MinesServiceImpl implements MinesService {
     private final MinesGameMapper minesGameMapper;
     private final UserService userService;
     private final GameLockExecutor gameLock;
+    private final GameRngService gameRngService;
 
-    private static final int GRID_SIZE = 25;
-    private static final int MINE_COUNT = 5;
-    private static final int SAFE_COUNT = GRID_SIZE - MINE_COUNT;
+    private static final int GRID_SIZE = MinesRules.GRID_SIZE;
+    private static final int MINE_COUNT = MinesRules.MINE_COUNT;
+    private static final int SAFE_COUNT = MinesRules.SAFE_COUNT;
     private static final BigDecimal MIN_BET = new BigDecimal("100");
     private static final BigDecimal MAX_BET = new BigDecimal("50000");
-    private static final BigDecimal HOUSE_EDGE = new BigDecimal("0.50");
-    private static final double DAMPEN = 0.9;
 
     private static final String SK = "mines:session:";
     private static final String LK = "mines:user:";
@@ -48,27 +48,6 @@ public class MinesServiceImpl implements MinesService {
     private static final String STATUS_CASHED_OUT = "CASHED_OUT";
     private static final String STATUS_EXPLODED = "EXPLODED";
 
-    private static final Random RANDOM = new SecureRandom();
-
-    // 倍率表 multipliers[k] = HOUSE_EDGE * (C(25,k)/C(20,k)) ^ DAMPEN
-    private static final BigDecimal[] MULTIPLIERS = new BigDecimal[SAFE_COUNT + 1];
-
-    static {
-        MULTIPLIERS[0] = BigDecimal.ONE;
-        // 先递推算原始倍率 raw[k] = C(25,k)/C(20,k)
-        BigDecimal[] raw = new BigDecimal[SAFE_COUNT + 1];
-        raw[0] = BigDecimal.ONE;
-        for (int k = 1; k <= SAFE_COUNT; k++) {
-            raw[k] = raw[k - 1]
-                    .multiply(BigDecimal.valueOf(GRID_SIZE - k + 1))
-                    .divide(BigDecimal.valueOf(SAFE_COUNT - k + 1), 10, RoundingMode.HALF_UP);
-        }
-        // HOUSE_EDGE * raw^DAMPEN
-        for (int k = 1; k <= SAFE_COUNT; k++) {
-            double dampened = Math.pow(raw[k].doubleValue(), DAMPEN);
-            MULTIPLIERS[k] = HOUSE_EDGE.multiply(BigDecimal.valueOf(dampened)).setScale(4, RoundingMode.HALF_UP);
-        }
-    }
 
     @Data
     public static class MinesSession implements java.io.Serializable {
@@ -77,6 +56,10 @@ public class MinesServiceImpl implements MinesService {
         private Set<Integer> minePositions;
         private List<Integer> revealed;
         private String phase;
+        /** 本局服务端种子（结算后才下发） */
+        private String serverSeed;
+        /** 服务端种子的 SHA-256 承诺值（开局即下发） */
+        private String seedHash;
     }
 
     // ==================== 公开接口 ====================
@@ -115,7 +98,8 @@ public class MinesServiceImpl implements MinesService {
             userService.updateBalance(userId, amount.negate());
 
             // 生成雷位
-            Set<Integer> mines = generateMines();
+            GameRngService.Round round = gameRngService.nextRound(GameRngService.Kind.MINES);
+            Set<Integer> mines = toMines(round.outcome());
 
             BigDecimal fee = amount.multiply(new BigDecimal("0.01")).setScale(2, RoundingMode.HALF_UP);
 
@@ -140,6 +124,8 @@ public class MinesServiceImpl implements MinesService {
             session.setMinePositions(mines);
             session.setRevealed(new ArrayList<>());
             session.setPhase(PHASE_PLAYING);
+            session.setServerSeed(round.serverSeed());
+            session.setSeedHash(round.seedHash());
             gameLock.saveSession(SK, userId, session, SESSION_TTL);
 
             BigDecimal newBalance = userService.getUserPortfolio(userId).getBalance();
@@ -191,6 +177,8 @@ public class MinesServiceImpl implements MinesService {
                 dto.setPayout(BigDecimal.ZERO);
                 dto.setPhase(PHASE_SETTLED);
                 dto.setBalance(balance);
+                dto.setSeedHash(session.getSeedHash());
+                dto.setServerSeed(session.getServerSeed());
                 return dto;
             }
 
@@ -266,20 +254,22 @@ public class MinesServiceImpl implements MinesService {
         dto.setPayout(payout);
         dto.setPhase(PHASE_SETTLED);
         dto.setBalance(balance);
+        dto.setSeedHash(session.getSeedHash());
+        dto.setServerSeed(session.getServerSeed());
         return dto;
     }
 
-    private Set<Integer> generateMines() {
+    /** 洗好的 0..GRID_SIZE-1 格子序列，前 MINE_COUNT 个为雷 */
+    private static Set<Integer> toMines(byte[] cells) {
         Set<Integer> mines = new HashSet<>();
-        while (mines.size() < MINE_COUNT) {
-            mines.add(RANDOM.nextInt(GRID_SIZE));
+        for (int i = 0; i < MINE_COUNT; i++) {
+            mines.add((int) cells[i]);
         }
         return mines;
     }
 
     private BigDecimal getMultiplier(int revealedCount) {
-        if (revealedCount < 0 || revealedCount > SAFE_COUNT) return BigDecimal.ONE;
-        return MULTIPLIERS[revealedCount];
+        return MinesRules.multiplier(revealedCount);
     }
 
     private MinesGameStateDTO buildPlayingState(MinesSession session, BigDecimal balance) {
@@ -293,6 +283,7 @@ public class MinesServiceImpl implements MinesService {
         dto.setRevealed(new ArrayList<>(session.getRevealed()));
         dto.setMinePositions(null);
         dto.setResult(null);
+        dto.setSeedHash(session.getSeedHash());
         dto.setCurrentMultiplier(multiplier);
         dto.setNextMultiplier(nextMultiplier);
         dto.setPotentialPayout(count > 0
@@ -13,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Slf4j
@@ -78,14 +79,16 @@ public class OptionContractServiceImpl extends ServiceImpl<OptionContractMapper,
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void settleContract(Long contractId) {
-        OptionContract contract = baseMapper.selectById(contractId);
-        if (contract == null || !"ACTIVE".equals(contract.getStatus())) {
-            return;
+        if (settleContracts(List.of(contractId)) > 0) {
+            log.info("合约结算 contractId={}", contractId);
         }
+    }
 
-        contract.setStatus("SETTLED");
-        baseMapper.updateById(contract);
-        log.info("合约结算 contractId={}", contractId);
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int settleContracts(Collection<Long> contractIds) {
+        if (contractIds.isEmpty()) return 0;
+        return baseMapper.casSettleBatch(contractIds);
     }
 
     @Override
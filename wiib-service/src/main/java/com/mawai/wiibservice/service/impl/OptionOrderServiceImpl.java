@@ -21,8 +21,10 @@ import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Service
@@ -40,6 +42,11 @@ public class OptionOrderServiceImpl extends ServiceImpl<OptionOrderMapper, Optio
     private final OptionSettlementMapper settlementMapper;
     private final PlatformTransactionManager txManager;
 
+    /** 到期结算并发合约数（须小于连接池大小） */
+    private static final int SETTLE_CONCURRENCY = 4;
+    /** 批量语句每块行数 */
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public OptionOrderResultDTO buyToOpen(Long userId, Long contractId, int quantity) {
@@ -161,42 +168,83 @@ public class OptionOrderServiceImpl extends ServiceImpl<OptionOrderMapper, Optio
         return baseMapper.selectUserOrdersPage(page, userId, status);
     }
 
+    /**
+     * 到期结算：无持仓的合约一条语句批量标记；有持仓的合约在有界并发下逐合约结算，
+     * 每个合约一个事务，内部按批量语句处理全部持仓
+     */
     @Override
     public void processExpirySettlement() {
         List<OptionContract> expiredContracts = contractService.getExpiredContracts();
         if (expiredContracts.isEmpty()) return;
 
-        log.info("开始处理{}个到期合约结算", expiredContracts.size());
+        long start = System.currentTimeMillis();
+        List<Long> expiredIds = expiredContracts.stream().map(OptionContract::getId).toList();
+        Set<Long> withOpenInterest = new HashSet<>(positionService.getContractIdsWithOpenInterest(expiredIds));
+        List<Long> idleIds = expiredIds.stream().filter(id -> !withOpenInterest.contains(id)).toList();
+        int idleSettled = contractService.settleContracts(idleIds);
+
+        List<OptionContract> toSettle = expiredContracts.stream()
+                .filter(c -> withOpenInterest.contains(c.getId())).toList();
+        log.info("开始处理到期合约结算 total={} 无持仓直接标记={} 待结算={}",
+                expiredContracts.size(), idleSettled, toSettle.size());
+
         TransactionTemplate txTemplate = new TransactionTemplate(txManager);
-        int success = 0, fail = 0;
-
-        for (OptionContract contract : expiredContracts) {
-            try {
-                txTemplate.executeWithoutResult(status -> settleContract(contract));
-                success++;
-            } catch (Exception e) {
-                fail++;
-                log.error("结算合约失败 contractId={}", contract.getId(), e);
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger fail = new AtomicInteger();
+        Semaphore semaphore = new Semaphore(SETTLE_CONCURRENCY);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (OptionContract contract : toSettle) {
+                executor.submit(() -> {
+                    try {
+                        semaphore.acquire();
+                        try {
+                            txTemplate.executeWithoutResult(status -> settleContract(contract));
+                            success.incrementAndGet();
+                        } finally {
+                            semaphore.release();
+                        }
+                    } catch (InterruptedException e) {
+                        fail.incrementAndGet();
+                        Thread.currentThread().interrupt();
+                        log.warn("结算合约被中断 contractId={}", contract.getId());
+                    } catch (Exception e) {
+                        fail.incrementAndGet();
+                        log.error("结算合约失败 contractId={}", contract.getId(), e);
+                    }
+                });
             }
         }
 
-        log.info("到期合约结算完成 total={} success={} fail={}", expiredContracts.size(), success, fail);
+        log.info("到期合约结算完成 total={} success={} fail={} 耗时{}ms",
+                toSettle.size(), success.get(), fail.get(), System.currentTimeMillis() - start);
     }
 
     private void settleContract(OptionContract contract) {
+        // CAS抢占：其他节点已结算则跳过
+        if (contractService.settleContracts(List.of(contract.getId())) == 0) {
+            log.info("合约已被结算，跳过 contractId={}", contract.getId());
+            return;
+        }
+
         BigDecimal settlementPrice = getSpotPrice(contract.getStockId());
         BigDecimal intrinsic = pricingService.calculateIntrinsicValue(
                 contract.getOptionType(), settlementPrice, contract.getStrike());
 
         List<OptionPosition> positions = positionService.getPositionsByContract(contract.getId());
+        int n = positions.size();
 
+        // 同一合约内在价值相同：payoff[i] = intrinsic × qty[i]，按用户聚合入账
+        List<OptionSettlement> settlements = new ArrayList<>(n);
+        List<Long> positionIds = new ArrayList<>(n);
+        Map<Long, BigDecimal> credits = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
         for (OptionPosition pos : positions) {
             if (pos.getQuantity() <= 0) continue;
 
             BigDecimal settlementAmount = intrinsic.multiply(BigDecimal.valueOf(pos.getQuantity()));
-
-            if (settlementAmount.compareTo(BigDecimal.ZERO) > 0) {
-                userService.updateBalance(pos.getUserId(), settlementAmount);
+            if (settlementAmount.signum() > 0) {
+                credits.merge(pos.getUserId(), settlementAmount, BigDecimal::add);
+                total = total.add(settlementAmount);
             }
 
             OptionSettlement settlement = new OptionSettlement();
@@ -208,15 +256,24 @@ public class OptionOrderServiceImpl extends ServiceImpl<OptionOrderMapper, Optio
             settlement.setSettlementPrice(settlementPrice);
             settlement.setIntrinsicValue(intrinsic);
             settlement.setSettlementAmount(settlementAmount);
-            settlementMapper.insert(settlement);
-
-            positionService.clearPosition(pos.getId());
+            settlements.add(settlement);
+            positionIds.add(pos.getId());
+        }
 
-            log.info("期权结算 userId={} contractId={} qty={} intrinsic={} amount={}",
-                    pos.getUserId(), contract.getId(), pos.getQuantity(), intrinsic, settlementAmount);
+        int credited = userService.batchAddBalance(credits);
+        if (credited != credits.size()) {
+            // 有用户不存在：整合约回滚，合约保持未结算等下次重试
+            log.error("期权结算入账行数不符 contractId={} expected={} affected={}",
+                    contract.getId(), credits.size(), credited);
+            throw new BizException(ErrorCode.USER_NOT_FOUND);
+        }
+        for (int from = 0; from < settlements.size(); from += BATCH_CHUNK_SIZE) {
+            settlementMapper.insertBatch(settlements.subList(from, Math.min(from + BATCH_CHUNK_SIZE, settlements.size())));
         }
+        positionService.clearPositions(positionIds);
 
-        contractService.settleContract(contract.getId());
+        log.info("期权结算 contractId={} positions={} users={} intrinsic={} total={}",
+                contract.getId(), positionIds.size(), credits.size(), intrinsic, total);
     }
 
     private BigDecimal getSpotPrice(Long stockId) {
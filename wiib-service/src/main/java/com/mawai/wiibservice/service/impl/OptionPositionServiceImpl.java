@@ -8,8 +8,8 @@ import com.mawai.wiibcommon.entity.OptionPosition;
 import com.mawai.wiibservice.mapper.OptionContractMapper;
 import com.mawai.wiibservice.mapper.OptionPositionMapper;
 import com.mawai.wiibservice.service.CacheService;
+import com.mawai.wiibservice.service.OptionChainPricer;
 import com.mawai.wiibservice.service.OptionPositionService;
-import com.mawai.wiibservice.service.OptionPricingService;
 import com.mawai.wiibservice.service.StockCacheService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -29,10 +30,13 @@ public class OptionPositionServiceImpl extends ServiceImpl<OptionPositionMapper,
         implements OptionPositionService {
 
     private final OptionContractMapper contractMapper;
-    private final OptionPricingService pricingService;
+    private final OptionChainPricer chainPricer;
     private final CacheService cacheService;
     private final StockCacheService stockCacheService;
 
+    /** 批量语句每块行数 */
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     @Override
     public OptionPosition findByUserAndContract(Long userId, Long contractId) {
         LambdaQueryWrapper<OptionPosition> wrapper = new LambdaQueryWrapper<>();
@@ -101,9 +105,7 @@ public class OptionPositionServiceImpl extends ServiceImpl<OptionPositionMapper,
                 spotPrice = new BigDecimal(stockStatic.getOrDefault("prevClose", "0"));
             }
 
-            BigDecimal premium = pricingService.calculatePremium(
-                    contract.getOptionType(), spotPrice, contract.getStrike(),
-                    contract.getExpireAt(), contract.getSigma());
+            BigDecimal premium = chainPricer.premium(contract, spotPrice != null ? spotPrice : BigDecimal.ZERO);
 
             BigDecimal marketValue = premium.multiply(BigDecimal.valueOf(pos.getQuantity()));
             BigDecimal cost = pos.getAvgCost().multiply(BigDecimal.valueOf(pos.getQuantity()));
@@ -147,4 +149,18 @@ public class OptionPositionServiceImpl extends ServiceImpl<OptionPositionMapper,
             baseMapper.updateById(position);
         }
     }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void clearPositions(List<Long> positionIds) {
+        for (int from = 0; from < positionIds.size(); from += BATCH_CHUNK_SIZE) {
+            baseMapper.clearBatch(positionIds.subList(from, Math.min(from + BATCH_CHUNK_SIZE, positionIds.size())));
+        }
+    }
+
+    @Override
+    public List<Long> getContractIdsWithOpenInterest(Collection<Long> contractIds) {
+        if (contractIds.isEmpty()) return List.of();
+        return baseMapper.selectContractIdsWithOpenInterest(contractIds);
+    }
 }
@@ -9,6 +9,7 @@ import com.mawai.wiibservice.service.CacheService;
 import com.mawai.wiibservice.service.OptionContractService;
 import com.mawai.wiibservice.service.OptionPricingService;
 import com.mawai.wiibservice.service.StockCacheService;
+import com.mawai.wiibservice.service.model.OptionChainGrid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -29,7 +30,7 @@ public class OptionPricingServiceImpl implements OptionPricingService {
     private final StockCacheService stockCacheService;
     private final TradingConfig tradingConfig;
 
-    private static final BigDecimal RISK_FREE_RATE = new BigDecimal("0.03");
+    private static final BigDecimal RISK_FREE_RATE = BigDecimal.valueOf(OptionChainGrid.RISK_FREE_RATE);
     private static final BigDecimal MIN_PREMIUM = new BigDecimal("0.01");
     private static final BigDecimal MIN_TIME_TO_EXPIRY = new BigDecimal("0.0001");
 
@@ -58,9 +59,9 @@ public class OptionPricingServiceImpl implements OptionPricingService {
 
         double premium;
         if ("CALL".equals(optionType)) {
-            premium = S * cdf(d1) - K * Math.exp(-r * t) * cdf(d2);
+            premium = S * OptionChainGrid.cdf(d1) - K * Math.exp(-r * t) * OptionChainGrid.cdf(d2);
         } else {
-            premium = K * Math.exp(-r * t) * cdf(-d2) - S * cdf(-d1);
+            premium = K * Math.exp(-r * t) * OptionChainGrid.cdf(-d2) - S * OptionChainGrid.cdf(-d1);
         }
 
         BigDecimal result = BigDecimal.valueOf(premium).setScale(4, RoundingMode.HALF_UP);
@@ -90,27 +91,6 @@ public class OptionPricingServiceImpl implements OptionPricingService {
         return BigDecimal.valueOf(years).setScale(8, RoundingMode.HALF_UP);
     }
 
-    private double cdf(double x) {
-        return 0.5 * (1 + erf(x / Math.sqrt(2)));
-    }
-
-    private double erf(double x) {
-        double a1 = 0.254829592;
-        double a2 = -0.284496736;
-        double a3 = 1.421413741;
-        double a4 = -1.453152027;
-        double a5 = 1.061405429;
-        double p = 0.3275911;
-
-        int sign = x < 0 ? -1 : 1;
-        x = Math.abs(x);
-
-        double t = 1.0 / (1.0 + p * x);
-        double y = 1.0 - (((((a5 * t + a4) * t) + a3) * t + a2) * t + a1) * t * Math.exp(-x * x);
-
-        return sign * y;
-    }
-
     @Override
     public OptionQuoteDTO getQuote(Long contractId) {
         if (tradingConfig.isNotInTradingHours()) {
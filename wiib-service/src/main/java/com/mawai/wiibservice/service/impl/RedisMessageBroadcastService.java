@@ -119,6 +119,15 @@ public class RedisMessageBroadcastService implements MessageListener {
         }
     }
 
+    /**
+     * 广播量化报告生成中的增量片段，推送到 /topic/quant/{symbol}/partial，与完整报告的主题分开
+     * @param symbol 交易对
+     * @param message JSON消息
+     */
+    public void broadcastQuantPartial(String symbol, String message) {
+        broadcastQuantSignal(symbol + "/partial", message);
+    }
+
     /**
      * 接收Redis消息并推送到本地WebSocket连接
      */
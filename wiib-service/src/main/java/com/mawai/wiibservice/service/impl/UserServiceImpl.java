@@ -2,17 +2,13 @@ package com.mawai.wiibservice.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.mawai.wiibcommon.dto.OptionPositionDTO;
 import com.mawai.wiibcommon.dto.UserDTO;
-import com.mawai.wiibcommon.entity.FuturesPosition;
-import com.mawai.wiibcommon.entity.Settlement;
 import com.mawai.wiibcommon.entity.User;
 import com.mawai.wiibcommon.enums.ErrorCode;
 import com.mawai.wiibcommon.exception.BizException;
-import com.mawai.wiibservice.mapper.CryptoOrderMapper;
-import com.mawai.wiibservice.mapper.FuturesPositionMapper;
 import com.mawai.wiibservice.mapper.UserMapper;
-import com.mawai.wiibservice.service.*;
+import com.mawai.wiibservice.service.PortfolioProjection;
+import com.mawai.wiibservice.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,7 +16,10 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户服务实现
@@ -31,13 +30,10 @@ import java.util.List;
 @RequiredArgsConstructor
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
 
-    private final PositionService positionService;
-    private final SettlementService settlementService;
-    private final CryptoPositionService cryptoPositionService;
-    private final CryptoOrderMapper cryptoOrderMapper;
-    private final FuturesPositionMapper futuresPositionMapper;
-    private final CacheService cacheService;
-    private final OptionPositionService optionPositionService;
+    private final PortfolioProjection portfolioProjection;
+
+    /** 批量语句每块行数 */
+    private static final int BATCH_CHUNK_SIZE = 500;
 
     @Value("${trading.initial-balance:100000}")
     private BigDecimal initialBalance;
@@ -49,64 +45,14 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         return baseMapper.selectOne(wrapper);
     }
 
+    /**
+     * 资产概览：持仓数量/成本读投影（写事件失效），估值用进程内行情，轮询时不再逐次查库
+     */
     @Override
     public UserDTO getUserPortfolio(Long userId) {
-        User user = baseMapper.selectById(userId);
-        if (user == null) {
-            throw new BizException(ErrorCode.USER_NOT_FOUND);
-        }
-
-        BigDecimal marketValue = positionService.calculateTotalMarketValue(userId);
-
-        // crypto持仓市值（取查询时刻的BTC实时价格）
-        BigDecimal cryptoMarketValue = cryptoPositionService.calculateCryptoMarketValue(userId);
-        marketValue = marketValue.add(cryptoMarketValue);
-
-        BigDecimal frozenBalance = user.getFrozenBalance() != null ? user.getFrozenBalance() : BigDecimal.ZERO;
-        BigDecimal marginLoanPrincipal = user.getMarginLoanPrincipal() != null ? user.getMarginLoanPrincipal() : BigDecimal.ZERO;
-        BigDecimal marginInterestAccrued = user.getMarginInterestAccrued() != null ? user.getMarginInterestAccrued() : BigDecimal.ZERO;
-        
-        // 计算待结算金额
-        BigDecimal pendingSettlement = settlementService.getPendingSettlements(userId).stream()
-                .map(Settlement::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // crypto待结算（SETTLING状态）
-        BigDecimal cryptoSettling = cryptoOrderMapper.sumSettlingAmount(userId);
-        pendingSettlement = pendingSettlement.add(cryptoSettling);
-
-        // 合约仓位: margin + unrealizedPnl
-        BigDecimal futuresValue = BigDecimal.ZERO;
-        List<FuturesPosition> futuresPositions = futuresPositionMapper.selectList(
-                new LambdaQueryWrapper<FuturesPosition>()
-                        .eq(FuturesPosition::getUserId, userId)
-                        .eq(FuturesPosition::getStatus, "OPEN"));
-        for (FuturesPosition fp : futuresPositions) {
-            BigDecimal markPrice = cacheService.getMarkPrice(fp.getSymbol());
-            if (markPrice == null) markPrice = cacheService.getCryptoPrice(fp.getSymbol());
-            BigDecimal unrealizedPnl = "LONG".equals(fp.getSide())
-                    ? markPrice.subtract(fp.getEntryPrice()).multiply(fp.getQuantity())
-                    : fp.getEntryPrice().subtract(markPrice).multiply(fp.getQuantity());
-            futuresValue = futuresValue.add(fp.getMargin()).add(unrealizedPnl);
-        }
-
-        // 期权持仓市值
-        BigDecimal optionValue = BigDecimal.ZERO;
-        List<OptionPositionDTO> optionPositions = optionPositionService.getUserPositions(userId);
-        for (OptionPositionDTO op : optionPositions) {
-            optionValue = optionValue.add(op.getMarketValue());
-        }
-
-        BigDecimal totalAssets = user.getBalance()
-                .add(frozenBalance)
-                .add(marketValue)
-                .add(pendingSettlement)
-                .add(futuresValue)
-                .add(optionValue)
-                .subtract(marginLoanPrincipal)
-                .subtract(marginInterestAccrued);
-
-        return getUserDTO(totalAssets, user, frozenBalance, marketValue, pendingSettlement, marginLoanPrincipal, marginInterestAccrued);
+        PortfolioProjection.Valuation v = portfolioProjection.valuate(userId);
+        return getUserDTO(v.totalAssets(), v.user(), v.frozenBalance(), v.marketValue(), v.pendingSettlement(),
+                v.marginLoanPrincipal(), v.marginInterestAccrued());
     }
 
     private UserDTO getUserDTO(BigDecimal totalAssets, User user,
@@ -150,6 +96,22 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         log.info("用户{}余额更新: {}", userId, amount);
     }
 
+    @Override
+    public int batchAddBalance(Map<Long, BigDecimal> credits) {
+        if (credits == null || credits.isEmpty()) return 0;
+        int affected = 0;
+        List<Map.Entry<Long, BigDecimal>> entries = new ArrayList<>(credits.entrySet());
+        for (int from = 0; from < entries.size(); from += BATCH_CHUNK_SIZE) {
+            Map<Long, BigDecimal> chunk = new LinkedHashMap<>();
+            for (Map.Entry<Long, BigDecimal> e : entries.subList(from, Math.min(from + BATCH_CHUNK_SIZE, entries.size()))) {
+                chunk.put(e.getKey(), e.getValue());
+            }
+            affected += baseMapper.batchAddBalance(chunk);
+        }
+        log.info("批量入账 users={} affected={}", credits.size(), affected);
+        return affected;
+    }
+
     @Override
     public void freezeBalance(Long userId, BigDecimal amount) {
         int affected = baseMapper.atomicFreezeBalance(userId, amount);
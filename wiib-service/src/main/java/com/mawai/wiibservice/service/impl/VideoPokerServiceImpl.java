@@ -1,13 +1,16 @@
 package com.mawai.wiibservice.service.impl;
 
 import com.mawai.wiibcommon.dto.VideoPokerGameStateDTO;
+import com.mawai.wiibcommon.dto.VideoPokerHoldEvDTO;
 import com.mawai.wiibcommon.dto.VideoPokerStatusDTO;
 import com.mawai.wiibcommon.entity.VideoPokerGame;
 import com.mawai.wiibcommon.enums.ErrorCode;
 import com.mawai.wiibcommon.exception.BizException;
 import com.mawai.wiibservice.mapper.VideoPokerGameMapper;
+import com.mawai.wiibservice.service.GameRngService;
 import com.mawai.wiibservice.service.UserService;
 import com.mawai.wiibservice.service.VideoPokerService;
+import com.mawai.wiibservice.service.model.VideoPokerEvaluator;
 import com.mawai.wiibservice.util.GameLockExecutor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +19,6 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -29,6 +31,7 @@ public class VideoPokerServiceImpl implements VideoPokerService {
     private final VideoPokerGameMapper videoPokerGameMapper;
     private final UserService userService;
     private final GameLockExecutor gameLock;
+    private final GameRngService gameRngService;
 
     private static final BigDecimal MIN_BET = new BigDecimal("100");
     private static final BigDecimal MAX_BET = new BigDecimal("50000");
@@ -40,11 +43,6 @@ public class VideoPokerServiceImpl implements VideoPokerService {
     private static final String PHASE_DEALING = "DEALING";
     private static final String PHASE_SETTLED = "SETTLED";
 
-    private static final String[] SUITS = {"H", "D", "C", "S"};
-    private static final String[] RANKS = {"2", "3", "4", "5", "6", "7", "8", "9", "T", "J", "Q", "K", "A"};
-    private static final Set<Integer> ROYAL_RANKS = Set.of(10, 11, 12, 13, 14);
-
-    private static final Random RANDOM = new SecureRandom();
 
     private static final LinkedHashMap<String, BigDecimal> PAYOUTS = new LinkedHashMap<>();
     static {
@@ -61,6 +59,14 @@ public class VideoPokerServiceImpl implements VideoPokerService {
         PAYOUTS.put("Jacks or Better", new BigDecimal("1"));
     }
 
+    /** 按 VideoPokerEvaluator 牌型下标排列的赔率，用于期望计算 */
+    private static final double[] PAYOUT_TABLE = new double[VideoPokerEvaluator.CATEGORY_NAMES.length];
+    static {
+        for (int i = 0; i < PAYOUT_TABLE.length; i++) {
+            PAYOUT_TABLE[i] = PAYOUTS.getOrDefault(VideoPokerEvaluator.CATEGORY_NAMES[i], BigDecimal.ZERO).doubleValue();
+        }
+    }
+
     @Data
     public static class VPSession implements java.io.Serializable {
         private long gameId;
@@ -68,6 +74,10 @@ public class VideoPokerServiceImpl implements VideoPokerService {
         private List<String> deck;
         private List<String> cards;
         private String phase;
+        /** 本局服务端种子（结算后才下发） */
+        private String serverSeed;
+        /** 服务端种子的 SHA-256 承诺值（开局即下发） */
+        private String seedHash;
     }
 
     // ==================== 公开接口 ====================
@@ -101,8 +111,8 @@ public class VideoPokerServiceImpl implements VideoPokerService {
 
             userService.updateBalance(userId, amount.negate());
 
-            List<String> deck = buildDeck();
-            Collections.shuffle(deck, RANDOM);
+            GameRngService.Round round = gameRngService.nextRound(GameRngService.Kind.VIDEO_POKER_DECK);
+            List<String> deck = toCards(round.outcome());
             List<String> cards = new ArrayList<>(deck.subList(0, 5));
 
             VideoPokerGame game = new VideoPokerGame();
@@ -125,6 +135,8 @@ public class VideoPokerServiceImpl implements VideoPokerService {
             session.setDeck(deck);
             session.setCards(cards);
             session.setPhase(PHASE_DEALING);
+            session.setServerSeed(round.serverSeed());
+            session.setSeedHash(round.seedHash());
             gameLock.saveSession(SK, userId, session, SESSION_TTL);
 
             BigDecimal newBalance = userService.getUserPortfolio(userId).getBalance();
@@ -191,129 +203,59 @@ public class VideoPokerServiceImpl implements VideoPokerService {
             dto.setPayout(payout);
             dto.setPhase(PHASE_SETTLED);
             dto.setBalance(balance);
+            dto.setSeedHash(session.getSeedHash());
+            dto.setServerSeed(session.getServerSeed());
             return dto;
         });
     }
 
-    // ==================== 牌型评估 ====================
-
-    static String evaluateHand(List<String> cards) {
-        List<Integer> ranks = new ArrayList<>();
-        List<String> suits = new ArrayList<>();
-        int jokers = 0;
-
-        for (String c : cards) {
-            if (c.startsWith("JK")) {
-                jokers++;
-            } else {
-                ranks.add(rankToValue(c.substring(0, 1)));
-                suits.add(c.substring(1));
-            }
+    @Override
+    public List<VideoPokerHoldEvDTO> holdAdvice(Long userId) {
+        VPSession session = gameLock.executeInLock(LK, userId,
+                () -> gameLock.requireSession(SK, userId, ErrorCode.VP_NO_ACTIVE_GAME));
+        if (!PHASE_DEALING.equals(session.getPhase())) {
+            throw new BizException(ErrorCode.VP_NO_ACTIVE_GAME);
         }
 
-        Map<Integer, Integer> countMap = new HashMap<>();
-        for (int r : ranks) countMap.merge(r, 1, Integer::sum);
-        int maxCount = countMap.values().stream().mapToInt(Integer::intValue).max().orElse(0);
-
-        boolean isFlush = ranks.isEmpty() || suits.stream().distinct().count() == 1;
-        boolean isStraight = canFormStraight(ranks, jokers);
-        boolean allRoyal = ROYAL_RANKS.containsAll(ranks);
-        boolean noDupRanks = ranks.stream().distinct().count() == ranks.size();
-
-        if (jokers == 0 && isFlush && allRoyal && ranks.size() == 5) {
-            return "Natural Royal Flush";
-        }
-        if (jokers > 0 && isFlush && allRoyal && noDupRanks) {
-            return "Joker Royal Flush";
-        }
-        if (maxCount + jokers >= 5 && countMap.size() == 1) {
-            return "Five of a Kind";
-        }
-        if (isFlush && isStraight) {
-            return "Straight Flush";
-        }
-        if (maxCount + jokers >= 4) {
-            return "Four of a Kind";
-        }
-        if (jokers == 0) {
-            List<Integer> counts = new ArrayList<>(countMap.values());
-            counts.sort(Collections.reverseOrder());
-            if (counts.size() >= 2 && counts.get(0) == 3 && counts.get(1) == 2) {
-                return "Full House";
-            }
-        } else if (jokers == 1) {
-            long pairCount = countMap.values().stream().filter(c -> c == 2).count();
-            if (pairCount == 2) {
-                return "Full House";
-            }
-        }
-        if (isFlush) {
-            return "Flush";
-        }
-        if (isStraight) {
-            return "Straight";
-        }
-        if (maxCount + jokers >= 3) {
-            return "Three of a Kind";
-        }
-        if (jokers == 0) {
-            long pairCount = countMap.values().stream().filter(c -> c >= 2).count();
-            if (pairCount >= 2) {
-                return "Two Pair";
-            }
-        }
-        if (jokers == 0) {
-            for (var e : countMap.entrySet()) {
-                if (e.getValue() >= 2 && e.getKey() >= 11) {
-                    return "Jacks or Better";
-                }
+        double[] evs = VideoPokerEvaluator.holdEvs(toCodes(session.getCards()), PAYOUT_TABLE);
+        List<VideoPokerHoldEvDTO> result = new ArrayList<>(evs.length);
+        for (int mask = 0; mask < evs.length; mask++) {
+            VideoPokerHoldEvDTO dto = new VideoPokerHoldEvDTO();
+            List<Integer> held = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                if ((mask & (1 << i)) != 0) held.add(i);
             }
-        } else if (jokers >= 1 && ranks.stream().anyMatch(r -> r >= 11)) {
-            return "Jacks or Better";
+            dto.setHeld(held);
+            dto.setEv(BigDecimal.valueOf(evs[mask]).setScale(4, RoundingMode.HALF_UP));
+            result.add(dto);
         }
-
-        return "No Win";
+        result.sort(Comparator.comparing(VideoPokerHoldEvDTO::getEv).reversed());
+        return result;
     }
 
-    private static boolean canFormStraight(List<Integer> naturalRanks, int jokers) {
-        for (int low = 1; low <= 10; low++) {
-            int high = low + 4;
-            boolean allFit = true;
-            Set<Integer> covered = new HashSet<>();
-            for (int r : naturalRanks) {
-                int eff = (r == 14 && low == 1) ? 1 : r;
-                if (eff < low || eff > high) { allFit = false; break; }
-                covered.add(eff);
-            }
-            if (allFit && 5 - covered.size() <= jokers) {
-                return true;
-            }
-        }
-        return false;
-    }
+    // ==================== 牌型评估 ====================
 
-    private static int rankToValue(String rank) {
-        return switch (rank) {
-            case "A" -> 14;
-            case "K" -> 13;
-            case "Q" -> 12;
-            case "J" -> 11;
-            case "T" -> 10;
-            default -> Integer.parseInt(rank);
-        };
+    /** 查表评估（见 {@link VideoPokerEvaluator}） */
+    static String evaluateHand(List<String> cards) {
+        return VideoPokerEvaluator.CATEGORY_NAMES[VideoPokerEvaluator.evaluate(toCodes(cards))];
     }
 
     // ==================== 辅助 ====================
 
-    private static List<String> buildDeck() {
-        List<String> deck = new ArrayList<>(53);
-        for (String s : SUITS) {
-            for (String r : RANKS) {
-                deck.add(r + s);
-            }
+    private static int[] toCodes(List<String> cards) {
+        int[] codes = new int[cards.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = GameRngService.cardCode(cards.get(i));
+        }
+        return codes;
+    }
+
+    private static List<String> toCards(byte[] deck) {
+        List<String> cards = new ArrayList<>(deck.length);
+        for (byte b : deck) {
+            cards.add(GameRngService.cardName(b));
         }
-        deck.add("JK1");
-        return deck;
+        return cards;
     }
 
     private VideoPokerGameStateDTO buildDealingState(VPSession session, BigDecimal balance) {
@@ -327,6 +269,7 @@ public class VideoPokerServiceImpl implements VideoPokerService {
         dto.setPayout(BigDecimal.ZERO);
         dto.setPhase(PHASE_DEALING);
         dto.setBalance(balance);
+        dto.setSeedHash(session.getSeedHash());
         return dto;
     }
 }
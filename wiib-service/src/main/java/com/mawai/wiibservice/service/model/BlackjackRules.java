@@ -0,0 +1,103 @@
+package com.mawai.wiibservice.service.model;
+
+/**
+ * 21点规则核心（无状态、无Spring依赖），BlackjackServiceImpl 与模拟器共用同一份规则
+ * <p>
+ * 牌编码与 GameRngService 一致：code = rank*4+suit，rank 0=A、1..8=2..9、9..12=T/J/Q/K。
+ * <ul>
+ *   <li>A 先按11算，爆了再逐张降为1</li>
+ *   <li>庄家 &lt;17 补牌，软17停牌</li>
+ *   <li>两张21即自然BJ（含分牌后），赔3:2</li>
+ *   <li>结算优先级：爆牌 &gt; 自然BJ &gt; 庄爆 &gt; 比点数</li>
+ *   <li>保险赔2:1（连本金共返还3倍），庄家非BJ则没收</li>
+ * </ul>
+ */
+public final class BlackjackRules {
+
+    public static final int DEALER_STAND = 17;
+
+    public enum Outcome {
+        LOSE, PUSH, WIN, BLACKJACK;
+
+        /** 该结果下的净输赢（不含本金） */
+        public long net(long bet) {
+            return switch (this) {
+                case LOSE -> -bet;
+                case PUSH -> 0;
+                case WIN -> bet;
+                case BLACKJACK -> bet * 3 / 2;
+            };
+        }
+    }
+
+    private BlackjackRules() {
+    }
+
+    public static int cardValue(int code) {
+        int rank = code >> 2;
+        if (rank == 0) return 11;
+        return rank >= 9 ? 10 : rank + 1;
+    }
+
+    public static boolean isAce(int code) {
+        return (code >> 2) == 0;
+    }
+
+    /** cards[0..n) 的最优点数 */
+    public static int bestScore(int[] cards, int n) {
+        int total = 0;
+        int aces = 0;
+        for (int i = 0; i < n; i++) {
+            int v = cardValue(cards[i]);
+            total += v;
+            if (v == 11) aces++;
+        }
+        while (total > 21 && aces > 0) {
+            total -= 10;
+            aces--;
+        }
+        return total;
+    }
+
+    /** 是否软牌（有A按11计入且未爆） */
+    public static boolean isSoft(int[] cards, int n) {
+        int total = 0;
+        int aces = 0;
+        for (int i = 0; i < n; i++) {
+            int v = cardValue(cards[i]);
+            total += v;
+            if (v == 11) aces++;
+        }
+        while (total > 21 && aces > 0) {
+            total -= 10;
+            aces--;
+        }
+        return aces > 0;
+    }
+
+    public static boolean isBlackjack(int[] cards, int n) {
+        return n == 2 && bestScore(cards, n) == 21;
+    }
+
+    /** 两张点数相同即可分牌（10/J/Q/K 互相可分） */
+    public static boolean canSplit(int c0, int c1) {
+        return cardValue(c0) == cardValue(c1);
+    }
+
+    public static boolean dealerShouldHit(int dealerScore) {
+        return dealerScore < DEALER_STAND;
+    }
+
+    /** 单手结算 */
+    public static Outcome settle(boolean busted, int playerScore, boolean playerBJ, int dealerScore, boolean dealerBJ) {
+        if (busted) return Outcome.LOSE;
+        if (playerBJ) return dealerBJ ? Outcome.PUSH : Outcome.BLACKJACK;
+        if (dealerScore > 21 || playerScore > dealerScore) return Outcome.WIN;
+        return playerScore == dealerScore ? Outcome.PUSH : Outcome.LOSE;
+    }
+
+    /** 保险净输赢 */
+    public static long insuranceNet(long insuranceBet, boolean dealerBJ) {
+        return dealerBJ ? insuranceBet * 2 : -insuranceBet;
+    }
+}
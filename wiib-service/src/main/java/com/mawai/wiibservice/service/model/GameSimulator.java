@@ -0,0 +1,462 @@
+package com.mawai.wiibservice.service.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * 21点/扫雷蒙特卡洛模拟器：用 BlackjackRules / MinesRules 同一份规则跑海量局，核对RTP与庄家优势
+ * 模拟忽略积分池封顶与下注上下限，21点固定按基本策略、不买保险。
+ */
+public final class GameSimulator {
+
+    private static final double Z95 = 1.96;
+    private static final int MAX_HANDS = 8;
+    private static final int MAX_CARDS = 12;
+    private static final int DECK_SIZE = 52;
+    /** 21点以半注为单位记账，3:2 正好是整数 */
+    private static final int UNIT = 2;
+    /** 单局净输赢范围（半注）：最多8手加倍全输 -32，全赢 +32 */
+    private static final int NET_OFFSET = MAX_HANDS * 2 * UNIT;
+
+    private GameSimulator() {
+    }
+
+    // ==================== 21点 ====================
+
+    /**
+     * 基本策略模拟21点
+     * @param rounds 总局数
+     * @param threads 并行线程数，&lt;=0 取CPU核数
+     * @param seed 随机种子，同一 seed + threads 结果可复现
+     */
+    public static Map<String, Object> simulateBlackjack(long rounds, int threads, long seed) {
+        long start = System.nanoTime();
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        List<BlackjackWorker> workers = runParallel(rounds, n, seed, BlackjackWorker::new);
+
+        BlackjackWorker total = new BlackjackWorker(null, 0);
+        for (BlackjackWorker w : workers) total.merge(w);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("game", "BLACKJACK");
+        report.put("seed", seed);
+        report.put("threads", n);
+        putCommon(report, total.stats, UNIT);
+        putElapsed(report, total.stats.count, start);
+
+        Map<String, Object> netDist = new LinkedHashMap<>();
+        for (int i = 0; i < total.netHistogram.length; i++) {
+            if (total.netHistogram[i] == 0) continue;
+            netDist.put(formatUnits(i - NET_OFFSET), round6((double) total.netHistogram[i] / total.stats.count));
+        }
+        report.put("netDistribution", netDist);
+
+        Map<String, Object> wagerDist = new LinkedHashMap<>();
+        for (int i = 0; i < total.wagerHistogram.length; i++) {
+            if (total.wagerHistogram[i] == 0) continue;
+            wagerDist.put(i / UNIT + "x", round6((double) total.wagerHistogram[i] / total.stats.count));
+        }
+        report.put("wagerDistribution", wagerDist);
+
+        Map<String, Object> outcomes = new LinkedHashMap<>();
+        long hands = 0;
+        for (long c : total.outcomeCounts) hands += c;
+        for (BlackjackRules.Outcome o : BlackjackRules.Outcome.values()) {
+            outcomes.put(o.name(), round6((double) total.outcomeCounts[o.ordinal()] / hands));
+        }
+        report.put("handOutcomes", outcomes);
+        report.put("hands", hands);
+        report.put("splitRate", round6((double) total.splits / total.stats.count));
+        report.put("doubleRate", round6((double) total.doubles / total.stats.count));
+        return report;
+    }
+
+    /**
+     * 基本策略（S17、可加倍任意两张、分牌后可加倍）
+     * @return 'H' 要牌 / 'S' 停牌 / 'D' 加倍（不能加倍时要牌）/ 'd' 加倍（不能加倍时停牌）/ 'P' 分牌
+     */
+    static char basicStrategy(int[] cards, int n, int dealerUp, boolean canSplit) {
+        int up = BlackjackRules.cardValue(dealerUp);
+        if (canSplit && n == 2 && BlackjackRules.canSplit(cards[0], cards[1])) {
+            int pair = BlackjackRules.cardValue(cards[0]);
+            boolean split = switch (pair) {
+                case 11, 8 -> true;
+                case 9 -> up <= 9 && up != 7;
+                case 7, 3, 2 -> up <= 7;
+                case 6 -> up <= 6;
+                case 4 -> up == 5 || up == 6;
+                default -> false;
+            };
+            if (split) return 'P';
+        }
+        int score = BlackjackRules.bestScore(cards, n);
+        if (BlackjackRules.isSoft(cards, n)) {
+            return switch (score) {
+                case 13, 14 -> up == 5 || up == 6 ? 'D' : 'H';
+                case 15, 16 -> up >= 4 && up <= 6 ? 'D' : 'H';
+                case 17 -> up >= 3 && up <= 6 ? 'D' : 'H';
+                case 18 -> up >= 3 && up <= 6 ? 'd' : (up >= 9 ? 'H' : 'S');
+                default -> score < 13 ? 'H' : 'S';
+            };
+        }
+        if (score <= 8) return 'H';
+        if (score == 9) return up >= 3 && up <= 6 ? 'D' : 'H';
+        if (score == 10) return up <= 9 ? 'D' : 'H';
+        if (score == 11) return up <= 10 ? 'D' : 'H';
+        if (score == 12) return up >= 4 && up <= 6 ? 'S' : 'H';
+        if (score <= 16) return up <= 6 ? 'S' : 'H';
+        return 'S';
+    }
+
+    /** 单线程21点工作单元，所有缓冲区在构造时分配一次 */
+    private static final class BlackjackWorker implements Runnable {
+        private final SplittableRandom rng;
+        private final long rounds;
+        private final Stats stats = new Stats();
+        private final long[] netHistogram = new long[NET_OFFSET * 2 + 1];
+        private final long[] wagerHistogram = new long[MAX_HANDS * 2 * UNIT + 1];
+        private final long[] outcomeCounts = new long[BlackjackRules.Outcome.values().length];
+        private long splits;
+        private long doubles;
+
+        private final int[] deck = new int[DECK_SIZE];
+        private int deckPos;
+        private final int[][] hands = new int[MAX_HANDS][MAX_CARDS];
+        private final int[] handSize = new int[MAX_HANDS];
+        private final int[] handBet = new int[MAX_HANDS];
+        private final boolean[] handBusted = new boolean[MAX_HANDS];
+        private final int[] dealer = new int[MAX_CARDS];
+        private int dealerSize;
+        private int handCount;
+
+        BlackjackWorker(SplittableRandom rng, long rounds) {
+            this.rng = rng;
+            this.rounds = rounds;
+            for (int i = 0; i < DECK_SIZE; i++) deck[i] = i;
+        }
+
+        @Override
+        public void run() {
+            for (long r = 0; r < rounds; r++) {
+                playRound();
+            }
+        }
+
+        /** 惰性 Fisher-Yates：每发一张只洗一个位置，整局只消耗实际发出张数的随机数 */
+        private int draw() {
+            int j = deckPos + rng.nextInt(DECK_SIZE - deckPos);
+            int card = deck[j];
+            deck[j] = deck[deckPos];
+            deck[deckPos++] = card;
+            return card;
+        }
+
+        private void playRound() {
+            deckPos = 0;
+            handCount = 1;
+            handSize[0] = 0;
+            handBet[0] = UNIT;
+            handBusted[0] = false;
+            dealerSize = 0;
+
+            // 发牌顺序与服务端一致：闲、庄、闲、庄，庄家第二张为明牌
+            hands[0][handSize[0]++] = draw();
+            dealer[dealerSize++] = draw();
+            hands[0][handSize[0]++] = draw();
+            dealer[dealerSize++] = draw();
+            int up = dealer[1];
+
+            boolean playerBJ = BlackjackRules.isBlackjack(hands[0], 2);
+            boolean dealerBJ = BlackjackRules.isBlackjack(dealer, 2);
+            // 庄家明牌非A且BJ直接结算；明牌为A时闲家不知道，照常打完再比
+            if (playerBJ || (dealerBJ && !BlackjackRules.isAce(up))) {
+                BlackjackRules.Outcome o = BlackjackRules.settle(false, BlackjackRules.bestScore(hands[0], 2),
+                        playerBJ, BlackjackRules.bestScore(dealer, 2), dealerBJ);
+                record(o.net(UNIT), UNIT);
+                outcomeCounts[o.ordinal()]++;
+                return;
+            }
+
+            for (int h = 0; h < handCount; h++) {
+                playHand(h, up);
+            }
+
+            boolean allBusted = true;
+            for (int h = 0; h < handCount; h++) {
+                if (!handBusted[h]) {
+                    allBusted = false;
+                    break;
+                }
+            }
+            if (!allBusted) {
+                while (BlackjackRules.dealerShouldHit(BlackjackRules.bestScore(dealer, dealerSize))) {
+                    dealer[dealerSize++] = draw();
+                }
+            }
+
+            int dealerScore = BlackjackRules.bestScore(dealer, dealerSize);
+            long net = 0;
+            int wager = 0;
+            for (int h = 0; h < handCount; h++) {
+                int[] cards = hands[h];
+                BlackjackRules.Outcome o = BlackjackRules.settle(handBusted[h],
+                        BlackjackRules.bestScore(cards, handSize[h]), BlackjackRules.isBlackjack(cards, handSize[h]),
+                        dealerScore, dealerBJ);
+                net += o.net(handBet[h]);
+                wager += handBet[h];
+                outcomeCounts[o.ordinal()]++;
+            }
+            record(net, wager);
+        }
+
+        private void playHand(int h, int up) {
+            int[] cards = hands[h];
+            while (true) {
+                int n = handSize[h];
+                int score = BlackjackRules.bestScore(cards, n);
+                if (score > 21) {
+                    handBusted[h] = true;
+                    return;
+                }
+                // 到21自动停牌（含分牌后两张21）
+                if (score == 21) return;
+                char action = basicStrategy(cards, n, up, handCount < MAX_HANDS);
+                switch (action) {
+                    case 'P' -> {
+                        int target = handCount++;
+                        hands[target][0] = cards[1];
+                        handSize[target] = 1;
+                        handBet[target] = handBet[h];
+                        handBusted[target] = false;
+                        handSize[h] = 1;
+                        cards[handSize[h]++] = draw();
+                        hands[target][handSize[target]++] = draw();
+                        splits++;
+                    }
+                    case 'D', 'd' -> {
+                        if (n == 2) {
+                            handBet[h] *= 2;
+                            cards[handSize[h]++] = draw();
+                            doubles++;
+                            handBusted[h] = BlackjackRules.bestScore(cards, handSize[h]) > 21;
+                            return;
+                        }
+                        if (action == 'd') return;
+                        cards[handSize[h]++] = draw();
+                    }
+                    case 'H' -> cards[handSize[h]++] = draw();
+                    default -> {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void record(long net, int wager) {
+            stats.add(net, wager);
+            netHistogram[(int) net + NET_OFFSET]++;
+            wagerHistogram[wager]++;
+        }
+
+        void merge(BlackjackWorker o) {
+            stats.merge(o.stats);
+            for (int i = 0; i < netHistogram.length; i++) netHistogram[i] += o.netHistogram[i];
+            for (int i = 0; i < wagerHistogram.length; i++) wagerHistogram[i] += o.wagerHistogram[i];
+            for (int i = 0; i < outcomeCounts.length; i++) outcomeCounts[i] += o.outcomeCounts[i];
+            splits += o.splits;
+            doubles += o.doubles;
+        }
+    }
+
+    // ==================== 扫雷 ====================
+
+    /**
+     * 固定策略模拟扫雷：每局翻开 reveals 个格子后提现
+     * @param reveals 1..SAFE_COUNT；&lt;=0 时逐个扫 1..SAFE_COUNT，每档各跑 rounds 局
+     */
+    public static Map<String, Object> simulateMines(long rounds, int reveals, int threads, long seed) {
+        long start = System.nanoTime();
+        int n = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int from = reveals > 0 ? reveals : 1;
+        int to = reveals > 0 ? reveals : MinesRules.SAFE_COUNT;
+
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Map<String, Object>> levels = new ArrayList<>();
+        for (int k = from; k <= to; k++) {
+            int target = k;
+            List<MinesWorker> workers = runParallel(rounds, n, root.nextLong(),
+                    (rng, share) -> new MinesWorker(rng, share, target));
+            Stats total = new Stats();
+            for (MinesWorker w : workers) total.merge(w.stats);
+
+            Map<String, Object> level = new LinkedHashMap<>();
+            level.put("reveals", k);
+            level.put("multiplier", MinesRules.multiplier(k));
+            level.put("surviveProbability", round6(MinesRules.surviveProbability(k)));
+            double exact = MinesRules.exactRtp(k);
+            level.put("exactRtp", round6(exact));
+            putCommon(level, total, 1);
+            double[] ci = total.rtpCi();
+            level.put("exactWithinCi", exact >= ci[0] && exact <= ci[1]);
+            levels.add(level);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("game", "MINES");
+        report.put("seed", seed);
+        report.put("threads", n);
+        report.put("roundsPerLevel", rounds);
+        putElapsed(report, rounds * (to - from + 1), start);
+        report.put("levels", levels);
+        return report;
+    }
+
+    /** 单线程扫雷工作单元：雷位用惰性洗牌取前 MINE_COUNT 格，玩家固定翻 0..k-1 号格 */
+    private static final class MinesWorker implements Runnable {
+        private final SplittableRandom rng;
+        private final long rounds;
+        private final double multiplier;
+        private final int revealMask;
+        private final int[] cells = new int[MinesRules.GRID_SIZE];
+        private final Stats stats = new Stats();
+
+        MinesWorker(SplittableRandom rng, long rounds, int reveals) {
+            this.rng = rng;
+            this.rounds = rounds;
+            this.multiplier = MinesRules.multiplier(reveals).doubleValue();
+            this.revealMask = (1 << reveals) - 1;
+            for (int i = 0; i < cells.length; i++) cells[i] = i;
+        }
+
+        @Override
+        public void run() {
+            for (long r = 0; r < rounds; r++) {
+                int mines = 0;
+                for (int i = 0; i < MinesRules.MINE_COUNT; i++) {
+                    int j = i + rng.nextInt(MinesRules.GRID_SIZE - i);
+                    int c = cells[j];
+                    cells[j] = cells[i];
+                    cells[i] = c;
+                    mines |= 1 << c;
+                }
+                stats.add((mines & revealMask) == 0 ? multiplier - 1 : -1, 1);
+            }
+        }
+    }
+
+    // ==================== 并行与统计 ====================
+
+    private static <W extends Runnable> List<W> runParallel(long rounds, int threads, long seed,
+                                                           BiFunction<SplittableRandom, Long, W> factory) {
+        SplittableRandom root = new SplittableRandom(seed);
+        List<W> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            long share = rounds / threads + (i < rounds % threads ? 1 : 0);
+            workers.add(factory.apply(root.split(), share));
+        }
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (W w : workers) futures.add(pool.submit(w));
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模拟被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("模拟失败", e.getCause());
+        }
+        return workers;
+    }
+
+    private static void putElapsed(Map<String, Object> report, long rounds, long startNanos) {
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        report.put("elapsedMs", elapsedMs);
+        report.put("roundsPerSec", rounds * 1000 / elapsedMs);
+    }
+
+    private static void putCommon(Map<String, Object> report, Stats s, int unit) {
+        report.put("rounds", s.count);
+
+        double mean = s.meanNet() / unit;
+        double sd = Math.sqrt(s.varianceNet()) / unit;
+        double half = Z95 * sd / Math.sqrt(s.count);
+        report.put("meanNetPerRound", round6(mean));
+        report.put("variance", round6(sd * sd));
+        report.put("stdDev", round6(sd));
+        report.put("meanNetCi95", new double[]{round6(mean - half), round6(mean + half)});
+        report.put("rtp", round6(s.rtp()));
+        double[] ci = s.rtpCi();
+        report.put("rtpCi95", new double[]{round6(ci[0]), round6(ci[1])});
+        report.put("houseEdge", round6(1 - s.rtp()));
+        report.put("avgWager", round6(s.sumWager / s.count / unit));
+    }
+
+    /** 每局净输赢与下注额的一、二阶矩 */
+    private static final class Stats {
+        long count;
+        double sumNet;
+        double sumNet2;
+        double sumWager;
+        double sumWager2;
+        double sumNetWager;
+
+        void add(double net, double wager) {
+            count++;
+            sumNet += net;
+            sumNet2 += net * net;
+            sumWager += wager;
+            sumWager2 += wager * wager;
+            sumNetWager += net * wager;
+        }
+
+        void merge(Stats o) {
+            count += o.count;
+            sumNet += o.sumNet;
+            sumNet2 += o.sumNet2;
+            sumWager += o.sumWager;
+            sumWager2 += o.sumWager2;
+            sumNetWager += o.sumNetWager;
+        }
+
+        double meanNet() {
+            return sumNet / count;
+        }
+
+        double varianceNet() {
+            double m = meanNet();
+            return count > 1 ? (sumNet2 - count * m * m) / (count - 1) : 0;
+        }
+
+        /** RTP = (Σwager + Σnet) / Σwager */
+        double rtp() {
+            return 1 + sumNet / sumWager;
+        }
+
+        /** 比率估计 r = Σnet/Σwager 的 delta 法区间：Var(r) ≈ Var(net - r·wager) / (n·E[wager]²) */
+        double[] rtpCi() {
+            double r = sumNet / sumWager;
+            double meanW = sumWager / count;
+            double residual2 = sumNet2 - 2 * r * sumNetWager + r * r * sumWager2;
+            double var = count > 1 ? residual2 / (count - 1) : 0;
+            double half = Z95 * Math.sqrt(var / count) / meanW;
+            return new double[]{1 + r - half, 1 + r + half};
+        }
+    }
+
+    private static String formatUnits(int halfBets) {
+        String s = halfBets % UNIT == 0 ? String.valueOf(halfBets / UNIT) : String.valueOf(halfBets / (double) UNIT);
+        return halfBets > 0 ? "+" + s : s;
+    }
+
+    private static double round6(double v) {
+        return Math.round(v * 1e6) / 1e6;
+    }
+}
@@ -0,0 +1,59 @@
+package com.mawai.wiibservice.service.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 扫雷规则核心：棋盘规模与倍率表（MinesServiceImpl 与模拟器共用）
+ * <p>
+ * 倍率 multipliers[k] = HOUSE_EDGE * (C(25,k)/C(20,k)) ^ DAMPEN，k 为已翻开的安全格数。
+ */
+public final class MinesRules {
+
+    public static final int GRID_SIZE = 25;
+    public static final int MINE_COUNT = 5;
+    public static final int SAFE_COUNT = GRID_SIZE - MINE_COUNT;
+    private static final BigDecimal HOUSE_EDGE = new BigDecimal("0.50");
+    private static final double DAMPEN = 0.9;
+
+    private static final BigDecimal[] MULTIPLIERS = new BigDecimal[SAFE_COUNT + 1];
+
+    static {
+        MULTIPLIERS[0] = BigDecimal.ONE;
+        // 先递推算原始倍率 raw[k] = C(25,k)/C(20,k)
+        BigDecimal[] raw = new BigDecimal[SAFE_COUNT + 1];
+        raw[0] = BigDecimal.ONE;
+        for (int k = 1; k <= SAFE_COUNT; k++) {
+            raw[k] = raw[k - 1]
+                    .multiply(BigDecimal.valueOf(GRID_SIZE - k + 1))
+                    .divide(BigDecimal.valueOf(SAFE_COUNT - k + 1), 10, RoundingMode.HALF_UP);
+        }
+        // HOUSE_EDGE * raw^DAMPEN
+        for (int k = 1; k <= SAFE_COUNT; k++) {
+            double dampened = Math.pow(raw[k].doubleValue(), DAMPEN);
+            MULTIPLIERS[k] = HOUSE_EDGE.multiply(BigDecimal.valueOf(dampened)).setScale(4, RoundingMode.HALF_UP);
+        }
+    }
+
+    private MinesRules() {
+    }
+
+    public static BigDecimal multiplier(int revealedCount) {
+        if (revealedCount < 0 || revealedCount > SAFE_COUNT) return BigDecimal.ONE;
+        return MULTIPLIERS[revealedCount];
+    }
+
+    /** 连续翻开 k 个安全格的概率 C(20,k)/C(25,k) */
+    public static double surviveProbability(int k) {
+        double p = 1;
+        for (int i = 0; i < k; i++) {
+            p *= (double) (SAFE_COUNT - i) / (GRID_SIZE - i);
+        }
+        return p;
+    }
+
+    /** 翻 k 格后提现策略的理论RTP */
+    public static double exactRtp(int k) {
+        return surviveProbability(k) * multiplier(k).doubleValue();
+    }
+}
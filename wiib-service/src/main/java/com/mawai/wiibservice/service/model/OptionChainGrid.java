@@ -0,0 +1,206 @@
+package com.mawai.wiibservice.service.model;
+
+import com.mawai.wiibcommon.entity.OptionContract;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单只股票在某个 (spot, 分钟) 快照下的期权链定价网格（不可变）
+ * <p>
+ * 所有合约按下标平铺到原始数组，一次遍历算出权利金和 Greeks；
+ * 同一到期时间的 sqrtT、贴现因子只算一次。
+ * <p>
+ * Greeks 口径：theta 为每自然日，vega 为波动率每变动1%。
+ */
+public final class OptionChainGrid {
+
+    public static final double RISK_FREE_RATE = 0.03;
+    private static final double MIN_TIME_TO_EXPIRY = 0.0001;
+    private static final long EXPIRY_CUTOFF_MS = 60_000L;
+    private static final double MINUTES_PER_YEAR = 365.0 * 24 * 60;
+    private static final double INV_SQRT_2PI = 1.0 / Math.sqrt(2 * Math.PI);
+    private static final BigDecimal MIN_PREMIUM = new BigDecimal("0.01");
+
+    private final Long stockId;
+    private final double spot;
+    private final LocalDateTime pricedAt;
+    private final Map<Long, Integer> indexById;
+
+    private final long[] contractIds;
+    private final boolean[] atExpiry;
+    private final double[] price;
+    private final double[] delta;
+    private final double[] gamma;
+    private final double[] theta;
+    private final double[] vega;
+
+    private OptionChainGrid(Long stockId, double spot, LocalDateTime pricedAt, int n) {
+        this.stockId = stockId;
+        this.spot = spot;
+        this.pricedAt = pricedAt;
+        this.indexById = new HashMap<>(n * 2);
+        this.contractIds = new long[n];
+        this.atExpiry = new boolean[n];
+        this.price = new double[n];
+        this.delta = new double[n];
+        this.gamma = new double[n];
+        this.theta = new double[n];
+        this.vega = new double[n];
+    }
+
+    /**
+     * 对整条期权链做一次定价
+     * @param contracts 同一标的的合约（建议按到期时间排序，相邻同到期可复用中间量）
+     * @param spot 标的价格
+     * @param now 定价时刻（调用方按分钟截断，保证同一快照结果可复用）
+     */
+    public static OptionChainGrid build(Long stockId, List<OptionContract> contracts, double spot, LocalDateTime now) {
+        int n = contracts.size();
+        OptionChainGrid g = new OptionChainGrid(stockId, spot, now, n);
+
+        double[] strike = new double[n];
+        double[] sigma = new double[n];
+        boolean[] call = new boolean[n];
+        double[] t = new double[n];
+
+        LocalDateTime lastExpire = null;
+        double lastT = 0;
+        boolean lastAtExpiry = false;
+        for (int i = 0; i < n; i++) {
+            OptionContract c = contracts.get(i);
+            g.contractIds[i] = c.getId();
+            g.indexById.put(c.getId(), i);
+            strike[i] = c.getStrike().doubleValue();
+            sigma[i] = c.getSigma().doubleValue();
+            call[i] = "CALL".equals(c.getOptionType());
+
+            if (!c.getExpireAt().equals(lastExpire)) {
+                lastExpire = c.getExpireAt();
+                lastAtExpiry = !lastExpire.isAfter(now)
+                        || Duration.between(now, lastExpire).toMillis() <= EXPIRY_CUTOFF_MS;
+                lastT = Math.max(Duration.between(now, lastExpire).toMinutes() / MINUTES_PER_YEAR, MIN_TIME_TO_EXPIRY);
+            }
+            g.atExpiry[i] = lastAtExpiry;
+            t[i] = lastT;
+        }
+
+        double r = RISK_FREE_RATE;
+        double prevT = -1, sqrtT = 0, disc = 0;
+        for (int i = 0; i < n; i++) {
+            double K = strike[i];
+            if (g.atExpiry[i]) {
+                double intrinsic = call[i] ? spot - K : K - spot;
+                g.price[i] = Math.max(intrinsic, 0);
+                g.delta[i] = intrinsic > 0 ? (call[i] ? 1 : -1) : 0;
+                continue;
+            }
+
+            double ti = t[i];
+            if (ti != prevT) {
+                prevT = ti;
+                sqrtT = Math.sqrt(ti);
+                disc = Math.exp(-r * ti);
+            }
+            double vol = sigma[i];
+            double volSqrtT = vol * sqrtT;
+            double d1 = (Math.log(spot / K) + (r + 0.5 * vol * vol) * ti) / volSqrtT;
+            double d2 = d1 - volSqrtT;
+            double pdf = INV_SQRT_2PI * Math.exp(-0.5 * d1 * d1);
+            double kDisc = K * disc;
+
+            double decay = -spot * pdf * vol / (2 * sqrtT);
+            if (call[i]) {
+                double nd2 = cdf(d2);
+                g.price[i] = spot * cdf(d1) - kDisc * nd2;
+                g.delta[i] = cdf(d1);
+                g.theta[i] = (decay - r * kDisc * nd2) / 365.0;
+            } else {
+                double nmd2 = cdf(-d2);
+                g.price[i] = kDisc * nmd2 - spot * cdf(-d1);
+                g.delta[i] = cdf(d1) - 1;
+                g.theta[i] = (decay + r * kDisc * nmd2) / 365.0;
+            }
+            g.gamma[i] = pdf / (spot * volSqrtT);
+            g.vega[i] = spot * pdf * sqrtT / 100.0;
+        }
+        return g;
+    }
+
+    /** 标准正态分布CDF（Abramowitz-Stegun erf 近似） */
+    public static double cdf(double x) {
+        return 0.5 * (1 + erf(x / Math.sqrt(2)));
+    }
+
+    private static double erf(double x) {
+        double a1 = 0.254829592;
+        double a2 = -0.284496736;
+        double a3 = 1.421413741;
+        double a4 = -1.453152027;
+        double a5 = 1.061405429;
+        double p = 0.3275911;
+
+        int sign = x < 0 ? -1 : 1;
+        x = Math.abs(x);
+
+        double t = 1.0 / (1.0 + p * x);
+        double y = 1.0 - (((((a5 * t + a4) * t) + a3) * t + a2) * t + a1) * t * Math.exp(-x * x);
+
+        return sign * y;
+    }
+
+    /** @return 合约在网格中的下标，不在本链中返回-1 */
+    public int indexOf(Long contractId) {
+        Integer idx = indexById.get(contractId);
+        return idx != null ? idx : -1;
+    }
+
+    /** 权利金，口径与 OptionPricingService.calculatePremium 一致（4位小数，最低0.01，临近到期取内在价值） */
+    public BigDecimal premium(int idx) {
+        if (!Double.isFinite(price[idx])) return MIN_PREMIUM;
+        BigDecimal p = BigDecimal.valueOf(price[idx]).setScale(4, RoundingMode.HALF_UP);
+        if (atExpiry[idx]) return p;
+        return p.compareTo(MIN_PREMIUM) < 0 ? MIN_PREMIUM : p;
+    }
+
+    public int size() {
+        return contractIds.length;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public double getSpot() {
+        return spot;
+    }
+
+    public LocalDateTime getPricedAt() {
+        return pricedAt;
+    }
+
+    public long contractId(int idx) {
+        return contractIds[idx];
+    }
+
+    public double delta(int idx) {
+        return delta[idx];
+    }
+
+    public double gamma(int idx) {
+        return gamma[idx];
+    }
+
+    public double theta(int idx) {
+        return theta[idx];
+    }
+
+    public double vega(int idx) {
+        return vega[idx];
+    }
+}
@@ -0,0 +1,320 @@
+package com.mawai.wiibservice.service.model;
+
+import java.util.*;
+
+/**
+ * 视频扑克（Joker Poker，53张）查表牌型评估 + 32种HOLD的精确期望
+ * <p>
+ * 牌编码与 GameRngService 一致：0~51 为 rank*4+suit（rank 顺序 A23456789TJQK），52 为小丑。
+ * <p>
+ * 牌型只取决于三件事：自然牌点数的多重集合、自然牌是否同花、小丑张数。
+ * 点数多重集合用素数乘积唯一表示，key = 乘积*4 + 小丑*2 + 同花，类初始化时枚举全部组合
+ * （9997个，约1万）用规则判定一次写入开放寻址表，之后每手牌评估只是一次查表。
+ * <p>
+ * {@link #optimalReturn} 在此之上对整张赔率表做最优策略 RTP 审计。
+ */
+public final class VideoPokerEvaluator {
+
+    public static final int JOKER = 52;
+    public static final int DECK_SIZE = 53;
+
+    /** 牌型下标，顺序与赔率表一致；NO_WIN 为最后一档 */
+    public static final String[] CATEGORY_NAMES = {
+            "Natural Royal Flush", "Joker Royal Flush", "Five of a Kind", "Straight Flush",
+            "Four of a Kind", "Full House", "Flush", "Straight", "Three of a Kind",
+            "Two Pair", "Jacks or Better", "No Win"
+    };
+    public static final int NO_WIN = CATEGORY_NAMES.length - 1;
+
+    private static final int[] PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41};
+
+    private static final int TABLE_BITS = 15;
+    private static final int TABLE_MASK = (1 << TABLE_BITS) - 1;
+    private static final int[] KEYS = new int[1 << TABLE_BITS];
+    private static final byte[] VALUES = new byte[1 << TABLE_BITS];
+
+    /** C(48, k)，k=0..5 */
+    private static final long[] DRAW_COMBOS = {1, 48, 1128, 17296, 194580, 1712304};
+    /** BINOM[n][k] = C(n, k)，n≤53、k≤5，用于子集的组合数编号 */
+    private static final int[][] BINOM = new int[DECK_SIZE + 1][6];
+
+    static {
+        for (int n = 0; n <= DECK_SIZE; n++) {
+            BINOM[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, 5); k++) {
+                BINOM[n][k] = BINOM[n - 1][k - 1] + (k <= n - 1 ? BINOM[n - 1][k] : 0);
+            }
+        }
+        Arrays.fill(KEYS, -1);
+        int[] counts = new int[13];
+        for (int jokers = 0; jokers <= 1; jokers++) {
+            fillTable(counts, 0, 5 - jokers, jokers);
+        }
+    }
+
+    private VideoPokerEvaluator() {
+    }
+
+    /** 5张牌（编码）的牌型下标 */
+    public static int evaluate(int[] cards) {
+        int product = 1;
+        int jokers = 0;
+        int suit = -1;
+        boolean flush = true;
+        for (int c : cards) {
+            if (c == JOKER) {
+                jokers++;
+                continue;
+            }
+            product *= PRIMES[c >> 2];
+            int s = c & 3;
+            if (suit < 0) suit = s;
+            else if (s != suit) flush = false;
+        }
+        return lookup(product * 4 + jokers * 2 + (flush ? 1 : 0));
+    }
+
+    /**
+     * 32种HOLD方式的精确期望回报（每单位下注）
+     * @param hand 当前5张牌
+     * @param payouts 各牌型赔率，下标同 {@link #CATEGORY_NAMES}
+     * @return 下标为HOLD掩码（bit i = 保留第i张）的期望值
+     */
+    public static double[] holdEvs(int[] hand, double[] payouts) {
+        int[] rest = new int[DECK_SIZE - 5];
+        int n = 0;
+        boolean[] dealt = new boolean[DECK_SIZE];
+        for (int c : hand) dealt[c] = true;
+        for (int c = 0; c < DECK_SIZE; c++) {
+            if (!dealt[c]) rest[n++] = c;
+        }
+
+        double[] evs = new double[32];
+        int[] cards = new int[5];
+        for (int mask = 0; mask < 32; mask++) {
+            int held = 0;
+            for (int i = 0; i < 5; i++) {
+                if ((mask & (1 << i)) != 0) cards[held++] = hand[i];
+            }
+            int draw = 5 - held;
+            evs[mask] = sumPayouts(cards, held, rest, 0, draw, payouts) / DRAW_COMBOS[draw];
+        }
+        return evs;
+    }
+
+    /** 期望最高的HOLD掩码 */
+    public static int bestHold(double[] evs) {
+        int best = 0;
+        for (int mask = 1; mask < evs.length; mask++) {
+            if (evs[mask] > evs[best]) best = mask;
+        }
+        return best;
+    }
+
+    /**
+     * 赔率表审计：每手起手牌都按最优HOLD打时的理论回报率（每单位下注），遍历全部 C(53,5) 种起手牌
+     * <p>
+     * 先把每手终局牌的赔率累加到它的32个子集上得到 S(T) = 含子集T的全部终局牌赔率之和；
+     * 起手牌 D 保留 H 时，终局牌必须含 H 且不含弃掉的牌，容斥得
+     * EV(H) = Σ_{H⊆T⊆D} (-1)^{|T\H|} S(T) / C(48, 5-|H|)。每手起手牌只需32次查表，单核数秒。
+     */
+    public static double optimalReturn(double[] payouts) {
+        double[][] sums = subsetPayoutSums(payouts);
+        int[] deal = new int[5];
+        double[] evs = new double[32];
+        double total = 0;
+        long deals = 0;
+        for (deal[0] = 0; deal[0] < DECK_SIZE; deal[0]++)
+            for (deal[1] = deal[0] + 1; deal[1] < DECK_SIZE; deal[1]++)
+                for (deal[2] = deal[1] + 1; deal[2] < DECK_SIZE; deal[2]++)
+                    for (deal[3] = deal[2] + 1; deal[3] < DECK_SIZE; deal[3]++)
+                        for (deal[4] = deal[3] + 1; deal[4] < DECK_SIZE; deal[4]++) {
+                            holdEvs(deal, sums, evs);
+                            total += evs[bestHold(evs)];
+                            deals++;
+                        }
+        return total / deals;
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * sums[k][子集编号] = 含该k张子集的全部5张终局牌的赔率之和；
+     * 子集按升序 c0<c1<.. 用组合数编号 Σ C(c_j, j+1)，每个k一个数组（k=5时即每手牌自身的赔率）
+     */
+    static double[][] subsetPayoutSums(double[] payouts) {
+        double[][] sums = new double[6][];
+        for (int k = 0; k <= 5; k++) {
+            sums[k] = new double[BINOM[DECK_SIZE][k]];
+        }
+        int[] hand = new int[5];
+        int[] sub = new int[5];
+        for (hand[0] = 0; hand[0] < DECK_SIZE; hand[0]++)
+            for (hand[1] = hand[0] + 1; hand[1] < DECK_SIZE; hand[1]++)
+                for (hand[2] = hand[1] + 1; hand[2] < DECK_SIZE; hand[2]++)
+                    for (hand[3] = hand[2] + 1; hand[3] < DECK_SIZE; hand[3]++)
+                        for (hand[4] = hand[3] + 1; hand[4] < DECK_SIZE; hand[4]++) {
+                            double payout = payouts[evaluate(hand)];
+                            if (payout == 0) continue;
+                            for (int mask = 0; mask < 32; mask++) {
+                                int k = 0;
+                                for (int i = 0; i < 5; i++) {
+                                    if ((mask & (1 << i)) != 0) sub[k++] = hand[i];
+                                }
+                                sums[k][subsetIndex(sub, k)] += payout;
+                            }
+                        }
+        return sums;
+    }
+
+    /**
+     * 用子集赔率和按容斥算一手升序起手牌的32种HOLD期望，结果写入 evs（下标同 {@link #holdEvs(int[], double[])}）
+     */
+    static void holdEvs(int[] sortedDeal, double[][] sums, double[] evs) {
+        int[] sub = new int[5];
+        for (int mask = 0; mask < 32; mask++) {
+            int k = 0;
+            for (int i = 0; i < 5; i++) {
+                if ((mask & (1 << i)) != 0) sub[k++] = sortedDeal[i];
+            }
+            evs[mask] = sums[k][subsetIndex(sub, k)];
+        }
+        // 超集方向的莫比乌斯反演：evs[H] = Σ_{T⊇H} (-1)^{|T\H|} S(T)
+        for (int bit = 1; bit < 32; bit <<= 1) {
+            for (int mask = 0; mask < 32; mask++) {
+                if ((mask & bit) == 0) evs[mask] -= evs[mask | bit];
+            }
+        }
+        for (int mask = 0; mask < 32; mask++) {
+            evs[mask] /= DRAW_COMBOS[5 - Integer.bitCount(mask)];
+        }
+    }
+
+    private static int subsetIndex(int[] sortedCards, int k) {
+        int idx = 0;
+        for (int j = 0; j < k; j++) {
+            idx += BINOM[sortedCards[j]][j + 1];
+        }
+        return idx;
+    }
+
+    /** 在 rest[from..] 中选 draw 张补进 cards[filled..]，累加赔率 */
+    private static double sumPayouts(int[] cards, int filled, int[] rest, int from, int draw, double[] payouts) {
+        if (draw == 0) {
+            return payouts[evaluate(cards)];
+        }
+        double sum = 0;
+        for (int i = from; i <= rest.length - draw; i++) {
+            cards[filled] = rest[i];
+            sum += sumPayouts(cards, filled + 1, rest, i + 1, draw - 1, payouts);
+        }
+        return sum;
+    }
+
+    private static int lookup(int key) {
+        int slot = hash(key);
+        while (KEYS[slot] != key) {
+            if (KEYS[slot] == -1) throw new IllegalStateException("牌型表缺失: " + key);
+            slot = (slot + 1) & TABLE_MASK;
+        }
+        return VALUES[slot];
+    }
+
+    private static int hash(int key) {
+        return (key * 0x9E3779B9) >>> (32 - TABLE_BITS);
+    }
+
+    private static void put(int key, int category) {
+        int slot = hash(key);
+        while (KEYS[slot] != -1 && KEYS[slot] != key) {
+            slot = (slot + 1) & TABLE_MASK;
+        }
+        KEYS[slot] = key;
+        VALUES[slot] = (byte) category;
+    }
+
+    /** 枚举自然牌点数多重集合（每个点数最多4张） */
+    private static void fillTable(int[] counts, int rankIdx, int remaining, int jokers) {
+        if (remaining == 0) {
+            List<Integer> ranks = new ArrayList<>();
+            long product = 1;
+            for (int r = 0; r < 13; r++) {
+                for (int k = 0; k < counts[r]; k++) {
+                    ranks.add(r == 0 ? 14 : r + 1);
+                    product *= PRIMES[r];
+                }
+            }
+            int base = (int) product * 4 + jokers * 2;
+            put(base, classify(ranks, jokers, false));
+            if (new HashSet<>(ranks).size() == ranks.size()) {
+                put(base + 1, classify(ranks, jokers, true));
+            }
+            return;
+        }
+        if (rankIdx == 13) return;
+        for (int k = 0; k <= Math.min(4, remaining); k++) {
+            counts[rankIdx] = k;
+            fillTable(counts, rankIdx + 1, remaining - k, jokers);
+        }
+        counts[rankIdx] = 0;
+    }
+
+    /**
+     * 规则判定（只在建表时调用）
+     * @param ranks 自然牌点数，2~14（A=14）
+     */
+    private static int classify(List<Integer> ranks, int jokers, boolean isFlush) {
+        Map<Integer, Integer> countMap = new HashMap<>();
+        for (int r : ranks) countMap.merge(r, 1, Integer::sum);
+        int maxCount = countMap.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+        isFlush = isFlush || ranks.isEmpty();
+        boolean isStraight = canFormStraight(ranks, jokers);
+        boolean allRoyal = ranks.stream().allMatch(r -> r >= 10);
+        boolean noDupRanks = countMap.size() == ranks.size();
+
+        if (jokers == 0 && isFlush && allRoyal && ranks.size() == 5) return 0;
+        if (jokers > 0 && isFlush && allRoyal && noDupRanks) return 1;
+        if (maxCount + jokers >= 5 && countMap.size() == 1) return 2;
+        if (isFlush && isStraight) return 3;
+        if (maxCount + jokers >= 4) return 4;
+        if (jokers == 0) {
+            List<Integer> counts = new ArrayList<>(countMap.values());
+            counts.sort(Collections.reverseOrder());
+            if (counts.size() >= 2 && counts.get(0) == 3 && counts.get(1) == 2) return 5;
+        } else if (jokers == 1) {
+            long pairCount = countMap.values().stream().filter(c -> c == 2).count();
+            if (pairCount == 2) return 5;
+        }
+        if (isFlush) return 6;
+        if (isStraight) return 7;
+        if (maxCount + jokers >= 3) return 8;
+        if (jokers == 0) {
+            long pairCount = countMap.values().stream().filter(c -> c >= 2).count();
+            if (pairCount >= 2) return 9;
+            for (var e : countMap.entrySet()) {
+                if (e.getValue() >= 2 && e.getKey() >= 11) return 10;
+            }
+        } else if (ranks.stream().anyMatch(r -> r >= 11)) {
+            return 10;
+        }
+        return NO_WIN;
+    }
+
+    private static boolean canFormStraight(List<Integer> naturalRanks, int jokers) {
+        for (int low = 1; low <= 10; low++) {
+            int high = low + 4;
+            boolean allFit = true;
+            Set<Integer> covered = new HashSet<>();
+            for (int r : naturalRanks) {
+                int eff = (r == 14 && low == 1) ? 1 : r;
+                if (eff < low || eff > high) { allFit = false; break; }
+                covered.add(eff);
+            }
+            if (allFit && 5 - covered.size() <= jokers) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,7 @@
 package com.mawai.wiibservice.task;
 
 import com.mawai.wiibservice.service.AssetSnapshotService;
+import com.mawai.wiibservice.service.PortfolioProjection;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -12,6 +13,7 @@ import org.springframework.stereotype.Component;
 public class AssetSnapshotTask {
 
     private final AssetSnapshotService assetSnapshotService;
+    private final PortfolioProjection portfolioProjection;
 
     @Scheduled(cron = "0 0 0 * * *")
     public void dailySnapshot() {
@@ -20,4 +22,18 @@ public class AssetSnapshotTask {
             assetSnapshotService.snapshotAll();
         });
     }
+
+    /**
+     * 资产投影对账：每分钟用库里状态比对缓存中最久未刷新的一批用户投影
+     */
+    @Scheduled(cron = "30 * * * * *")
+    public void reconcilePortfolioProjection() {
+        Thread.startVirtualThread(() -> {
+            try {
+                portfolioProjection.reconcile();
+            } catch (Exception e) {
+                log.error("资产投影对账失败", e);
+            }
+        });
+    }
 }
@@ -36,4 +36,11 @@ public class MarketDataTask {
             marketDataService.loadDayDataToRedis(today);
         });
     }
+
+    public void packLegacyTickData() {
+        Thread.startVirtualThread(() -> {
+            log.info("迁移分时数据到紧凑格式");
+            marketDataService.packLegacyTickData();
+        });
+    }
 }
@@ -5,6 +5,7 @@ import com.alibaba.cloud.ai.graph.OverAllState;
 import com.alibaba.fastjson2.JSON;
 import com.mawai.wiibservice.agent.config.AiAgentRuntimeManager;
 import com.mawai.wiibservice.agent.quant.CryptoAnalysisReport;
+import com.mawai.wiibservice.agent.quant.LlmBatchCoalescer;
 import com.mawai.wiibservice.agent.quant.PriceVolatilitySentinel;
 import com.mawai.wiibservice.agent.quant.QuantForecastPersistService;
 import com.mawai.wiibservice.agent.quant.QuantLightCycleService;
@@ -24,6 +25,7 @@ import com.mawai.wiibservice.agent.quant.domain.QuantCycleCompleteEvent;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -48,8 +50,11 @@ public class QuantForecastScheduler {
     @Scheduled(cron = "0 */30 * * * *")
     public void rollingForecast() {
         String fearGreedData = fetchFearGreedOnce();
+        // 批量模式下同一轮各symbol共用一个批次组，regime审核/报告叙述合并调用
+        Map<String, Object> batchGroup = LlmBatchCoalescer.groupState(
+                "heavy-" + System.currentTimeMillis(), QuantConstants.WATCH_SYMBOLS.size());
         for (String symbol : QuantConstants.WATCH_SYMBOLS) {
-            Thread.startVirtualThread(() -> runForecast(symbol, fearGreedData));
+            Thread.startVirtualThread(() -> runForecast(symbol, fearGreedData, batchGroup));
         }
     }
 
@@ -82,12 +87,13 @@ public class QuantForecastScheduler {
         }
     }
 
-    private void runForecast(String symbol, String fearGreedData) {
+    private void runForecast(String symbol, String fearGreedData, Map<String, Object> batchGroup) {
         log.info("定时预测开始 symbol={}", symbol);
         try {
+            Map<String, Object> extraState = new HashMap<>(batchGroup);
+            extraState.put("fear_greed_data", fearGreedData);
             Optional<OverAllState> result = aiAgentRuntimeManager.invokeQuantWithFallback(
-                    symbol, "scheduled-" + symbol,
-                    Map.of("fear_greed_data", fearGreedData));
+                    symbol, "scheduled-" + symbol, extraState);
 
             if (result.isEmpty()) {
                 log.warn("定时预测无结果 symbol={}", symbol);
@@ -112,7 +118,9 @@ public class QuantForecastScheduler {
                 String debateSummary = (String) state.value("debate_summary").orElse(null);
                 String rawSnapshotJson = (String) state.value("raw_snapshot_json").orElse(null);
                 String rawReportJson = (String) state.value("raw_report_json").orElse(null);
-                persistService.persist(forecastResult, debateSummary, rawSnapshotJson, rawReportJson);
+                Object nodeTimings = state.value("node_timings").orElse(null);
+                persistService.persist(forecastResult, debateSummary, rawSnapshotJson, rawReportJson,
+                        nodeTimings != null ? JSON.toJSONString(nodeTimings) : null);
 
                 // ★ 缓存供轻周期复用
                 cacheForLightCycle(symbol, state, forecastResult, rawReportJson);
@@ -134,7 +142,7 @@ public class QuantForecastScheduler {
     }
 
     public void runForecast(String symbol) {
-        runForecast(symbol, "{}");
+        runForecast(symbol, "{}", Map.of());
     }
 
     private void cacheForLightCycle(String symbol, OverAllState state,
@@ -3,12 +3,12 @@ package com.mawai.wiibservice.task;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.mawai.wiibcommon.entity.QuantForecastCycle;
 import com.mawai.wiibcommon.entity.QuantForecastVerification;
-import com.mawai.wiibcommon.entity.QuantHorizonForecast;
 import com.mawai.wiibcommon.entity.QuantReflectionMemory;
 import com.mawai.wiibcommon.util.JsonUtils;
 import com.mawai.wiibservice.agent.config.AiAgentRuntimeManager;
 import com.mawai.wiibcommon.constant.QuantConstants;
 import com.mawai.wiibservice.agent.quant.domain.LlmCallMode;
+import com.mawai.wiibservice.agent.quant.memory.MemoryService;
 import com.mawai.wiibservice.agent.quant.memory.VerificationService;
 import com.mawai.wiibservice.mapper.*;
 import com.alibaba.fastjson2.JSON;
@@ -27,26 +27,26 @@ public class ReflectionTask {
 
     private final AiAgentRuntimeManager aiAgentRuntimeManager;
     private final QuantForecastCycleMapper cycleMapper;
-    private final QuantHorizonForecastMapper horizonMapper;
     private final QuantForecastVerificationMapper verificationMapper;
     private final QuantReflectionMemoryMapper reflectionMapper;
     private final QuantAgentVoteMapper voteMapper;
     private final VerificationService verificationService;
+    private final MemoryService memoryService;
 
     public ReflectionTask(AiAgentRuntimeManager aiAgentRuntimeManager,
                           QuantForecastCycleMapper cycleMapper,
-                          QuantHorizonForecastMapper horizonMapper,
                           QuantForecastVerificationMapper verificationMapper,
                           QuantReflectionMemoryMapper reflectionMapper,
                           QuantAgentVoteMapper voteMapper,
-                          VerificationService verificationService) {
+                          VerificationService verificationService,
+                          MemoryService memoryService) {
         this.aiAgentRuntimeManager = aiAgentRuntimeManager;
         this.cycleMapper = cycleMapper;
-        this.horizonMapper = horizonMapper;
         this.verificationMapper = verificationMapper;
         this.reflectionMapper = reflectionMapper;
         this.voteMapper = voteMapper;
         this.verificationService = verificationService;
+        this.memoryService = memoryService;
     }
 
     private static final List<String> WATCH_LIST = QuantConstants.WATCH_SYMBOLS;
@@ -75,13 +75,7 @@ public class ReflectionTask {
             return;
         }
 
-        int verifiedCount = 0;
-        for (QuantForecastCycle cycle : unverified) {
-            List<QuantHorizonForecast> forecasts = horizonMapper.selectByCycleId(cycle.getCycleId());
-            if (!forecasts.isEmpty()) {
-                if (verificationService.verifyCycle(cycle, forecasts) > 0) verifiedCount++;
-            }
-        }
+        int verifiedCount = verificationService.verifyCycles(unverified);
         log.info("[Reflect] 验证完成 symbol={} verified={}/{}", symbol, verifiedCount, unverified.size());
 
         // 2. 收集最近验证结果用于反思
@@ -259,6 +253,7 @@ public class ReflectionTask {
             memory.setReflectionText(allLessons.toString().trim());
             memory.setLessonTags(!allTags.isEmpty() ? allTags.substring(0, allTags.length() - 1) : null);
             reflectionMapper.insert(memory);
+            memoryService.invalidate(symbol);
 
             log.info("[Reflect] 反思记忆写入成功 symbol={} tags={} hasAgentAccuracy={}",
                     symbol, memory.getLessonTags(), agentAccuracy != null);
@@ -1,6 +1,7 @@
 package com.mawai.wiibservice.task;
 
 import com.mawai.wiibservice.service.OrderService;
+import com.mawai.wiibservice.service.OptionChainPushService;
 import com.mawai.wiibservice.service.OptionOrderService;
 import com.mawai.wiibservice.service.CryptoOrderService;
 import com.mawai.wiibservice.service.FuturesSettlementService;
@@ -34,7 +35,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * <p>
  * 1. 每日16:00生成次日行情
  * <p>
- * 2. 交易时段每10秒推送行情（上午9:30-11:30 + 下午13:00-15:00，共1440个点）
+ * 2. 交易时段每10秒推送行情（上午9:30-11:30 + 下午13:00-15:00，共1440个点），同时推送已订阅的期权链
  * <p>
  * 3. 交易时段每10秒触发限价单检测
  * <p>
@@ -56,6 +57,7 @@ import java.util.concurrent.atomic.AtomicReference;
 public class ScheduledTasks {
 
     private final QuotePushService quotePushService;
+    private final OptionChainPushService optionChainPushService;
     private final OrderService orderService;
     private final OptionOrderService optionOrderService;
     private final CryptoOrderService cryptoOrderService;
@@ -91,6 +93,7 @@ public class ScheduledTasks {
 
     public ScheduledTasks(
             QuotePushService quotePushService,
+            OptionChainPushService optionChainPushService,
             OrderService orderService,
             OptionOrderService optionOrderService,
             CryptoOrderService cryptoOrderService,
@@ -102,6 +105,7 @@ public class ScheduledTasks {
             @Qualifier("taskScheduler") TaskScheduler taskScheduler
     ) {
         this.quotePushService = quotePushService;
+        this.optionChainPushService = optionChainPushService;
         this.orderService = orderService;
         this.optionOrderService = optionOrderService;
         this.cryptoOrderService = cryptoOrderService;
@@ -366,6 +370,8 @@ public class ScheduledTasks {
             LocalDate today = LocalDate.now();
             // 推送所有股票行情（内部使用虚拟线程并发推送）
             quotePushService.pushAllQuotes(today);
+            // 期权链只推送本节点有订阅的股票
+            optionChainPushService.pushSubscribedChains();
             // 触发限价单检测（标记触发状态）
             orderService.triggerLimitOrders();
             currentTickIndex++;
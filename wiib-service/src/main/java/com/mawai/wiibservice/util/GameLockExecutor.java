@@ -3,69 +3,216 @@ package com.mawai.wiibservice.util;
 import com.mawai.wiibcommon.enums.ErrorCode;
 import com.mawai.wiibcommon.exception.BizException;
 import com.mawai.wiibservice.service.CacheService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 /**
- * 游戏通用：分布式锁 + 编程式事务 + Redis Session 管理
- * <p>
- * 执行顺序：加锁 → 开事务 → 业务 → 提交事务 → 释放锁
+ * 游戏通用：会话亲和的内存牌局 + Redis 租约 + 同步落盘
+ * 持有租约的节点只加本地锁、直接用本地会话；事务提交前带租约校验同步写 Redis，失败则从快照还原。
  */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class GameLockExecutor {
 
-    private final RedisLockUtil redisLockUtil;
     private final TransactionTemplate transactionTemplate;
     private final CacheService cacheService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisTemplate<String, Object> redisTemplate;
 
-    private static final long LOCK_TIMEOUT_SECONDS = 20;
     private static final long LOCK_WAIT_MILLIS = 3_000;
+    private static final String LEASE_PREFIX = "lease:";
+    private static final String YIELD_PREFIX = "lease-yield:";
+    /** Redis 侧租约时长 */
+    private static final long LEASE_TTL_MILLIS = 30_000;
+    /** 本地认为租约有效的时长，留出时钟与网络余量 */
+    private static final long LEASE_LOCAL_MILLIS = 20_000;
+    /** 本地剩余有效期低于该值时后台续约 */
+    private static final long LEASE_RENEW_AHEAD_MILLIS = 10_000;
+    /** 无动作超过该时长则释放租约、移出内存 */
+    private static final long IDLE_EVICT_MILLIS = 10_000;
+    /** 后台续约/让出检查间隔，决定其他节点抢租约时的等待时长 */
+    private static final long MAINTAIN_INTERVAL_MILLIS = 200;
 
     /**
-     * 在锁 + 事务保护下执行（有返回值，需要写库的场景）
+     * KEYS[1]=租约 KEYS[2]=让出信号；ARGV[1]=nodeId ARGV[2]=ttl毫秒 ARGV[3]=让出信号ttl毫秒（0=不留信号）
+     * 返回 1=续约 2=新拿到 0=被其他节点持有
      */
-    public <T> T executeInLockTx(String lockKeyPrefix, Long userId, Supplier<T> supplier) {
-        String lockKey = lockKeyPrefix + userId;
-        try {
-            return redisLockUtil.executeWithLock(lockKey, LOCK_TIMEOUT_SECONDS, LOCK_WAIT_MILLIS, () ->
-                    transactionTemplate.execute(status -> supplier.get())
-            );
-        } catch (BizException ex) {
-            throw ex;
-        } catch (RuntimeException ex) {
-            if (ex.getMessage() != null && ex.getMessage().contains("获取锁失败")) {
-                throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+    private static final DefaultRedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('get', KEYS[1]) " +
+                    "if v == ARGV[1] then redis.call('pexpire', KEYS[1], ARGV[2]) return 1 end " +
+                    "if v then if ARGV[3] ~= '0' then redis.call('set', KEYS[2], '1', 'PX', ARGV[3]) end return 0 end " +
+                    "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) redis.call('del', KEYS[2]) return 2", Long.class);
+
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('del', KEYS[2]) " +
+                    "return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /** KEYS[1]=租约 KEYS[2]=会话；ARGV[1]=nodeId ARGV[2]=会话字节（空=删除）ARGV[3]=ttl毫秒 */
+    private static final DefaultRedisScript<Long> FENCED_WRITE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) ~= ARGV[1] then return 0 end " +
+                    "if ARGV[2] == '' then redis.call('del', KEYS[2]) " +
+                    "else redis.call('set', KEYS[2], ARGV[2], 'PX', ARGV[3]) end return 1", Long.class);
+
+    private static final Object TOMBSTONE = new Object();
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, Affinity> affinities = new ConcurrentHashMap<>();
+    private final ThreadLocal<Affinity> current = new ThreadLocal<>();
+    private RedisSerializer<Object> valueSerializer;
+    private volatile boolean running = true;
+    private Thread maintainer;
+
+    private final AtomicLong localActions = new AtomicLong();
+    private final AtomicLong localReads = new AtomicLong();
+    private final AtomicLong redisReads = new AtomicLong();
+    private final AtomicLong leaseAcquired = new AtomicLong();
+    private final AtomicLong leaseYielded = new AtomicLong();
+    private final AtomicLong leaseLost = new AtomicLong();
+    private final AtomicLong syncWrites = new AtomicLong();
+    private final AtomicLong restores = new AtomicLong();
+
+    /** 一个用户（lockKey）的亲和状态，所有字段只在 lock 下访问 */
+    private static final class Affinity {
+        final String lockKey;
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, Slot> slots = new HashMap<>();
+        /** 当前动作暂存的 save/delete：key → 会话或 TOMBSTONE */
+        final Map<String, Staged> staged = new LinkedHashMap<>();
+        final Set<String> touched = new HashSet<>();
+        /** 本动作已同步写过 Redis（事务随后若失败，本地需丢弃而不是还原） */
+        boolean syncWritten;
+        boolean evicted;
+        volatile long leaseDeadline;
+        long lastUsed;
+
+        Affinity(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        String leaseKey() {
+            return LEASE_PREFIX + lockKey;
+        }
+
+        String yieldKey() {
+            return YIELD_PREFIX + lockKey;
+        }
+    }
+
+    /** 本地会话：live 为交给业务的对象，snapshot 为最近一次成功动作后的序列化状态（null=不存在） */
+    private static final class Slot {
+        Object live;
+        byte[] snapshot;
+    }
+
+    private record Staged(Object session, long ttlMillis) {
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        maintainer = Thread.ofVirtual().name("game-lease-maintainer").start(this::maintainLoop);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (maintainer != null) maintainer.interrupt();
+        for (Affinity a : affinities.values()) {
+            a.lock.lock();
+            try {
+                releaseLease(a);
+                evict(a);
+            } finally {
+                a.lock.unlock();
             }
-            throw ex;
         }
     }
 
     /**
-     * 在锁保护下执行（有返回值，只读不需要事务）
+     * 在锁 + 事务保护下执行（有返回值，需要写库的场景）
+     */
+    public <T> T executeInLockTx(String lockKeyPrefix, Long userId, Supplier<T> supplier) {
+        return execute(lockKeyPrefix + userId, supplier);
+    }
+
+    /**
+     * 只读执行（有返回值，不开事务、不抢租约）：本节点持有租约时在本地锁下读内存会话，否则直接读 Redis。
+     * supplier 内不得 save/delete 会话
      */
     public <T> T executeInLock(String lockKeyPrefix, Long userId, Supplier<T> supplier) {
         String lockKey = lockKeyPrefix + userId;
-        try {
-            return redisLockUtil.executeWithLock(lockKey, LOCK_TIMEOUT_SECONDS, LOCK_WAIT_MILLIS, supplier);
-        } catch (BizException ex) {
-            throw ex;
-        } catch (RuntimeException ex) {
-            if (ex.getMessage() != null && ex.getMessage().contains("获取锁失败")) {
-                throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+        Affinity active = current.get();
+        if (active != null && active.lockKey.equals(lockKey)) {
+            return supplier.get();
+        }
+        Affinity a = affinities.get(lockKey);
+        if (a != null && lockLocal(a)) {
+            Affinity previous = current.get();
+            try {
+                if (!a.evicted && now() < a.leaseDeadline) {
+                    current.set(a);
+                    localReads.incrementAndGet();
+                    return supplier.get();
+                }
+            } finally {
+                current.set(previous);
+                a.lock.unlock();
             }
-            throw ex;
+        }
+        // 会话都是同步落盘的，Redis 即最新状态
+        Affinity previous = current.get();
+        current.remove();
+        try {
+            redisReads.incrementAndGet();
+            return supplier.get();
+        } finally {
+            if (previous != null) current.set(previous);
         }
     }
 
     // ==================== Session CRUD ====================
 
     public <T> T getSession(String prefix, Long userId) {
-        return cacheService.getObject(prefix + userId);
+        String key = prefix + userId;
+        Affinity a = current.get();
+        if (a == null) {
+            return cacheService.getObject(key);
+        }
+        a.touched.add(key);
+        Staged staged = a.staged.get(key);
+        if (staged != null) {
+            return staged.session() == TOMBSTONE ? null : cast(staged.session());
+        }
+        Slot slot = a.slots.get(key);
+        if (slot == null) {
+            // 本节点首次接触（或接管）该会话：从 Redis 加载最后落盘状态
+            slot = new Slot();
+            slot.live = cacheService.getObject(key);
+            slot.snapshot = slot.live == null ? null : valueSerializer.serialize(slot.live);
+            a.slots.put(key, slot);
+        }
+        return cast(slot.live);
     }
 
     public <T> T requireSession(String prefix, Long userId, ErrorCode notFoundError) {
@@ -75,10 +222,280 @@ public class GameLockExecutor {
     }
 
     public void saveSession(String prefix, Long userId, Object session, long ttlHours) {
-        cacheService.setObject(prefix + userId, session, ttlHours, TimeUnit.HOURS);
+        String key = prefix + userId;
+        Affinity a = current.get();
+        if (a == null) {
+            cacheService.setObject(key, session, ttlHours, TimeUnit.HOURS);
+            return;
+        }
+        a.touched.add(key);
+        a.staged.put(key, new Staged(session, TimeUnit.HOURS.toMillis(ttlHours)));
     }
 
     public void deleteSession(String prefix, Long userId) {
-        cacheService.delete(prefix + userId);
+        String key = prefix + userId;
+        Affinity a = current.get();
+        if (a == null) {
+            cacheService.delete(key);
+            return;
+        }
+        a.touched.add(key);
+        a.staged.put(key, new Staged(TOMBSTONE, 0));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("activeAffinities", affinities.size());
+        m.put("localActions", localActions.get());
+        m.put("localReads", localReads.get());
+        m.put("redisReads", redisReads.get());
+        m.put("leaseAcquired", leaseAcquired.get());
+        m.put("leaseYielded", leaseYielded.get());
+        m.put("leaseLost", leaseLost.get());
+        m.put("syncWrites", syncWrites.get());
+        m.put("restores", restores.get());
+        return m;
+    }
+
+    // ==================== 动作执行 ====================
+
+    private <T> T execute(String lockKey, Supplier<T> supplier) {
+        Affinity a = enter(lockKey);
+        Affinity previous = current.get();
+        boolean outermost = a.lock.getHoldCount() == 1;
+        current.set(a);
+        try {
+            if (!outermost) {
+                return transactionTemplate.execute(status -> supplier.get());
+            }
+            a.staged.clear();
+            a.touched.clear();
+            a.syncWritten = false;
+            List<PendingWrite> writes = new ArrayList<>();
+            T result = transactionTemplate.execute(status -> {
+                T r = supplier.get();
+                persist(a, writes);
+                return r;
+            });
+            applyWrites(a, writes);
+            localActions.incrementAndGet();
+            return result;
+        } catch (RuntimeException ex) {
+            if (outermost) restoreTouched(a);
+            throw ex;
+        } finally {
+            if (outermost) {
+                a.staged.clear();
+                a.touched.clear();
+                a.lastUsed = now();
+            }
+            current.set(previous);
+            a.lock.unlock();
+        }
+    }
+
+    /** 拿到本地锁且持有有效租约的 Affinity */
+    private Affinity enter(String lockKey) {
+        long deadline = now() + LOCK_WAIT_MILLIS;
+        while (true) {
+            Affinity a = affinities.computeIfAbsent(lockKey, Affinity::new);
+            try {
+                if (!a.lock.tryLock(Math.max(0, deadline - now()), TimeUnit.MILLISECONDS)) {
+                    throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+            }
+            if (a.evicted) {
+                // 刚被后台回收，换新的实例重来
+                a.lock.unlock();
+                continue;
+            }
+            if (a.lock.getHoldCount() > 1 || ensureLease(a, deadline)) {
+                return a;
+            }
+            evict(a);
+            a.lock.unlock();
+            throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+        }
+    }
+
+    /** 只读路径的本地锁，等待上限与写动作一致 */
+    private boolean lockLocal(Affinity a) {
+        try {
+            return a.lock.tryLock(LOCK_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+        }
+    }
+
+    /** 租约本地有效直接返回；否则续约或抢占，被其他节点持有时留让出信号并等待至 deadline */
+    private boolean ensureLease(Affinity a, long deadline) {
+        if (now() < a.leaseDeadline) return true;
+        while (true) {
+            Long r = leaseScript(a, true);
+            if (r != null && r > 0) {
+                if (r == 2) {
+                    // 新拿到的租约：别的节点可能改过会话，本地缓存作废
+                    a.slots.clear();
+                    leaseAcquired.incrementAndGet();
+                }
+                a.leaseDeadline = now() + LEASE_LOCAL_MILLIS;
+                return true;
+            }
+            if (now() >= deadline) return false;
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private record PendingWrite(String key, byte[] bytes, Object session) {
+    }
+
+    /** 序列化暂存的改动，在事务提交前带租约校验写入 Redis */
+    private void persist(Affinity a, List<PendingWrite> writes) {
+        for (Map.Entry<String, Staged> e : a.staged.entrySet()) {
+            Object session = e.getValue().session();
+            byte[] bytes = session == TOMBSTONE ? null : valueSerializer.serialize(session);
+            if (!fencedWrite(a, e.getKey(), bytes, e.getValue().ttlMillis())) {
+                invalidate(a);
+                throw new BizException(ErrorCode.CONCURRENT_UPDATE_FAILED);
+            }
+            a.syncWritten = true;
+            syncWrites.incrementAndGet();
+            writes.add(new PendingWrite(e.getKey(), bytes, session));
+        }
+    }
+
+    private void applyWrites(Affinity a, List<PendingWrite> writes) {
+        for (PendingWrite w : writes) {
+            Slot slot = a.slots.computeIfAbsent(w.key(), k -> new Slot());
+            slot.live = w.session() == TOMBSTONE ? null : w.session();
+            slot.snapshot = w.bytes();
+        }
+    }
+
+    /**
+     * 动作失败：本动作碰过的会话从快照还原（业务可能已就地修改了对象）；
+     * 已同步写入 Redis 的会话以 Redis 为准，本地直接丢弃、下次重新加载
+     */
+    private void restoreTouched(Affinity a) {
+        for (String key : a.touched) {
+            if (a.syncWritten && a.staged.containsKey(key)) {
+                a.slots.remove(key);
+                continue;
+            }
+            Slot slot = a.slots.get(key);
+            if (slot == null) continue;
+            slot.live = slot.snapshot == null ? null : valueSerializer.deserialize(slot.snapshot);
+            restores.incrementAndGet();
+        }
+    }
+
+    // ==================== 后台续约 / 让出 / 回收 ====================
+
+    private void maintainLoop() {
+        while (running) {
+            try {
+                Thread.sleep(MAINTAIN_INTERVAL_MILLIS);
+                maintainAll();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("游戏租约后台维护失败", e);
+            }
+        }
+    }
+
+    private void maintainAll() {
+        if (affinities.isEmpty()) return;
+        List<Affinity> list = new ArrayList<>(affinities.values());
+        List<String> yieldKeys = new ArrayList<>(list.size());
+        for (Affinity a : list) yieldKeys.add(a.yieldKey());
+        List<String> yields = stringRedisTemplate.opsForValue().multiGet(yieldKeys);
+        for (int i = 0; i < list.size(); i++) {
+            Affinity a = list.get(i);
+            if (!a.lock.tryLock()) continue;
+            try {
+                maintain(a, yields != null && yields.get(i) != null);
+            } finally {
+                a.lock.unlock();
+            }
+        }
+    }
+
+    private void maintain(Affinity a, boolean yieldRequested) {
+        if (a.evicted) return;
+        long now = now();
+        if (yieldRequested || now - a.lastUsed >= IDLE_EVICT_MILLIS) {
+            // 会话已同步落盘，直接让出；lock 被持有的动作中不会走到这里
+            if (yieldRequested) leaseYielded.incrementAndGet();
+            releaseLease(a);
+            evict(a);
+            return;
+        }
+        if (a.leaseDeadline - now >= LEASE_RENEW_AHEAD_MILLIS) return;
+
+        Long r = leaseScript(a, false);
+        if (r == null || r == 0) {
+            // 已被其他节点接管
+            invalidate(a);
+            evict(a);
+            return;
+        }
+        if (r == 2) {
+            // 租约曾过期且无人接管，重新拿到：期间可能有别的节点改过会话，保留租约、本地缓存作废
+            a.slots.clear();
+            leaseAcquired.incrementAndGet();
+        }
+        a.leaseDeadline = now + LEASE_LOCAL_MILLIS;
+    }
+
+    private Long leaseScript(Affinity a, boolean signalYield) {
+        return stringRedisTemplate.execute(LEASE_SCRIPT, List.of(a.leaseKey(), a.yieldKey()),
+                nodeId, String.valueOf(LEASE_TTL_MILLIS), signalYield ? String.valueOf(LOCK_WAIT_MILLIS) : "0");
+    }
+
+    private boolean fencedWrite(Affinity a, String key, byte[] bytes, long ttlMillis) {
+        Long r = redisTemplate.execute(FENCED_WRITE_SCRIPT, RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class), List.of(a.leaseKey(), key),
+                nodeId.getBytes(StandardCharsets.UTF_8), bytes == null ? EMPTY : bytes,
+                String.valueOf(Math.max(1, ttlMillis)).getBytes(StandardCharsets.UTF_8));
+        return r != null && r == 1;
+    }
+
+    private void releaseLease(Affinity a) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(a.leaseKey(), a.yieldKey()), nodeId);
+        } catch (Exception e) {
+            log.warn("释放游戏租约失败: {}", a.lockKey, e);
+        }
+        a.leaseDeadline = 0;
+    }
+
+    private void invalidate(Affinity a) {
+        a.slots.clear();
+        a.leaseDeadline = 0;
+        leaseLost.incrementAndGet();
+    }
+
+    private void evict(Affinity a) {
+        a.evicted = true;
+        affinities.remove(a.lockKey, a);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object o) {
+        return (T) o;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
     }
 }
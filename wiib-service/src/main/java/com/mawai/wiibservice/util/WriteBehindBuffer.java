@@ -0,0 +1,160 @@
+package com.mawai.wiibservice.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 有界写后缓冲（write-behind）：高频事件先入内存队列，后台线程每 flushIntervalMs 或攒够 batchSize 条批量落库
+ * 队列满时 {@link #offer} 直接丢弃并计数，不阻塞调用方。
+ */
+@Slf4j
+public class WriteBehindBuffer<T> implements AutoCloseable {
+
+    /** close() 等待在途批次写完的上限（在 flushIntervalMs 之外） */
+    private static final long CLOSE_FLUSH_WAIT_MS = 30_000;
+
+    private final String name;
+    private final BlockingQueue<T> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Consumer<List<T>> flusher;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    /**
+     * @param name 名称（日志/监控用）
+     * @param capacity 队列容量，满后丢弃
+     * @param batchSize 单批最大行数
+     * @param flushIntervalMs 最长攒批时间
+     * @param flusher 批量写入函数（如多行INSERT）
+     */
+    public WriteBehindBuffer(String name, int capacity, int batchSize, long flushIntervalMs, Consumer<List<T>> flusher) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flusher = flusher;
+        this.worker = Thread.ofVirtual().name("write-behind-" + name).start(this::runLoop);
+    }
+
+    /** 非阻塞入队，满了丢弃 */
+    public boolean offer(T item) {
+        if (running && queue.offer(item)) {
+            enqueued.incrementAndGet();
+            return true;
+        }
+        onDrop();
+        return false;
+    }
+
+    /** 有限等待入队（背压），超时仍满则丢弃 */
+    public boolean offer(T item, long timeoutMs) {
+        try {
+            if (running && queue.offer(item, timeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        onDrop();
+        return false;
+    }
+
+    private void onDrop() {
+        long n = dropped.incrementAndGet();
+        // 丢弃时按指数间隔打日志，避免爆量时刷屏
+        if (Long.bitCount(n) == 1) {
+            log.warn("[WriteBehind:{}] 队列已满，累计丢弃{}条", name, n);
+        }
+    }
+
+    private void runLoop() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                T first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || wait <= 0) break;
+                    T next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // 非 close() 发起的中断：保留中断标志退出，剩余数据由 close() 排空
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        flush(batch);
+    }
+
+    private void flush(List<T> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            flusher.accept(List.copyOf(batch));
+            flushedRows.addAndGet(batch.size());
+            flushedBatches.incrementAndGet();
+        } catch (Exception e) {
+            failedRows.addAndGet(batch.size());
+            log.error("[WriteBehind:{}] 批量写入失败，丢弃{}条", name, batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+
+    /**
+     * 停止后台线程并同步排空队列：只置标志不中断，worker 最多等一个 poll 周期就会看到标志，
+     * 在途批次写完后退出；join 超时（flush 卡住）也照样排空，队列与计数都是线程安全的
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(flushIntervalMs + CLOSE_FLUSH_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            log.warn("[WriteBehind:{}] 后台批次{}ms内未写完，直接排空剩余队列", name, flushIntervalMs + CLOSE_FLUSH_WAIT_MS);
+        }
+        List<T> rest = new ArrayList<>(batchSize);
+        while (queue.drainTo(rest, batchSize) > 0) {
+            flush(rest);
+        }
+        log.info("[WriteBehind:{}] 已关闭 flushed={} dropped={} failed={}", name, flushedRows.get(), dropped.get(), failedRows.get());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name);
+        m.put("queued", queue.size());
+        m.put("enqueued", enqueued.get());
+        m.put("dropped", dropped.get());
+        m.put("flushedRows", flushedRows.get());
+        m.put("flushedBatches", flushedBatches.get());
+        m.put("failedRows", failedRows.get());
+        return m;
+    }
+}
@@ -0,0 +1,162 @@
+package com.mawai.wiibservice.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.data.redis.connection.DefaultStringTuple;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection.StringTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * ZSet 索引批量重建 + 一致性校验：按key并行diff写入，DB中已不存在的成员删除前交调用方回查一次
+ */
+@Slf4j
+@Component
+public class ZSetIndexRebuilder {
+
+    private static final int ZADD_CHUNK_SIZE = 2000;
+    private static final int KEY_CONCURRENCY = 8;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Map<String, Map<String, Object>> lastResults = new ConcurrentHashMap<>();
+
+    public ZSetIndexRebuilder(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * @param name 索引名（日志/监控用）
+     * @param desired DB中的期望状态 key -> (member -> score)
+     * @param existingKeys Redis中已存在的同类key（SCAN得到）
+     * @param stillLive 回查函数：传入key与其待删成员，返回其中DB里仍然有效的成员及其当前分数（这些不删）
+     */
+    public Map<String, Object> rebuild(String name, Map<String, Map<String, Double>> desired,
+                                       Collection<String> existingKeys,
+                                       BiFunction<String, Collection<String>, Map<String, Double>> stillLive) {
+        long start = System.currentTimeMillis();
+        Set<String> keys = new LinkedHashSet<>(desired.keySet());
+        keys.addAll(existingKeys);
+
+        AtomicLong added = new AtomicLong();
+        AtomicLong updated = new AtomicLong();
+        AtomicLong removed = new AtomicLong();
+        AtomicLong kept = new AtomicLong();
+        AtomicLong failedKeys = new AtomicLong();
+
+        Semaphore semaphore = new Semaphore(KEY_CONCURRENCY);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String key : keys) {
+                executor.submit(() -> {
+                    try {
+                        semaphore.acquire();
+                        try {
+                            rebuildKey(key, desired.getOrDefault(key, Map.of()), stillLive,
+                                    added, updated, removed, kept);
+                        } finally {
+                            semaphore.release();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        failedKeys.incrementAndGet();
+                        log.error("[ZSetRebuild:{}] key={} 重建失败", name, key, e);
+                    }
+                });
+            }
+        }
+
+        long members = desired.values().stream().mapToLong(Map::size).sum();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("name", name);
+        result.put("keys", keys.size());
+        result.put("members", members);
+        result.put("added", added.get());
+        result.put("updated", updated.get());
+        result.put("removed", removed.get());
+        result.put("keptOnRecheck", kept.get());
+        result.put("failedKeys", failedKeys.get());
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        result.put("finishedAt", System.currentTimeMillis());
+        lastResults.put(name, result);
+
+        if (added.get() + updated.get() + removed.get() > 0) {
+            log.warn("[ZSetRebuild:{}] 索引漂移已修正 {}", name, result);
+        } else {
+            log.info("[ZSetRebuild:{}] 索引一致 {}", name, result);
+        }
+        return result;
+    }
+
+    private void rebuildKey(String key, Map<String, Double> want,
+                            BiFunction<String, Collection<String>, Map<String, Double>> stillLive,
+                            AtomicLong added, AtomicLong updated, AtomicLong removed, AtomicLong kept) {
+        Map<String, Double> current = readAll(key);
+
+        List<StringTuple> toAdd = new ArrayList<>();
+        for (Map.Entry<String, Double> e : want.entrySet()) {
+            Double old = current.get(e.getKey());
+            if (old == null) {
+                added.incrementAndGet();
+            } else if (Double.compare(old, e.getValue()) != 0) {
+                updated.incrementAndGet();
+            } else {
+                continue;
+            }
+            toAdd.add(new DefaultStringTuple(e.getKey(), e.getValue()));
+        }
+
+        Set<String> stale = new LinkedHashSet<>();
+        for (String member : current.keySet()) {
+            if (!want.containsKey(member)) stale.add(member);
+        }
+        if (!stale.isEmpty()) {
+            Map<String, Double> live = stillLive.apply(key, stale);
+            for (Map.Entry<String, Double> e : live.entrySet()) {
+                if (!stale.remove(e.getKey())) continue;
+                kept.incrementAndGet();
+                if (Double.compare(current.get(e.getKey()), e.getValue()) != 0) {
+                    updated.incrementAndGet();
+                    toAdd.add(new DefaultStringTuple(e.getKey(), e.getValue()));
+                }
+            }
+        }
+        if (toAdd.isEmpty() && stale.isEmpty()) return;
+        List<String> toRemove = new ArrayList<>(stale);
+
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int i = 0; i < toAdd.size(); i += ZADD_CHUNK_SIZE) {
+                conn.zAdd(key, new HashSet<>(toAdd.subList(i, Math.min(i + ZADD_CHUNK_SIZE, toAdd.size()))));
+            }
+            for (int i = 0; i < toRemove.size(); i += ZADD_CHUNK_SIZE) {
+                conn.zRem(key, toRemove.subList(i, Math.min(i + ZADD_CHUNK_SIZE, toRemove.size())).toArray(new String[0]));
+            }
+            return null;
+        });
+        removed.addAndGet(toRemove.size());
+    }
+
+    private Map<String, Double> readAll(String key) {
+        Set<StringTuple> tuples = stringRedisTemplate.execute((RedisCallback<Set<StringTuple>>) connection ->
+                ((StringRedisConnection) connection).zRangeWithScores(key, 0, -1));
+        if (tuples == null || tuples.isEmpty()) return Map.of();
+        Map<String, Double> map = new HashMap<>(tuples.size() * 2);
+        for (StringTuple t : tuples) {
+            map.put(t.getValueAsString(), t.getScore());
+        }
+        return map;
+    }
+
+    public List<Map<String, Object>> lastResults() {
+        return new ArrayList<>(lastResults.values());
+    }
+}
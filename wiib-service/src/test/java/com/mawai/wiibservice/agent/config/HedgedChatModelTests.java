@@ -0,0 +1,159 @@
+package com.mawai.wiibservice.agent.config;
+
+import com.alibaba.fastjson2.JSONObject;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallMode;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对冲与截止时间：本地起 OpenAI 兼容的流式桩服务，按设定延迟吐出固定内容
+ */
+class HedgedChatModelTests {
+
+    private static final LlmCallBounds JSON_BOUNDS = LlmCallBounds.json(Duration.ofSeconds(10), "answer");
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    @Test
+    void fastPrimaryIsUsedWithoutHedging() throws Exception {
+        StubServer primary = stub(0, "{\"answer\":\"primary\"}");
+        StubServer secondary = stub(0, "{\"answer\":\"secondary\"}");
+
+        String result = call(new HedgedChatModel(primary.model(), secondary.model(), 5_000, 0), JSON_BOUNDS);
+
+        assertEquals("primary", JSONObject.parseObject(result).getString("answer"));
+        assertEquals(0, secondary.requests.get());
+    }
+
+    @Test
+    void slowPrimaryIsHedgedToSecondary() throws Exception {
+        StubServer primary = stub(3_000, "{\"answer\":\"primary\"}");
+        StubServer secondary = stub(0, "{\"answer\":\"secondary\"}");
+
+        long start = System.currentTimeMillis();
+        String result = call(new HedgedChatModel(primary.model(), secondary.model(), 300, 0), JSON_BOUNDS);
+
+        assertEquals("secondary", JSONObject.parseObject(result).getString("answer"));
+        assertTrue(System.currentTimeMillis() - start < 2_500, "应在主模型返回前拿到备用结果");
+        assertEquals(1, secondary.requests.get());
+    }
+
+    @Test
+    void invalidSecondaryDoesNotWin() throws Exception {
+        StubServer primary = stub(1_000, "{\"answer\":\"primary\"}");
+        StubServer secondary = stub(0, "{\"other\":1}");
+
+        String result = call(new HedgedChatModel(primary.model(), secondary.model(), 200, 0), JSON_BOUNDS);
+
+        assertEquals("primary", JSONObject.parseObject(result).getString("answer"));
+        assertEquals(1, secondary.requests.get());
+    }
+
+    @Test
+    void failedPrimaryFailsOverImmediately() throws Exception {
+        StubServer secondary = stub(0, "{\"answer\":\"secondary\"}");
+        ChatModel deadPrimary = model("http://127.0.0.1:1");
+
+        String result = call(new HedgedChatModel(deadPrimary, secondary.model(), 5_000, 0), JSON_BOUNDS);
+
+        assertEquals("secondary", JSONObject.parseObject(result).getString("answer"));
+    }
+
+    @Test
+    void deadlineBoundsTheWholeCall() throws Exception {
+        StubServer primary = stub(3_000, "{\"answer\":\"primary\"}");
+        StubServer secondary = stub(3_000, "{\"answer\":\"secondary\"}");
+        LlmCallBounds tight = LlmCallBounds.json(Duration.ofMillis(800), "answer");
+
+        long start = System.currentTimeMillis();
+        assertThrows(LlmCallBounds.DeadlineExceededException.class,
+                () -> call(new HedgedChatModel(primary.model(), secondary.model(), 200, 0), tight));
+        assertTrue(System.currentTimeMillis() - start < 2_000);
+    }
+
+    private static String call(ChatModel model, LlmCallBounds bounds) {
+        return LlmCallMode.STREAMING.call(ChatClient.builder(model).build(), "ping", bounds);
+    }
+
+    private record StubServer(String baseUrl, AtomicInteger requests) {
+        ChatModel model() {
+            return HedgedChatModelTests.model(baseUrl);
+        }
+    }
+
+    /** 收到请求后等待 delayMs 再以两段 SSE chunk 返回 content */
+    private StubServer stub(long delayMs, String content) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        AtomicInteger requests = new AtomicInteger();
+        server.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            int half = content.length() / 2;
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String part : List.of(content.substring(0, half), content.substring(half))) {
+                    out.write(("data: " + chunk(part) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            } catch (Exception ignored) {
+                // 客户端取消（对冲失败方）时连接被关闭
+            }
+        });
+        server.start();
+        servers.add(server);
+        return new StubServer("http://127.0.0.1:" + server.getAddress().getPort(), requests);
+    }
+
+    private static String chunk(String content) {
+        JSONObject delta = new JSONObject();
+        delta.put("content", content);
+        JSONObject choice = new JSONObject();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        JSONObject root = new JSONObject();
+        root.put("id", "stub");
+        root.put("object", "chat.completion.chunk");
+        root.put("created", 1);
+        root.put("model", "stub");
+        root.put("choices", List.of(choice));
+        return root.toJSONString();
+    }
+
+    private static ChatModel model(String baseUrl) {
+        return OpenAiChatModel.builder()
+                .openAiApi(OpenAiApi.builder().baseUrl(baseUrl).apiKey("stub").build())
+                .defaultOptions(OpenAiChatOptions.builder().model("stub").build())
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.mawai.wiibservice.agent.config;
+
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 通道按 API Key 归并；截止时间到达后，阻塞调用被中断并归还通道槽位
+ */
+class LlmGatewayTests {
+
+    @Test
+    void sameApiKeySharesOneLane() {
+        String agent = LlmGateway.providerKey("https://api.example.com/v1", "sk-secret-1");
+        String market = LlmGateway.providerKey("https://api.example.com", "sk-secret-1");
+
+        assertEquals(agent, market);
+        assertNotEquals(agent, LlmGateway.providerKey("https://api.example.com", "sk-secret-2"));
+        assertFalse(agent.contains("sk-secret"), "通道名不能带明文Key");
+    }
+
+    @Test
+    void blockingDeadlineReleasesGatewaySlot() throws Exception {
+        LlmGateway gateway = new LlmGateway(1, 0, 0);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ChatModel hanging = prompt -> {
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("late"))));
+        };
+        ChatClient client = ChatClient.builder(gateway.wrap(hanging, "test-deadline", LlmGateway.Priority.FORECAST)).build();
+
+        assertThrows(LlmCallBounds.DeadlineExceededException.class,
+                () -> LlmCallMode.BLOCKING.call(client, "hi", LlmCallBounds.text(Duration.ofMillis(200))));
+
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS), "截止后应中断在途调用");
+        // 通道只有 1 个槽位：能立即拿到说明超时调用已归还
+        String next = CompletableFuture.supplyAsync(
+                        () -> gateway.execute("test-deadline", LlmGateway.Priority.FORECAST, 10, () -> "ok"))
+                .get(2, TimeUnit.SECONDS);
+        assertEquals("ok", next);
+    }
+}
@@ -0,0 +1,180 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.mawai.wiibservice.agent.quant.domain.FeatureSnapshot;
+import com.mawai.wiibservice.agent.quant.domain.MarketRegime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeatureSnapshotStoreTests {
+
+    private static final String SYMBOL = "BTCUSDT";
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 10, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendScanRoundTrip() {
+        FeatureSnapshotStore store = store();
+        store.append(snapshot(T0, 100.5, 55.0, 10, MarketRegime.RANGE, "WEAKENING"));
+        store.append(snapshot(T0.plusMinutes(5), 101.25, null, 80, null, "UNKNOWN"));
+
+        FeatureSnapshotStore.FeatureFrame frame = store.scan(SYMBOL, T0, T0.plusHours(1), null);
+
+        assertEquals(2, frame.size());
+        assertArrayEquals(new long[]{millis(T0), millis(T0.plusMinutes(5))}, frame.timestamps());
+        assertEquals(store.columns(), List.copyOf(frame.columns().keySet()));
+        assertArrayEquals(new double[]{100.5, 101.25}, frame.columns().get("last_price"));
+        assertArrayEquals(new double[]{55.0, Double.NaN}, frame.columns().get("ind_1m_rsi14"));
+        assertArrayEquals(new double[]{10, 80}, frame.columns().get("fear_greed_index"));
+        // 枚举按序号存 I8，缺失/未知记 NaN
+        assertArrayEquals(new double[]{MarketRegime.RANGE.ordinal(), Double.NaN}, frame.columns().get("regime"));
+        assertArrayEquals(new double[]{1, Double.NaN}, frame.columns().get("regime_transition"));
+        assertArrayEquals(new double[]{Double.NaN, Double.NaN}, frame.columns().get("atr_1m"));
+        assertArrayEquals(new double[]{1, 1}, frame.columns().get("quality_flag_count"));
+    }
+
+    @Test
+    void scanReadsOnlyProjectedColumns() throws IOException {
+        FeatureSnapshotStore store = store();
+        store.append(snapshot(T0, 100, 40.0, 50, MarketRegime.TREND_UP, "NONE"));
+        // 删掉未投影列的文件：只读投影列时不受影响
+        Files.delete(partition("202603").resolve("ind_1m_rsi14.col"));
+
+        FeatureSnapshotStore.FeatureFrame frame = store.scan(SYMBOL, T0, T0.plusMinutes(1), List.of("last_price", "regime"));
+
+        assertEquals(List.of("last_price", "regime"), List.copyOf(frame.columns().keySet()));
+        assertArrayEquals(new double[]{100}, frame.columns().get("last_price"));
+        assertThrows(IllegalArgumentException.class, () -> store.scan(SYMBOL, T0, T0.plusMinutes(1), List.of("nope")));
+    }
+
+    @Test
+    void outOfOrderAppendsAreReadInTimeOrder() {
+        FeatureSnapshotStore store = store();
+        store.append(snapshot(T0.plusMinutes(10), 3, null, 0, null, null));
+        store.append(snapshot(T0, 1, null, 0, null, null));
+        store.append(snapshot(T0.plusMinutes(5), 2, null, 0, null, null));
+
+        FeatureSnapshotStore.FeatureFrame all = store.scan(SYMBOL, T0, T0.plusHours(1), List.of("last_price"));
+        assertArrayEquals(new long[]{millis(T0), millis(T0.plusMinutes(5)), millis(T0.plusMinutes(10))}, all.timestamps());
+        assertArrayEquals(new double[]{1, 2, 3}, all.columns().get("last_price"));
+
+        // [from, to) 半开区间
+        FeatureSnapshotStore.FeatureFrame middle = store.scan(SYMBOL, T0.plusMinutes(1), T0.plusMinutes(10), List.of("last_price"));
+        assertArrayEquals(new double[]{2}, middle.columns().get("last_price"));
+
+        // 时间索引按行数缓存：新行追加后重新排序
+        store.append(snapshot(T0.plusMinutes(2), 1.5, null, 0, null, null));
+        assertArrayEquals(new double[]{1, 1.5, 2, 3},
+                store.scan(SYMBOL, T0, T0.plusHours(1), List.of("last_price")).columns().get("last_price"));
+    }
+
+    @Test
+    void truncatedColumnIsPaddedOnFirstAppend() throws IOException {
+        FeatureSnapshotStore before = store();
+        before.append(snapshot(T0, 1, null, 0, null, null));
+        before.append(snapshot(T0.plusMinutes(1), 2, null, 0, null, null));
+        // 崩溃：last_price 第二行只写了一半
+        truncate(partition("202603").resolve("last_price.col"), 8 + 3);
+
+        FeatureSnapshotStore after = store();
+        after.append(snapshot(T0.plusMinutes(2), 3, null, 0, null, null));
+
+        FeatureSnapshotStore.FeatureFrame frame = after.scan(SYMBOL, T0, T0.plusHours(1), List.of("last_price", "fear_greed_index"));
+        assertEquals(3, frame.size());
+        assertArrayEquals(new double[]{1, Double.NaN, 3}, frame.columns().get("last_price"));
+        assertArrayEquals(new double[]{0, 0, 0}, frame.columns().get("fear_greed_index"));
+        assertEquals(3L * 8, Files.size(partition("202603").resolve("last_price.col")));
+    }
+
+    @Test
+    void partialRowWithoutTsIsDroppedOnFirstAppend() throws IOException {
+        FeatureSnapshotStore before = store();
+        before.append(snapshot(T0, 1, null, 0, null, null));
+        before.append(snapshot(T0.plusMinutes(1), 2, null, 0, null, null));
+        // 崩溃：第二行其余列都已写入，ts 只写了 3 字节
+        truncate(partition("202603").resolve("ts.col"), 8 + 3);
+
+        FeatureSnapshotStore after = store();
+        assertEquals(1, after.scan(SYMBOL, T0, T0.plusHours(1), List.of("last_price")).size());
+        after.append(snapshot(T0.plusMinutes(2), 3, null, 0, null, null));
+
+        FeatureSnapshotStore.FeatureFrame frame = after.scan(SYMBOL, T0, T0.plusHours(1), List.of("last_price"));
+        assertArrayEquals(new long[]{millis(T0), millis(T0.plusMinutes(2))}, frame.timestamps());
+        assertArrayEquals(new double[]{1, 3}, frame.columns().get("last_price"));
+        assertEquals(2L * 8, Files.size(partition("202603").resolve("ts.col")));
+        assertEquals(2L * 8, Files.size(partition("202603").resolve("last_price.col")));
+    }
+
+    @Test
+    void scanCrossesMonthPartitions() {
+        FeatureSnapshotStore store = store();
+        LocalDateTime endOfJan = LocalDateTime.of(2026, 1, 31, 23, 55);
+        store.append(snapshot(endOfJan.minusDays(1), 0, null, 0, null, null));
+        store.append(snapshot(endOfJan, 1, null, 0, null, null));
+        store.append(snapshot(endOfJan.plusMinutes(10), 2, null, 0, null, null));
+        store.append(snapshot(endOfJan.plusDays(10), 3, null, 0, null, null));
+
+        assertTrue(Files.isDirectory(partition("202601")));
+        assertTrue(Files.isDirectory(partition("202602")));
+        FeatureSnapshotStore.FeatureFrame frame = store.scan(SYMBOL, endOfJan, endOfJan.plusDays(1), List.of("last_price"));
+        assertArrayEquals(new long[]{millis(endOfJan), millis(endOfJan.plusMinutes(10))}, frame.timestamps());
+        assertArrayEquals(new double[]{1, 2}, frame.columns().get("last_price"));
+    }
+
+    @Test
+    void symbolCannotEscapeStoreDirectory() {
+        FeatureSnapshotStore store = store();
+        for (String bad : new String[]{"../../x", "..", "BTC/USDT", "btcusdt", ""}) {
+            assertThrows(IllegalArgumentException.class, () -> store.scan(bad, T0, T0.plusHours(1), null), bad);
+        }
+        store.append(new FeatureSnapshot("../escape", T0, BigDecimal.ONE, null, Map.of(), Map.of(),
+                0, null, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, null,
+                null, null, null, false, 0, 0, 0, 0, null, List.of(), List.of(), 0, null));
+        assertFalse(Files.exists(dir.resolveSibling("escape")));
+        assertFalse(Files.exists(dir.getParent().resolve("escape")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> store.scan(SYMBOL, T0, T0.plus(FeatureSnapshotStore.MAX_SCAN_SPAN).plusDays(1), null));
+        assertThrows(IllegalArgumentException.class, () -> store.scan(SYMBOL, T0, T0.minusDays(1), null));
+    }
+
+    private FeatureSnapshotStore store() {
+        return new FeatureSnapshotStore(dir.resolve("store").toString(), true);
+    }
+
+    private Path partition(String month) {
+        return dir.resolve("store").resolve(SYMBOL).resolve(month);
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.truncate(size);
+        }
+    }
+
+    private static long millis(LocalDateTime t) {
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static FeatureSnapshot snapshot(LocalDateTime time, double price, Double rsi1m, int fearGreed,
+                                            MarketRegime regime, String transition) {
+        Map<String, Map<String, Object>> indicators = rsi1m == null ? Map.of() : Map.of("1m", Map.of("rsi14", rsi1m));
+        return new FeatureSnapshot(SYMBOL, time, BigDecimal.valueOf(price), null, indicators, Map.of(),
+                0, null, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, fearGreed, null,
+                null, null, null, false, 0, 0, 0, 0, regime, List.of(), List.of("STALE"), 0, transition);
+    }
+}
@@ -0,0 +1,79 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 凑批等待、批量调用与回退共用节点的一个截止时间，不叠加
+ */
+class LlmBatchCoalescerTests {
+
+    private static final LlmBatchCoalescer.Spec SPEC = new LlmBatchCoalescer.Spec(
+            "test", "role", "instructions", "{\"summary\":\"...\"}", List.of("summary"), Duration.ofMillis(100));
+    private static final LlmCallBounds BOUNDS = LlmCallBounds.json(Duration.ofMillis(600), "summary");
+
+    @Test
+    void batchResultIsSplitBySymbol() {
+        LlmBatchCoalescer batcher = new LlmBatchCoalescer();
+        LlmBatchCoalescer.Group group = new LlmBatchCoalescer.Group("g-split", 2);
+        String response = "{\"results\":[{\"symbol\":\"BTCUSDT\",\"summary\":\"b\"},{\"symbol\":\"ETHUSDT\",\"summary\":\"e\"}]}";
+
+        CompletableFuture<String> eth = CompletableFuture.supplyAsync(() -> batcher.submit(SPEC, group, "ETHUSDT", "e",
+                BOUNDS, p -> response, b -> fail("不应回退")));
+        String btc = batcher.submit(SPEC, group, "BTCUSDT", "b", BOUNDS, p -> response, b -> fail("不应回退"));
+
+        assertEquals("{\"summary\":\"b\"}", btc);
+        assertEquals("{\"summary\":\"e\"}", eth.join());
+    }
+
+    @Test
+    void fallbackOnlyGetsTheRemainingBudget() {
+        LlmBatchCoalescer batcher = new LlmBatchCoalescer();
+        // 组内另一个 symbol 没来：凑批等待 100ms 后单独回退
+        LlmBatchCoalescer.Group group = new LlmBatchCoalescer.Group("g-fallback", 2);
+        AtomicReference<Duration> budget = new AtomicReference<>();
+
+        String result = batcher.submit(SPEC, group, "BTCUSDT", "b", BOUNDS, p -> fail("单个参与者不应批量调用"), b -> {
+            budget.set(b.deadline());
+            return "{\"summary\":\"single\"}";
+        });
+
+        assertEquals("{\"summary\":\"single\"}", result);
+        assertTrue(budget.get().compareTo(BOUNDS.deadline().minus(SPEC.maxWait())) <= 0, "回退预算=" + budget.get());
+        assertTrue(budget.get().isPositive());
+    }
+
+    @Test
+    void slowBatchEndsAtTheNodeDeadline() {
+        LlmBatchCoalescer batcher = new LlmBatchCoalescer();
+        LlmBatchCoalescer.Group group = new LlmBatchCoalescer.Group("g-slow", 2);
+        Function<String, String> slow = p -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{}";
+        };
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                batcher.submit(SPEC, group, "ETHUSDT", "e", BOUNDS, slow, b -> "{}");
+            } catch (LlmCallBounds.DeadlineExceededException ignored) {
+            }
+        });
+        long start = System.nanoTime();
+        assertThrows(LlmCallBounds.DeadlineExceededException.class,
+                () -> batcher.submit(SPEC, group, "BTCUSDT", "b", BOUNDS, slow, b -> fail("预算已用尽不应回退")));
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waitedMs < 1_500, "等待" + waitedMs + "ms，应止于节点截止时间");
+    }
+}
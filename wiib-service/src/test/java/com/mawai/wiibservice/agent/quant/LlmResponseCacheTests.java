@@ -0,0 +1,94 @@
+package com.mawai.wiibservice.agent.quant;
+
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import org.junit.jupiter.api.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 只有通过 bounds 校验的回答进 L1/L2；坏回答原样返回给本次调用方，下次仍重新调用
+ */
+class LlmResponseCacheTests {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final LlmCallBounds BOUNDS = LlmCallBounds.json(Duration.ofSeconds(5), "summary");
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory factory;
+    private static StringRedisTemplate stringRedisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = RedisServer.newRedisServer().port(port).bind("127.0.0.1").setting("save \"\"").build();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        factory.afterPropertiesSet();
+        factory.start();
+        stringRedisTemplate = new StringRedisTemplate(factory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (factory != null) factory.destroy();
+        if (server != null) server.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        stringRedisTemplate.execute((RedisCallback<Object>) c -> {
+            c.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @Test
+    void validAnswerIsSharedAcrossNodes() {
+        LlmResponseCache.Key key = LlmResponseCache.key("test_valid").add("x", 1).build();
+        AtomicInteger calls = new AtomicInteger();
+        String answer = "{\"summary\":\"ok\"}";
+
+        assertEquals(answer, new LlmResponseCache(stringRedisTemplate).getOrCall(key, 10, TTL, BOUNDS, () -> {
+            calls.incrementAndGet();
+            return answer;
+        }));
+        // 另一个节点：L1 为空，从 Redis 命中
+        assertEquals(answer, new LlmResponseCache(stringRedisTemplate).getOrCall(key, 10, TTL, BOUNDS, () -> {
+            calls.incrementAndGet();
+            return "{}";
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void invalidAnswersAreNotCached() {
+        LlmResponseCache cache = new LlmResponseCache(stringRedisTemplate);
+        LlmResponseCache.Key key = LlmResponseCache.key("test_invalid").add("x", 1).build();
+        AtomicInteger calls = new AtomicInteger();
+
+        for (String bad : new String[]{"市场情绪偏多，建议观望。", "{\"summary\":\"被截断", "{\"other\":1}"}) {
+            assertEquals(bad, cache.getOrCall(key, 10, TTL, BOUNDS, () -> {
+                calls.incrementAndGet();
+                return bad;
+            }));
+        }
+        assertEquals(3, calls.get());
+        assertNull(stringRedisTemplate.opsForValue().get(key.redisKey()));
+
+        cache.getOrCall(key, 10, TTL, BOUNDS, () -> "{\"summary\":\"ok\"}");
+        assertEquals("{\"summary\":\"ok\"}", cache.getOrCall(key, 10, TTL, BOUNDS, () -> fail("应命中缓存")));
+    }
+}
@@ -0,0 +1,45 @@
+package com.mawai.wiibservice.agent.quant.factor;
+
+import com.mawai.wiibservice.agent.quant.domain.NewsItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NewsEventAgentTests {
+
+    private static final List<NewsItem> FRESH = List.of(
+            news("SEC approves spot Ethereum ETF applications"),
+            news("Binance faces new regulatory probe in France"),
+            news("Bitcoin miners move 10,000 BTC to exchanges"));
+
+    @Test
+    void indexWithMatchingOrMissingTitleIsUsed() {
+        assertEquals(1, NewsEventAgent.resolveIndex(2, "Binance faces new regulatory probe in France", FRESH));
+        assertEquals(2, NewsEventAgent.resolveIndex(3, "", FRESH));
+    }
+
+    @Test
+    void wrongOrMissingIndexFallsBackToTitle() {
+        assertEquals(0, NewsEventAgent.resolveIndex(3, "SEC approves spot Ethereum ETF applications", FRESH));
+        assertEquals(1, NewsEventAgent.resolveIndex(null, "binance faces new regulatory probe in france.", FRESH));
+        // LLM 截断标题
+        assertEquals(2, NewsEventAgent.resolveIndex(9, "Bitcoin miners move 10,000 BTC", FRESH));
+    }
+
+    @Test
+    void unresolvableItemReturnsMinusOne() {
+        assertEquals(-1, NewsEventAgent.resolveIndex(7, "Solana outage halts block production", FRESH));
+        assertEquals(-1, NewsEventAgent.resolveIndex(null, "", FRESH));
+        // 太短的片段不做包含匹配
+        assertEquals(-1, NewsEventAgent.resolveIndex(null, "SEC", FRESH));
+        // 同时包含于多条标题：有歧义，不猜
+        List<NewsItem> twins = List.of(news("ETF inflows hit record high"), news("ETF inflows hit record low"));
+        assertEquals(-1, NewsEventAgent.resolveIndex(null, "ETF inflows hit record", twins));
+    }
+
+    private static NewsItem news(String title) {
+        return new NewsItem(title, "", "test", title);
+    }
+}
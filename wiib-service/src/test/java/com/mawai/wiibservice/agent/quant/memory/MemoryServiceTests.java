@@ -0,0 +1,214 @@
+package com.mawai.wiibservice.agent.quant.memory;
+
+import com.mawai.wiibcommon.entity.QuantAgentAccuracy;
+import com.mawai.wiibcommon.entity.QuantAgentVote;
+import com.mawai.wiibcommon.entity.QuantForecastCycle;
+import com.mawai.wiibcommon.entity.QuantForecastVerification;
+import com.mawai.wiibcommon.entity.QuantReflectionMemory;
+import com.mawai.wiibservice.mapper.QuantAgentAccuracyMapper;
+import com.mawai.wiibservice.mapper.QuantAgentVoteMapper;
+import com.mawai.wiibservice.mapper.QuantForecastVerificationMapper;
+import com.mawai.wiibservice.mapper.QuantReflectionMemoryMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 投票按 symbol|agent|horizon|regime|天 合并累加；样本不足 MIN_SAMPLES 的项回退到反思给出的准确率
+ */
+class MemoryServiceTests {
+
+    private static final String SYMBOL = "BTCUSDT";
+    private static final LocalDateTime NOW = LocalDate.now().atTime(10, 0);
+
+    /** 模拟 upsert：同一桶 total/correct 累加 */
+    private final Map<String, QuantAgentAccuracy> table = new LinkedHashMap<>();
+    private final List<List<QuantAgentAccuracy>> upserts = new ArrayList<>();
+    private final AtomicInteger bookLoads = new AtomicInteger();
+    private List<QuantAgentVote> votes = List.of();
+    private String reflection = null;
+
+    @Test
+    void votesAreMergedIntoDailyRegimeBuckets() {
+        MemoryService memory = memoryService();
+        votes = List.of(
+                vote("c1", "tech", "0_10", "LONG"),
+                vote("c2", "tech", "0_10", "SHORT"),
+                vote("c3", "tech", "0_10", "LONG"),
+                vote("c4", "tech", "0_10", "LONG"),
+                // NO_TRADE 票不计；没有对应验证行的 horizon 不计
+                vote("c1", "news", "0_10", "NO_TRADE"),
+                vote("c2", "tech", "10_20", "LONG"));
+
+        memory.saveVerifications(
+                List.of(cycle("c1", NOW, "TREND_UP"), cycle("c2", NOW.plusMinutes(30), "TREND_UP"),
+                        cycle("c3", NOW, "RANGE"), cycle("c4", NOW.minusDays(1), "TREND_UP")),
+                List.of(verification("c1"), verification("c2"), verification("c3"), verification("c4")));
+
+        assertEquals(1, upserts.size());
+        List<QuantAgentAccuracy> rows = upserts.getFirst();
+        assertEquals(3, rows.size());
+        assertBucket(rows.get(0), "TREND_UP", NOW.toLocalDate(), 2, 1);
+        assertBucket(rows.get(1), "RANGE", NOW.toLocalDate(), 1, 1);
+        assertBucket(rows.get(2), "TREND_UP", NOW.toLocalDate().minusDays(1), 1, 1);
+        assertTrue(rows.stream().allMatch(r -> "tech".equals(r.getAgent()) && "0_10".equals(r.getHorizon())));
+
+        // 同一桶再累加一次：物化表合并，不新增行
+        memory.saveVerifications(List.of(cycle("c1", NOW, "TREND_UP")), List.of(verification("c1")));
+        assertEquals(3, table.size());
+        assertEquals(3, table.get(bucketKey("tech", "0_10", "TREND_UP", NOW.toLocalDate())).getTotal());
+    }
+
+    @Test
+    void sparseBucketsFallBackToReflectedAccuracy() {
+        MemoryService memory = memoryService();
+        reflection = "总结…… [AGENT_ACCURACY]{\"tech\":{\"0_10\":0.5},\"news\":{\"0_10\":0.4}}";
+        put("tech", "TREND_UP", 12, 9);
+        put("tech", "RANGE", 4, 4);
+        put("news", "RANGE", 5, 5);
+
+        // 不分 regime：tech 16 个样本用实测，news 5 个样本不足用反思值
+        Map<String, Map<String, Double>> overall = memory.getAgentAccuracy(SYMBOL);
+        assertEquals(13.0 / 16, overall.get("tech").get("0_10"), 1e-9);
+        assertEquals(0.4, overall.get("news").get("0_10"), 1e-9);
+
+        Map<String, Map<String, Double>> trendUp = memory.getAgentAccuracy(SYMBOL, "TREND_UP");
+        assertEquals(0.75, trendUp.get("tech").get("0_10"), 1e-9);
+        assertEquals(0.4, trendUp.get("news").get("0_10"), 1e-9);
+
+        // regime 内样本不足回退到不分 regime 的值；没见过的 regime 整体用不分 regime 的值
+        Map<String, Map<String, Double>> range = memory.getAgentAccuracy(SYMBOL, "RANGE");
+        assertEquals(13.0 / 16, range.get("tech").get("0_10"), 1e-9);
+        assertEquals(overall, memory.getAgentAccuracy(SYMBOL, "SQUEEZE"));
+
+        // 同一天内复用快照，失效后重新加载
+        assertEquals(1, bookLoads.get());
+        memory.invalidate(SYMBOL);
+        memory.getAgentAccuracy(SYMBOL);
+        assertEquals(2, bookLoads.get());
+    }
+
+    private MemoryService memoryService() {
+        QuantForecastVerificationMapper verificationMapper = fake(QuantForecastVerificationMapper.class, Map.of());
+        QuantReflectionMemoryMapper reflectionMapper = fake(QuantReflectionMemoryMapper.class, Map.of(
+                "selectRecent", args -> {
+                    if (reflection == null) return List.of();
+                    QuantReflectionMemory m = new QuantReflectionMemory();
+                    m.setReflectionText(reflection);
+                    return List.of(m);
+                }));
+        QuantAgentAccuracyMapper accuracyMapper = fake(QuantAgentAccuracyMapper.class, Map.of(
+                "upsertBatch", args -> {
+                    @SuppressWarnings("unchecked")
+                    List<QuantAgentAccuracy> list = (List<QuantAgentAccuracy>) args[0];
+                    upserts.add(list);
+                    list.forEach(this::upsert);
+                    return list.size();
+                },
+                "selectSince", args -> {
+                    bookLoads.incrementAndGet();
+                    LocalDate from = (LocalDate) args[1];
+                    return table.values().stream()
+                            .filter(r -> r.getSymbol().equals(args[0]) && !r.getBucketDate().isBefore(from))
+                            .toList();
+                }));
+        QuantAgentVoteMapper voteMapper = fake(QuantAgentVoteMapper.class, Map.of(
+                "selectByCycleIds", args -> votes.stream().filter(v -> ((List<?>) args[0]).contains(v.getCycleId())).toList()));
+        return new MemoryService(verificationMapper, reflectionMapper, accuracyMapper, voteMapper);
+    }
+
+    private void upsert(QuantAgentAccuracy row) {
+        QuantAgentAccuracy existing = table.get(bucketKey(row.getAgent(), row.getHorizon(), row.getRegime(), row.getBucketDate()));
+        if (existing == null) {
+            QuantAgentAccuracy copy = new QuantAgentAccuracy();
+            copy.setSymbol(row.getSymbol());
+            copy.setAgent(row.getAgent());
+            copy.setHorizon(row.getHorizon());
+            copy.setRegime(row.getRegime());
+            copy.setBucketDate(row.getBucketDate());
+            copy.setTotal(row.getTotal());
+            copy.setCorrect(row.getCorrect());
+            table.put(bucketKey(row.getAgent(), row.getHorizon(), row.getRegime(), row.getBucketDate()), copy);
+        } else {
+            existing.setTotal(existing.getTotal() + row.getTotal());
+            existing.setCorrect(existing.getCorrect() + row.getCorrect());
+        }
+    }
+
+    private void put(String agent, String regime, int total, int correct) {
+        QuantAgentAccuracy row = new QuantAgentAccuracy();
+        row.setSymbol(SYMBOL);
+        row.setAgent(agent);
+        row.setHorizon("0_10");
+        row.setRegime(regime);
+        row.setBucketDate(NOW.toLocalDate());
+        row.setTotal(total);
+        row.setCorrect(correct);
+        upsert(row);
+    }
+
+    private static String bucketKey(String agent, String horizon, String regime, LocalDate day) {
+        return String.join("|", SYMBOL, agent, horizon, regime, day.toString());
+    }
+
+    private static void assertBucket(QuantAgentAccuracy row, String regime, LocalDate day, int total, int correct) {
+        assertEquals(SYMBOL, row.getSymbol());
+        assertEquals(regime, row.getRegime());
+        assertEquals(day, row.getBucketDate());
+        assertEquals(total, row.getTotal());
+        assertEquals(correct, row.getCorrect());
+    }
+
+    private static QuantForecastCycle cycle(String cycleId, LocalDateTime time, String regime) {
+        QuantForecastCycle c = new QuantForecastCycle();
+        c.setCycleId(cycleId);
+        c.setSymbol(SYMBOL);
+        c.setForecastTime(time);
+        c.setSnapshotJson("{\"regime\":\"" + regime + "\"}");
+        return c;
+    }
+
+    /** 裁决 LONG 且判对：LONG 票算对，SHORT 票算错 */
+    private static QuantForecastVerification verification(String cycleId) {
+        QuantForecastVerification v = new QuantForecastVerification();
+        v.setCycleId(cycleId);
+        v.setSymbol(SYMBOL);
+        v.setHorizon("0_10");
+        v.setPredictedDirection("LONG");
+        v.setActualChangeBps(30);
+        v.setMaxFavorableBps(35);
+        v.setMaxAdverseBps(5);
+        v.setPredictionCorrect(true);
+        return v;
+    }
+
+    private static QuantAgentVote vote(String cycleId, String agent, String horizon, String direction) {
+        QuantAgentVote v = new QuantAgentVote();
+        v.setCycleId(cycleId);
+        v.setAgent(agent);
+        v.setHorizon(horizon);
+        v.setDirection(direction);
+        return v;
+    }
+
+    /** 只实现用到的 mapper 方法，其余返回空值 */
+    private static <T> T fake(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> impl = methods.get(method.getName());
+            if (impl != null) return impl.apply(args);
+            if (method.getName().equals("toString")) return type.getSimpleName();
+            Class<?> ret = method.getReturnType();
+            if (ret == int.class) return 0;
+            if (ret == boolean.class) return false;
+            if (List.class.isAssignableFrom(ret)) return List.of();
+            return null;
+        }));
+    }
+}
@@ -0,0 +1,46 @@
+package com.mawai.wiibservice.agent.quant.memory;
+
+import com.mawai.wiibcommon.entity.QuantForecastVerification;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VerificationServiceTests {
+
+    @Test
+    void sameDirectionVoteFollowsPredictionCorrect() {
+        // LUCKY：终点方向对但止损先触，验证行记为不对，同向票也不能算对
+        QuantForecastVerification lucky = verification("LONG", 30, 12, 40, false);
+        assertFalse(VerificationService.isVoteCorrect("LONG", lucky));
+
+        QuantForecastVerification good = verification("SHORT", -25, 30, 5, true);
+        assertTrue(VerificationService.isVoteCorrect("SHORT", good));
+    }
+
+    @Test
+    void oppositeVoteUsesMirroredPath() {
+        // 裁决 LONG 判错：价格跌了 40bps，反向 SHORT 票的有利偏移就是 LONG 的不利偏移
+        QuantForecastVerification v = verification("LONG", -40, 3, 55, false);
+        assertTrue(VerificationService.isVoteCorrect("SHORT", v));
+        assertFalse(VerificationService.isVoteCorrect("LONG", verification("SHORT", -40, 55, 3, true)));
+    }
+
+    @Test
+    void voteAgainstNoTradeUsesFinalMove() {
+        assertTrue(VerificationService.isVoteCorrect("LONG", verification("NO_TRADE", 20, null, null, false)));
+        assertFalse(VerificationService.isVoteCorrect("SHORT", verification("NO_TRADE", 20, null, null, false)));
+        assertFalse(VerificationService.isVoteCorrect("LONG", verification("NO_TRADE", 0, null, null, true)));
+    }
+
+    private static QuantForecastVerification verification(String predicted, int changeBps,
+                                                          Integer maxFav, Integer maxAdv, Boolean correct) {
+        QuantForecastVerification v = new QuantForecastVerification();
+        v.setPredictedDirection(predicted);
+        v.setActualChangeBps(changeBps);
+        v.setMaxFavorableBps(maxFav);
+        v.setMaxAdverseBps(maxAdv);
+        v.setPredictionCorrect(correct);
+        return v;
+    }
+}
@@ -0,0 +1,134 @@
+package com.mawai.wiibservice.agent.quant.util;
+
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import com.mawai.wiibcommon.util.JsonUtils;
+import com.mawai.wiibservice.agent.quant.domain.LlmCallBounds;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalJsonParserTests {
+
+    private static final String JUDGE = """
+            ```json
+            {
+              "judgeReasoning": "多头证据更具体，\\"盘口\\"买压持续 {不是对象}",
+              "horizons": [
+                {"horizon":"0_10","approved":true,"newDirection":"LONG","newConfidence":0.65,"bullPct":45},
+                {"horizon":"10_20","approved":false,"newDirection":"NO_TRADE","newConfidence":0,"bullPct":30}
+              ],
+              "flag": null,
+              "done": true
+            }
+            ```
+            以上为裁决。""";
+
+    @Test
+    void emitsFieldsInOrderRegardlessOfChunking() {
+        Map<String, Object> whole = parse(JUDGE, JUDGE.length());
+        for (int size : new int[]{1, 2, 7, 33}) {
+            assertEquals(whole, parse(JUDGE, size), "chunk size " + size);
+        }
+
+        assertEquals(List.of("judgeReasoning", "horizons[0]", "horizons[1]", "horizons", "flag", "done"),
+                List.copyOf(whole.keySet()));
+        assertEquals("多头证据更具体，\"盘口\"买压持续 {不是对象}", whole.get("judgeReasoning"));
+        JSONObject first = (JSONObject) whole.get("horizons[0]");
+        assertEquals("LONG", first.getString("newDirection"));
+        assertEquals(new BigDecimal("0.65"), first.getBigDecimal("newConfidence"));
+        assertEquals(2, ((JSONArray) whole.get("horizons")).size());
+        assertNull(whole.get("flag"));
+        assertEquals(Boolean.TRUE, whole.get("done"));
+    }
+
+    @Test
+    void firstFieldArrivesBeforeTheRestIsStreamed() {
+        List<String> seen = new ArrayList<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser(1, (path, value) -> seen.add(path));
+        int cut = JUDGE.indexOf("\"horizons\"");
+        parser.feed(JUDGE.substring(0, cut));
+
+        assertEquals(List.of("judgeReasoning"), seen);
+        assertFalse(parser.isComplete());
+
+        parser.feed(JUDGE.substring(cut));
+        assertTrue(parser.isComplete());
+        assertEquals(List.of("judgeReasoning", "horizons", "flag", "done"), seen);
+    }
+
+    @Test
+    void scalarsAndNestedPaths() {
+        Map<String, Object> out = parse("{\"a\":{\"b\":-1.5e2,\"c\":[1,2]},\"n\":42}", 3);
+
+        assertEquals(-150.0, ((Number) out.get("a.b")).doubleValue());
+        assertEquals(JSONArray.of(1, 2), out.get("a.c"));
+        assertEquals(42, out.get("n"));
+        assertFalse(out.containsKey("a.c[0]"), "超过emitDepth的值不回调");
+    }
+
+    @Test
+    void truncatedOutputEmitsOnlyCompletedFields() {
+        Map<String, Object> out = parse("{\"summary\":\"完整\",\"reasoning\":\"被截断的", 5);
+
+        assertEquals(Map.of("summary", "完整"), out);
+    }
+
+    @Test
+    void listenerFailureDoesNotStopParsing() {
+        List<String> seen = new ArrayList<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser(1, (path, value) -> {
+            seen.add(path);
+            if (path.equals("a")) throw new IllegalStateException("boom");
+        });
+        parser.feed("{\"a\":1,\"b\":2}");
+
+        assertEquals(List.of("a", "b"), seen);
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    void thinkBlockIsSkippedLikeExtractJson() {
+        String text = "<think>先打个草稿 {\"summary\":\"草稿\",\"bad\": 还没想好}</think>\n"
+                + "{\"summary\":\"正式\",\"n\":1}";
+        for (int size : new int[]{1, 3, text.length()}) {
+            Map<String, Object> out = parse(text, size);
+            assertEquals(Map.of("summary", "正式", "n", 1), out, "chunk size " + size);
+        }
+        assertEquals(JSONObject.of("summary", "正式", "n", 1), JSON.parseObject(JsonUtils.extractJson(text)));
+
+        IncrementalJsonParser unclosed = new IncrementalJsonParser(1, (path, value) -> fail("思考块未闭合不应回调"));
+        unclosed.feed("<think>{\"summary\":\"草稿\"}");
+        assertFalse(unclosed.isComplete());
+    }
+
+    @Test
+    void rootMustPassValidatorBeforeComplete() {
+        List<String> seen = new ArrayList<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser(1, (path, value) -> seen.add(path))
+                .requireRoot(LlmCallBounds.json(Duration.ofSeconds(1), "votes")::isValid);
+
+        parser.feed("示例格式 {\"note\":\"x\"}，下面是结果：");
+        assertFalse(parser.isComplete(), "缺必需字段的根对象不能提前结束流");
+        parser.feed("{\"votes\":[1,2]}```");
+        assertTrue(parser.isComplete());
+        assertEquals(List.of("note", "votes"), seen);
+    }
+
+    private static Map<String, Object> parse(String text, int chunkSize) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser(2, out::put);
+        for (int i = 0; i < text.length(); i += chunkSize) {
+            parser.feed(text.substring(i, Math.min(text.length(), i + chunkSize)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,147 @@
+package com.mawai.wiibservice.config.serializer;
+
+import com.mawai.wiibcommon.dto.RankingDTO;
+import com.mawai.wiibservice.service.impl.BlackjackServiceImpl.BlackjackSession;
+import com.mawai.wiibservice.service.impl.MinesServiceImpl.MinesSession;
+import com.mawai.wiibservice.service.impl.VideoPokerServiceImpl.VPSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.mawai.wiibservice.config.serializer.RedisValueSamples.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryRedisSerializerTests {
+
+    private final BinaryRedisSerializer serializer = binary();
+    private final GenericJackson2JsonRedisSerializer json = json();
+
+    @Test
+    void sessionsRoundTripInBinary() {
+        for (Object session : List.of(blackjack(), mines(), videoPoker())) {
+            byte[] bytes = serializer.serialize(session);
+            assertEquals(BinaryRedisSerializer.MAGIC, bytes[0], session.getClass().getSimpleName());
+            assertEquals(session, serializer.deserialize(bytes), session.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void sessionNullFieldsAndEmptyCollectionsRoundTrip() {
+        BlackjackSession bj = new BlackjackSession();
+        bj.setPlayerHands(new ArrayList<>());
+        MinesSession mines = new MinesSession();
+        mines.setRevealed(new ArrayList<>());
+        VPSession vp = new VPSession();
+
+        for (Object session : List.of(bj, mines, vp)) {
+            assertEquals(session, serializer.deserialize(serializer.serialize(session)),
+                    session.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void unknownCardNamesUseEscapeAndSurvive() {
+        VPSession vp = videoPoker();
+        vp.setCards(new ArrayList<>(List.of("JK1", "AS", "10H", "", "KD")));
+
+        assertEquals(vp, serializer.deserialize(serializer.serialize(vp)));
+    }
+
+    /** v1 没有可证明公平种子：同一份数据去掉两个空种子字段、版本号写1，应读出无种子的会话 */
+    @Test
+    void version1SessionPayloadsStillRead() {
+        BlackjackSession bj = blackjack();
+        MinesSession mines = mines();
+        VPSession vp = videoPoker();
+        bj.setServerSeed(null);
+        bj.setSeedHash(null);
+        mines.setServerSeed(null);
+        mines.setSeedHash(null);
+        vp.setServerSeed(null);
+        vp.setSeedHash(null);
+
+        for (Object session : List.of(bj, mines, vp)) {
+            byte[] v2 = serializer.serialize(session);
+            assertEquals(2, v2[2]);
+            byte[] v1 = Arrays.copyOf(v2, v2.length - 2);
+            v1[2] = 1;
+            assertEquals(session, serializer.deserialize(v1), session.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void dtosRoundTripViaJsonb() {
+        assertEquals(stock(), serializer.deserialize(serializer.serialize(stock())));
+        assertEquals(buffStatus(), serializer.deserialize(serializer.serialize(buffStatus())));
+
+        List<RankingDTO> ranking = ranking(50);
+        byte[] bytes = serializer.serialize(ranking);
+        assertEquals(BinaryRedisSerializer.MAGIC, bytes[0]);
+        assertEquals(ranking, serializer.deserialize(bytes));
+    }
+
+    /** 上线前写入的 Jackson JSON 值（带 @class）必须仍能读出 */
+    @Test
+    void legacyJsonValuesStillRead() {
+        List<Object> legacy = List.of(blackjack(), mines(), videoPoker(), stock(), buffStatus(), ranking(3));
+        for (Object value : legacy) {
+            byte[] jsonBytes = json.serialize(value);
+            assertNotEquals(BinaryRedisSerializer.MAGIC, jsonBytes[0]);
+            assertEquals(value, serializer.deserialize(jsonBytes), value.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void unregisteredTypesFallBackToJson() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("a", 1);
+        map.put("b", "x");
+        List<Object> mixed = new ArrayList<>(List.of(stock(), "not-a-dto"));
+        List<Object> withNull = new ArrayList<>(Arrays.asList(stock(), null));
+
+        for (Object value : List.of(map, "plain", 123L, mixed, withNull, new ArrayList<>())) {
+            byte[] bytes = serializer.serialize(value);
+            assertArrayEquals(json.serialize(value), bytes, String.valueOf(value));
+            // 与直接用 Jackson 的结果一致（如 Long 读回 Integer 也是 Jackson 原有行为）
+            assertEquals(json.deserialize(bytes), serializer.deserialize(bytes), String.valueOf(value));
+        }
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    void unknownTypeIdIsRejected() {
+        byte[] bytes = {BinaryRedisSerializer.MAGIC, 99, 1, 0};
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    @Test
+    void typeIdsMustBeUniqueAndInRange() {
+        BinaryRedisSerializer s = new BinaryRedisSerializer(json);
+        s.register(new RedisCodecs.MinesSessionCodec());
+        assertThrows(IllegalArgumentException.class, () -> s.register(new RedisCodecs.MinesSessionCodec()));
+        assertThrows(IllegalArgumentException.class,
+                () -> s.register(new RedisCodecs.JsonbCodec<>(128, RankingDTO.class)));
+    }
+
+    /** 体积对比：会话与榜单的二进制编码至少比带类型信息的JSON小一半 */
+    @Test
+    void binaryIsMuchSmallerThanJson() {
+        Map<String, Object> values = Map.of(
+                "blackjack", blackjack(),
+                "mines", mines(),
+                "videoPoker", videoPoker(),
+                "ranking50", ranking(50));
+        values.forEach((name, value) -> {
+            int binarySize = serializer.serialize(value).length;
+            int jsonSize = json.serialize(value).length;
+            assertTrue(binarySize * 2 < jsonSize, name + " json=" + jsonSize + " binary=" + binarySize);
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package com.mawai.wiibservice.config.serializer;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mawai.wiibcommon.dto.BuffStatusDTO;
+import com.mawai.wiibcommon.dto.RankingDTO;
+import com.mawai.wiibcommon.dto.StockDTO;
+import com.mawai.wiibcommon.dto.UserBuffDTO;
+import com.mawai.wiibservice.service.GameRngService;
+import com.mawai.wiibservice.service.impl.BlackjackServiceImpl.BlackjackSession;
+import com.mawai.wiibservice.service.impl.BlackjackServiceImpl.SessionHand;
+import com.mawai.wiibservice.service.impl.MinesServiceImpl.MinesSession;
+import com.mawai.wiibservice.service.impl.VideoPokerServiceImpl.VPSession;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 序列化测试与基准共用的样本：形状与线上会话一致（整副牌靴/牌组、分牌后的多手牌、可证明公平种子）
+ */
+final class RedisValueSamples {
+
+    static final String SEED = "9f2c6a0e4b1d7c3a5e8f0b2d4c6a8e1f3b5d7f9a1c3e5b7d9f1a3c5e7b9d1f3a";
+    static final String SEED_HASH = "1b4e7a0d3c6f9b2e5a8d1c4f7b0e3a6d9c2f5b8e1a4d7c0f3b6e9a2d5c8f1b4e";
+
+    private RedisValueSamples() {
+    }
+
+    /** 与 RedisConfig 相同配置的 Jackson 序列化器（存量格式/兜底格式） */
+    static GenericJackson2JsonRedisSerializer json() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return new GenericJackson2JsonRedisSerializer(objectMapper);
+    }
+
+    static BinaryRedisSerializer binary() {
+        return RedisCodecs.register(new BinaryRedisSerializer(json()));
+    }
+
+    static List<String> cards(int from, int count) {
+        List<String> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(GameRngService.cardName((from + i * 7) % 52));
+        }
+        return cards;
+    }
+
+    static BlackjackSession blackjack() {
+        BlackjackSession s = new BlackjackSession();
+        s.setShoe(cards(3, 52));
+        s.setShoeIndex(9);
+        SessionHand first = new SessionHand();
+        first.setCards(cards(10, 3));
+        first.setBet(2_000);
+        first.setStood(true);
+        first.setDoubled(true);
+        SessionHand second = new SessionHand();
+        second.setCards(cards(20, 2));
+        second.setBet(1_000);
+        second.setBusted(true);
+        s.setPlayerHands(List.of(first, second));
+        s.setActiveHandIndex(1);
+        s.setDealerCards(cards(30, 2));
+        s.setBetPerHand(1_000);
+        s.setInsuranceTaken(true);
+        s.setInsuranceBet(500);
+        s.setPhase("PLAYER_TURN");
+        s.setServerSeed(SEED);
+        s.setSeedHash(SEED_HASH);
+        s.setFirstDecisionRound(false);
+        s.setDealerHasNaturalBlackjack(true);
+        s.setPlayerHasNaturalBlackjack(false);
+        return s;
+    }
+
+    static MinesSession mines() {
+        MinesSession s = new MinesSession();
+        s.setGameId(8_123_456_789L);
+        s.setBetAmount(new BigDecimal("1234.50"));
+        s.setMinePositions(new LinkedHashSet<>(List.of(17, 3, 24, 0, 11)));
+        s.setRevealed(new ArrayList<>(List.of(5, 6, 12)));
+        s.setPhase("PLAYING");
+        s.setServerSeed(SEED);
+        s.setSeedHash(SEED_HASH);
+        return s;
+    }
+
+    static VPSession videoPoker() {
+        VPSession s = new VPSession();
+        s.setGameId(42L);
+        s.setBetAmount(new BigDecimal("50"));
+        List<String> deck = new ArrayList<>(cards(1, 47));
+        deck.add(GameRngService.cardName(52));
+        s.setDeck(deck);
+        s.setCards(cards(40, 5));
+        s.setPhase("DEALING");
+        s.setServerSeed(SEED);
+        s.setSeedHash(SEED_HASH);
+        return s;
+    }
+
+    static List<RankingDTO> ranking(int n) {
+        List<RankingDTO> list = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            RankingDTO dto = new RankingDTO();
+            dto.setRank(i);
+            dto.setUserId(10_000L + i);
+            dto.setUsername("user" + i);
+            dto.setAvatar("https://cdn.example.com/avatar/" + i + ".png");
+            dto.setTotalAssets(new BigDecimal("1000000.00").subtract(BigDecimal.valueOf(i * 1_337L)));
+            dto.setProfitPct(new BigDecimal("12.3456").movePointLeft(i % 3));
+            list.add(dto);
+        }
+        return list;
+    }
+
+    static StockDTO stock() {
+        StockDTO dto = new StockDTO();
+        dto.setId(7L);
+        dto.setCode("600519");
+        dto.setName("贵州茅台");
+        dto.setIndustry("白酒");
+        dto.setPrice(new BigDecimal("1688.00"));
+        dto.setOpenPrice(new BigDecimal("1670.10"));
+        dto.setHighPrice(new BigDecimal("1699.99"));
+        dto.setLowPrice(new BigDecimal("1665.00"));
+        dto.setPrevClose(new BigDecimal("1668.80"));
+        dto.setChange(new BigDecimal("19.20"));
+        dto.setChangePct(new BigDecimal("1.15"));
+        dto.setMarketCap(new BigDecimal("2120000000000"));
+        dto.setPeRatio(new BigDecimal("28.6"));
+        dto.setCompanyDesc("主营茅台酒及系列酒的生产与销售");
+        dto.setTrendList(List.of(1, 0, -1, 1, 1));
+        return dto;
+    }
+
+    static BuffStatusDTO buffStatus() {
+        BuffStatusDTO dto = new BuffStatusDTO();
+        dto.setCanDraw(false);
+        UserBuffDTO buff = new UserBuffDTO();
+        buff.setId(99L);
+        buff.setBuffType("DISCOUNT");
+        buff.setBuffName("九折卡");
+        buff.setRarity("RARE");
+        buff.setExtraData("{\"rate\":0.9}");
+        buff.setExpireAt(LocalDateTime.of(2026, 10, 19, 23, 59, 59));
+        buff.setIsUsed(false);
+        dto.setTodayBuff(buff);
+        return dto;
+    }
+}
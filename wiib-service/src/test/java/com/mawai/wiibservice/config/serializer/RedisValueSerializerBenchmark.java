@@ -0,0 +1,74 @@
+package com.mawai.wiibservice.config.serializer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.mawai.wiibservice.config.serializer.RedisValueSamples.*;
+
+/**
+ * Redis 值序列化 JMH 对比：二进制编码 vs 线上原 Jackson（带 @class）
+ * <p>
+ * 运行：在 IDE 里直接跑 main，或 test-compile 后
+ * {@code java -cp <test-classpath> com.mawai.wiibservice.config.serializer.RedisValueSerializerBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisValueSerializerBenchmark {
+
+    @Param({"blackjack", "mines", "videoPoker", "ranking50"})
+    public String value;
+
+    private BinaryRedisSerializer binary;
+    private GenericJackson2JsonRedisSerializer json;
+    private Object sample;
+    private byte[] binaryBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setup() {
+        binary = binary();
+        json = json();
+        sample = switch (value) {
+            case "blackjack" -> blackjack();
+            case "mines" -> mines();
+            case "videoPoker" -> videoPoker();
+            case "ranking50" -> ranking(50);
+            default -> throw new IllegalArgumentException(value);
+        };
+        binaryBytes = binary.serialize(sample);
+        jsonBytes = json.serialize(sample);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binary.serialize(sample);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return json.serialize(sample);
+    }
+
+    @Benchmark
+    public Object binaryDeserialize() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public Object jsonDeserialize() {
+        return json.deserialize(jsonBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RedisValueSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
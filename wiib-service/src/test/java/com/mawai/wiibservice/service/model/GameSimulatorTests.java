@@ -0,0 +1,84 @@
+package com.mawai.wiibservice.service.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 固定 seed + 固定线程数跑模拟器：结果可复现，扫雷与精确RTP吻合，21点基本策略RTP落在合理区间
+ */
+class GameSimulatorTests {
+
+    private static final long SEED = 20260101L;
+    private static final int THREADS = 4;
+
+    @Test
+    void sameSeedReproducesBlackjackReport() {
+        Map<String, Object> a = GameSimulator.simulateBlackjack(200_000, THREADS, SEED);
+        Map<String, Object> b = GameSimulator.simulateBlackjack(200_000, THREADS, SEED);
+        Map<String, Object> other = GameSimulator.simulateBlackjack(200_000, THREADS, SEED + 1);
+
+        for (String key : List.of("rounds", "rtp", "meanNetPerRound", "variance", "netDistribution",
+                "wagerDistribution", "handOutcomes", "hands", "splitRate", "doubleRate")) {
+            assertEquals(a.get(key), b.get(key), key);
+        }
+        assertArrayEquals((double[]) a.get("rtpCi95"), (double[]) b.get("rtpCi95"));
+        assertNotEquals(a.get("meanNetPerRound"), other.get("meanNetPerRound"));
+    }
+
+    @Test
+    void blackjackBasicStrategyRtp() {
+        Map<String, Object> r = GameSimulator.simulateBlackjack(2_000_000, THREADS, SEED);
+
+        assertEquals(2_000_000L, r.get("rounds"));
+        double rtp = (double) r.get("rtp");
+        double[] ci = (double[]) r.get("rtpCi95");
+        assertTrue(ci[0] <= rtp && rtp <= ci[1]);
+        assertTrue(ci[1] - ci[0] < 0.01, "200万局的95%区间应窄于1%");
+        // 单副牌每局重洗、S17、3:2、分牌后可加倍：基本策略下庄家优势在 ±1% 以内
+        assertTrue(rtp > 0.99 && rtp < 1.01, "rtp=" + rtp);
+        assertEquals(1 - rtp, (double) r.get("houseEdge"), 1e-6);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Double> outcomes = (Map<String, Double>) r.get("handOutcomes");
+        assertEquals(1.0, outcomes.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-5);
+        @SuppressWarnings("unchecked")
+        Map<String, Double> nets = (Map<String, Double>) r.get("netDistribution");
+        assertEquals(1.0, nets.values().stream().mapToDouble(Double::doubleValue).sum(), 1e-5);
+    }
+
+    @Test
+    void minesMatchesExactRtpOnEveryLevel() {
+        Map<String, Object> r = GameSimulator.simulateMines(200_000, 0, THREADS, SEED);
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> levels = (List<Map<String, Object>>) r.get("levels");
+        assertEquals(MinesRules.SAFE_COUNT, levels.size());
+        for (Map<String, Object> level : levels) {
+            int k = (int) level.get("reveals");
+            double exact = MinesRules.exactRtp(k);
+            double rtp = (double) level.get("rtp");
+            double[] ci = (double[]) level.get("rtpCi95");
+            // 24档各自95%区间，放宽到2倍半宽（约4σ）避免固定seed下偶然落在区间外
+            double halfWidth = (ci[1] - ci[0]) / 2;
+            assertEquals(exact, rtp, 2 * halfWidth + 1e-6, "reveals=" + k);
+        }
+
+        Map<String, Object> again = GameSimulator.simulateMines(200_000, 0, THREADS, SEED);
+        assertEquals(levels.stream().map(l -> l.get("rtp")).toList(),
+                ((List<?>) again.get("levels")).stream().map(l -> ((Map<?, ?>) l).get("rtp")).toList());
+    }
+
+    @Test
+    void singleMinesLevelRunsOnlyThatLevel() {
+        Map<String, Object> r = GameSimulator.simulateMines(50_000, 3, THREADS, SEED);
+
+        List<?> levels = (List<?>) r.get("levels");
+        assertEquals(1, levels.size());
+        assertEquals(3, ((Map<?, ?>) levels.getFirst()).get("reveals"));
+        assertEquals(50_000L, ((Map<?, ?>) levels.getFirst()).get("rounds"));
+    }
+}
@@ -0,0 +1,224 @@
+package com.mawai.wiibservice.service.model;
+
+import com.mawai.wiibservice.service.GameRngService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查表评估器 vs 逐张判定的参考实现（查表改造前 VideoPokerServiceImpl 的原规则，按牌面字符串判定）
+ */
+class VideoPokerEvaluatorTests {
+
+    /** 与 VideoPokerServiceImpl.PAYOUTS 一致，下标同 CATEGORY_NAMES */
+    private static final double[] PAYOUTS = {800, 100, 50, 50, 20, 7, 5, 3.5, 2.5, 1.5, 1, 0};
+    private static final long ALL_HANDS = 2_869_685;
+
+    private static double[][] subsetSums;
+
+    @BeforeAll
+    static void buildSubsetSums() {
+        subsetSums = VideoPokerEvaluator.subsetPayoutSums(PAYOUTS);
+    }
+
+    @Test
+    void everyHandMatchesReferenceEvaluator() {
+        long[] counts = new long[VideoPokerEvaluator.CATEGORY_NAMES.length];
+        double payoutSum = 0;
+        long hands = 0;
+        int[] h = new int[5];
+        List<String> names = new ArrayList<>(5);
+        for (h[0] = 0; h[0] < 53; h[0]++)
+            for (h[1] = h[0] + 1; h[1] < 53; h[1]++)
+                for (h[2] = h[1] + 1; h[2] < 53; h[2]++)
+                    for (h[3] = h[2] + 1; h[3] < 53; h[3]++)
+                        for (h[4] = h[3] + 1; h[4] < 53; h[4]++) {
+                            names.clear();
+                            for (int c : h) names.add(GameRngService.cardName(c));
+                            int expected = Reference.category(names);
+                            int actual = VideoPokerEvaluator.evaluate(h);
+                            if (expected != actual) {
+                                fail(names + " 参考=" + VideoPokerEvaluator.CATEGORY_NAMES[expected]
+                                        + " 查表=" + VideoPokerEvaluator.CATEGORY_NAMES[actual]);
+                            }
+                            counts[actual]++;
+                            payoutSum += PAYOUTS[expected];
+                            hands++;
+                        }
+
+        assertEquals(ALL_HANDS, hands);
+        // 每个牌型都真实出现过，且不换牌时整张赔率表的期望与子集汇总表一致
+        for (int i = 0; i < counts.length; i++) {
+            assertTrue(counts[i] > 0, VideoPokerEvaluator.CATEGORY_NAMES[i]);
+        }
+        assertEquals(4, counts[0], "自然皇家同花顺只有4手");
+        assertEquals(payoutSum, subsetSums[0][0]);
+    }
+
+    @Test
+    void holdEvsMatchReferenceBruteForce() {
+        for (String hand : List.of("JK1 AS KS QS 9D")) {
+            int[] cards = codes(hand);
+            double[] expected = Reference.holdEvs(cards);
+            double[] actual = VideoPokerEvaluator.holdEvs(cards, PAYOUTS);
+            for (int mask = 0; mask < 32; mask++) {
+                assertEquals(expected[mask], actual[mask], 1e-12, hand + " mask=" + mask);
+            }
+        }
+    }
+
+    @Test
+    void inclusionExclusionEvsMatchDirectEnumeration() {
+        Random random = new Random(20261019L);
+        double[] fast = new double[32];
+        for (int n = 0; n < 40; n++) {
+            int[] deal = random.ints(0, 53).distinct().limit(5).sorted().toArray();
+            VideoPokerEvaluator.holdEvs(deal, subsetSums, fast);
+            double[] direct = VideoPokerEvaluator.holdEvs(deal, PAYOUTS);
+            for (int mask = 0; mask < 32; mask++) {
+                assertEquals(direct[mask], fast[mask], 1e-12, Arrays.toString(deal) + " mask=" + mask);
+            }
+        }
+    }
+
+    /**
+     * 当前赔率表最优策略 RTP；调整 PAYOUTS 时此值会变，需有意识地更新。
+     * 注意：现行赔率（小丑+J以上即保本、两对1.5、三条2.5、顺子3.5）最优打法下回报超过100%
+     */
+    @Test
+    void optimalReturnOfCurrentPaytable() {
+        double rtp = VideoPokerEvaluator.optimalReturn(PAYOUTS);
+        assertEquals(EXPECTED_RTP, rtp, 1e-9, "Joker Poker 最优策略 RTP");
+    }
+
+    private static final double EXPECTED_RTP = 1.2090679446187638;
+
+    private static int[] codes(String hand) {
+        return Arrays.stream(hand.split(" ")).mapToInt(GameRngService::cardCode).toArray();
+    }
+
+    /** 参考实现：原 VideoPokerServiceImpl.evaluateHand 的逐张规则 */
+    private static final class Reference {
+
+        private static final Set<Integer> ROYAL_RANKS = Set.of(10, 11, 12, 13, 14);
+
+        static int category(List<String> cards) {
+            return Arrays.asList(VideoPokerEvaluator.CATEGORY_NAMES).indexOf(evaluateHand(cards));
+        }
+
+        /** 逐一枚举补牌，用参考规则求32种HOLD的期望 */
+        static double[] holdEvs(int[] hand) {
+            List<String> rest = new ArrayList<>();
+            Set<Integer> dealt = new HashSet<>();
+            for (int c : hand) dealt.add(c);
+            for (int c = 0; c < 53; c++) {
+                if (!dealt.contains(c)) rest.add(GameRngService.cardName(c));
+            }
+            double[] evs = new double[32];
+            for (int mask = 0; mask < 32; mask++) {
+                List<String> held = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    if ((mask & (1 << i)) != 0) held.add(GameRngService.cardName(hand[i]));
+                }
+                double[] acc = new double[2];
+                draw(held, rest, 0, acc);
+                evs[mask] = acc[0] / acc[1];
+            }
+            return evs;
+        }
+
+        private static void draw(List<String> cards, List<String> rest, int from, double[] acc) {
+            if (cards.size() == 5) {
+                acc[0] += PAYOUTS[category(cards)];
+                acc[1]++;
+                return;
+            }
+            for (int i = from; i < rest.size(); i++) {
+                cards.add(rest.get(i));
+                draw(cards, rest, i + 1, acc);
+                cards.removeLast();
+            }
+        }
+
+        static String evaluateHand(List<String> cards) {
+            List<Integer> ranks = new ArrayList<>();
+            List<String> suits = new ArrayList<>();
+            int jokers = 0;
+
+            for (String c : cards) {
+                if (c.startsWith("JK")) {
+                    jokers++;
+                } else {
+                    ranks.add(rankToValue(c.substring(0, 1)));
+                    suits.add(c.substring(1));
+                }
+            }
+            Map<Integer, Integer> countMap = new HashMap<>();
+            for (int r : ranks) countMap.merge(r, 1, Integer::sum);
+            int maxCount = countMap.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+            boolean isFlush = ranks.isEmpty() || suits.stream().distinct().count() == 1;
+            boolean isStraight = canFormStraight(ranks, jokers);
+            boolean allRoyal = ROYAL_RANKS.containsAll(ranks);
+            boolean noDupRanks = ranks.stream().distinct().count() == ranks.size();
+
+            if (jokers == 0 && isFlush && allRoyal && ranks.size() == 5) return "Natural Royal Flush";
+            if (jokers > 0 && isFlush && allRoyal && noDupRanks) return "Joker Royal Flush";
+            if (maxCount + jokers >= 5 && countMap.size() == 1) return "Five of a Kind";
+            if (isFlush && isStraight) return "Straight Flush";
+            if (maxCount + jokers >= 4) return "Four of a Kind";
+            if (jokers == 0) {
+                List<Integer> counts = new ArrayList<>(countMap.values());
+                counts.sort(Collections.reverseOrder());
+                if (counts.size() >= 2 && counts.get(0) == 3 && counts.get(1) == 2) return "Full House";
+            } else if (jokers == 1) {
+                long pairCount = countMap.values().stream().filter(c -> c == 2).count();
+                if (pairCount == 2) return "Full House";
+            }
+            if (isFlush) return "Flush";
+            if (isStraight) return "Straight";
+            if (maxCount + jokers >= 3) return "Three of a Kind";
+            if (jokers == 0) {
+                long pairCount = countMap.values().stream().filter(c -> c >= 2).count();
+                if (pairCount >= 2) return "Two Pair";
+            }
+            if (jokers == 0) {
+                for (var e : countMap.entrySet()) {
+                    if (e.getValue() >= 2 && e.getKey() >= 11) return "Jacks or Better";
+                }
+            } else if (ranks.stream().anyMatch(r -> r >= 11)) {
+                return "Jacks or Better";
+            }
+            return "No Win";
+        }
+
+        private static boolean canFormStraight(List<Integer> naturalRanks, int jokers) {
+            for (int low = 1; low <= 10; low++) {
+                int high = low + 4;
+                boolean allFit = true;
+                Set<Integer> covered = new HashSet<>();
+                for (int r : naturalRanks) {
+                    int eff = (r == 14 && low == 1) ? 1 : r;
+                    if (eff < low || eff > high) { allFit = false; break; }
+                    covered.add(eff);
+                }
+                if (allFit && 5 - covered.size() <= jokers) return true;
+            }
+            return false;
+        }
+
+        private static int rankToValue(String rank) {
+            return switch (rank) {
+                case "A" -> 14;
+                case "K" -> 13;
+                case "Q" -> 12;
+                case "J" -> 11;
+                case "T" -> 10;
+                default -> Integer.parseInt(rank);
+            };
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mawai.wiibservice.util;
+
+import com.mawai.wiibcommon.enums.ErrorCode;
+import com.mawai.wiibcommon.exception.BizException;
+import com.mawai.wiibservice.config.RedisConfig;
+import com.mawai.wiibservice.service.CacheService;
+import org.junit.jupiter.api.*;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 两个 GameLockExecutor 实例模拟两个节点，共用一个内嵌 redis-server：
+ * 同步落盘、租约让出/接管、fencing、失败还原、只读不抢租约
+ */
+class GameLockExecutorTests {
+
+    private static final String LK = "test:lock:";
+    private static final String SK = "test:session:";
+    private static final long USER = 7L;
+    private static final String LEASE_KEY = "lease:" + LK + USER;
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory factory;
+    private static RedisTemplate<String, Object> redisTemplate;
+    private static StringRedisTemplate stringRedisTemplate;
+
+    private final List<GameLockExecutor> nodes = new ArrayList<>();
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = RedisServer.newRedisServer().port(port).bind("127.0.0.1").setting("save \"\"").build();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        factory.afterPropertiesSet();
+        factory.start();
+        redisTemplate = new RedisConfig().redisTemplate(factory);
+        stringRedisTemplate = new RedisConfig().stringRedisTemplate(factory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (factory != null) factory.destroy();
+        if (server != null) server.stop();
+    }
+
+    @BeforeEach
+    void flush() {
+        stringRedisTemplate.execute((RedisCallback<Object>) c -> {
+            c.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(GameLockExecutor::shutdown);
+    }
+
+    @Test
+    void sessionIsInRedisBeforeActionReturns() {
+        GameLockExecutor a = node();
+        start(a, 1);
+
+        // 不等后台线程、不释放租约：Redis 里已经是最新会话（节点此刻宕机也不丢）
+        assertEquals(1, redisStep());
+        step(a);
+        assertEquals(2, redisStep());
+        assertNotNull(stringRedisTemplate.opsForValue().get(LEASE_KEY));
+    }
+
+    @Test
+    void crashedOwnerIsTakenOverFromLastWrite() {
+        GameLockExecutor a = node();
+        start(a, 1);
+        step(a);
+        // 模拟 a 宕机：不 shutdown，租约自然过期
+        stringRedisTemplate.delete(LEASE_KEY);
+
+        GameLockExecutor b = node();
+        assertEquals(3, step(b));
+        assertEquals(3, redisStep());
+    }
+
+    @Test
+    void contenderMakesIdleOwnerYield() {
+        GameLockExecutor a = node();
+        start(a, 1);
+        String ownerA = stringRedisTemplate.opsForValue().get(LEASE_KEY);
+
+        GameLockExecutor b = node();
+        long begin = System.nanoTime();
+        assertEquals(2, step(b));
+        long waitedMs = (System.nanoTime() - begin) / 1_000_000;
+
+        String ownerB = stringRedisTemplate.opsForValue().get(LEASE_KEY);
+        assertNotNull(ownerB);
+        assertNotEquals(ownerA, ownerB);
+        assertTrue(waitedMs < 2_000, "持有方应在后台检查周期内让出，实际等待" + waitedMs + "ms");
+        assertNull(stringRedisTemplate.opsForValue().get("lease-yield:" + LK + USER), "接管后让出信号应清除");
+
+        // 让出后 a 再动作：读到 b 写过的会话，而不是本地旧缓存
+        assertEquals(3, step(a));
+    }
+
+    @Test
+    void staleOwnerIsFencedOut() {
+        GameLockExecutor a = node();
+        start(a, 1);
+        // a 本地仍认为租约有效，但 Redis 里已被别的节点拿走并写过会话
+        stringRedisTemplate.opsForValue().set(LEASE_KEY, "other-node");
+        redisTemplate.opsForValue().set(SK + USER, session(10));
+
+        BizException ex = assertThrows(BizException.class, () -> step(a));
+        assertEquals(ErrorCode.CONCURRENT_UPDATE_FAILED.getCode(), ex.getCode());
+        assertEquals(10, redisStep(), "被 fencing 拒绝的写不能覆盖接管方的会话");
+
+        // 接管方释放后，a 重新拿租约并从 Redis 重新加载
+        stringRedisTemplate.delete(LEASE_KEY);
+        assertEquals(11, step(a));
+    }
+
+    @Test
+    void failedActionRestoresSnapshot() {
+        GameLockExecutor a = node();
+        start(a, 1);
+
+        assertThrows(IllegalStateException.class, () -> a.executeInLockTx(LK, USER, () -> {
+            Map<String, Object> s = a.getSession(SK, USER);
+            s.put("step", 99);
+            a.saveSession(SK, USER, s, 1);
+            throw new IllegalStateException("业务失败");
+        }));
+
+        assertEquals(1, redisStep());
+        assertEquals(2, step(a), "就地修改过的会话应从快照还原");
+    }
+
+    @Test
+    void readOnlyDoesNotTakeLease() {
+        GameLockExecutor a = node();
+        start(a, 1);
+        String ownerA = stringRedisTemplate.opsForValue().get(LEASE_KEY);
+
+        GameLockExecutor b = node();
+        Map<String, Object> seen = b.executeInLock(LK, USER, () -> b.getSession(SK, USER));
+        assertEquals(1, seen.get("step"));
+        assertEquals(ownerA, stringRedisTemplate.opsForValue().get(LEASE_KEY));
+        assertNull(stringRedisTemplate.opsForValue().get("lease-yield:" + LK + USER));
+
+        // 持有方的只读走本地缓存
+        Map<String, Object> local = a.executeInLock(LK, USER, () -> a.getSession(SK, USER));
+        assertEquals(1, local.get("step"));
+    }
+
+    @Test
+    void deleteIsPersistedSynchronously() {
+        GameLockExecutor a = node();
+        start(a, 1);
+        a.executeInLockTx(LK, USER, () -> {
+            a.deleteSession(SK, USER);
+            return null;
+        });
+
+        assertNull(redisTemplate.opsForValue().get(SK + USER));
+        assertNull(a.executeInLock(LK, USER, () -> a.getSession(SK, USER)));
+    }
+
+    // ==================== helpers ====================
+
+    private GameLockExecutor node() {
+        GameLockExecutor executor = new GameLockExecutor(new TransactionTemplate(new NoopTransactionManager()),
+                new CacheService(redisTemplate, stringRedisTemplate, null), stringRedisTemplate, redisTemplate);
+        executor.init();
+        nodes.add(executor);
+        return executor;
+    }
+
+    private static void start(GameLockExecutor node, int step) {
+        node.executeInLockTx(LK, USER, () -> {
+            node.saveSession(SK, USER, session(step), 1);
+            return null;
+        });
+    }
+
+    /** 会话 step+1 并返回新值 */
+    private static int step(GameLockExecutor node) {
+        return node.executeInLockTx(LK, USER, () -> {
+            Map<String, Object> s = node.requireSession(SK, USER, ErrorCode.PARAM_ERROR);
+            int next = (Integer) s.get("step") + 1;
+            s.put("step", next);
+            node.saveSession(SK, USER, s, 1);
+            return next;
+        });
+    }
+
+    private static int redisStep() {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> s = (Map<String, Object>) redisTemplate.opsForValue().get(SK + USER);
+        assertNotNull(s);
+        return (Integer) s.get("step");
+    }
+
+    private static Map<String, Object> session(int step) {
+        Map<String, Object> s = new HashMap<>();
+        s.put("step", step);
+        return s;
+    }
+
+    /** 不连数据库的事务管理器，只走 TransactionTemplate 的提交/回滚流程 */
+    private static final class NoopTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
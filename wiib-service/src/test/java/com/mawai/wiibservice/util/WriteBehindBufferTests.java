@@ -0,0 +1,53 @@
+package com.mawai.wiibservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindBufferTests {
+
+    @Test
+    void closeWaitsForInFlightBatchWithoutInterrupting() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-slow", 100, 10, 20, batch -> {
+            inFlight.countDown();
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw new IllegalStateException("flush interrupted");
+            }
+            written.addAll(batch);
+        });
+
+        buffer.offer(1);
+        assertTrue(inFlight.await(2, TimeUnit.SECONDS));
+        for (int i = 2; i <= 25; i++) buffer.offer(i);
+        buffer.close();
+
+        assertFalse(interrupted.get(), "在途批次不应被中断");
+        assertEquals(25, written.size());
+        assertEquals(25L, buffer.stats().get("flushedRows"));
+        assertEquals(0L, buffer.stats().get("failedRows"));
+    }
+
+    @Test
+    void offerAfterCloseIsDropped() {
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test-closed", 10, 10, 20, written::addAll);
+        buffer.offer(1);
+        buffer.close();
+
+        assertFalse(buffer.offer(2));
+        assertEquals(List.of(1), written);
+        assertEquals(1L, buffer.stats().get("dropped"));
+    }
+}
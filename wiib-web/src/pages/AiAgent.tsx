@@ -18,6 +18,11 @@ const HORIZON_LABELS: Record<string, string> = { '0_10': '0-10min', '10_20': '10
 
 const ALLOWED_SYMBOLS = ['BTCUSDT', 'ETHUSDT', 'PAXGUSDT'] as const;
 const SYMBOL_LABELS: Record<string, string> = { BTCUSDT: 'BTC', ETHUSDT: 'ETH', PAXGUSDT: 'PAXG' };
+const PARTIAL_LABELS: Record<string, string> = {
+  direction: '系统裁决', bullArgument: '多头论据', bearArgument: '空头论据', judgeReasoning: '裁判推理',
+  'verdict.0_10': '0-10min裁决', 'verdict.10_20': '10-20min裁决', 'verdict.20_30': '20-30min裁决',
+  reasoning: '综合推理', summary: '总结', analysisBasis: '预测依据', indicators: '指标解读', riskWarnings: '风险提示',
+};
 
 function ConfidenceBar({ confidence }: { confidence: number }) {
   const color = confidence >= 80 ? 'bg-green-500' : confidence >= 60 ? 'bg-amber-500' : 'bg-red-500';
@@ -151,6 +156,10 @@ export function AiAgent() {
   const [reportSymbol, setReportSymbol] = useState('BTCUSDT');
   const [cryptoPending, setCryptoPending] = useState(false);
   const [cryptoPendingMsg, setCryptoPendingMsg] = useState('');
+  const [partialFields, setPartialFields] = useState<Record<string, string>>({});
+  // 增量片段所属的周期：新周期到来时清空旧片段；已收到完整报告的周期，迟到的片段直接丢弃
+  const partialCycleRef = useRef<string | null>(null);
+  const finishedCycleRef = useRef<string | null>(null);
   const pollRef = useRef<ReturnType<typeof setInterval> | null>(null);
   const [symbol, setSymbol] = useState('BTCUSDT');
   const [chatMessages, setChatMessages] = useState<{ role: string; content: string }[]>([]);
@@ -216,12 +225,32 @@ export function AiAgent() {
             setCryptoForecastTime(new Date().toISOString());
             setReportSymbol(wsSymbol);
             setCryptoPending(false);
+            finishedCycleRef.current = partialCycleRef.current;
+            setPartialFields({});
             stopPolling();
             toast('收到新的量化预测', 'success');
           } catch { /* skip */ }
           // 同时刷新信号数据
           loadSignalData(wsSymbol);
         });
+        // 生成中的增量片段：先到硬性裁决，再逐个到达辩论与叙述字段（仅预览，最终以完整报告为准）
+        client.subscribe(`/topic/quant/${wsSymbol}/partial`, (msg) => {
+          try {
+            const p: { cycleId: string; field: string; value: unknown } = JSON.parse(msg.body);
+            if (p.cycleId === finishedCycleRef.current) return;
+            const fresh = p.cycleId !== partialCycleRef.current;
+            partialCycleRef.current = p.cycleId;
+            if (p.field === 'hardReport') {
+              const { direction: d, confidence } = p.value as CryptoAnalysisReport;
+              setPartialFields(prev => ({ direction: `超短线 ${d.ultraShort}｜短线 ${d.shortTerm}｜中短线 ${d.mid}｜置信度 ${confidence}%`, ...(fresh ? {} : prev) }));
+              return;
+            }
+            const verdict = p.field === 'verdict' ? p.value as { horizon?: string; reason?: string } : null;
+            const key = verdict ? `verdict.${verdict.horizon}` : p.field;
+            const text = verdict ? verdict.reason ?? '' : Array.isArray(p.value) ? p.value.join('；') : String(p.value ?? '');
+            setPartialFields(prev => ({ ...(fresh ? {} : prev), [key]: text }));
+          } catch { /* skip */ }
+        });
       },
     });
     client.activate();
@@ -286,6 +315,8 @@ export function AiAgent() {
       } else {
         setCryptoPending(true);
         setCryptoPendingMsg(result.message || '分析进行中，请稍候');
+        partialCycleRef.current = null;
+        setPartialFields({});
         pollRef.current = setInterval(() => fetchLatestReport(symbol), 5000);
       }
     } catch (e) {
@@ -662,6 +693,15 @@ export function AiAgent() {
                     <p className="text-sm text-muted-foreground mb-2">{cryptoPendingMsg || '等待后台生成报告...'}</p>
                     <Loader2 className="w-5 h-5 animate-spin mx-auto text-primary" />
                     <p className="text-xs text-muted-foreground mt-4">系统每30分钟生成一次，就快好了</p>
+                    {Object.keys(partialFields).length > 0 && (
+                      <div className="mt-4 text-left space-y-1.5 max-w-md mx-auto">
+                        {Object.entries(partialFields).map(([k, v]) => (
+                          <p key={k} className="text-xs text-muted-foreground line-clamp-3">
+                            <span className="font-medium text-foreground">{PARTIAL_LABELS[k] ?? k}</span>：{v}
+                          </p>
+                        ))}
+                      </div>
+                    )}
                   </>
                 )}
               </CardContent>